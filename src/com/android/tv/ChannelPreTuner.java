@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.android.tv.data.Channel;
+import com.android.tv.data.WatchedHistoryManager;
+import com.android.tv.data.WatchedHistoryManager.WatchedRecord;
+import com.android.tv.util.Clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Predicts the channel which is likely to be tuned next by channel up/down, so that it can be
+ * pre-tuned by {@link com.android.tv.ui.TunableTvView#preTune}.
+ *
+ * <p>While a user is zapping, the next channel is the adjacent one in the zapping direction.
+ * Otherwise, it's the adjacent one which has been watched longer.
+ */
+@MainThread
+class ChannelPreTuner {
+    // A channel up/down in this duration after the last one is considered as the same zapping.
+    @VisibleForTesting
+    static final long ZAPPING_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final long INVALID_TIME = -1;
+
+    private final ChannelTuner mChannelTuner;
+    @Nullable
+    private final WatchedHistoryManager mWatchedHistoryManager;
+    private final Clock mClock;
+    private boolean mLastZappingUp;
+    private long mLastZappingTimeMs = INVALID_TIME;
+
+    ChannelPreTuner(ChannelTuner channelTuner,
+            @Nullable WatchedHistoryManager watchedHistoryManager, Clock clock) {
+        mChannelTuner = channelTuner;
+        mWatchedHistoryManager = watchedHistoryManager;
+        mClock = clock;
+    }
+
+    /**
+     * Called when the channel is moved by channel up/down.
+     */
+    void onZapped(boolean up) {
+        mLastZappingUp = up;
+        mLastZappingTimeMs = mClock.elapsedRealtime();
+    }
+
+    /**
+     * Returns the channel which is likely to be tuned next, or {@code null} if there's none.
+     */
+    @Nullable
+    Channel getPredictedChannel() {
+        Channel current = mChannelTuner.getCurrentChannel();
+        if (current == null) {
+            return null;
+        }
+        Channel up = mChannelTuner.getAdjacentBrowsableChannel(true);
+        Channel down = mChannelTuner.getAdjacentBrowsableChannel(false);
+        if (current.equals(up)) {
+            up = null;
+        }
+        if (current.equals(down)) {
+            down = null;
+        }
+        if (up == null || down == null || up.equals(down)) {
+            return up != null ? up : down;
+        }
+        if (isZapping()) {
+            return mLastZappingUp ? up : down;
+        }
+        long upWatchedMs = 0;
+        long downWatchedMs = 0;
+        if (mWatchedHistoryManager != null) {
+            for (WatchedRecord record : mWatchedHistoryManager.getWatchedHistory()) {
+                if (record.channelId == up.getId()) {
+                    upWatchedMs += record.duration;
+                } else if (record.channelId == down.getId()) {
+                    downWatchedMs += record.duration;
+                }
+            }
+        }
+        return predict(up, down, upWatchedMs, downWatchedMs);
+    }
+
+    /**
+     * Chooses between the adjacent channels which are not zapped recently by their watched
+     * durations. Channel up wins a tie since it's the more common direction.
+     */
+    @VisibleForTesting
+    static Channel predict(Channel up, Channel down, long upWatchedMs, long downWatchedMs) {
+        return downWatchedMs > upWatchedMs ? down : up;
+    }
+
+    private boolean isZapping() {
+        return mLastZappingTimeMs != INVALID_TIME
+                && mClock.elapsedRealtime() - mLastZappingTimeMs < ZAPPING_TIMEOUT_MS;
+    }
+}
@@ -23,7 +23,6 @@ import android.os.Handler;
 import android.support.annotation.MainThread;
 import android.support.annotation.Nullable;
 import android.util.ArraySet;
-import android.util.Log;
 
 import com.android.tv.common.SoftPreconditions;
 import com.android.tv.data.Channel;
@@ -31,7 +30,7 @@ import com.android.tv.data.ChannelDataManager;
 import com.android.tv.util.TvInputManagerHelper;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,12 +46,10 @@ public class ChannelTuner {
 
     private boolean mStarted;
     private boolean mChannelDataManagerLoaded;
-    private final List<Channel> mChannels = new ArrayList<>();
-    private final List<Channel> mBrowsableChannels = new ArrayList<>();
+    // The browsable channels in the order of ChannelDataManager.getChannelList, which are updated
+    // by the changed channels only.
+    private final SortedChannelList mBrowsableChannels;
     private final Map<Long, Channel> mChannelMap = new HashMap<>();
-    // TODO: need to check that mChannelIndexMap can be removed, once mCurrentChannelIndex
-    // is changed to mCurrentChannel(Id).
-    private final Map<Long, Integer> mChannelIndexMap = new HashMap<>();
 
     private final Handler mHandler = new Handler();
     private final ChannelDataManager mChannelDataManager;
@@ -68,7 +65,7 @@ public class ChannelTuner {
                 @Override
                 public void onLoadFinished() {
                     mChannelDataManagerLoaded = true;
-                    updateChannelData(mChannelDataManager.getChannelList());
+                    loadChannels();
                     for (Listener l : mListeners) {
                         l.onLoadFinished();
                     }
@@ -76,21 +73,30 @@ public class ChannelTuner {
 
                 @Override
                 public void onChannelListUpdated() {
-                    updateChannelData(mChannelDataManager.getChannelList());
+                    // The channels are updated by mChannelListChangeListener, which is called
+                    // right before this.
                 }
 
                 @Override
                 public void onChannelBrowsableChanged() {
                     updateBrowsableChannels();
-                    for (Listener l : mListeners) {
-                        l.onBrowsableChannelListChanged();
-                    }
+                    notifyBrowsableChannelListChanged();
                 }
     };
 
+    private final ChannelDataManager.ChannelListChangeListener mChannelListChangeListener =
+            new ChannelDataManager.ChannelListChangeListener() {
+                @Override
+                public void onChannelListChanged(List<Channel> addedChannels,
+                        List<Channel> removedChannels, List<Channel> updatedChannels) {
+                    applyChannelListChange(addedChannels, removedChannels, updatedChannels);
+                }
+            };
+
     public ChannelTuner(ChannelDataManager channelDataManager, TvInputManagerHelper inputManager) {
         mChannelDataManager = channelDataManager;
         mInputManager = inputManager;
+        mBrowsableChannels = new SortedChannelList(channelDataManager.getChannelComparator());
     }
 
     /**
@@ -102,6 +108,7 @@ public class ChannelTuner {
         }
         mStarted = true;
         mChannelDataManager.addListener(mChannelDataManagerListener);
+        mChannelDataManager.addChannelListChangeListener(mChannelListChangeListener);
         if (mChannelDataManager.isDbLoadFinished()) {
             mHandler.post(new Runnable() {
                 @Override
@@ -122,11 +129,10 @@ public class ChannelTuner {
         mStarted = false;
         mHandler.removeCallbacksAndMessages(null);
         mChannelDataManager.removeListener(mChannelDataManagerListener);
+        mChannelDataManager.removeChannelListChangeListener(mChannelListChangeListener);
         mCurrentChannel = null;
-        mChannels.clear();
         mBrowsableChannels.clear();
         mChannelMap.clear();
-        mChannelIndexMap.clear();
         mChannelDataManagerLoaded = false;
     }
 
@@ -141,7 +147,7 @@ public class ChannelTuner {
      * Returns browsable channel lists.
      */
     public List<Channel> getBrowsableChannelList() {
-        return Collections.unmodifiableList(mBrowsableChannels);
+        return mBrowsableChannels.asList();
     }
 
     /**
@@ -228,30 +234,25 @@ public class ChannelTuner {
         if (isCurrentChannelPassthrough() || getBrowsableChannelCount() == 0) {
             return null;
         }
-        int channelIndex;
+        int size = mBrowsableChannels.size();
         if (mCurrentChannel == null) {
-            channelIndex = 0;
-            Channel channel = mChannels.get(channelIndex);
-            if (channel.isBrowsable()) {
-                return channel;
+            // Start from the first channel, which can be non-browsable.
+            Channel first = mBrowsableChannels.get(0);
+            if (up || first.equals(mChannelDataManager.getChannelList().get(0))) {
+                return first;
             }
-        } else {
-            channelIndex = mChannelIndexMap.get(mCurrentChannel.getId());
+            return mBrowsableChannels.get(size - 1);
         }
-        int size = mChannels.size();
-        for (int i = 0; i < size; ++i) {
-            int nextChannelIndex = up ? channelIndex + 1 + i
-                    : channelIndex - 1 - i + size;
-            if (nextChannelIndex >= size) {
-                nextChannelIndex -= size;
-            }
-            Channel channel = mChannels.get(nextChannelIndex);
-            if (channel.isBrowsable()) {
-                return channel;
-            }
+        int index = mBrowsableChannels.indexOf(mCurrentChannel);
+        int nextIndex;
+        if (index >= 0) {
+            nextIndex = up ? index + 1 : index - 1;
+        } else {
+            // The current channel is not browsable. Move from its position.
+            int insertionPoint = -index - 1;
+            nextIndex = up ? insertionPoint : insertionPoint - 1;
         }
-        Log.e(TAG, "This code should not be reached");
-        return null;
+        return mBrowsableChannels.get((nextIndex + size) % size);
     }
 
     /**
@@ -268,20 +269,21 @@ public class ChannelTuner {
         } else if (channel.isBrowsable()) {
             return channel;
         }
-        int index = mChannelIndexMap.get(channelId);
-        int size = mChannels.size();
-        for (int i = 1; i <= size / 2; ++i) {
-            Channel upChannel = mChannels.get((index + i) % size);
-            if (upChannel.isBrowsable()) {
-                return upChannel;
-            }
-            Channel downChannel = mChannels.get((index - i + size) % size);
-            if (downChannel.isBrowsable()) {
-                return downChannel;
-            }
+        int index = mBrowsableChannels.indexOf(channel);
+        int upIndex = index >= 0 ? index : -index - 1;
+        int size = mBrowsableChannels.size();
+        Channel upChannel = mBrowsableChannels.get(upIndex % size);
+        Channel downChannel = mBrowsableChannels.get((upIndex - 1 + size) % size);
+        if (upChannel == downChannel) {
+            return upChannel;
         }
-        throw new IllegalStateException(
-                "This code should be unreachable in findNearestBrowsableChannel");
+        // Choose the nearer one in the whole channel list. The upper one wins a tie.
+        int channelCount = mChannelDataManager.getChannelCount();
+        int channelIndex = getChannelIndex(channel);
+        int upDistance = (getChannelIndex(upChannel) - channelIndex + channelCount) % channelCount;
+        int downDistance =
+                (channelIndex - getChannelIndex(downChannel) + channelCount) % channelCount;
+        return upDistance <= downDistance ? upChannel : downChannel;
     }
 
     /**
@@ -363,20 +365,53 @@ public class ChannelTuner {
         }
     }
 
-    private void updateChannelData(List<Channel> channels) {
-        mChannels.clear();
-        mChannels.addAll(channels);
-
+    private void loadChannels() {
         mChannelMap.clear();
-        mChannelIndexMap.clear();
-        for (int i = 0; i < channels.size(); ++i) {
-            Channel channel = channels.get(i);
-            long channelId = channel.getId();
-            mChannelMap.put(channelId, channel);
-            mChannelIndexMap.put(channelId, i);
+        for (Channel channel : mChannelDataManager.getChannelList()) {
+            mChannelMap.put(channel.getId(), channel);
         }
         updateBrowsableChannels();
+        updateCurrentChannel();
+        notifyBrowsableChannelListChanged();
+    }
+
+    private void applyChannelListChange(List<Channel> addedChannels,
+            List<Channel> removedChannels, List<Channel> updatedChannels) {
+        boolean browsableChannelListChanged = false;
+        for (Channel channel : removedChannels) {
+            mChannelMap.remove(channel.getId());
+        }
+        if (!removedChannels.isEmpty() || !updatedChannels.isEmpty()) {
+            // The updated channels are removed and added again, since their display numbers and
+            // so their positions can be changed.
+            List<Channel> channels = new ArrayList<>(removedChannels);
+            channels.addAll(updatedChannels);
+            browsableChannelListChanged = mBrowsableChannels.removeAll(channels);
+        }
+        for (Channel channel : addedChannels) {
+            mChannelMap.put(channel.getId(), channel);
+        }
+        browsableChannelListChanged |= addBrowsableChannels(addedChannels);
+        browsableChannelListChanged |= addBrowsableChannels(updatedChannels);
+
+        updateCurrentChannel();
+        if (browsableChannelListChanged) {
+            notifyBrowsableChannelListChanged();
+        }
+    }
 
+    private boolean addBrowsableChannels(List<Channel> channels) {
+        boolean added = false;
+        for (Channel channel : channels) {
+            if (channel.isBrowsable()) {
+                mBrowsableChannels.add(channel);
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    private void updateCurrentChannel() {
         if (mCurrentChannel != null && !mCurrentChannel.isPassthrough()) {
             Channel prevChannel = mCurrentChannel;
             setCurrentChannelAndNotify(mChannelMap.get(mCurrentChannel.getId()));
@@ -386,19 +421,29 @@ public class ChannelTuner {
                 }
             }
         }
-        // TODO: Do not call onBrowsableChannelListChanged, when only non-browsable
-        // channels are changed.
+    }
+
+    private void notifyBrowsableChannelListChanged() {
         for (Listener l : mListeners) {
             l.onBrowsableChannelListChanged();
         }
     }
 
     private void updateBrowsableChannels() {
-        mBrowsableChannels.clear();
-        for (Channel channel : mChannels) {
+        List<Channel> browsableChannels = new ArrayList<>();
+        for (Channel channel : mChannelDataManager.getChannelList()) {
             if (channel.isBrowsable()) {
-                mBrowsableChannels.add(channel);
+                browsableChannels.add(channel);
             }
         }
+        mBrowsableChannels.setAll(browsableChannels);
+    }
+
+    private int getChannelIndex(Channel channel) {
+        List<Channel> channels = mChannelDataManager.getChannelList();
+        Comparator<Channel> comparator = mChannelDataManager.getChannelComparator();
+        int index = SortedChannelList.indexOf(channels, channel, comparator);
+        // Fall back to the scan in case the channel is not in order.
+        return index >= 0 ? index : channels.indexOf(channel);
     }
 }
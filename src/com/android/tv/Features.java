@@ -103,6 +103,13 @@ public final class Features {
 
     public static final Feature FETCH_EPG = new PropertyFeature("live_channels_fetch_epg", false);
 
+    /**
+     * Keeps a hidden session tuned to the channel which is likely to be tuned next by channel
+     * up/down, on the inputs with multiple tuners.
+     */
+    public static final Feature PRE_TUNE_NEXT_CHANNEL =
+            new PropertyFeature("live_channels_pre_tune_next_channel", false);
+
     private Features() {
     }
 }
@@ -93,6 +93,7 @@ import com.android.tv.dialog.SafeDismissDialogFragment;
 import com.android.tv.dvr.DvrDataManager;
 import com.android.tv.dvr.DvrManager;
 import com.android.tv.dvr.DvrPlayActivity;
+import com.android.tv.dvr.RecordedProgramSummary;
 import com.android.tv.dvr.ScheduledRecording;
 import com.android.tv.menu.Menu;
 import com.android.tv.onboarding.OnboardingActivity;
@@ -119,7 +120,9 @@ import com.android.tv.ui.sidepanel.DisplayModeFragment;
 import com.android.tv.ui.sidepanel.MultiAudioFragment;
 import com.android.tv.ui.sidepanel.SettingsFragment;
 import com.android.tv.ui.sidepanel.SideFragment;
+import com.android.tv.util.BitmapPool;
 import com.android.tv.util.CaptionSettings;
+import com.android.tv.util.Clock;
 import com.android.tv.util.ImageCache;
 import com.android.tv.util.ImageLoader;
 import com.android.tv.util.OnboardingUtils;
@@ -216,10 +219,14 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
     private static final int CHANNEL_CHANGE_DELAY_MS_IN_NORMAL_SPEED = 200;
     private static final int CHANNEL_CHANGE_INITIAL_DELAY_MILLIS = 500;
     private static final int FIRST_STREAM_INFO_UPDATE_DELAY_MILLIS = 500;
+    // Pre-tune the next channel a while after a tune, not to slow down the tune or fast zapping.
+    private static final int PRE_TUNE_NEXT_CHANNEL_DELAY_MILLIS = 1000;
 
     private static final int MSG_CHANNEL_DOWN_PRESSED = 1000;
     private static final int MSG_CHANNEL_UP_PRESSED = 1001;
     private static final int MSG_UPDATE_CHANNEL_BANNER_BY_INFO_UPDATE = 1002;
+    private static final int MSG_PRE_TUNE_NEXT_CHANNEL = 1003;
+    private static final int MSG_TUNE_AFTER_ZAPPING = 1004;
 
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({UPDATE_CHANNEL_BANNER_REASON_FORCE_SHOW, UPDATE_CHANNEL_BANNER_REASON_TUNE,
@@ -243,6 +250,8 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
     private ProgramDataManager mProgramDataManager;
     private TvInputManagerHelper mTvInputManagerHelper;
     private ChannelTuner mChannelTuner;
+    private ChannelPreTuner mChannelPreTuner;
+    private final ZapController mZapController = new ZapController(Clock.SYSTEM);
     private PipInputManager mPipInputManager;
     private final TvOptionsManager mTvOptionsManager = new TvOptionsManager(this);
     private TvViewUiManager mTvViewUiManager;
@@ -485,6 +494,7 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
         mPipInputManager.start();
         mMemoryManageables.add(mProgramDataManager);
         mMemoryManageables.add(ImageCache.getInstance());
+        mMemoryManageables.add(BitmapPool.getInstance());
         mMemoryManageables.add(TvContentRatingCache.getInstance());
         if (CommonFeatures.DVR.isEnabled(this) && BuildCompat.isAtLeastN()) {
             mDvrManager = tvApplication.getDvrManager();
@@ -507,6 +517,9 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
                 R.dimen.shrunken_tvview_height);
         mTvView.initialize((AppLayerTvView) findViewById(R.id.main_tv_view), false, screenHeight,
                 shrunkenTvViewHeight);
+        if (Features.PRE_TUNE_NEXT_CHANNEL.isEnabled(this)) {
+            mTvView.setPreTuneTvView((AppLayerTvView) findViewById(R.id.pre_tune_tv_view));
+        }
         mTvView.setOnUnhandledInputEventListener(new OnUnhandledInputEventListener() {
             @Override
             public boolean onUnhandledInputEvent(InputEvent event) {
@@ -554,12 +567,14 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
         mPipView.initialize((AppLayerTvView) findViewById(R.id.pip_tv_view), true, screenHeight,
                 shrunkenTvViewHeight);
 
+        WatchedHistoryManager watchedHistoryManager = null;
         if (!PermissionUtils.hasAccessWatchedHistory(this)) {
-            WatchedHistoryManager watchedHistoryManager = new WatchedHistoryManager(
-                    getApplicationContext());
+            watchedHistoryManager = new WatchedHistoryManager(getApplicationContext());
             watchedHistoryManager.start();
             mTvView.setWatchedHistoryManager(watchedHistoryManager);
         }
+        mChannelPreTuner = new ChannelPreTuner(mChannelTuner, watchedHistoryManager,
+                Clock.SYSTEM);
         mTvViewUiManager = new TvViewUiManager(this, mTvView, mPipView,
                 (FrameLayout) findViewById(android.R.id.content), mTvOptionsManager);
 
@@ -1660,7 +1675,7 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
                             + " with the URI " + channel);
                     return;
                 }
-                if (isChannelChangeKeyDownReceived()) {
+                if (isChannelChangeInProgress()) {
                     // Ignore this message if the user is changing the channel.
                     return;
                 }
@@ -1721,14 +1736,19 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
     }
 
     private void playRecording(Uri recordingUri) {
-        mTvView.playRecording(recordingUri, mOnTuneListener);
+        boolean success = mTvView.playRecording(recordingUri, mOnTuneListener);
         mOnTuneListener.onPlayRecording();
+        if (!success) {
+            mOnTuneListener.onTuneFailed(null);
+            return;
+        }
         updateChannelBannerAndShowIfNeeded(UPDATE_CHANNEL_BANNER_REASON_TUNE);
     }
 
     private void tune() {
         if (DEBUG) Log.d(TAG, "tune()");
         mTuneDurationTimer.start();
+        mHandler.removeMessages(MSG_PRE_TUNE_NEXT_CHANNEL);
 
         lazyInitializeIfNeeded(LAZY_INITIALIZATION_DELAY);
 
@@ -1868,6 +1888,18 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
             requestVisibleBehind(true);
         }
         updateMediaSession();
+        if (Features.PRE_TUNE_NEXT_CHANNEL.isEnabled(this)) {
+            mHandler.sendEmptyMessageDelayed(MSG_PRE_TUNE_NEXT_CHANNEL,
+                    PRE_TUNE_NEXT_CHANNEL_DELAY_MILLIS);
+        }
+    }
+
+    private void preTuneNextChannel() {
+        if (mPipEnabled || !mTvView.isPlaying()) {
+            mTvView.cancelPreTune();
+            return;
+        }
+        mTvView.preTune(mChannelPreTuner.getPredictedChannel());
     }
 
     private void runAfterAttachedToWindow(final Runnable runnable) {
@@ -2333,6 +2365,8 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
                 case KeyEvent.KEYCODE_DPAD_UP:
                     if (event.getRepeatCount() == 0
                             && mChannelTuner.getBrowsableChannelCount() > 0) {
+                        mHandler.removeMessages(MSG_TUNE_AFTER_ZAPPING);
+                        mZapController.onZapped();
                         moveToAdjacentChannel(true, false);
                         mHandler.sendMessageDelayed(mHandler.obtainMessage(MSG_CHANNEL_UP_PRESSED,
                                 System.currentTimeMillis()), CHANNEL_CHANGE_INITIAL_DELAY_MILLIS);
@@ -2343,6 +2377,8 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
                 case KeyEvent.KEYCODE_DPAD_DOWN:
                     if (event.getRepeatCount() == 0
                             && mChannelTuner.getBrowsableChannelCount() > 0) {
+                        mHandler.removeMessages(MSG_TUNE_AFTER_ZAPPING);
+                        mZapController.onZapped();
                         moveToAdjacentChannel(false, false);
                         mHandler.sendMessageDelayed(mHandler.obtainMessage(MSG_CHANNEL_DOWN_PRESSED,
                                 System.currentTimeMillis()), CHANNEL_CHANGE_INITIAL_DELAY_MILLIS);
@@ -2375,7 +2411,16 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
             Log.d(TAG, "onKeyUp(" + keyCode + ", " + event + ")");
         }
         // If we are in the middle of channel change, finish it before showing overlays.
-        finishChannelChangeIfNeeded();
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_CHANNEL_UP:
+            case KeyEvent.KEYCODE_DPAD_UP:
+            case KeyEvent.KEYCODE_CHANNEL_DOWN:
+            case KeyEvent.KEYCODE_DPAD_DOWN:
+                finishChannelChangeByZapping();
+                break;
+            default:
+                finishChannelChangeIfNeeded();
+        }
 
         if (event.getKeyCode() == KeyEvent.KEYCODE_SEARCH) {
             showSearchActivity();
@@ -2587,14 +2632,14 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
                 case KeyEvent.KEYCODE_Y: {
                     if (CommonFeatures.DVR.isEnabled(this) && BuildCompat.isAtLeastN()) {
                         // TODO(DVR) only get finished recordings.
-                        List<RecordedProgram> recordedPrograms = mDvrDataManager
-                                .getRecordedPrograms();
+                        List<RecordedProgramSummary> recordedPrograms = mDvrDataManager
+                                .getRecordedProgramSummaries();
                         Log.d(TAG, "Found " + recordedPrograms.size() + "  recordings");
                         if (recordedPrograms.isEmpty()) {
                             Toast.makeText(this, "No finished recording to play", Toast.LENGTH_LONG)
                                     .show();
                         } else {
-                            RecordedProgram r = recordedPrograms.get(0);
+                            RecordedProgramSummary r = recordedPrograms.get(0);
                             Intent intent = new Intent(this, DvrPlayActivity.class);
                             intent.putExtra(ScheduledRecording.RECORDING_ID_EXTRA, r.getId());
                             startActivity(intent);
@@ -2695,6 +2740,8 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
             // TODO: choose the last pip input.
             Channel pipChannel = pipAvailableInputs.get(0).getChannel();
             if (pipChannel != null) {
+                // The PIP view may need the tuner which the pre-tuned session holds.
+                mTvView.cancelPreTune();
                 mPipEnabled = true;
                 mPipChannel = pipChannel;
                 startPip(fromUserInteraction);
@@ -2725,17 +2772,44 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
                 || mHandler.hasMessages(MSG_CHANNEL_DOWN_PRESSED);
     }
 
+    private boolean isChannelChangeInProgress() {
+        return isChannelChangeKeyDownReceived() || mHandler.hasMessages(MSG_TUNE_AFTER_ZAPPING);
+    }
+
     private void finishChannelChangeIfNeeded() {
+        if (!isChannelChangeInProgress()) {
+            return;
+        }
+        mHandler.removeMessages(MSG_CHANNEL_UP_PRESSED);
+        mHandler.removeMessages(MSG_CHANNEL_DOWN_PRESSED);
+        mHandler.removeMessages(MSG_TUNE_AFTER_ZAPPING);
+        tuneAfterChannelChange();
+    }
+
+    /**
+     * Finishes the channel change by a channel up/down key. While the user is zapping fast, the
+     * tune is deferred so that it's superseded by the next key press.
+     */
+    private void finishChannelChangeByZapping() {
         if (!isChannelChangeKeyDownReceived()) {
             return;
         }
+        long delayMs = mZapController.getTuneDelayMs();
+        if (delayMs == 0) {
+            finishChannelChangeIfNeeded();
+            return;
+        }
         mHandler.removeMessages(MSG_CHANNEL_UP_PRESSED);
         mHandler.removeMessages(MSG_CHANNEL_DOWN_PRESSED);
+        mHandler.sendEmptyMessageDelayed(MSG_TUNE_AFTER_ZAPPING, delayMs);
+    }
+
+    private void tuneAfterChannelChange() {
         if (mChannelTuner.getBrowsableChannelCount() > 0) {
             if (!mTvView.isPlaying()) {
                 // We expect that mTvView is already played. But, it is sometimes not.
                 // TODO: we figure out the reason when mTvView is not played.
-                Log.w(TAG, "TV view isn't played in finishChannelChangeIfNeeded");
+                Log.w(TAG, "TV view isn't played in tuneAfterChannelChange");
             }
             tuneToChannel(mChannelTuner.getCurrentChannel());
         } else {
@@ -2819,6 +2893,7 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
      */
     private void moveToAdjacentChannel(boolean channelUp, boolean fastTuning) {
         if (mChannelTuner.moveToAdjacentBrowsableChannel(channelUp)) {
+            mChannelPreTuner.onZapped(channelUp);
             updateChannelBannerAndShowIfNeeded(fastTuning ? UPDATE_CHANNEL_BANNER_REASON_TUNE_FAST
                     : UPDATE_CHANNEL_BANNER_REASON_TUNE);
         }
@@ -3116,6 +3191,12 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
                     mainActivity.updateChannelBannerAndShowIfNeeded(
                             UPDATE_CHANNEL_BANNER_REASON_UPDATE_INFO);
                     break;
+                case MSG_PRE_TUNE_NEXT_CHANNEL:
+                    mainActivity.preTuneNextChannel();
+                    break;
+                case MSG_TUNE_AFTER_ZAPPING:
+                    mainActivity.tuneAfterChannelChange();
+                    break;
             }
         }
 
@@ -3157,11 +3238,17 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
 
         @Override
         public void onTuneFailed(Channel channel) {
-            Log.w(TAG, "Failed to tune to channel " + channel.getId()
-                    + "@" + channel.getInputId());
             if (mTvView.isFadedOut()) {
                 mTvView.removeFadeEffect();
             }
+            if (channel == null) {
+                // The recording can't be played. Goes back to the current channel.
+                Log.w(TAG, "Failed to play the recording");
+                tune();
+                return;
+            }
+            Log.w(TAG, "Failed to tune to channel " + channel.getId()
+                    + "@" + channel.getInputId());
             // TODO: show something to user about this error.
         }
 
@@ -3210,7 +3297,7 @@ public class MainActivity extends Activity implements AudioManager.OnAudioFocusC
                         + channel);
                 return;
             }
-            if (isChannelChangeKeyDownReceived()) {
+            if (isChannelChangeInProgress()) {
                 // Ignore this message if the user is changing the channel.
                 return;
             }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+
+import com.android.tv.data.Program;
+import com.android.tv.util.Utils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The programs of a channel over a period, which is used by the time-shift.
+ *
+ * <p>The loaded programs are kept by their start times. The gaps between them in the period are
+ * not stored, and a dummy program is created for a gap only when it is looked up. A dummy program
+ * is at most {@code maxDummyProgramDurationMs} long and aligned to it, so that the trick play
+ * viewer doesn't show a too long time-line for a gap.
+ */
+@MainThread
+class ProgramTimeline {
+    private final long mMaxDummyProgramDurationMs;
+    private final TreeMap<Long, Program> mPrograms = new TreeMap<>();
+    private long mStartTimeMs = TimeShiftManager.INVALID_TIME;
+    private long mEndTimeMs = TimeShiftManager.INVALID_TIME;
+    // The dummy program returned last time, to avoid creating the same one for every look-up.
+    private Program mLastDummyProgram;
+
+    ProgramTimeline(long maxDummyProgramDurationMs) {
+        mMaxDummyProgramDurationMs = maxDummyProgramDurationMs;
+    }
+
+    void clear() {
+        mPrograms.clear();
+        mStartTimeMs = TimeShiftManager.INVALID_TIME;
+        mEndTimeMs = TimeShiftManager.INVALID_TIME;
+        mLastDummyProgram = null;
+    }
+
+    boolean isEmpty() {
+        return mStartTimeMs == TimeShiftManager.INVALID_TIME;
+    }
+
+    /**
+     * Returns the start time of the period, or {@link TimeShiftManager#INVALID_TIME} if empty.
+     */
+    long getStartTimeMs() {
+        return mStartTimeMs;
+    }
+
+    /**
+     * Returns the end time of the period, or {@link TimeShiftManager#INVALID_TIME} if empty.
+     */
+    long getEndTimeMs() {
+        return mEndTimeMs;
+    }
+
+    /**
+     * Extends the period to include from {@code startTimeMs} to {@code endTimeMs}. The new part
+     * is filled with the dummy programs until the programs are added.
+     *
+     * @return {@code true} if the period has been extended.
+     */
+    boolean extend(long startTimeMs, long endTimeMs) {
+        if (startTimeMs >= endTimeMs) {
+            return false;
+        }
+        if (isEmpty()) {
+            mStartTimeMs = startTimeMs;
+            mEndTimeMs = endTimeMs;
+            mLastDummyProgram = null;
+            return true;
+        }
+        boolean extended = false;
+        if (startTimeMs < mStartTimeMs) {
+            mStartTimeMs = startTimeMs;
+            extended = true;
+        }
+        if (endTimeMs > mEndTimeMs) {
+            mEndTimeMs = endTimeMs;
+            extended = true;
+        }
+        if (extended) {
+            mLastDummyProgram = null;
+        }
+        return extended;
+    }
+
+    /**
+     * Adds the loaded programs. The programs which overlap with them are replaced, and the period
+     * is extended to include them.
+     */
+    void addAll(List<Program> programs) {
+        if (programs.isEmpty()) {
+            return;
+        }
+        long minStartTimeMs = Long.MAX_VALUE;
+        long maxEndTimeMs = Long.MIN_VALUE;
+        for (Program program : programs) {
+            long startTimeMs = program.getStartTimeUtcMillis();
+            long endTimeMs = program.getEndTimeUtcMillis();
+            minStartTimeMs = Math.min(minStartTimeMs, startTimeMs);
+            maxEndTimeMs = Math.max(maxEndTimeMs, endTimeMs);
+            Map.Entry<Long, Program> previous = mPrograms.lowerEntry(startTimeMs);
+            if (previous != null && previous.getValue().getEndTimeUtcMillis() > startTimeMs) {
+                mPrograms.remove(previous.getKey());
+            }
+            mPrograms.subMap(startTimeMs, endTimeMs).clear();
+            mPrograms.put(startTimeMs, program);
+        }
+        extend(minStartTimeMs, maxEndTimeMs);
+        mLastDummyProgram = null;
+    }
+
+    /**
+     * Returns the program at {@code timeMs}, which is a dummy program if none is loaded there, or
+     * {@code null} if {@code timeMs} is out of the period.
+     */
+    @Nullable
+    Program get(long timeMs) {
+        if (isEmpty() || timeMs < mStartTimeMs || timeMs >= mEndTimeMs) {
+            return null;
+        }
+        if (mLastDummyProgram != null && mLastDummyProgram.getStartTimeUtcMillis() <= timeMs
+                && timeMs < mLastDummyProgram.getEndTimeUtcMillis()) {
+            return mLastDummyProgram;
+        }
+        long gapStartTimeMs = mStartTimeMs;
+        Map.Entry<Long, Program> floor = mPrograms.floorEntry(timeMs);
+        if (floor != null) {
+            Program program = floor.getValue();
+            if (timeMs < program.getEndTimeUtcMillis()) {
+                return program;
+            }
+            gapStartTimeMs = program.getEndTimeUtcMillis();
+        }
+        Long next = mPrograms.higherKey(timeMs);
+        long gapEndTimeMs = next == null ? mEndTimeMs : next;
+        mLastDummyProgram = new Program.Builder()
+                .setStartTimeUtcMillis(Math.max(gapStartTimeMs,
+                        Utils.floorTime(timeMs, mMaxDummyProgramDurationMs)))
+                .setEndTimeUtcMillis(Math.min(gapEndTimeMs,
+                        Utils.ceilTime(timeMs, mMaxDummyProgramDurationMs)))
+                .build();
+        return mLastDummyProgram;
+    }
+
+    /**
+     * Returns the last loaded program, or {@code null} if there's none.
+     */
+    @Nullable
+    Program getLastValidProgram() {
+        Map.Entry<Long, Program> last = mPrograms.lastEntry();
+        return last == null ? null : last.getValue();
+    }
+}
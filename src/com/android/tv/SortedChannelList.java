@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv;
+
+import android.support.annotation.MainThread;
+
+import com.android.tv.data.Channel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A list of channels which is kept sorted by a comparator, so that a channel can be added and
+ * looked up by the binary search instead of rebuilding or scanning the list.
+ *
+ * <p>The comparator can return 0 for different channels, e.g. for the duplicate channel numbers.
+ * Such channels are kept in the order of addition and told apart by {@link Channel#equals}.
+ *
+ * <p>The order by the comparator can change after a channel is added, e.g. when the label of its
+ * input is loaded later or a display number is updated in place. So when the binary search misses
+ * a channel, the whole list is scanned before it's regarded as missing.
+ */
+@MainThread
+class SortedChannelList {
+    private final Comparator<Channel> mComparator;
+    private final List<Channel> mChannels = new ArrayList<>();
+    private final List<Channel> mReadOnlyChannels = Collections.unmodifiableList(mChannels);
+
+    SortedChannelList(Comparator<Channel> comparator) {
+        mComparator = comparator;
+    }
+
+    /**
+     * Replaces the channels with {@code channels}, which should be sorted by the comparator.
+     */
+    void setAll(List<Channel> channels) {
+        mChannels.clear();
+        mChannels.addAll(channels);
+    }
+
+    /**
+     * Adds the channel at its position. If it's in the list already, it's replaced.
+     */
+    void add(Channel channel) {
+        int index = indexOf(mChannels, channel, mComparator);
+        if (index >= 0) {
+            mChannels.set(index, channel);
+            return;
+        }
+        int oldIndex = mChannels.indexOf(channel);
+        if (oldIndex >= 0) {
+            // It's out of order. Move it to the position.
+            mChannels.remove(oldIndex);
+            index = indexOf(mChannels, channel, mComparator);
+        }
+        mChannels.add(-index - 1, channel);
+    }
+
+    /**
+     * Removes the channels. It always scans the whole list, since the channels can be out of
+     * order.
+     *
+     * @return {@code true} if any channel is removed.
+     */
+    boolean removeAll(Collection<Channel> channels) {
+        return mChannels.removeAll(new HashSet<>(channels));
+    }
+
+    void clear() {
+        mChannels.clear();
+    }
+
+    Channel get(int index) {
+        return mChannels.get(index);
+    }
+
+    int size() {
+        return mChannels.size();
+    }
+
+    /**
+     * Returns the index of the channel, or {@code -(insertion point) - 1} if it's not in the list,
+     * like {@link Collections#binarySearch}.
+     */
+    int indexOf(Channel channel) {
+        int index = indexOf(mChannels, channel, mComparator);
+        if (index >= 0) {
+            return index;
+        }
+        int oldIndex = mChannels.indexOf(channel);
+        return oldIndex >= 0 ? oldIndex : index;
+    }
+
+    /**
+     * Returns a read-only view of the list.
+     */
+    List<Channel> asList() {
+        return mReadOnlyChannels;
+    }
+
+    /**
+     * Finds the channel in {@code channels} which is sorted by {@code comparator}.
+     *
+     * @see #indexOf(Channel)
+     */
+    static int indexOf(List<Channel> channels, Channel channel, Comparator<Channel> comparator) {
+        int index = Collections.binarySearch(channels, channel, comparator);
+        if (index < 0) {
+            return index;
+        }
+        int low = index;
+        while (low > 0 && comparator.compare(channels.get(low - 1), channel) == 0) {
+            --low;
+        }
+        int high = index;
+        while (high + 1 < channels.size()
+                && comparator.compare(channels.get(high + 1), channel) == 0) {
+            ++high;
+        }
+        for (int i = low; i <= high; ++i) {
+            if (channels.get(i).equals(channel)) {
+                return i;
+            }
+        }
+        // Insert after the channels which are equal by the comparator.
+        return -(high + 1) - 1;
+    }
+}
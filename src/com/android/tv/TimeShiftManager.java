@@ -45,10 +45,8 @@ import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -844,8 +842,8 @@ public class TimeShiftManager {
     private class ProgramManager {
         private final ProgramDataManager mProgramDataManager;
         private Channel mChannel;
-        private final List<Program> mPrograms = new ArrayList<>();
-        private final Queue<Range<Long>> mProgramLoadQueue = new LinkedList<>();
+        private final ProgramTimeline mPrograms = new ProgramTimeline(MAX_DUMMY_PROGRAM_DURATION);
+        private final List<Range<Long>> mProgramLoadQueue = new ArrayList<>();
         private LoadProgramsForCurrentChannelTask mProgramLoadTask = null;
         private int mEmptyFetchCount = 0;
 
@@ -874,15 +872,15 @@ public class TimeShiftManager {
                 Program program = mProgramDataManager.getCurrentProgram(channel.getId());
                 long prefetchStartTimeMs;
                 if (program != null) {
-                    mPrograms.add(program);
+                    mPrograms.addAll(Collections.singletonList(program));
                     prefetchStartTimeMs = program.getEndTimeUtcMillis();
                 } else {
                     prefetchStartTimeMs = Utils.floorTime(currentPositionMs,
                             MAX_DUMMY_PROGRAM_DURATION);
                 }
-                // Create dummy program
-                mPrograms.addAll(createDummyPrograms(prefetchStartTimeMs,
-                        currentPositionMs + PREFETCH_DURATION_FOR_NEXT));
+                // Fill with dummy programs until the programs are loaded.
+                mPrograms.extend(prefetchStartTimeMs,
+                        currentPositionMs + PREFETCH_DURATION_FOR_NEXT);
                 schedulePrefetchPrograms();
                 TimeShiftManager.this.onProgramInfoChanged();
             }
@@ -897,7 +895,7 @@ public class TimeShiftManager {
             }
 
             long fetchStartTimeMs = Utils.floorTime(startTimeMs, MAX_DUMMY_PROGRAM_DURATION);
-            boolean needToLoad = addDummyPrograms(fetchStartTimeMs,
+            boolean needToLoad = mPrograms.extend(fetchStartTimeMs,
                     endTimeMs + PREFETCH_DURATION_FOR_NEXT);
             if (needToLoad) {
                 Range<Long> period = Range.create(fetchStartTimeMs, endTimeMs);
@@ -915,24 +913,16 @@ public class TimeShiftManager {
             } else {
                 switch (mProgramLoadTask.getStatus()) {
                     case PENDING:
-                        if (mProgramLoadTask.overlaps(mProgramLoadQueue)) {
-                            if (mProgramLoadTask.cancel(true)) {
-                                mProgramLoadQueue.add(mProgramLoadTask.getPeriod());
-                                mProgramLoadTask = null;
-                                startNext();
-                            }
+                        // Load the pending period together with the new ones in a single query.
+                        if (mProgramLoadTask.cancel(true)) {
+                            mProgramLoadQueue.add(mProgramLoadTask.getPeriod());
+                            mProgramLoadTask = null;
+                            startNext();
                         }
                         break;
                     case RUNNING:
                         // Remove pending task fully satisfied by the current
-                        Range<Long> current = mProgramLoadTask.getPeriod();
-                        Iterator<Range<Long>> i = mProgramLoadQueue.iterator();
-                        while (i.hasNext()) {
-                            Range<Long> r = i.next();
-                            if (current.contains(r)) {
-                                i.remove();
-                            }
-                        }
+                        removeLoadedPeriods(mProgramLoadTask.getPeriod());
                         break;
                     case FINISHED:
                         // The task should have already cleared it self, clear and restart anyways.
@@ -949,16 +939,13 @@ public class TimeShiftManager {
                 return;
             }
 
-            Range<Long> next = mProgramLoadQueue.poll();
-            // Extend next to include any overlapping Ranges.
-            Iterator<Range<Long>> i = mProgramLoadQueue.iterator();
-            while(i.hasNext()) {
-                Range<Long> r = i.next();
-                if(next.contains(r.getLower()) || next.contains(r.getUpper())){
-                    i.remove();
-                    next = next.extend(r);
-                }
+            // All the queued periods are near the record time range of the current channel, so
+            // they are loaded in a single query which covers all of them.
+            Range<Long> next = mProgramLoadQueue.get(0);
+            for (Range<Long> r : mProgramLoadQueue) {
+                next = next.extend(r);
             }
+            mProgramLoadQueue.clear();
             if (mChannel != null) {
                 mProgramLoadTask = new LoadProgramsForCurrentChannelTask(
                         mContext.getContentResolver(), next);
@@ -966,163 +953,29 @@ public class TimeShiftManager {
             }
         }
 
-        void addDummyProgramsAt(long timeMs) {
-            addDummyPrograms(timeMs, timeMs + PREFETCH_DURATION_FOR_NEXT);
-        }
-
-        private boolean addDummyPrograms(Range<Long> period) {
-            return addDummyPrograms(period.getLower(), period.getUpper());
-        }
-
-        private boolean addDummyPrograms(long startTimeMs, long endTimeMs) {
-            boolean added = false;
-            if (mPrograms.isEmpty()) {
-                // Insert dummy program.
-                mPrograms.addAll(createDummyPrograms(startTimeMs, endTimeMs));
-                return true;
-            }
-            // Insert dummy program to the head of the list if needed.
-            Program firstProgram = mPrograms.get(0);
-            if (startTimeMs < firstProgram.getStartTimeUtcMillis()) {
-                if (!firstProgram.isValid()) {
-                    // Already the firstProgram is dummy.
-                    mPrograms.remove(0);
-                    mPrograms.addAll(0,
-                            createDummyPrograms(startTimeMs, firstProgram.getEndTimeUtcMillis()));
-                } else {
-                    mPrograms.addAll(0,
-                            createDummyPrograms(startTimeMs, firstProgram.getStartTimeUtcMillis()));
-                }
-                added = true;
-            }
-            // Insert dummy program to the tail of the list if needed.
-            Program lastProgram = mPrograms.get(mPrograms.size() - 1);
-            if (endTimeMs > lastProgram.getEndTimeUtcMillis()) {
-                if (!lastProgram.isValid()) {
-                    // Already the lastProgram is dummy.
-                    mPrograms.remove(mPrograms.size() - 1);
-                    mPrograms.addAll(
-                            createDummyPrograms(lastProgram.getStartTimeUtcMillis(), endTimeMs));
-                } else {
-                    mPrograms.addAll(
-                            createDummyPrograms(lastProgram.getEndTimeUtcMillis(), endTimeMs));
-                }
-                added = true;
-            }
-            // Insert dummy programs if the holes exist in the list.
-            for (int i = 1; i < mPrograms.size(); ++i) {
-                long endOfPrevious = mPrograms.get(i - 1).getEndTimeUtcMillis();
-                long startOfCurrent = mPrograms.get(i).getStartTimeUtcMillis();
-                if (startOfCurrent > endOfPrevious) {
-                    List<Program> dummyPrograms =
-                            createDummyPrograms(endOfPrevious, startOfCurrent);
-                    mPrograms.addAll(i, dummyPrograms);
-                    i += dummyPrograms.size();
-                    added = true;
-                }
-            }
-            return added;
-        }
-
-        private void removeDummyPrograms() {
-            for (int i = 0; i < mPrograms.size(); ++i) {
-                Program program = mPrograms.get(i);
-                if (!program.isValid()) {
-                    mPrograms.remove(i--);
-                }
-            }
-        }
-
-        private void removeOverlappedPrograms(List<Program> loadedPrograms) {
-            if (mPrograms.size() == 0) {
-                return;
-            }
-            Program program = mPrograms.get(0);
-            for (int i = 0, j = 0; i < mPrograms.size() && j < loadedPrograms.size(); ++j) {
-                Program loadedProgram = loadedPrograms.get(j);
-                // Skip previous programs.
-                while (program.getEndTimeUtcMillis() < loadedProgram.getStartTimeUtcMillis()) {
-                    // Reached end of mPrograms.
-                    if (++i == mPrograms.size()) {
-                        return;
-                    }
-                    program = mPrograms.get(i);
-                }
-                // Remove overlapped programs.
-                while (program.getStartTimeUtcMillis() < loadedProgram.getEndTimeUtcMillis()
-                        && program.getEndTimeUtcMillis() > loadedProgram.getStartTimeUtcMillis()) {
-                    mPrograms.remove(i);
-                    if (i >= mPrograms.size()) {
-                        break;
-                    }
-                    program = mPrograms.get(i);
+        private void removeLoadedPeriods(Range<Long> loadedPeriod) {
+            Iterator<Range<Long>> i = mProgramLoadQueue.iterator();
+            while (i.hasNext()) {
+                if (loadedPeriod.contains(i.next())) {
+                    i.remove();
                 }
             }
         }
 
-        // Returns a list of dummy programs.
-        // The maximum duration of a dummy program is {@link MAX_DUMMY_PROGRAM_DURATION}.
-        // So if the duration ({@code endTimeMs}-{@code startTimeMs}) is greater than the duration,
-        // we need to create multiple dummy programs.
-        // The reason of the limitation of the duration is because we want the trick play viewer
-        // to show the time-line duration of {@link MAX_DUMMY_PROGRAM_DURATION} at most
-        // for a dummy program.
-        private List<Program> createDummyPrograms(long startTimeMs, long endTimeMs) {
-            if (startTimeMs >= endTimeMs) {
-                return Collections.emptyList();
-            }
-            List<Program> programs = new ArrayList<>();
-            long start = startTimeMs;
-            long end = Utils.ceilTime(startTimeMs, MAX_DUMMY_PROGRAM_DURATION);
-            while (end < endTimeMs) {
-                programs.add(new Program.Builder()
-                        .setStartTimeUtcMillis(start)
-                        .setEndTimeUtcMillis(end)
-                        .build());
-                start = end;
-                end += MAX_DUMMY_PROGRAM_DURATION;
-            }
-            programs.add(new Program.Builder()
-                    .setStartTimeUtcMillis(start)
-                    .setEndTimeUtcMillis(endTimeMs)
-                    .build());
-            return programs;
+        void addDummyProgramsAt(long timeMs) {
+            mPrograms.extend(timeMs, timeMs + PREFETCH_DURATION_FOR_NEXT);
         }
 
         Program getProgramAt(long timeMs) {
-            return getProgramAt(timeMs, 0, mPrograms.size() - 1);
-        }
-
-        private Program getProgramAt(long timeMs, int start, int end) {
-            if (start > end) {
-                return null;
-            }
-            int mid = (start + end) / 2;
-            Program program = mPrograms.get(mid);
-            if (program.getStartTimeUtcMillis() > timeMs) {
-                return getProgramAt(timeMs, start, mid - 1);
-            } else if (program.getEndTimeUtcMillis() <= timeMs) {
-                return getProgramAt(timeMs, mid+1, end);
-            } else {
-                return program;
-            }
+            return mPrograms.get(timeMs);
         }
 
         private long getOldestProgramStartTime() {
-            if (mPrograms.isEmpty()) {
-                return INVALID_TIME;
-            }
-            return mPrograms.get(0).getStartTimeUtcMillis();
+            return mPrograms.getStartTimeMs();
         }
 
         private Program getLastValidProgram() {
-            for (int i = mPrograms.size() - 1; i >= 0; --i) {
-                Program program = mPrograms.get(i);
-                if (program.isValid()) {
-                    return program;
-                }
-            }
-            return null;
+            return mPrograms.getLastValidProgram();
         }
 
         private void schedulePrefetchPrograms() {
@@ -1198,17 +1051,11 @@ public class TimeShiftManager {
                             ", to=" + Utils.toTimeString(mPeriod.getUpper()) +
                             "}");
                 }
-                //remove pending tasks that are fully satisfied by this query.
-                Iterator<Range<Long>> it = mProgramLoadQueue.iterator();
-                while (it.hasNext()) {
-                    Range<Long> r = it.next();
-                    if (mPeriod.contains(r)) {
-                        it.remove();
-                    }
-                }
+                // Remove pending tasks that are fully satisfied by this query.
+                removeLoadedPeriods(mPeriod);
                 if (programs == null || programs.isEmpty()) {
                     mEmptyFetchCount++;
-                    if (addDummyPrograms(mPeriod)) {
+                    if (mPrograms.extend(mPeriod.getLower(), mPeriod.getUpper())) {
                         TimeShiftManager.this.onProgramInfoChanged();
                     }
                     schedulePrefetchPrograms();
@@ -1216,25 +1063,8 @@ public class TimeShiftManager {
                     return;
                 }
                 mEmptyFetchCount = 0;
-                if(!mPrograms.isEmpty()) {
-                    removeDummyPrograms();
-                    removeOverlappedPrograms(programs);
-                    Program loadedProgram = programs.get(0);
-                    for (int i = 0; i < mPrograms.size() && !programs.isEmpty(); ++i) {
-                        Program program = mPrograms.get(i);
-                        while (program.getStartTimeUtcMillis() > loadedProgram
-                                .getStartTimeUtcMillis()) {
-                            mPrograms.add(i++, loadedProgram);
-                            programs.remove(0);
-                            if (programs.isEmpty()) {
-                                break;
-                            }
-                            loadedProgram = programs.get(0);
-                        }
-                    }
-                }
                 mPrograms.addAll(programs);
-                addDummyPrograms(mPeriod);
+                mPrograms.extend(mPeriod.getLower(), mPeriod.getUpper());
                 TimeShiftManager.this.onProgramInfoChanged();
                 schedulePrefetchPrograms();
                 startNextLoadingIfNeeded();
@@ -1261,15 +1091,6 @@ public class TimeShiftManager {
                     }
                 });
             }
-
-            public boolean overlaps(Queue<Range<Long>> programLoadQueue) {
-                for (Range<Long> r : programLoadQueue) {
-                    if (mPeriod.contains(r.getLower()) || mPeriod.contains(r.getUpper())) {
-                        return true;
-                    }
-                }
-                return false;
-            }
         }
     }
 
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.VisibleForTesting;
+
+import com.android.tv.util.Clock;
+
+/**
+ * Decides when to tune after a channel up/down key press, so that a burst of the key presses
+ * tunes only to the channel where the user stops instead of every channel passed by.
+ *
+ * <p>A key press after a pause is tuned immediately. In a burst, the tune is deferred by about the
+ * average interval of the key presses, so that it's superseded if the next press comes at the
+ * same pace.
+ */
+@MainThread
+class ZapController {
+    // A key press within this duration from the previous one is in the same burst.
+    @VisibleForTesting
+    static final long BURST_INTERVAL_MS = 1000;
+    @VisibleForTesting
+    static final long MAX_TUNE_DELAY_MS = 600;
+    // Extra delay for the jitter of the key press intervals.
+    @VisibleForTesting
+    static final long TUNE_DELAY_MARGIN_MS = 100;
+
+    private static final long INVALID_TIME = -1;
+
+    private final Clock mClock;
+    private long mLastZapTimeMs = INVALID_TIME;
+    private boolean mInBurst;
+    private long mAverageIntervalMs;
+
+    ZapController(Clock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Called when a channel up/down key is pressed.
+     */
+    void onZapped() {
+        long now = mClock.elapsedRealtime();
+        long interval = mLastZapTimeMs == INVALID_TIME ? Long.MAX_VALUE : now - mLastZapTimeMs;
+        mLastZapTimeMs = now;
+        if (interval >= BURST_INTERVAL_MS) {
+            mInBurst = false;
+            return;
+        }
+        mAverageIntervalMs = mInBurst ? (mAverageIntervalMs + interval) / 2 : interval;
+        mInBurst = true;
+    }
+
+    /**
+     * Returns the delay to tune after the last key press is released, or {@code 0} to tune
+     * immediately.
+     */
+    long getTuneDelayMs() {
+        if (!mInBurst) {
+            return 0;
+        }
+        return Math.min(MAX_TUNE_DELAY_MS, mAverageIntervalMs + TUNE_DELAY_MARGIN_MS);
+    }
+}
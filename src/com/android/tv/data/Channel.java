@@ -135,6 +135,8 @@ public final class Channel {
             channel.mAppLinkPosterArtUri = cursor.getString(index++);
             channel.mAppLinkIntentUri = cursor.getString(index++);
         }
+        // Compute it here on the worker thread, not to do it in the main thread.
+        channel.getReadOnlyInfoHash();
         return channel;
     }
 
@@ -168,6 +170,8 @@ public final class Channel {
     private String mAppLinkIntentUri;
     private Intent mAppLinkIntent;
     private int mAppLinkType;
+    // The hash of the values compared by hasSameReadOnlyInfo. 0 means that it's not computed.
+    private int mReadOnlyInfoHash;
 
     private long mDvrId;
 
@@ -301,7 +305,9 @@ public final class Channel {
      * changed by TV app.
      */
     public boolean hasSameReadOnlyInfo(Channel other) {
+        // The hashes are compared first, so that most of the different channels are told quickly.
         return other != null
+                && getReadOnlyInfoHash() == other.getReadOnlyInfoHash()
                 && Objects.equals(mId, other.mId)
                 && Objects.equals(mPackageName, other.mPackageName)
                 && Objects.equals(mInputId, other.mInputId)
@@ -318,6 +324,21 @@ public final class Channel {
                 && Objects.equals(mAppLinkIntentUri, other.mAppLinkIntentUri);
     }
 
+    /**
+     * Returns the hash of the values which are compared by {@link #hasSameReadOnlyInfo}. If two
+     * channels have different hashes, they don't have the same read-only info. The same hashes
+     * don't mean the same info.
+     */
+    public int getReadOnlyInfoHash() {
+        if (mReadOnlyInfoHash == 0) {
+            int hash = Objects.hash(mId, mPackageName, mInputId, mType, mDisplayNumber,
+                    mDisplayName, mDescription, mVideoFormat, mIsPassthrough, mAppLinkText,
+                    mAppLinkColor, mAppLinkIconUri, mAppLinkPosterArtUri, mAppLinkIntentUri);
+            mReadOnlyInfoHash = hash == 0 ? 1 : hash;
+        }
+        return mReadOnlyInfoHash;
+    }
+
     @Override
     public String toString() {
         return "Channel{"
@@ -357,6 +378,7 @@ public final class Channel {
         mAppLinkIntentUri = other.mAppLinkIntentUri;
         mAppLinkIntent = other.mAppLinkIntent;
         mAppLinkType = other.mAppLinkType;
+        mReadOnlyInfoHash = other.mReadOnlyInfoHash;
     }
 
     /**
@@ -505,6 +527,8 @@ public final class Channel {
         public Channel build() {
             Channel channel = new Channel();
             channel.copyFrom(mChannel);
+            // The values might be changed after the hash is copied from another channel.
+            channel.mReadOnlyInfoHash = 0;
             return channel;
         }
     }
@@ -16,9 +16,10 @@
 
 package com.android.tv.data;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
-import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
 import android.database.ContentObserver;
@@ -28,6 +29,7 @@ import android.media.tv.TvInputManager.TvInputCallback;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.RemoteException;
 import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
@@ -45,8 +47,11 @@ import com.android.tv.util.Utils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -64,6 +69,11 @@ public class ChannelDataManager {
     private static final boolean DEBUG = false;
 
     private static final int MSG_UPDATE_CHANNELS = 1000;
+    private static final int MSG_APPLY_UPDATED_VALUES = 1001;
+
+    // The changes by updateBrowsable and updateLocked are written together after this delay,
+    // unless applyUpdatedValuesToDb is called before.
+    private static final long APPLY_UPDATED_VALUES_DELAY_MS = 1000;
 
     private final Context mContext;
     private final TvInputManagerHelper mInputManager;
@@ -73,6 +83,7 @@ public class ChannelDataManager {
     private final List<Runnable> mPostRunnablesAfterChannelUpdate = new ArrayList<>();
 
     private final Set<Listener> mListeners = new ArraySet<>();
+    private final Set<ChannelListChangeListener> mChannelListChangeListeners = new ArraySet<>();
     private final Map<Long, ChannelWrapper> mChannelWrapperMap = new HashMap<>();
     private final Map<String, MutableInt> mChannelCountMap = new HashMap<>();
     private final Channel.DefaultComparator mChannelComparator;
@@ -90,39 +101,37 @@ public class ChannelDataManager {
     private final TvInputCallback mTvInputCallback = new TvInputCallback() {
         @Override
         public void onInputAdded(String inputId) {
-            boolean channelAdded = false;
+            List<Channel> addedChannels = new ArrayList<>();
             for (ChannelWrapper channel : mChannelWrapperMap.values()) {
-                if (channel.mChannel.getInputId().equals(inputId)) {
+                if (channel.mChannel.getInputId().equals(inputId) && channel.mInputRemoved) {
                     channel.mInputRemoved = false;
                     addChannel(channel.mChannel);
-                    channelAdded = true;
+                    addedChannels.add(channel.mChannel);
                 }
             }
-            if (channelAdded) {
+            if (!addedChannels.isEmpty()) {
                 Collections.sort(mChannels, mChannelComparator);
+                notifyChannelListChanged(addedChannels, Collections.<Channel>emptyList(),
+                        Collections.<Channel>emptyList());
                 notifyChannelListUpdated();
             }
         }
 
         @Override
         public void onInputRemoved(String inputId) {
-            boolean channelRemoved = false;
             ArrayList<ChannelWrapper> removedChannels = new ArrayList<>();
+            List<Channel> channels = new ArrayList<>();
             for (ChannelWrapper channel : mChannelWrapperMap.values()) {
-                if (channel.mChannel.getInputId().equals(inputId)) {
+                if (channel.mChannel.getInputId().equals(inputId) && !channel.mInputRemoved) {
                     channel.mInputRemoved = true;
-                    channelRemoved = true;
                     removedChannels.add(channel);
+                    channels.add(channel.mChannel);
                 }
             }
-            if (channelRemoved) {
-                clearChannels();
-                for (ChannelWrapper channelWrapper : mChannelWrapperMap.values()) {
-                    if (!channelWrapper.mInputRemoved) {
-                        addChannel(channelWrapper.mChannel);
-                    }
-                }
-                Collections.sort(mChannels, mChannelComparator);
+            if (!removedChannels.isEmpty()) {
+                removeChannels(channels);
+                notifyChannelListChanged(Collections.<Channel>emptyList(), channels,
+                        Collections.<Channel>emptyList());
                 notifyChannelListUpdated();
                 for (ChannelWrapper channel : removedChannels) {
                     channel.notifyChannelRemoved();
@@ -228,6 +237,26 @@ public class ChannelDataManager {
         }
     }
 
+    /**
+     * Adds a {@link ChannelListChangeListener}.
+     */
+    public void addChannelListChangeListener(ChannelListChangeListener listener) {
+        SoftPreconditions.checkNotNull(listener);
+        if (listener != null) {
+            mChannelListChangeListeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a {@link ChannelListChangeListener}.
+     */
+    public void removeChannelListChangeListener(ChannelListChangeListener listener) {
+        SoftPreconditions.checkNotNull(listener);
+        if (listener != null) {
+            mChannelListChangeListeners.remove(listener);
+        }
+    }
+
     /**
      * Adds a {@link ChannelListener} for a specific channel with the channel ID {@code channelId}.
      */
@@ -272,6 +301,13 @@ public class ChannelDataManager {
         return Collections.unmodifiableList(mChannels);
     }
 
+    /**
+     * Returns the comparator which determines the order of {@link #getChannelList}.
+     */
+    public Comparator<Channel> getChannelComparator() {
+        return mChannelComparator;
+    }
+
     /**
      * Returns a list of browsable channels.
      */
@@ -350,6 +386,7 @@ public class ChannelDataManager {
                 mBrowsableUpdateChannelIds.add(channelWrapper.mChannel.getId());
             }
             channelWrapper.notifyChannelUpdated();
+            scheduleApplyUpdatedValuesToDb();
             // When updateBrowsable is called multiple times in a method, we don't need to
             // notify Listener.onChannelBrowsableChanged multiple times but only once. So
             // we send a message instead of directly calling onChannelBrowsableChanged.
@@ -373,6 +410,14 @@ public class ChannelDataManager {
         }
     }
 
+    private void notifyChannelListChanged(List<Channel> addedChannels,
+            List<Channel> removedChannels, List<Channel> updatedChannels) {
+        for (ChannelListChangeListener l : mChannelListChangeListeners.toArray(
+                new ChannelListChangeListener[mChannelListChangeListeners.size()])) {
+            l.onChannelListChanged(addedChannels, removedChannels, updatedChannels);
+        }
+    }
+
     private void notifyLoadFinished() {
         // Copy the original collection to allow the callee to modify the listeners.
         for (Listener l : mListeners.toArray(new Listener[mListeners.size()])) {
@@ -411,14 +456,18 @@ public class ChannelDataManager {
                 mLockedUpdateChannelIds.add(channelWrapper.mChannel.getId());
             }
             channelWrapper.notifyChannelUpdated();
+            scheduleApplyUpdatedValuesToDb();
         }
     }
 
     /**
      * Applies the changed values by {@link #updateBrowsable} and {@link #updateLocked}
-     * to DB.
+     * to DB. All the changes are written in a single batch. The pending changes are applied
+     * automatically after {@link #APPLY_UPDATED_VALUES_DELAY_MS} even if this isn't called.
      */
     public void applyUpdatedValuesToDb() {
+        mHandler.removeMessages(MSG_APPLY_UPDATED_VALUES);
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
         ArrayList<Long> browsableIds = new ArrayList<>();
         ArrayList<Long> unbrowsableIds = new ArrayList<>();
         for (Long id : mBrowsableUpdateChannelIds) {
@@ -444,12 +493,8 @@ public class ChannelDataManager {
             }
             editor.apply();
         } else {
-            if (browsableIds.size() != 0) {
-                updateOneColumnValue(column, 1, browsableIds);
-            }
-            if (unbrowsableIds.size() != 0) {
-                updateOneColumnValue(column, 0, unbrowsableIds);
-            }
+            addUpdateOperation(ops, column, 1, browsableIds);
+            addUpdateOperation(ops, column, 0, unbrowsableIds);
         }
         mBrowsableUpdateChannelIds.clear();
 
@@ -468,13 +513,10 @@ public class ChannelDataManager {
             channelWrapper.mLockedInDb = channelWrapper.mChannel.isLocked();
         }
         column = TvContract.Channels.COLUMN_LOCKED;
-        if (lockedIds.size() != 0) {
-            updateOneColumnValue(column, 1, lockedIds);
-        }
-        if (unlockedIds.size() != 0) {
-            updateOneColumnValue(column, 0, unlockedIds);
-        }
+        addUpdateOperation(ops, column, 1, lockedIds);
+        addUpdateOperation(ops, column, 0, unlockedIds);
         mLockedUpdateChannelIds.clear();
+        applyOperations(ops);
         if (DEBUG) {
             Log.d(TAG, "applyUpdatedValuesToDb"
                     + "\n browsableIds size:" + browsableIds.size()
@@ -500,6 +542,24 @@ public class ChannelDataManager {
         mChannelCountMap.clear();
     }
 
+    private void removeChannels(List<Channel> channels) {
+        // Use an identity set, since the channels in the list are the same instances.
+        Set<Channel> removedChannels = Collections.newSetFromMap(
+                new IdentityHashMap<Channel, Boolean>());
+        removedChannels.addAll(channels);
+        Iterator<Channel> iter = mChannels.iterator();
+        while (iter.hasNext()) {
+            Channel channel = iter.next();
+            if (removedChannels.contains(channel)) {
+                iter.remove();
+                MutableInt count = mChannelCountMap.get(channel.getInputId());
+                if (count != null && --count.value == 0) {
+                    mChannelCountMap.remove(channel.getInputId());
+                }
+            }
+        }
+    }
+
     private void handleUpdateChannels() {
         if (mChannelsUpdateTask != null) {
             mChannelsUpdateTask.cancel(true);
@@ -535,6 +595,20 @@ public class ChannelDataManager {
         void onChannelBrowsableChanged();
     }
 
+    /**
+     * A listener for the changes of the channel list, which is called with the changed channels
+     * right before {@link Listener#onChannelListUpdated}. It can be used to update the data
+     * incrementally instead of reloading it for all the channels.
+     */
+    public interface ChannelListChangeListener {
+        /**
+         * Called when channels are added, removed, or updated. The channels which are not
+         * changed keep the same instances. The lists shouldn't be modified.
+         */
+        void onChannelListChanged(List<Channel> addedChannels, List<Channel> removedChannels,
+                List<Channel> updatedChannels);
+    }
+
     public interface ChannelListener {
         /**
          * Called when the channel has been removed in DB.
@@ -595,13 +669,15 @@ public class ChannelDataManager {
                 if (DEBUG) Log.e(TAG, "onPostExecute with null channels");
                 return;
             }
+            // Compare the new snapshot with the current one, and keep the channel instances of
+            // the unchanged channels.
             Set<Long> removedChannelIds = new HashSet<>(mChannelWrapperMap.keySet());
             List<ChannelWrapper> removedChannelWrappers = new ArrayList<>();
             List<ChannelWrapper> updatedChannelWrappers = new ArrayList<>();
+            List<Channel> addedChannels = new ArrayList<>();
+            List<Channel> removedChannels = new ArrayList<>();
+            List<Channel> updatedChannels = new ArrayList<>();
 
-            boolean channelAdded = false;
-            boolean channelUpdated = false;
-            boolean channelRemoved = false;
             Map<String, ?> deletedBrowsableMap = null;
             if (mStoreBrowsableInSharedPreferences) {
                 deletedBrowsableMap = new HashMap<>(mBrowsableSharedPreferences.getAll());
@@ -620,7 +696,8 @@ public class ChannelDataManager {
                     channelWrapper = new ChannelWrapper(channel);
                     mChannelWrapperMap.put(channel.getId(), channelWrapper);
                     if (!channelWrapper.mInputRemoved) {
-                        channelAdded = true;
+                        addChannel(channel);
+                        addedChannels.add(channel);
                     }
                 } else {
                     channelWrapper = mChannelWrapperMap.get(channelId);
@@ -632,12 +709,14 @@ public class ChannelDataManager {
                         // {@link #applyUpdatedValuesToDb} is called. Therefore, the value
                         // between DB and ChannelDataManager could be different for a while.
                         // Therefore, we'll keep the values in ChannelDataManager.
-                        channelWrapper.mChannel.copyFrom(channel);
-                        channel.setBrowsable(oldChannel.isBrowsable());
-                        channel.setLocked(oldChannel.isLocked());
+                        boolean browsable = oldChannel.isBrowsable();
+                        boolean locked = oldChannel.isLocked();
+                        oldChannel.copyFrom(channel);
+                        oldChannel.setBrowsable(browsable);
+                        oldChannel.setLocked(locked);
                         if (!channelWrapper.mInputRemoved) {
-                            channelUpdated = true;
                             updatedChannelWrappers.add(channelWrapper);
+                            updatedChannels.add(oldChannel);
                         }
                     }
                 }
@@ -657,22 +736,31 @@ public class ChannelDataManager {
             for (long id : removedChannelIds) {
                 ChannelWrapper channelWrapper = mChannelWrapperMap.remove(id);
                 if (!channelWrapper.mInputRemoved) {
-                    channelRemoved = true;
                     removedChannelWrappers.add(channelWrapper);
+                    removedChannels.add(channelWrapper.mChannel);
                 }
             }
-            clearChannels();
-            for (ChannelWrapper channelWrapper : mChannelWrapperMap.values()) {
-                if (!channelWrapper.mInputRemoved) {
-                    addChannel(channelWrapper.mChannel);
-                }
+            if (!removedChannels.isEmpty()) {
+                removeChannels(removedChannels);
+            }
+            boolean channelListChanged = !addedChannels.isEmpty() || !removedChannels.isEmpty()
+                    || !updatedChannels.isEmpty();
+            if (channelListChanged) {
+                // The display numbers of the updated channels can be changed.
+                Collections.sort(mChannels, mChannelComparator);
+            }
+            if (DEBUG) {
+                Log.d(TAG, "Channels reloaded: " + addedChannels.size() + " added, "
+                        + removedChannels.size() + " removed, " + updatedChannels.size()
+                        + " updated");
             }
-            Collections.sort(mChannels, mChannelComparator);
 
-            if (!mDbLoadFinished) {
+            boolean firstLoad = !mDbLoadFinished;
+            if (firstLoad) {
                 mDbLoadFinished = true;
                 notifyLoadFinished();
-            } else if (channelAdded || channelUpdated || channelRemoved) {
+            } else if (channelListChanged) {
+                notifyChannelListChanged(addedChannels, removedChannels, updatedChannels);
                 notifyChannelListUpdated();
             }
             for (ChannelWrapper channelWrapper : removedChannelWrappers) {
@@ -685,17 +773,42 @@ public class ChannelDataManager {
                 r.run();
             }
             mPostRunnablesAfterChannelUpdate.clear();
-            ChannelLogoFetcher.startFetchingChannelLogos(mContext);
+            if (firstLoad || !addedChannels.isEmpty() || !updatedChannels.isEmpty()) {
+                ChannelLogoFetcher.startFetchingChannelLogos(mContext);
+            }
+        }
+    }
+
+    private void scheduleApplyUpdatedValuesToDb() {
+        mHandler.removeMessages(MSG_APPLY_UPDATED_VALUES);
+        mHandler.sendEmptyMessageDelayed(MSG_APPLY_UPDATED_VALUES,
+                APPLY_UPDATED_VALUES_DELAY_MS);
+    }
+
+    /**
+     * Adds an operation which updates a column {@code columnName} of the channels in the ID list
+     * {@code ids} with the value {@code columnValue}.
+     */
+    private static void addUpdateOperation(List<ContentProviderOperation> ops, String columnName,
+            int columnValue, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
         }
+        ops.add(ContentProviderOperation.newUpdate(TvContract.Channels.CONTENT_URI)
+                .withSelection(Utils.buildSelectionForIds(Channels._ID, ids), null)
+                .withValue(columnName, columnValue)
+                .build());
     }
 
     /**
-     * Updates a column {@code columnName} of DB table {@code uri} with the value
-     * {@code columnValue}. The selective rows in the ID list {@code ids} will be updated.
-     * The DB operations will run on {@link AsyncDbTask#getExecutor()}.
+     * Applies the operations in a batch by {@link AsyncDbTask#execute(Runnable)}. The batch
+     * causes a change notification, and the reload by it doesn't notify any change since the
+     * channels in this class already have the new values.
      */
-    private void updateOneColumnValue(
-            final String columnName, final int columnValue, final List<Long> ids) {
+    private void applyOperations(final ArrayList<ContentProviderOperation> ops) {
+        if (ops.isEmpty()) {
+            return;
+        }
         if (!PermissionUtils.hasAccessAllEpg(mContext)) {
             // TODO: support this feature for non-system LC app. b/23939816
             return;
@@ -703,10 +816,11 @@ public class ChannelDataManager {
         AsyncDbTask.execute(new Runnable() {
             @Override
             public void run() {
-                String selection = Utils.buildSelectionForIds(Channels._ID, ids);
-                ContentValues values = new ContentValues();
-                values.put(columnName, columnValue);
-                mContentResolver.update(TvContract.Channels.CONTENT_URI, values, selection, null);
+                try {
+                    mContentResolver.applyBatch(TvContract.AUTHORITY, ops);
+                } catch (RemoteException | OperationApplicationException e) {
+                    Log.e(TAG, "Failed to apply the updated values", e);
+                }
             }
         });
     }
@@ -722,8 +836,13 @@ public class ChannelDataManager {
 
         @Override
         public void handleMessage(Message msg, @NonNull ChannelDataManager channelDataManager) {
-            if (msg.what == MSG_UPDATE_CHANNELS) {
-                channelDataManager.handleUpdateChannels();
+            switch (msg.what) {
+                case MSG_UPDATE_CHANNELS:
+                    channelDataManager.handleUpdateChannels();
+                    break;
+                case MSG_APPLY_UPDATED_VALUES:
+                    channelDataManager.applyUpdatedValuesToDb();
+                    break;
             }
         }
     }
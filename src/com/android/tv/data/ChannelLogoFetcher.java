@@ -25,24 +25,37 @@ import android.net.Uri;
 import android.os.AsyncTask;
 import android.support.annotation.WorkerThread;
 import android.text.TextUtils;
+import android.util.Base64;
 import android.util.Log;
 
+import com.android.tv.R;
 import com.android.tv.util.AsyncDbTask;
+import com.android.tv.util.BitmapPool;
 import com.android.tv.util.BitmapUtils;
 import com.android.tv.util.BitmapUtils.ScaledBitmapInfo;
+import com.android.tv.util.DbExecutor;
+import com.android.tv.util.NamedThreadFactory;
 import com.android.tv.util.PermissionUtils;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Utility class for TMS data.
@@ -52,25 +65,15 @@ public class ChannelLogoFetcher {
     private static final String TAG = "ChannelLogoFetcher";
     private static final boolean DEBUG = false;
 
-    /**
-     * The name of the file which contains the TMS data.
-     * The file has multiple records and each of them is a string separated by '|' like
-     * STATION_NAME|SHORT_NAME|CALL_SIGN|LOGO_URI.
-     */
-    private static final String TMS_US_TABLE_FILE = "tms_us.table";
-    private static final String TMS_KR_TABLE_FILE = "tms_kr.table";
-    private static final String FIELD_SEPARATOR = "\\|";
-    private static final String NAME_SEPARATOR_FOR_TMS = "\\(|\\)|\\{|\\}|\\[|\\]";
     private static final String NAME_SEPARATOR_FOR_DB = "\\W";
-    private static final int INDEX_NAME = 0;
-    private static final int INDEX_SHORT_NAME = 1;
-    private static final int INDEX_CALL_SIGN = 2;
-    private static final int INDEX_LOGO_URI = 3;
+    private static final int FETCH_THREAD_COUNT = 4;
 
     private static final String COLUMN_CHANNEL_LOGO = "logo";
 
     private static final Object sLock = new Object();
-    private static final Set<Long> sChannelIdBlackListSet = new HashSet<>();
+    private static final Set<Long> sChannelIdBlackListSet =
+            Collections.synchronizedSet(new HashSet<Long>());
+    private static final ThreadFactory THREAD_FACTORY = new NamedThreadFactory(TAG);
     private static LoadChannelTask sQueryTask;
     private static FetchLogoTask sFetchTask;
 
@@ -118,6 +121,11 @@ public class ChannelLogoFetcher {
             mContext = context;
         }
 
+        @Override
+        protected int getPriority() {
+            return DbExecutor.PRIORITY_LOW;
+        }
+
         @Override
         protected List<Channel> doInBackground(Void... arg) {
             // Load channels which doesn't have channel logos.
@@ -140,7 +148,7 @@ public class ChannelLogoFetcher {
                         continue;
                     }
                     channels.add(new Channel.Builder().setId(c.getLong(0))
-                            .setDisplayName(c.getString(1).toUpperCase(Locale.getDefault()))
+                            .setDisplayName(c.getString(1).toUpperCase(Locale.US))
                             .build());
                 }
                 return channels;
@@ -168,10 +176,20 @@ public class ChannelLogoFetcher {
     private static final class FetchLogoTask extends AsyncTask<Void, Void, Void> {
         private final Context mContext;
         private final List<Channel> mChannels;
+        private final int mMaxLogoWidth;
+        private final int mMaxLogoHeight;
+        // The encoded logos by the SHA-1 digests of the fetched images, which are used to skip
+        // decoding and encoding the same image again.
+        private final Map<String, byte[]> mEncodedLogos = new ConcurrentHashMap<>();
 
         public FetchLogoTask(Context context, List<Channel> channels) {
             mContext = context;
             mChannels = channels;
+            // The logos are shown at most in the size of the card images.
+            mMaxLogoWidth = context.getResources().getDimensionPixelSize(
+                    R.dimen.card_image_layout_width);
+            mMaxLogoHeight = context.getResources().getDimensionPixelSize(
+                    R.dimen.card_image_layout_height);
         }
 
         @Override
@@ -182,14 +200,9 @@ public class ChannelLogoFetcher {
             }
             // Load the TMS table data.
             if (DEBUG) Log.d(TAG, "Loads TMS data");
-            Map<String, String> channelNameLogoUriMap = new HashMap<>();
+            ChannelLogoIndex logoIndex;
             try {
-                channelNameLogoUriMap.putAll(readTmsFile(mContext, TMS_US_TABLE_FILE));
-                if (isCancelled()) {
-                    if (DEBUG) Log.d(TAG, "Fetching the channel logos has been canceled");
-                    return null;
-                }
-                channelNameLogoUriMap.putAll(readTmsFile(mContext, TMS_KR_TABLE_FILE));
+                logoIndex = ChannelLogoIndex.load(mContext);
             } catch (IOException e) {
                 Log.e(TAG, "Loading TMS data failed.", e);
                 return null;
@@ -199,13 +212,9 @@ public class ChannelLogoFetcher {
                 return null;
             }
 
-            // Iterating channels.
+            // Group the channels by the logo URIs, so that each logo is fetched only once.
+            Map<String, List<Long>> logoUriChannelIdsMap = new HashMap<>();
             for (Channel channel : mChannels) {
-                if (isCancelled()) {
-                    if (DEBUG) Log.d(TAG, "Fetching the channel logos has been canceled");
-                    return null;
-                }
-                // Download the channel logo.
                 if (TextUtils.isEmpty(channel.getDisplayName())) {
                     if (DEBUG) {
                         Log.d(TAG, "The channel with ID (" + channel.getId()
@@ -214,60 +223,118 @@ public class ChannelLogoFetcher {
                     sChannelIdBlackListSet.add(channel.getId());
                     continue;
                 }
-                String channelName = channel.getDisplayName().trim();
-                String logoUri = channelNameLogoUriMap.get(channelName);
+                String logoUri = findLogoUri(logoIndex, channel.getDisplayName().trim());
                 if (TextUtils.isEmpty(logoUri)) {
-                    if (DEBUG) {
-                        Log.d(TAG, "Can't find a logo URI for channel '" + channelName + "'");
-                    }
-                    // Find the candidate names. If the channel name is CNN-HD, then find CNNHD
-                    // and CNN. Or if the channel name is KQED+, then find KQED.
-                    String[] splitNames = channelName.split(NAME_SEPARATOR_FOR_DB);
-                    if (splitNames.length > 1) {
-                        StringBuilder sb = new StringBuilder();
-                        for (String splitName : splitNames) {
-                            sb.append(splitName);
-                        }
-                        logoUri = channelNameLogoUriMap.get(sb.toString());
-                        if (DEBUG) {
-                            if (TextUtils.isEmpty(logoUri)) {
-                                Log.d(TAG, "Can't find a logo URI for channel '" + sb.toString()
-                                        + "'");
-                            }
+                    sChannelIdBlackListSet.add(channel.getId());
+                    continue;
+                }
+                List<Long> channelIds = logoUriChannelIdsMap.get(logoUri);
+                if (channelIds == null) {
+                    channelIds = new ArrayList<>();
+                    logoUriChannelIdsMap.put(logoUri, channelIds);
+                }
+                channelIds.add(channel.getId());
+            }
+
+            // Fetch, decode and store the logos in parallel.
+            ExecutorService executor = Executors.newFixedThreadPool(FETCH_THREAD_COUNT,
+                    THREAD_FACTORY);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (final Map.Entry<String, List<Long>> entry
+                        : logoUriChannelIdsMap.entrySet()) {
+                    futures.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            fetchLogo(entry.getKey(), entry.getValue());
                         }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                if (DEBUG) Log.d(TAG, "Fetching the channel logos has been canceled");
+                return null;
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Fetching the channel logos failed.", e);
+                return null;
+            } finally {
+                executor.shutdownNow();
+            }
+            if (DEBUG) Log.d(TAG, "Fetching logos has been finished successfully.");
+            return null;
+        }
+
+        private String findLogoUri(ChannelLogoIndex logoIndex, String channelName) {
+            String logoUri = logoIndex.getLogoUri(channelName);
+            if (TextUtils.isEmpty(logoUri)) {
+                if (DEBUG) {
+                    Log.d(TAG, "Can't find a logo URI for channel '" + channelName + "'");
+                }
+                // Find the candidate names. If the channel name is CNN-HD, then find CNNHD
+                // and CNN. Or if the channel name is KQED+, then find KQED.
+                String[] splitNames = channelName.split(NAME_SEPARATOR_FOR_DB);
+                if (splitNames.length > 1) {
+                    StringBuilder sb = new StringBuilder();
+                    for (String splitName : splitNames) {
+                        sb.append(splitName);
                     }
-                    if (TextUtils.isEmpty(logoUri)
-                            && splitNames[0].length() != channelName.length()) {
-                        logoUri = channelNameLogoUriMap.get(splitNames[0]);
-                        if (DEBUG) {
-                            if (TextUtils.isEmpty(logoUri)) {
-                                Log.d(TAG, "Can't find a logo URI for channel '" + splitNames[0]
-                                        + "'");
-                            }
+                    logoUri = logoIndex.getLogoUri(sb.toString());
+                    if (DEBUG) {
+                        if (TextUtils.isEmpty(logoUri)) {
+                            Log.d(TAG, "Can't find a logo URI for channel '" + sb.toString()
+                                    + "'");
                         }
                     }
                 }
-                if (TextUtils.isEmpty(logoUri)) {
-                    sChannelIdBlackListSet.add(channel.getId());
-                    continue;
+                if (TextUtils.isEmpty(logoUri)
+                        && splitNames[0].length() != channelName.length()) {
+                    logoUri = logoIndex.getLogoUri(splitNames[0]);
+                    if (DEBUG) {
+                        if (TextUtils.isEmpty(logoUri)) {
+                            Log.d(TAG, "Can't find a logo URI for channel '" + splitNames[0]
+                                    + "'");
+                        }
+                    }
                 }
-                ScaledBitmapInfo bitmapInfo = BitmapUtils.decodeSampledBitmapFromUriString(
-                        mContext, logoUri, Integer.MAX_VALUE, Integer.MAX_VALUE);
-                if (bitmapInfo == null) {
-                    Log.e(TAG, "Failed to load bitmap. {channelName=" + channel.getDisplayName()
-                            + ", " + "logoUri=" + logoUri + "}");
-                    sChannelIdBlackListSet.add(channel.getId());
-                    continue;
+            }
+            return logoUri;
+        }
+
+        @WorkerThread
+        private void fetchLogo(String logoUri, List<Long> channelIds) {
+            if (isCancelled()) {
+                return;
+            }
+            byte[] data = BitmapUtils.readBytesFromUriString(mContext, logoUri);
+            byte[] encodedLogo = null;
+            if (data != null) {
+                String digest = getDigest(data);
+                encodedLogo = digest == null ? null : mEncodedLogos.get(digest);
+                if (encodedLogo == null) {
+                    encodedLogo = encodeLogo(logoUri, data);
+                    if (digest != null && encodedLogo != null) {
+                        mEncodedLogos.put(digest, encodedLogo);
+                    }
+                } else if (DEBUG) {
+                    Log.d(TAG, "The logo of " + logoUri + " has been already encoded.");
                 }
+            }
+            if (encodedLogo == null) {
+                Log.e(TAG, "Failed to load bitmap. {logoUri=" + logoUri + "}");
+                sChannelIdBlackListSet.addAll(channelIds);
+                return;
+            }
+
+            // Insert the logo to DB.
+            for (long channelId : channelIds) {
                 if (isCancelled()) {
-                    if (DEBUG) Log.d(TAG, "Fetching the channel logos has been canceled");
-                    return null;
+                    return;
                 }
-
-                // Insert the logo to DB.
-                Uri dstLogoUri = TvContract.buildChannelLogoUri(channel.getId());
+                Uri dstLogoUri = TvContract.buildChannelLogoUri(channelId);
                 try (OutputStream os = mContext.getContentResolver().openOutputStream(dstLogoUri)) {
-                    bitmapInfo.bitmap.compress(CompressFormat.PNG, 100, os);
+                    os.write(encodedLogo);
                 } catch (IOException e) {
                     Log.e(TAG, "Failed to write " + logoUri + "  to " + dstLogoUri, e);
                     continue;
@@ -277,53 +344,30 @@ public class ChannelLogoFetcher {
                             + dstLogoUri + "}");
                 }
             }
-            if (DEBUG) Log.d(TAG, "Fetching logos has been finished successfully.");
-            return null;
         }
 
-        @WorkerThread
-        private Map<String, String> readTmsFile(Context context, String fileName)
-                throws IOException {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                    context.getAssets().open(fileName)))) {
-                Map<String, String> channelNameLogoUriMap = new HashMap<>();
-                String line;
-                while ((line = reader.readLine()) != null && !isCancelled()) {
-                    String[] data = line.split(FIELD_SEPARATOR);
-                    if (data.length != INDEX_LOGO_URI + 1) {
-                        if (DEBUG) Log.d(TAG, "Invalid or comment row: " + line);
-                        continue;
-                    }
-                    addChannelNames(channelNameLogoUriMap,
-                            data[INDEX_NAME].toUpperCase(Locale.getDefault()),
-                            data[INDEX_LOGO_URI]);
-                    addChannelNames(channelNameLogoUriMap,
-                            data[INDEX_SHORT_NAME].toUpperCase(Locale.getDefault()),
-                            data[INDEX_LOGO_URI]);
-                    addChannelNames(channelNameLogoUriMap,
-                            data[INDEX_CALL_SIGN].toUpperCase(Locale.getDefault()),
-                            data[INDEX_LOGO_URI]);
-                }
-                return channelNameLogoUriMap;
+        private byte[] encodeLogo(String logoUri, byte[] data) {
+            ScaledBitmapInfo bitmapInfo = BitmapUtils.decodeSampledBitmapFromBytes(logoUri, data,
+                    mMaxLogoWidth, mMaxLogoHeight);
+            if (bitmapInfo == null) {
+                return null;
+            }
+            try {
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                return bitmapInfo.bitmap.compress(CompressFormat.PNG, 100, os)
+                        ? os.toByteArray() : null;
+            } finally {
+                // The bitmap is used only to be stored.
+                BitmapPool.getInstance().put(bitmapInfo.bitmap);
             }
         }
 
-        private void addChannelNames(Map<String, String> channelNameLogoUriMap, String channelName,
-                String logoUri) {
-            if (!TextUtils.isEmpty(channelName)) {
-                channelNameLogoUriMap.put(channelName, logoUri);
-                // Find the candidate names.
-                // If the name is like "W05AAD (W05AA-D)", then split the names into "W05AAD" and
-                // "W05AA-D"
-                String[] splitNames = channelName.split(NAME_SEPARATOR_FOR_TMS);
-                if (splitNames.length > 1) {
-                    for (String name : splitNames) {
-                        name = name.trim();
-                        if (channelNameLogoUriMap.get(name) == null) {
-                            channelNameLogoUriMap.put(name, logoUri);
-                        }
-                    }
-                }
+        private static String getDigest(byte[] data) {
+            try {
+                return Base64.encodeToString(MessageDigest.getInstance("SHA-1").digest(data),
+                        Base64.NO_WRAP);
+            } catch (NoSuchAlgorithmException e) {
+                return null;
             }
         }
 
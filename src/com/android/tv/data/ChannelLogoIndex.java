@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.data;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An index from the channel names to the logo URIs, which is built from the TMS tables.
+ *
+ * <p>The names are kept in a sorted array and looked up by the binary search. Since parsing the
+ * tables takes long, the index is saved in a file and loaded from it until the application is
+ * updated.
+ */
+@WorkerThread
+class ChannelLogoIndex {
+    private static final String TAG = "ChannelLogoIndex";
+    private static final boolean DEBUG = false;
+
+    /**
+     * The names of the files which contain the TMS data.
+     * The file has multiple records and each of them is a string separated by '|' like
+     * STATION_NAME|SHORT_NAME|CALL_SIGN|LOGO_URI.
+     * The records of the latter file take precedence.
+     */
+    private static final String[] TMS_TABLE_FILES = {"tms_us.table", "tms_kr.table"};
+    private static final String INDEX_FILE_NAME = "channel_logo.index";
+    private static final int VERSION = 2;
+
+    private static final String FIELD_SEPARATOR = "\\|";
+    private static final String NAME_SEPARATOR_FOR_TMS = "\\(|\\)|\\{|\\}|\\[|\\]";
+    private static final int INDEX_NAME = 0;
+    private static final int INDEX_SHORT_NAME = 1;
+    private static final int INDEX_CALL_SIGN = 2;
+    private static final int INDEX_LOGO_URI = 3;
+
+    private final String[] mNames;
+    private final int[] mUriIndices;
+    private final String[] mUris;
+
+    private ChannelLogoIndex(String[] names, int[] uriIndices, String[] uris) {
+        mNames = names;
+        mUriIndices = uriIndices;
+        mUris = uris;
+    }
+
+    /**
+     * Loads the index from the file, or builds it from the TMS tables if the file is not
+     * available or is outdated.
+     */
+    static ChannelLogoIndex load(Context context) throws IOException {
+        long timestamp = getPackageTimestamp(context);
+        File file = new File(context.getFilesDir(), INDEX_FILE_NAME);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            ChannelLogoIndex index = read(in, timestamp);
+            if (index != null) {
+                if (DEBUG) Log.d(TAG, "Loaded " + index.mNames.length + " names from " + file);
+                return index;
+            }
+        } catch (IOException e) {
+            if (DEBUG) Log.d(TAG, "Failed to read " + file, e);
+        }
+        List<Reader> readers = new ArrayList<>();
+        try {
+            for (String fileName : TMS_TABLE_FILES) {
+                readers.add(new InputStreamReader(context.getAssets().open(fileName)));
+            }
+            ChannelLogoIndex index = build(readers);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                index.write(out, timestamp);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write " + file, e);
+                file.delete();
+            }
+            return index;
+        } finally {
+            for (Reader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Builds the index from the TMS tables. The records of the latter table take precedence.
+     */
+    @VisibleForTesting
+    static ChannelLogoIndex build(List<Reader> tables) throws IOException {
+        Map<String, String> channelNameLogoUriMap = new HashMap<>();
+        for (Reader table : tables) {
+            channelNameLogoUriMap.putAll(readTmsTable(table));
+        }
+        String[] names = channelNameLogoUriMap.keySet()
+                .toArray(new String[channelNameLogoUriMap.size()]);
+        Arrays.sort(names);
+        Map<String, Integer> uriIndexMap = new HashMap<>();
+        List<String> uris = new ArrayList<>();
+        int[] uriIndices = new int[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            String uri = channelNameLogoUriMap.get(names[i]);
+            Integer uriIndex = uriIndexMap.get(uri);
+            if (uriIndex == null) {
+                uriIndex = uris.size();
+                uris.add(uri);
+                uriIndexMap.put(uri, uriIndex);
+            }
+            uriIndices[i] = uriIndex;
+        }
+        return new ChannelLogoIndex(names, uriIndices, uris.toArray(new String[uris.size()]));
+    }
+
+    /**
+     * Returns the logo URI of the channel name which should be in the upper case, or
+     * {@code null} if there's no such channel.
+     */
+    @Nullable
+    String getLogoUri(String channelName) {
+        int index = Arrays.binarySearch(mNames, channelName);
+        return index < 0 ? null : mUris[mUriIndices[index]];
+    }
+
+    @VisibleForTesting
+    void write(OutputStream out, long timestamp) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(VERSION);
+        dataOut.writeLong(timestamp);
+        dataOut.writeInt(mUris.length);
+        for (String uri : mUris) {
+            dataOut.writeUTF(uri);
+        }
+        dataOut.writeInt(mNames.length);
+        for (int i = 0; i < mNames.length; ++i) {
+            dataOut.writeUTF(mNames[i]);
+            dataOut.writeInt(mUriIndices[i]);
+        }
+        dataOut.flush();
+    }
+
+    /**
+     * Reads the index, or returns {@code null} if the index is not for {@code timestamp}.
+     */
+    @VisibleForTesting
+    @Nullable
+    static ChannelLogoIndex read(InputStream in, long timestamp) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        if (dataIn.readInt() != VERSION || dataIn.readLong() != timestamp) {
+            return null;
+        }
+        String[] uris = new String[dataIn.readInt()];
+        for (int i = 0; i < uris.length; ++i) {
+            uris[i] = dataIn.readUTF();
+        }
+        int nameCount = dataIn.readInt();
+        String[] names = new String[nameCount];
+        int[] uriIndices = new int[nameCount];
+        for (int i = 0; i < nameCount; ++i) {
+            names[i] = dataIn.readUTF();
+            uriIndices[i] = dataIn.readInt();
+            if (uriIndices[i] < 0 || uriIndices[i] >= uris.length) {
+                return null;
+            }
+        }
+        return new ChannelLogoIndex(names, uriIndices, uris);
+    }
+
+    private static long getPackageTimestamp(Context context) {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0)
+                    .lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private static Map<String, String> readTmsTable(Reader table) throws IOException {
+        BufferedReader reader = new BufferedReader(table);
+        Map<String, String> channelNameLogoUriMap = new HashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] data = line.split(FIELD_SEPARATOR);
+            if (data.length != INDEX_LOGO_URI + 1) {
+                if (DEBUG) Log.d(TAG, "Invalid or comment row: " + line);
+                continue;
+            }
+            addChannelNames(channelNameLogoUriMap,
+                    data[INDEX_NAME].toUpperCase(Locale.US),
+                    data[INDEX_LOGO_URI]);
+            addChannelNames(channelNameLogoUriMap,
+                    data[INDEX_SHORT_NAME].toUpperCase(Locale.US),
+                    data[INDEX_LOGO_URI]);
+            addChannelNames(channelNameLogoUriMap,
+                    data[INDEX_CALL_SIGN].toUpperCase(Locale.US),
+                    data[INDEX_LOGO_URI]);
+        }
+        return channelNameLogoUriMap;
+    }
+
+    private static void addChannelNames(Map<String, String> channelNameLogoUriMap,
+            String channelName, String logoUri) {
+        if (!TextUtils.isEmpty(channelName)) {
+            channelNameLogoUriMap.put(channelName, logoUri);
+            // Find the candidate names.
+            // If the name is like "W05AAD (W05AA-D)", then split the names into "W05AAD" and
+            // "W05AA-D"
+            String[] splitNames = channelName.split(NAME_SEPARATOR_FOR_TMS);
+            if (splitNames.length > 1) {
+                for (String name : splitNames) {
+                    name = name.trim();
+                    if (channelNameLogoUriMap.get(name) == null) {
+                        channelNameLogoUriMap.put(name, logoUri);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.data;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An index from the typed channel numbers to the channels, which is used for the keypad channel
+ * switch.
+ *
+ * <p>The channel numbers are kept in tries of the digits, and each node of the tries has the
+ * channels under it in the order of the given list. So the candidates for a typed number are
+ * found by following its digits only. The delimiters of the channel numbers like '-', '.' and ' '
+ * are treated as the same.
+ */
+public final class ChannelNumberIndex {
+    private static final String TAG = "ChannelNumberIndex";
+
+    private static final int DELIMITER = 10;
+
+    // A trie of the channel numbers with the delimiter, e.g. 7, 7-1 and 7-11.
+    private final Node mNumberRoot = new Node();
+    // A trie of the channel numbers without the delimiter, e.g. 7, 71 and 711.
+    private final Node mDigitRoot = new Node();
+
+    public ChannelNumberIndex(List<Channel> channels) {
+        for (Channel channel : channels) {
+            ChannelNumber number = ChannelNumber.parseChannelNumber(channel.getDisplayNumber());
+            if (number == null || !isDigits(number.majorNumber)
+                    || !isDigits(number.minorNumber)) {
+                Log.i(TAG, "Malformed channel number (name=" + channel.getDisplayName()
+                        + ", number=" + channel.getDisplayNumber() + ")");
+                continue;
+            }
+            add(channel, number);
+        }
+    }
+
+    private void add(Channel channel, ChannelNumber number) {
+        Node node = mNumberRoot.add(number.majorNumber, channel);
+        node.mMajorChannels.add(channel);
+        if (number.hasDelimiter) {
+            node.getOrCreateChild(DELIMITER).add(number.minorNumber, channel);
+        }
+        mDigitRoot.add(number.majorNumber + number.minorNumber, channel);
+    }
+
+    private static boolean isDigits(String string) {
+        for (int i = 0; i < string.length(); ++i) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the channels which match the typed channel number.
+     *
+     * <p>The channels whose major number is the typed one come first. If the delimiter is not
+     * typed, they are followed by the channels whose number starts with the typed digits. For
+     * example, '111' matches '111', '1-11' and '11-1'.
+     */
+    public List<Channel> getCandidates(ChannelNumber typed) {
+        List<Channel> candidates = new ArrayList<>();
+        Node major = mNumberRoot.find(typed.majorNumber);
+        if (typed.hasDelimiter) {
+            if (major != null) {
+                Node minor = major.mChildren[DELIMITER];
+                if (minor != null) {
+                    minor = minor.find(typed.minorNumber);
+                }
+                if (minor != null) {
+                    candidates.addAll(minor.mChannels);
+                }
+            }
+            return candidates;
+        }
+        if (major != null) {
+            candidates.addAll(major.mMajorChannels);
+        }
+        Node digits = mDigitRoot.find(typed.majorNumber);
+        if (digits != null) {
+            Set<Channel> primaryCandidates = new HashSet<>(candidates);
+            for (Channel channel : digits.mChannels) {
+                if (!primaryCandidates.contains(channel)) {
+                    candidates.add(channel);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static class Node {
+        private final Node[] mChildren = new Node[DELIMITER + 1];
+        // The channels whose numbers pass through this node.
+        private final List<Channel> mChannels = new ArrayList<>();
+        // The channels whose major number ends at this node. Used only in the number trie.
+        private final List<Channel> mMajorChannels = new ArrayList<>();
+
+        private Node getOrCreateChild(int key) {
+            Node child = mChildren[key];
+            if (child == null) {
+                child = new Node();
+                mChildren[key] = child;
+            }
+            return child;
+        }
+
+        /**
+         * Adds the channel to this node and the nodes along the digits, and returns the last one.
+         */
+        private Node add(String digits, Channel channel) {
+            Node node = this;
+            node.mChannels.add(channel);
+            for (int i = 0; i < digits.length(); ++i) {
+                node = node.getOrCreateChild(digits.charAt(i) - '0');
+                node.mChannels.add(channel);
+            }
+            return node;
+        }
+
+        private Node find(String digits) {
+            Node node = this;
+            for (int i = 0; i < digits.length() && node != null; ++i) {
+                int key = digits.charAt(i) - '0';
+                if (key < 0 || key >= DELIMITER) {
+                    return null;
+                }
+                node = node.mChildren[key];
+            }
+            return node;
+        }
+    }
+}
@@ -243,6 +243,14 @@ public final class Program implements Comparable<Program> {
         return genres;
     }
 
+    /**
+     * Returns array of canonical genre ids for this program, or {@code null} if it has none.
+     * The returned array must not be modified.
+     */
+    public int[] getCanonicalGenreIds() {
+        return mCanonicalGenreIds;
+    }
+
     /**
      * Returns if this program has the genre.
      */
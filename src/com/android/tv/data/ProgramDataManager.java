@@ -38,6 +38,7 @@ import com.android.tv.common.SoftPreconditions;
 import com.android.tv.data.epg.EpgFetcher;
 import com.android.tv.util.AsyncDbTask;
 import com.android.tv.util.Clock;
+import com.android.tv.util.DbExecutor;
 import com.android.tv.util.MultiLongSparseArray;
 import com.android.tv.util.Utils;
 
@@ -447,6 +448,11 @@ public class ProgramDataManager implements MemoryManageable {
             mSuccess = false;
         }
 
+        @Override
+        protected int getPriority() {
+            return DbExecutor.PRIORITY_LOW;
+        }
+
         @Override
         protected Map<Long, ArrayList<Program>> doInBackground(Void... params) {
             Map<Long, ArrayList<Program>> programMap = new HashMap<>();
@@ -608,6 +614,11 @@ public class ProgramDataManager implements MemoryManageable {
             mChannelId = channelId;
         }
 
+        @Override
+        protected int getPriority() {
+            return DbExecutor.PRIORITY_HIGH;
+        }
+
         @Override
         public Program onQuery(Cursor c) {
             Program program = null;
@@ -634,6 +645,11 @@ public class ProgramDataManager implements MemoryManageable {
                     null, null);
         }
 
+        @Override
+        protected int getPriority() {
+            return DbExecutor.PRIORITY_HIGH;
+        }
+
         @Override
         protected Program fromCursor(Cursor c) {
             return  Program.fromCursor(c);
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.data;
+
+import android.content.Context;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.android.tv.data.WatchedHistoryManager.WatchedRecord;
+import com.android.tv.util.NamedThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * An append-only binary log of {@link WatchedRecord}s shared by all the
+ * {@link WatchedHistoryManager}s in the process.
+ *
+ * <p>Each record is stored as three longs: the channel ID, the watched start time and the
+ * duration. All the file operations are serialized on {@link #getExecutor()}. When the log grows
+ * to twice the maximum history size, it is compacted to keep only the latest records.
+ */
+class WatchedHistoryLog {
+    private static final String TAG = "WatchedHistoryLog";
+    private static final boolean DEBUG = false;
+
+    private static final String FILE_NAME = "watched_history.log";
+    private static final String COMPACT_FILE_NAME = FILE_NAME + ".tmp";
+    private static final int LONGS_PER_RECORD = 3;
+    private static final int RECORD_SIZE = LONGS_PER_RECORD * Long.SIZE / Byte.SIZE;
+
+    private static WatchedHistoryLog sInstance;
+
+    /**
+     * A listener to be notified of the records appended by the other
+     * {@link WatchedHistoryManager}s. It's called in the worker thread.
+     */
+    interface Listener {
+        void onRecordAppended(WatchedRecord record, long index);
+    }
+
+    private final Executor mExecutor = Executors.newSingleThreadExecutor(
+            new NamedThreadFactory(TAG));
+    private final List<WeakReference<Listener>> mListeners = new CopyOnWriteArrayList<>();
+    private final File mFile;
+    private final File mCompactFile;
+    private final ByteBuffer mWriteBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private RandomAccessFile mOutput;
+    private long mRecordCount;
+    private long mLastIndex = -1;
+    private int mMaxHistorySize;
+
+    /**
+     * Returns the log of the application.
+     */
+    static synchronized WatchedHistoryLog getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WatchedHistoryLog(context.getApplicationContext().getFilesDir());
+        }
+        return sInstance;
+    }
+
+    private WatchedHistoryLog(File dir) {
+        mFile = new File(dir, FILE_NAME);
+        mCompactFile = new File(dir, COMPACT_FILE_NAME);
+    }
+
+    /**
+     * Returns the executor on which all the file operations should be done.
+     */
+    Executor getExecutor() {
+        return mExecutor;
+    }
+
+    void addListener(Listener listener) {
+        mListeners.add(new WeakReference<>(listener));
+    }
+
+    /**
+     * Returns {@code true} if the log file has been created.
+     */
+    @WorkerThread
+    boolean exists() {
+        return mFile.exists();
+    }
+
+    /**
+     * Returns the index of the last record appended, which can be compared with the index given
+     * to {@link Listener#onRecordAppended}.
+     */
+    @WorkerThread
+    long getLastIndex() {
+        return mLastIndex;
+    }
+
+    /**
+     * Reads the latest {@code maxHistorySize} records in the ascending order of time.
+     */
+    @WorkerThread
+    List<WatchedRecord> read(int maxHistorySize) {
+        mMaxHistorySize = Math.max(mMaxHistorySize, maxHistorySize);
+        List<WatchedRecord> records = new ArrayList<>();
+        if (!openOutput()) {
+            return records;
+        }
+        int count = (int) Math.min(mRecordCount, maxHistorySize);
+        if (count == 0) {
+            return records;
+        }
+        try {
+            LongBuffer buffer = mOutput.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    (mRecordCount - count) * RECORD_SIZE, (long) count * RECORD_SIZE)
+                    .asLongBuffer();
+            for (int i = 0; i < count; ++i) {
+                records.add(new WatchedRecord(buffer.get(), buffer.get(), buffer.get()));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read " + mFile, e);
+        }
+        return records;
+    }
+
+    /**
+     * Appends the record in the worker thread. The listeners other than {@code source} will be
+     * notified.
+     */
+    void append(final WatchedRecord record, final Listener source) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!write(record)) {
+                    return;
+                }
+                for (WeakReference<Listener> ref : mListeners) {
+                    Listener listener = ref.get();
+                    if (listener == null) {
+                        mListeners.remove(ref);
+                    } else if (listener != source) {
+                        listener.onRecordAppended(record, mLastIndex);
+                    }
+                }
+                if (mMaxHistorySize > 0 && mRecordCount >= 2L * mMaxHistorySize) {
+                    compact();
+                }
+            }
+        });
+    }
+
+    /**
+     * Appends the records without notifying the listeners. It's used to migrate the records
+     * from the previous storage.
+     */
+    @WorkerThread
+    void writeAll(List<WatchedRecord> records) {
+        for (WatchedRecord record : records) {
+            if (!write(record)) {
+                return;
+            }
+        }
+    }
+
+    @WorkerThread
+    private boolean write(WatchedRecord record) {
+        if (!openOutput()) {
+            return false;
+        }
+        mWriteBuffer.clear();
+        mWriteBuffer.putLong(record.channelId).putLong(record.watchedStartTime)
+                .putLong(record.duration).flip();
+        try {
+            mOutput.getChannel().write(mWriteBuffer, mRecordCount * RECORD_SIZE);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + mFile, e);
+            return false;
+        }
+        ++mRecordCount;
+        ++mLastIndex;
+        return true;
+    }
+
+    @WorkerThread
+    private boolean openOutput() {
+        if (mOutput != null) {
+            return true;
+        }
+        try {
+            mOutput = new RandomAccessFile(mFile, "rw");
+            // Drops the partially written record, if any.
+            mRecordCount = mOutput.length() / RECORD_SIZE;
+            mOutput.setLength(mRecordCount * RECORD_SIZE);
+            if (mLastIndex < 0) {
+                mLastIndex = mRecordCount - 1;
+            }
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to open " + mFile, e);
+            closeOutput();
+            return false;
+        }
+    }
+
+    @WorkerThread
+    private void closeOutput() {
+        if (mOutput != null) {
+            try {
+                mOutput.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+            mOutput = null;
+        }
+    }
+
+    @WorkerThread
+    private void compact() {
+        if (DEBUG) Log.d(TAG, "compact: " + mRecordCount + " -> " + mMaxHistorySize);
+        long keptBytes = (long) mMaxHistorySize * RECORD_SIZE;
+        try (RandomAccessFile compactFile = new RandomAccessFile(mCompactFile, "rw")) {
+            compactFile.setLength(0);
+            FileChannel channel = mOutput.getChannel();
+            long position = mRecordCount * RECORD_SIZE - keptBytes;
+            long transferred = 0;
+            while (transferred < keptBytes) {
+                transferred += channel.transferTo(position + transferred,
+                        keptBytes - transferred, compactFile.getChannel());
+            }
+            compactFile.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to compact " + mFile, e);
+            mCompactFile.delete();
+            return;
+        }
+        closeOutput();
+        if (!mCompactFile.renameTo(mFile)) {
+            Log.w(TAG, "Failed to rename " + mCompactFile);
+            mCompactFile.delete();
+        }
+        // The index is kept, since it's counted from the start of the process.
+        openOutput();
+    }
+}
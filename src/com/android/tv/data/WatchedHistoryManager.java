@@ -2,25 +2,28 @@ package com.android.tv.data;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.content.SharedPreferences.Editor;
-import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
-import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
 import android.util.Log;
 
 import com.android.tv.common.SharedPreferencesUtils;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -28,6 +31,7 @@ import java.util.concurrent.TimeUnit;
  *
  * <p>When there is no access to watched table of TvProvider,
  * this class is used to build up watched history and to compute recent channels.
+ * The history is stored in {@link WatchedHistoryLog}, which is shared by all the instances.
  */
 public class WatchedHistoryManager {
     private final static String TAG = "WatchedHistoryManager";
@@ -40,44 +44,42 @@ public class WatchedHistoryManager {
 
     private final List<WatchedRecord> mWatchedHistory = new ArrayList<>();
     private final List<WatchedRecord> mPendingRecords = new ArrayList<>();
+    private final Map<Long, RecentChannelStat> mChannelStatMap = new HashMap<>();
+    // The channels which have been watched for RECENT_CHANNEL_THRESHOLD_MS, in the order of
+    // buildRecentChannel.
+    private final TreeSet<RecentChannelStat> mRecentChannelStats = new TreeSet<>(
+            new Comparator<RecentChannelStat>() {
+                @Override
+                public int compare(RecentChannelStat lhs, RecentChannelStat rhs) {
+                    return Long.compare(rhs.qualifiedIndex, lhs.qualifiedIndex);
+                }
+            });
     private long mLastIndex;
     private boolean mStarted;
     private boolean mLoaded;
-    private SharedPreferences mSharedPreferences;
-    private final OnSharedPreferenceChangeListener mOnSharedPreferenceChangeListener =
-            new OnSharedPreferenceChangeListener() {
+    private final WatchedHistoryLog mLog;
+    private final WatchedHistoryLog.Listener mLogListener = new WatchedHistoryLog.Listener() {
+        @Override
+        @WorkerThread
+        public void onRecordAppended(final WatchedRecord record, final long index) {
+            // onNewRecordAdded will be called in the same thread as the thread which created
+            // this instance.
+            mHandler.post(new Runnable() {
                 @Override
-                @MainThread
-                public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
-                        String key) {
-                    if (key.equals(PREF_KEY_LAST_INDEX)) {
-                        final long lastIndex = mSharedPreferences.getLong(PREF_KEY_LAST_INDEX, -1);
-                        if (lastIndex <= mLastIndex) {
-                            return;
-                        }
-                        // onSharedPreferenceChanged is always called in a main thread.
-                        // onNewRecordAdded will be called in the same thread as the thread
-                        // which created this instance.
-                        mHandler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                for (long i = mLastIndex + 1; i <= lastIndex; ++i) {
-                                    WatchedRecord record = decode(
-                                            mSharedPreferences.getString(getSharedPreferencesKey(i),
-                                                    null));
-                                    if (record != null) {
-                                        mWatchedHistory.add(record);
-                                        if (mListener != null) {
-                                            mListener.onNewRecordAdded(record);
-                                        }
-                                    }
-                                }
-                                mLastIndex = lastIndex;
-                            }
-                        });
+                public void run() {
+                    if (!mLoaded || index <= mLastIndex) {
+                        // It's already loaded.
+                        return;
+                    }
+                    mLastIndex = index;
+                    addRecord(record);
+                    if (mListener != null) {
+                        mListener.onNewRecordAdded(record);
                     }
                 }
-            };
+            });
+        }
+    };
 
     private final Context mContext;
     private Listener mListener;
@@ -92,6 +94,7 @@ public class WatchedHistoryManager {
     WatchedHistoryManager(Context context, int maxHistorySize) {
         mContext = context.getApplicationContext();
         mMaxHistorySize = maxHistorySize;
+        mLog = WatchedHistoryLog.getInstance(mContext);
         if (Looper.myLooper() == null) {
             mHandler = new Handler(Looper.getMainLooper());
         } else {
@@ -100,63 +103,91 @@ public class WatchedHistoryManager {
     }
 
     /**
-     * Starts the manager. It loads history data from {@link SharedPreferences}.
+     * Starts the manager. It loads history data from {@link WatchedHistoryLog}.
      */
     public void start() {
         if (mStarted) {
             return;
         }
         mStarted = true;
-        new AsyncTask<Void, Void, Void>() {
+        // The listener is added before loading, so that the records which are not loaded can be
+        // notified.
+        mLog.addListener(mLogListener);
+        // All the file operations are done in the log's thread, so the records appended by the
+        // other instances are either loaded or notified.
+        new AsyncTask<Void, Void, List<WatchedRecord>>() {
+            private long mLoadedLastIndex;
+
             @Override
-            protected Void doInBackground(Void... params) {
-                mSharedPreferences = mContext.getSharedPreferences(
-                        SharedPreferencesUtils.SHARED_PREF_WATCHED_HISTORY, Context.MODE_PRIVATE);
-                mLastIndex = mSharedPreferences.getLong(PREF_KEY_LAST_INDEX, -1);
-                if (mLastIndex >= 0 && mLastIndex < mMaxHistorySize) {
-                    for (int i = 0; i <= mLastIndex; ++i) {
-                        WatchedRecord record =
-                                decode(mSharedPreferences.getString(getSharedPreferencesKey(i),
-                                        null));
-                        if (record != null) {
-                            mWatchedHistory.add(record);
-                        }
-                    }
-                } else if (mLastIndex >= mMaxHistorySize) {
-                    for (long i = mLastIndex - mMaxHistorySize + 1; i <= mLastIndex; ++i) {
-                        WatchedRecord record = decode(mSharedPreferences.getString(
-                                getSharedPreferencesKey(i), null));
-                        if (record != null) {
-                            mWatchedHistory.add(record);
-                        }
-                    }
+            protected List<WatchedRecord> doInBackground(Void... params) {
+                if (!mLog.exists()) {
+                    migrateFromSharedPreferences();
                 }
-                return null;
+                List<WatchedRecord> records = mLog.read(mMaxHistorySize);
+                mLoadedLastIndex = mLog.getLastIndex();
+                return records;
             }
 
             @Override
-            protected void onPostExecute(Void params) {
+            protected void onPostExecute(List<WatchedRecord> records) {
+                for (WatchedRecord record : records) {
+                    addRecord(record);
+                }
+                mLastIndex = mLoadedLastIndex;
                 mLoaded = true;
                 if (DEBUG) {
                     Log.d(TAG, "Loaded: size=" + mWatchedHistory.size() + " index=" + mLastIndex);
                 }
                 if (!mPendingRecords.isEmpty()) {
-                    Editor editor = mSharedPreferences.edit();
                     for (WatchedRecord record : mPendingRecords) {
-                        mWatchedHistory.add(record);
-                        ++mLastIndex;
-                        editor.putString(getSharedPreferencesKey(mLastIndex), encode(record));
+                        addRecord(record);
+                        mLog.append(record, mLogListener);
                     }
-                    editor.putLong(PREF_KEY_LAST_INDEX, mLastIndex).apply();
                     mPendingRecords.clear();
                 }
                 if (mListener != null) {
                     mListener.onLoadFinished();
                 }
-                mSharedPreferences.registerOnSharedPreferenceChangeListener(
-                        mOnSharedPreferenceChangeListener);
             }
-        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }.executeOnExecutor(mLog.getExecutor());
+    }
+
+    /**
+     * Moves the records stored by the previous versions in {@link SharedPreferences} to the log.
+     */
+    @WorkerThread
+    private void migrateFromSharedPreferences() {
+        SharedPreferences sharedPreferences = mContext.getSharedPreferences(
+                SharedPreferencesUtils.SHARED_PREF_WATCHED_HISTORY, Context.MODE_PRIVATE);
+        long lastIndex = sharedPreferences.getLong(PREF_KEY_LAST_INDEX, -1);
+        List<WatchedRecord> records = new ArrayList<>();
+        for (long i = Math.max(lastIndex - MAX_HISTORY_SIZE + 1, 0); i <= lastIndex; ++i) {
+            WatchedRecord record = decode(sharedPreferences.getString(
+                    Long.toString(i % MAX_HISTORY_SIZE), null));
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        if (DEBUG) Log.d(TAG, "Migrate " + records.size() + " records");
+        mLog.writeAll(records);
+        if (lastIndex >= 0) {
+            sharedPreferences.edit().clear().apply();
+        }
+    }
+
+    private void addRecord(WatchedRecord record) {
+        mWatchedHistory.add(record);
+        RecentChannelStat stat = mChannelStatMap.get(record.channelId);
+        if (stat == null) {
+            stat = new RecentChannelStat(record.channelId);
+            mChannelStatMap.put(record.channelId, stat);
+        } else if (stat.qualifiedIndex >= 0) {
+            mRecentChannelStats.remove(stat);
+        }
+        stat.add(mWatchedHistory.size() - 1, record);
+        if (stat.qualifiedIndex >= 0) {
+            mRecentChannelStats.add(stat);
+        }
     }
 
     @VisibleForTesting
@@ -174,12 +205,8 @@ public class WatchedHistoryManager {
         WatchedRecord record = new WatchedRecord(channel.getId(), endTime - duration, duration);
         if (mLoaded) {
             if (DEBUG) Log.d(TAG, "Log a watched record. " + record);
-            mWatchedHistory.add(record);
-            ++mLastIndex;
-            mSharedPreferences.edit()
-                    .putString(getSharedPreferencesKey(mLastIndex), encode(record))
-                    .putLong(PREF_KEY_LAST_INDEX, mLastIndex)
-                    .apply();
+            addRecord(record);
+            mLog.append(record, mLogListener);
             if (mListener != null) {
                 mListener.onNewRecordAdded(record);
             }
@@ -206,39 +233,37 @@ public class WatchedHistoryManager {
 
     /**
      * Returns the list of recently watched channels.
+     *
+     * <p>The latest watched channel comes first. The other channels follow in the order of
+     * the time when they have been watched for {@link #RECENT_CHANNEL_THRESHOLD_MS} recently.
      */
     public List<Channel> buildRecentChannel(ChannelDataManager channelDataManager, int maxCount) {
         List<Channel> list = new ArrayList<>();
-        Map<Long, Long> durationMap = new HashMap<>();
+        if (maxCount <= 0) {
+            return list;
+        }
+        long firstChannelId = Channel.INVALID_ID;
         for (int i = mWatchedHistory.size() - 1; i >= 0; --i) {
-            WatchedRecord record = mWatchedHistory.get(i);
-            long channelId = record.channelId;
-            Channel channel = channelDataManager.getChannel(channelId);
-            if (channel == null || !channel.isBrowsable()) {
-                continue;
+            // We put the first recent channel regardless of RECENT_CHANNEL_THREASHOLD.
+            // It has the similar functionality as the previous channel in a usual remote
+            // controller.
+            Channel channel = channelDataManager.getChannel(mWatchedHistory.get(i).channelId);
+            if (channel != null && channel.isBrowsable()) {
+                list.add(channel);
+                firstChannelId = channel.getId();
+                break;
             }
-            Long duration = durationMap.get(channelId);
-            if (duration == null) {
-                duration = 0l;
+        }
+        for (RecentChannelStat stat : mRecentChannelStats) {
+            if (list.size() >= maxCount) {
+                break;
             }
-            if (duration >= RECENT_CHANNEL_THRESHOLD_MS) {
+            if (stat.channelId == firstChannelId) {
                 continue;
             }
-            if (list.isEmpty()) {
-                // We put the first recent channel regardless of RECENT_CHANNEL_THREASHOLD.
-                // It has the similar functionality as the previous channel in a usual remote
-                // controller.
+            Channel channel = channelDataManager.getChannel(stat.channelId);
+            if (channel != null && channel.isBrowsable()) {
                 list.add(channel);
-                durationMap.put(channelId, RECENT_CHANNEL_THRESHOLD_MS);
-            } else {
-                duration += record.duration;
-                durationMap.put(channelId, duration);
-                if (duration >= RECENT_CHANNEL_THRESHOLD_MS) {
-                    list.add(channel);
-                }
-            }
-            if (list.size() >= maxCount) {
-                break;
             }
         }
         if (DEBUG) {
@@ -256,14 +281,16 @@ public class WatchedHistoryManager {
     }
 
     @VisibleForTesting
-    WatchedRecord getRecordFromSharedPreferences(int reverseIndex) {
-        long lastIndex = mSharedPreferences.getLong(PREF_KEY_LAST_INDEX, -1);
-        long index = lastIndex - reverseIndex;
-        return decode(mSharedPreferences.getString(getSharedPreferencesKey(index), null));
-    }
-
-    private String getSharedPreferencesKey(long index) {
-        return Long.toString(index % mMaxHistorySize);
+    WatchedRecord getRecordFromLog(final int reverseIndex) throws Exception {
+        FutureTask<WatchedRecord> task = new FutureTask<>(new Callable<WatchedRecord>() {
+            @Override
+            public WatchedRecord call() {
+                List<WatchedRecord> records = mLog.read(reverseIndex + 1);
+                return records.size() > reverseIndex ? records.get(0) : null;
+            }
+        });
+        mLog.getExecutor().execute(task);
+        return task.get();
     }
 
     public static class WatchedRecord {
@@ -317,6 +344,35 @@ public class WatchedHistoryManager {
         }
     }
 
+    /**
+     * The running aggregate of the recent records of a channel.
+     */
+    private static class RecentChannelStat {
+        final long channelId;
+        // The indices and the durations of the latest records whose durations sum up to
+        // RECENT_CHANNEL_THRESHOLD_MS, from the latest one.
+        final ArrayDeque<long[]> records = new ArrayDeque<>();
+        long accumulatedDuration;
+        // The index of the record with which the channel has been watched for
+        // RECENT_CHANNEL_THRESHOLD_MS recently. -1 if it hasn't.
+        long qualifiedIndex = -1;
+
+        RecentChannelStat(long channelId) {
+            this.channelId = channelId;
+        }
+
+        void add(long index, WatchedRecord record) {
+            records.addFirst(new long[] {index, record.duration});
+            accumulatedDuration += record.duration;
+            while (records.size() > 1 && accumulatedDuration - records.peekLast()[1]
+                    >= RECENT_CHANNEL_THRESHOLD_MS) {
+                accumulatedDuration -= records.removeLast()[1];
+            }
+            qualifiedIndex = accumulatedDuration >= RECENT_CHANNEL_THRESHOLD_MS
+                    ? records.peekLast()[0] : -1;
+        }
+    }
+
     public interface Listener {
         /**
          * Called when history is loaded.
@@ -26,12 +26,14 @@ import android.media.tv.TvContract;
 import android.media.tv.TvContract.Programs;
 import android.media.tv.TvInputInfo;
 import android.media.tv.TvInputManager.TvInputCallback;
+import android.net.Uri;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
 import android.os.RemoteException;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -40,14 +42,22 @@ import com.android.tv.TvApplication;
 import com.android.tv.common.WeakHandler;
 import com.android.tv.data.Channel;
 import com.android.tv.data.Program;
+import com.android.tv.util.NamedThreadFactory;
 import com.android.tv.util.RecurringRunner;
 import com.android.tv.util.TvInputManagerHelper;
 import com.android.tv.util.Utils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -64,6 +74,16 @@ public class EpgFetcher {
     private static final long PROGRAM_QUERY_DURATION = TimeUnit.DAYS.toMillis(30);
 
     private static final int BATCH_OPERATION_COUNT = 100;
+    // The number of the channels whose old programs are read by one query.
+    private static final int CHANNEL_QUERY_BATCH_SIZE = 100;
+    private static final int MERGE_THREAD_COUNT =
+            Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+    private static final long MERGE_THREAD_KEEP_ALIVE_MS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final String PARAM_START_TIME = "start_time";
+    private static final String PARAM_END_TIME = "end_time";
+    private static final String SORT_BY_CHANNEL_AND_TIME = Programs.COLUMN_CHANNEL_ID + ", "
+            + Programs.COLUMN_START_TIME_UTC_MILLIS;
 
     // Value: Long
     private static final String KEY_LAST_UPDATED_EPG_TIMESTAMP =
@@ -75,11 +95,16 @@ public class EpgFetcher {
     private HandlerThread mHandlerThread;
     private EpgFetcherHandler mHandler;
     private RecurringRunner mRecurringRunner;
+    // The idle threads are terminated, so it doesn't need to be shut down when stopped.
+    private final ThreadPoolExecutor mExecutor = new ThreadPoolExecutor(MERGE_THREAD_COUNT,
+            MERGE_THREAD_COUNT, MERGE_THREAD_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory(TAG));
 
     private long mLastEpgTimestamp = -1;
 
     public EpgFetcher(Context context) {
         mContext = context;
+        mExecutor.allowCoreThreadTimeOut(true);
         mInputHelper = TvApplication.getSingletons(mContext).getTvInputManagerHelper();
         mInputCallback = new TvInputCallback() {
             @Override
@@ -161,16 +186,19 @@ public class EpgFetcher {
         }
 
         List<Channel> channels = epgReader.getChannels();
-        for (Channel channel : channels) {
-            List<Program> programs = new ArrayList<>(epgReader.getPrograms(channel.getId()));
-            Collections.sort(programs);
-            if (DEBUG) {
-                Log.d(TAG, "Fetching " + programs.size() + " programs for channel " + channel);
-            }
-            updateEpg(channel.getId(), programs);
+        boolean success = true;
+        for (int i = 0; i < channels.size(); i += CHANNEL_QUERY_BATCH_SIZE) {
+            success &= updateEpg(epgReader, channels.subList(i,
+                    Math.min(i + CHANNEL_QUERY_BATCH_SIZE, channels.size())));
         }
 
-        setLastUpdatedEpgTimestamp(epgTimestamp);
+        if (success) {
+            setLastUpdatedEpgTimestamp(epgTimestamp);
+        } else {
+            // Keep the last timestamp, so that the failed channels are updated again by the next
+            // fetch. The channels which are already updated don't cause any operation then.
+            Log.w(TAG, "Failed to update EPG of some channels.");
+        }
     }
 
     private long getLastUpdatedEpgTimestamp() {
@@ -184,18 +212,108 @@ public class EpgFetcher {
     private void setLastUpdatedEpgTimestamp(long timestamp) {
         mLastEpgTimestamp = timestamp;
         PreferenceManager.getDefaultSharedPreferences(mContext).edit().putLong(
-                KEY_LAST_UPDATED_EPG_TIMESTAMP, timestamp);
+                KEY_LAST_UPDATED_EPG_TIMESTAMP, timestamp).apply();
     }
 
-    private void updateEpg(long channelId, List<Program> newPrograms) {
-        final int fetchedProgramsCount = newPrograms.size();
-        if (fetchedProgramsCount == 0) {
-            return;
-        }
+    /**
+     * Updates the programs of the channels. The old programs of all the channels are read by one
+     * query, the operations are built in parallel and applied in batches across the channels.
+     *
+     * @return {@code true} if the programs of all the channels are updated.
+     */
+    private boolean updateEpg(EpgReader epgReader, List<Channel> channels) {
         long startTimeMs = System.currentTimeMillis();
         long endTimeMs = startTimeMs + PROGRAM_QUERY_DURATION;
-        List<Program> oldPrograms = queryPrograms(mContext.getContentResolver(), channelId,
-                startTimeMs, endTimeMs);
+        List<Long> channelIds = new ArrayList<>(channels.size());
+        for (Channel channel : channels) {
+            channelIds.add(channel.getId());
+        }
+        Map<Long, List<Program>> oldProgramsMap = queryPrograms(channelIds, startTimeMs,
+                endTimeMs);
+        if (oldProgramsMap == null) {
+            return false;
+        }
+        List<Future<List<ContentProviderOperation>>> futures = new ArrayList<>();
+        for (Channel channel : channels) {
+            final List<Program> newPrograms =
+                    new ArrayList<>(epgReader.getPrograms(channel.getId()));
+            if (newPrograms.isEmpty()) {
+                continue;
+            }
+            if (DEBUG) {
+                Log.d(TAG, "Fetching " + newPrograms.size() + " programs for channel " + channel);
+            }
+            List<Program> oldPrograms = oldProgramsMap.get(channel.getId());
+            final List<Program> finalOldPrograms = oldPrograms == null
+                    ? Collections.<Program>emptyList() : oldPrograms;
+            futures.add(mExecutor.submit(new Callable<List<ContentProviderOperation>>() {
+                @Override
+                public List<ContentProviderOperation> call() {
+                    Collections.sort(newPrograms);
+                    return buildOperations(finalOldPrograms, newPrograms);
+                }
+            }));
+        }
+        boolean success = true;
+        ContentResolver resolver = mContext.getContentResolver();
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+        for (Future<List<ContentProviderOperation>> future : futures) {
+            try {
+                ops.addAll(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                Log.e(TAG, "Failed to build the operations.", e);
+                success = false;
+                continue;
+            }
+            if (!applyBatch(resolver, ops, false)) {
+                return false;
+            }
+        }
+        return applyBatch(resolver, ops, true) && success;
+    }
+
+    /**
+     * Applies the operations in the batches of {@link #BATCH_OPERATION_COUNT}. If
+     * {@code flush} is {@code false}, the remaining operations which are not enough for a batch
+     * are kept in {@code ops}.
+     *
+     * @return {@code true} if the operations are successfully applied.
+     */
+    @VisibleForTesting
+    static boolean applyBatch(ContentResolver resolver, ArrayList<ContentProviderOperation> ops,
+            boolean flush) {
+        int applied = 0;
+        while (ops.size() - applied >= BATCH_OPERATION_COUNT
+                || (flush && applied < ops.size())) {
+            // Throttle the batch operation not to cause TransactionTooLargeException.
+            ArrayList<ContentProviderOperation> batch = new ArrayList<>(ops.subList(applied,
+                    Math.min(applied + BATCH_OPERATION_COUNT, ops.size())));
+            try {
+                if (DEBUG) {
+                    Log.d(TAG, "Running " + batch.size() + " operations");
+                    for (int i = 0; i < batch.size(); ++i) {
+                        Log.d(TAG, "Operation(" + i + "): " + batch.get(i));
+                    }
+                }
+                resolver.applyBatch(TvContract.AUTHORITY, batch);
+            } catch (RemoteException | OperationApplicationException e) {
+                Log.e(TAG, "Failed to insert programs.", e);
+                ops.clear();
+                return false;
+            }
+            applied += batch.size();
+        }
+        ops.subList(0, applied).clear();
+        return true;
+    }
+
+    /**
+     * Builds the operations to replace {@code oldPrograms} with {@code newPrograms}. Both lists
+     * should be sorted by the start time.
+     */
+    private static List<ContentProviderOperation> buildOperations(List<Program> oldPrograms,
+            List<Program> newPrograms) {
+        final int fetchedProgramsCount = newPrograms.size();
         Program currentOldProgram = oldPrograms.size() > 0 ? oldPrograms.get(0) : null;
         int oldProgramsIndex = 0;
         int newProgramsIndex = 0;
@@ -209,11 +327,14 @@ public class EpgFetcher {
                 newProgramsIndex++;
             }
         }
+        if (oldPrograms.equals(newPrograms.subList(newProgramsIndex, fetchedProgramsCount))) {
+            // Nothing is changed.
+            return Collections.emptyList();
+        }
         // Compare the new programs with old programs one by one and update/delete the old one
         // or insert new program if there is no matching program in the database.
-        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+        List<ContentProviderOperation> ops = new ArrayList<>();
         while (newProgramsIndex < fetchedProgramsCount) {
-            // TODO: Extract to method and make test.
             Program oldProgram = oldProgramsIndex < oldPrograms.size()
                     ? oldPrograms.get(oldProgramsIndex) : null;
             Program newProgram = newPrograms.get(newProgramsIndex);
@@ -224,15 +345,13 @@ public class EpgFetcher {
                     oldProgramsIndex++;
                     newProgramsIndex++;
                 } else if (isSameTitleAndOverlap(oldProgram, newProgram)) {
-                    if (!oldProgram.equals(oldProgram)) {
-                        // Partial match. Update the old program with the new one.
-                        // NOTE: Use 'update' in this case instead of 'insert' and 'delete'. There
-                        // could be application specific settings which belong to the old program.
-                        ops.add(ContentProviderOperation.newUpdate(
-                                TvContract.buildProgramUri(oldProgram.getId()))
-                                .withValues(toContentValues(newProgram))
-                                .build());
-                    }
+                    // Partial match. Update the old program with the new one.
+                    // NOTE: Use 'update' in this case instead of 'insert' and 'delete'. There
+                    // could be application specific settings which belong to the old program.
+                    ops.add(ContentProviderOperation.newUpdate(
+                            TvContract.buildProgramUri(oldProgram.getId()))
+                            .withValues(toContentValues(newProgram))
+                            .build());
                     oldProgramsIndex++;
                     newProgramsIndex++;
                 } else if (oldProgram.getEndTimeUtcMillis()
@@ -260,50 +379,45 @@ public class EpgFetcher {
                         .withValues(toContentValues(newProgram))
                         .build());
             }
-            // Throttle the batch operation not to cause TransactionTooLargeException.
-            if (ops.size() > BATCH_OPERATION_COUNT || newProgramsIndex >= fetchedProgramsCount) {
-                try {
-                    if (DEBUG) {
-                        int size = ops.size();
-                        Log.d(TAG, "Running " + size + " operations for channel " + channelId);
-                        for (int i = 0; i < size; ++i) {
-                            Log.d(TAG, "Operation(" + i + "): " + ops.get(i));
-                        }
-                    }
-                    mContext.getContentResolver().applyBatch(TvContract.AUTHORITY, ops);
-                } catch (RemoteException | OperationApplicationException e) {
-                    Log.e(TAG, "Failed to insert programs.", e);
-                    return;
-                }
-                ops.clear();
-            }
-        }
-        if (DEBUG) {
-            Log.d(TAG, "Fetched " + fetchedProgramsCount + " programs for channel " + channelId);
         }
+        return ops;
     }
 
-    private List<Program> queryPrograms(ContentResolver contentResolver, long channelId,
-            long startTimeMs, long endTimeMs) {
-        try (Cursor c = mContext.getContentResolver().query(
-                TvContract.buildProgramsUriForChannel(channelId, startTimeMs, endTimeMs),
-                Program.PROJECTION, null, null, Programs.COLUMN_START_TIME_UTC_MILLIS)) {
+    /**
+     * Returns the programs of the channels between {@code startTimeMs} and {@code endTimeMs},
+     * grouped by the channel ID and sorted by the start time, or {@code null} if the query
+     * fails.
+     */
+    private Map<Long, List<Program>> queryPrograms(List<Long> channelIds, long startTimeMs,
+            long endTimeMs) {
+        Map<Long, List<Program>> programsMap = new HashMap<>();
+        Uri uri = Programs.CONTENT_URI.buildUpon()
+                .appendQueryParameter(PARAM_START_TIME, String.valueOf(startTimeMs))
+                .appendQueryParameter(PARAM_END_TIME, String.valueOf(endTimeMs)).build();
+        try (Cursor c = mContext.getContentResolver().query(uri, Program.PROJECTION,
+                Utils.buildSelectionForIds(Programs.COLUMN_CHANNEL_ID, channelIds), null,
+                SORT_BY_CHANNEL_AND_TIME)) {
             if (c == null) {
-                return Collections.EMPTY_LIST;
+                return null;
             }
-            ArrayList<Program> programs = new ArrayList<>();
             while (c.moveToNext()) {
-                programs.add(Program.fromCursor(c));
+                Program program = Program.fromCursor(c);
+                List<Program> programs = programsMap.get(program.getChannelId());
+                if (programs == null) {
+                    programs = new ArrayList<>();
+                    programsMap.put(program.getChannelId(), programs);
+                }
+                programs.add(program);
             }
-            return programs;
         }
+        return programsMap;
     }
 
     /**
      * Returns {@code true} if the {@code oldProgram} program needs to be updated with the
      * {@code newProgram} program.
      */
-    private boolean isSameTitleAndOverlap(Program oldProgram, Program newProgram) {
+    private static boolean isSameTitleAndOverlap(Program oldProgram, Program newProgram) {
         // NOTE: Here, we update the old program if it has the same title and overlaps with the
         // new program. The test logic is just an example and you can modify this. E.g. check
         // whether the both programs have the same program ID if your EPG supports any ID for
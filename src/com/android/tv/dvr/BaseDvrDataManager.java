@@ -25,10 +25,10 @@ import android.util.Log;
 
 import com.android.tv.common.SoftPreconditions;
 import com.android.tv.common.feature.CommonFeatures;
-import com.android.tv.common.recording.RecordedProgram;
 import com.android.tv.util.Clock;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -71,10 +71,10 @@ public abstract class BaseDvrDataManager implements WritableDvrDataManager {
     }
 
     /**
-     * Calls {@link RecordedProgramListener#onRecordedProgramAdded(RecordedProgram)}
+     * Calls {@link RecordedProgramListener#onRecordedProgramAdded(RecordedProgramSummary)}
      * for each listener.
      */
-    protected final void notifyRecordedProgramAdded(RecordedProgram recordedProgram) {
+    protected final void notifyRecordedProgramAdded(RecordedProgramSummary recordedProgram) {
         for (RecordedProgramListener l : mRecordedProgramListeners) {
             if (DEBUG) Log.d(TAG, "notify " + l + "added " + recordedProgram);
             l.onRecordedProgramAdded(recordedProgram);
@@ -82,10 +82,10 @@ public abstract class BaseDvrDataManager implements WritableDvrDataManager {
     }
 
     /**
-     * Calls {@link RecordedProgramListener#onRecordedProgramChanged(RecordedProgram)}
+     * Calls {@link RecordedProgramListener#onRecordedProgramChanged(RecordedProgramSummary)}
      * for each listener.
      */
-    protected final void notifyRecordedProgramChanged(RecordedProgram recordedProgram) {
+    protected final void notifyRecordedProgramChanged(RecordedProgramSummary recordedProgram) {
         for (RecordedProgramListener l : mRecordedProgramListeners) {
             if (DEBUG) Log.d(TAG, "notify " + l + "changed " + recordedProgram);
             l.onRecordedProgramChanged(recordedProgram);
@@ -93,10 +93,10 @@ public abstract class BaseDvrDataManager implements WritableDvrDataManager {
     }
 
     /**
-     * Calls {@link RecordedProgramListener#onRecordedProgramRemoved(RecordedProgram)}
+     * Calls {@link RecordedProgramListener#onRecordedProgramRemoved(RecordedProgramSummary)}
      * for each  listener.
      */
-    protected final void notifyRecordedProgramRemoved(RecordedProgram recordedProgram) {
+    protected final void notifyRecordedProgramRemoved(RecordedProgramSummary recordedProgram) {
         for (RecordedProgramListener l : mRecordedProgramListeners) {
             if (DEBUG) Log.d(TAG, "notify " + l + "removed " + recordedProgram);
             l.onRecordedProgramRemoved(recordedProgram);
@@ -104,39 +104,50 @@ public abstract class BaseDvrDataManager implements WritableDvrDataManager {
     }
 
     /**
-     * Calls {@link ScheduledRecordingListener#onScheduledRecordingAdded(ScheduledRecording)}
+     * Calls {@link ScheduledRecordingListener#onScheduledRecordingAdded(ScheduledRecording...)}
      * for each listener.
      */
-    protected final void notifyScheduledRecordingAdded(ScheduledRecording scheduledRecording) {
+    protected final void notifyScheduledRecordingAdded(ScheduledRecording... scheduledRecordings) {
+        if (scheduledRecordings.length == 0) {
+            return;
+        }
         for (ScheduledRecordingListener l : mScheduledRecordingListeners) {
-            if (DEBUG) Log.d(TAG, "notify " + l + "added  " + scheduledRecording);
-            l.onScheduledRecordingAdded(scheduledRecording);
+            if (DEBUG) Log.d(TAG, "notify " + l + "added  " + Arrays.toString(scheduledRecordings));
+            l.onScheduledRecordingAdded(scheduledRecordings);
         }
     }
 
     /**
-     * Calls {@link ScheduledRecordingListener#onScheduledRecordingRemoved(ScheduledRecording)}
+     * Calls {@link ScheduledRecordingListener#onScheduledRecordingRemoved(ScheduledRecording...)}
      * for each listener.
      */
-    protected final void notifyScheduledRecordingRemoved(ScheduledRecording scheduledRecording) {
+    protected final void notifyScheduledRecordingRemoved(
+            ScheduledRecording... scheduledRecordings) {
+        if (scheduledRecordings.length == 0) {
+            return;
+        }
         for (ScheduledRecordingListener l : mScheduledRecordingListeners) {
             if (DEBUG) {
-                Log.d(TAG, "notify " + l + "removed " + scheduledRecording);
+                Log.d(TAG, "notify " + l + "removed " + Arrays.toString(scheduledRecordings));
             }
-            l.onScheduledRecordingRemoved(scheduledRecording);
+            l.onScheduledRecordingRemoved(scheduledRecordings);
         }
     }
 
     /**
-     * Calls
-     * {@link ScheduledRecordingListener#onScheduledRecordingStatusChanged(ScheduledRecording)}
-     * for each listener.
+     * Calls {@link ScheduledRecordingListener#onScheduledRecordingStatusChanged(
+     * ScheduledRecording...)} for each listener.
      */
     protected final void notifyScheduledRecordingStatusChanged(
-            ScheduledRecording scheduledRecording) {
+            ScheduledRecording... scheduledRecordings) {
+        if (scheduledRecordings.length == 0) {
+            return;
+        }
         for (ScheduledRecordingListener l : mScheduledRecordingListeners) {
-            if (DEBUG) Log.d(TAG, "notify " + l + "changed " + scheduledRecording);
-            l.onScheduledRecordingStatusChanged(scheduledRecording);
+            if (DEBUG) {
+                Log.d(TAG, "notify " + l + "changed " + Arrays.toString(scheduledRecordings));
+            }
+            l.onScheduledRecordingStatusChanged(scheduledRecordings);
         }
     }
 
@@ -34,9 +34,27 @@ public interface DvrDataManager {
     boolean isInitialized();
 
     /**
-     * Returns past recordings.
+     * Returns the summaries of past recordings in the order of the start time.
      */
-    List<RecordedProgram> getRecordedPrograms();
+    List<RecordedProgramSummary> getRecordedProgramSummaries();
+
+    /**
+     * Returns the summaries of past recordings of the channel in the order of the start time.
+     */
+    List<RecordedProgramSummary> getRecordedProgramSummariesForChannel(long channelId);
+
+    /**
+     * Returns the summaries of past recordings of the canonical genre in the order of the start
+     * time.
+     */
+    List<RecordedProgramSummary> getRecordedProgramSummariesForGenre(String genre);
+
+    /**
+     * Returns the summaries of past recordings which start in
+     * {@code [startUtcMillis, endUtcMillis)} in the order of the start time.
+     */
+    List<RecordedProgramSummary> getRecordedProgramSummariesStartingBetween(long startUtcMillis,
+            long endUtcMillis);
 
     /**
      * Returns all {@link ScheduledRecording} regardless of state.
@@ -111,24 +129,40 @@ public interface DvrDataManager {
     ScheduledRecording getScheduledRecordingForProgramId(long programId);
 
     /**
-     * Returns the recorded program with the given recordingId or null if is not found.
+     * Returns the recorded program with the given recordingId or null if is not found or not
+     * loaded yet. Use {@link #loadRecordedProgram} to load it.
      */
     @Nullable
     RecordedProgram getRecordedProgram(long recordingId);
 
+    /**
+     * Loads the recorded program with the given recordingId, and calls {@code callback} with it
+     * or null if is not found. The loaded program is available from
+     * {@link #getRecordedProgram} for a while.
+     */
+    void loadRecordedProgram(long recordingId, OnRecordedProgramLoadedCallback callback);
+
+    /**
+     * Listens for the changes of {@link ScheduledRecording}s. The recordings changed by one
+     * operation are notified together.
+     */
     interface ScheduledRecordingListener {
-        void onScheduledRecordingAdded(ScheduledRecording scheduledRecording);
+        void onScheduledRecordingAdded(ScheduledRecording... scheduledRecordings);
 
-        void onScheduledRecordingRemoved(ScheduledRecording scheduledRecording);
+        void onScheduledRecordingRemoved(ScheduledRecording... scheduledRecordings);
 
-        void onScheduledRecordingStatusChanged(ScheduledRecording scheduledRecording);
+        void onScheduledRecordingStatusChanged(ScheduledRecording... scheduledRecordings);
     }
 
     interface RecordedProgramListener {
-        void onRecordedProgramAdded(RecordedProgram recordedProgram);
+        void onRecordedProgramAdded(RecordedProgramSummary recordedProgram);
 
-        void onRecordedProgramChanged(RecordedProgram recordedProgram);
+        void onRecordedProgramChanged(RecordedProgramSummary recordedProgram);
+
+        void onRecordedProgramRemoved(RecordedProgramSummary recordedProgram);
+    }
 
-        void onRecordedProgramRemoved(RecordedProgram recordedProgram);
+    interface OnRecordedProgramLoadedCallback {
+        void onRecordedProgramLoaded(@Nullable RecordedProgram recordedProgram);
     }
 }
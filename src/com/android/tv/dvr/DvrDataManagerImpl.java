@@ -30,7 +30,6 @@ import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.MainThread;
 import android.support.annotation.Nullable;
-import android.support.annotation.VisibleForTesting;
 import android.util.ArraySet;
 import android.util.Log;
 import android.util.Range;
@@ -59,10 +58,10 @@ public class DvrDataManagerImpl extends BaseDvrDataManager {
     private static final String TAG = "DvrDataManagerImpl";
     private static final boolean DEBUG = false;
 
-    private final HashMap<Long, ScheduledRecording> mScheduledRecordings = new HashMap<>();
+    private final ScheduledRecordingIndex mScheduledRecordings = new ScheduledRecordingIndex();
     private final HashMap<Long, ScheduledRecording> mProgramId2ScheduledRecordings =
             new HashMap<>();
-    private final HashMap<Long, RecordedProgram> mRecordedPrograms = new HashMap<>();
+    private final RecordedProgramLibrary mRecordedPrograms = new RecordedProgramLibrary();
 
     private final Context mContext;
     private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
@@ -91,18 +90,19 @@ public class DvrDataManagerImpl extends BaseDvrDataManager {
             Log.d(TAG, "changed recorded program #" + id + " to " + recordedProgram);
         }
         if (recordedProgram == null) {
-            RecordedProgram old = mRecordedPrograms.remove(id);
+            RecordedProgramSummary old = mRecordedPrograms.remove(id);
             if (old != null) {
                 notifyRecordedProgramRemoved(old);
             } else {
                 Log.w(TAG, "Could not find old version of deleted program #" + id);
             }
         } else {
-            RecordedProgram old = mRecordedPrograms.put(id, recordedProgram);
+            RecordedProgramSummary old = mRecordedPrograms.put(recordedProgram);
+            RecordedProgramSummary summary = mRecordedPrograms.getSummary(id);
             if (old == null) {
-                notifyRecordedProgramAdded(recordedProgram);
+                notifyRecordedProgramAdded(summary);
             } else {
-                notifyRecordedProgramChanged(recordedProgram);
+                notifyRecordedProgramChanged(summary);
             }
         }
     }
@@ -129,7 +129,10 @@ public class DvrDataManagerImpl extends BaseDvrDataManager {
                 mPendingTasks.remove(this);
                 mDvrLoadFinished = true;
                 for (ScheduledRecording r : result) {
-                    mScheduledRecordings.put(r.getId(), r);
+                    mScheduledRecordings.put(r);
+                    if (r.getProgramId() != ScheduledRecording.ID_NOT_SET) {
+                        mProgramId2ScheduledRecordings.put(r.getProgramId(), r);
+                    }
                 }
             }
         };
@@ -158,37 +161,46 @@ public class DvrDataManagerImpl extends BaseDvrDataManager {
         return mDvrLoadFinished && mRecordedProgramLoadFinished;
     }
 
-    private List<ScheduledRecording> getScheduledRecordingsPrograms() {
-        if (!mDvrLoadFinished) {
+    @Override
+    public List<RecordedProgramSummary> getRecordedProgramSummaries() {
+        if (!mRecordedProgramLoadFinished) {
             return Collections.emptyList();
         }
-        ArrayList<ScheduledRecording> list = new ArrayList<>(mScheduledRecordings.size());
-        list.addAll(mScheduledRecordings.values());
-        Collections.sort(list, ScheduledRecording.START_TIME_COMPARATOR);
-        return list;
+        return mRecordedPrograms.getSummaries();
     }
 
     @Override
-    public List<RecordedProgram> getRecordedPrograms() {
+    public List<RecordedProgramSummary> getRecordedProgramSummariesForChannel(long channelId) {
         if (!mRecordedProgramLoadFinished) {
             return Collections.emptyList();
         }
-        return new ArrayList<>(mRecordedPrograms.values());
+        return mRecordedPrograms.getSummariesForChannel(channelId);
+    }
+
+    @Override
+    public List<RecordedProgramSummary> getRecordedProgramSummariesForGenre(String genre) {
+        if (!mRecordedProgramLoadFinished) {
+            return Collections.emptyList();
+        }
+        return mRecordedPrograms.getSummariesForGenre(genre);
+    }
+
+    @Override
+    public List<RecordedProgramSummary> getRecordedProgramSummariesStartingBetween(
+            long startUtcMillis, long endUtcMillis) {
+        if (!mRecordedProgramLoadFinished) {
+            return Collections.emptyList();
+        }
+        return mRecordedPrograms.getSummariesStartingBetween(startUtcMillis, endUtcMillis);
     }
 
     @Override
     public List<ScheduledRecording> getAllScheduledRecordings() {
-        return new ArrayList<>(mScheduledRecordings.values());
+        return new ArrayList<>(mScheduledRecordings.getAll());
     }
 
     protected List<ScheduledRecording> getRecordingsWithState(@RecordingState int state) {
-        List<ScheduledRecording> result = new ArrayList<>();
-        for (ScheduledRecording r : mScheduledRecordings.values()) {
-            if (r.getState() == state) {
-                result.add(r);
-            }
-        }
-        return result;
+        return mScheduledRecordings.getRecordingsWithState(state);
     }
 
     @Override
@@ -199,34 +211,15 @@ public class DvrDataManagerImpl extends BaseDvrDataManager {
 
     @Override
     public long getNextScheduledStartTimeAfter(long startTime) {
-        return getNextStartTimeAfter(getScheduledRecordingsPrograms(), startTime);
-    }
-
-    @VisibleForTesting
-    static long getNextStartTimeAfter(List<ScheduledRecording> scheduledRecordings, long startTime) {
-        int start = 0;
-        int end = scheduledRecordings.size() - 1;
-        while (start <= end) {
-            int mid = (start + end) / 2;
-            if (scheduledRecordings.get(mid).getStartTimeMs() <= startTime) {
-                start = mid + 1;
-            } else {
-                end = mid - 1;
-            }
+        if (!mDvrLoadFinished) {
+            return NEXT_START_TIME_NOT_FOUND;
         }
-        return start < scheduledRecordings.size() ? scheduledRecordings.get(start).getStartTimeMs()
-                : NEXT_START_TIME_NOT_FOUND;
+        return mScheduledRecordings.getNextStartTimeAfter(startTime);
     }
 
     @Override
     public List<ScheduledRecording> getRecordingsThatOverlapWith(Range<Long> period) {
-        List<ScheduledRecording> result = new ArrayList<>();
-        for (ScheduledRecording r : mScheduledRecordings.values()) {
-            if (r.isOverLapping(period)) {
-                result.add(r);
-            }
-        }
-        return result;
+        return mScheduledRecordings.getRecordingsThatOverlapWith(period);
     }
 
     @Nullable
@@ -250,131 +243,177 @@ public class DvrDataManagerImpl extends BaseDvrDataManager {
     @Nullable
     @Override
     public RecordedProgram getRecordedProgram(long recordingId) {
-        return mRecordedPrograms.get(recordingId);
+        return mRecordedPrograms.getCachedProgram(recordingId);
     }
 
     @Override
-    public void addScheduledRecording(final ScheduledRecording scheduledRecording) {
+    public void loadRecordedProgram(long recordingId,
+            final OnRecordedProgramLoadedCallback callback) {
+        RecordedProgram program = mRecordedPrograms.getCachedProgram(recordingId);
+        if (program != null) {
+            callback.onRecordedProgramLoaded(program);
+            return;
+        }
+        AsyncRecordedProgramQueryTask task = new AsyncRecordedProgramQueryTask(
+                mContext.getContentResolver(),
+                TvContract.buildRecordedProgramUri(recordingId)) {
+            @Override
+            protected void onPostExecute(RecordedProgram recordedProgram) {
+                mPendingTasks.remove(this);
+                if (recordedProgram != null) {
+                    mRecordedPrograms.cache(recordedProgram);
+                }
+                callback.onRecordedProgramLoaded(recordedProgram);
+            }
+        };
+        task.executeOnDbThread();
+        mPendingTasks.add(task);
+    }
+
+    @Override
+    public void addScheduledRecording(final ScheduledRecording... scheduledRecordings) {
+        if (scheduledRecordings.length == 0) {
+            return;
+        }
         new AsyncDvrDbTask.AsyncAddRecordingTask(mContext) {
             @Override
-            protected void onPostExecute(List<ScheduledRecording> scheduledRecordings) {
-                super.onPostExecute(scheduledRecordings);
-                SoftPreconditions.checkArgument(scheduledRecordings.size() == 1);
-                for (ScheduledRecording r : scheduledRecordings) {
+            protected void onPostExecute(List<ScheduledRecording> results) {
+                super.onPostExecute(results);
+                SoftPreconditions.checkArgument(results.size() == scheduledRecordings.length);
+                List<ScheduledRecording> added = new ArrayList<>(results.size());
+                for (ScheduledRecording r : results) {
                     if (r.getId() != -1) {
-                        mScheduledRecordings.put(r.getId(), r);
+                        mScheduledRecordings.put(r);
                         if (r.getProgramId() != ScheduledRecording.ID_NOT_SET) {
                             mProgramId2ScheduledRecordings.put(r.getProgramId(), r);
                         }
-                        notifyScheduledRecordingAdded(r);
+                        added.add(r);
                     } else {
                         Log.w(TAG, "Error adding " + r);
                     }
                 }
-
+                notifyScheduledRecordingAdded(
+                        added.toArray(new ScheduledRecording[added.size()]));
             }
-        }.executeOnDbThread(scheduledRecording);
+        }.executeOnDbThread(scheduledRecordings);
     }
 
     @Override
     public void addSeasonRecording(SeasonRecording seasonRecording) { }
 
     @Override
-    public void removeScheduledRecording(final ScheduledRecording scheduledRecording) {
+    public void removeScheduledRecording(final ScheduledRecording... scheduledRecordings) {
+        if (scheduledRecordings.length == 0) {
+            return;
+        }
         new AsyncDvrDbTask.AsyncDeleteRecordingTask(mContext) {
             @Override
             protected void onPostExecute(List<Integer> counts) {
                 super.onPostExecute(counts);
-                SoftPreconditions.checkArgument(counts.size() == 1);
-                for (Integer c : counts) {
-                    if (c == 1) {
-                        mScheduledRecordings.remove(scheduledRecording.getId());
-                        if (scheduledRecording.getProgramId() != ScheduledRecording.ID_NOT_SET) {
-                            mProgramId2ScheduledRecordings
-                                    .remove(scheduledRecording.getProgramId());
+                SoftPreconditions.checkArgument(counts.size() == scheduledRecordings.length);
+                List<ScheduledRecording> removed = new ArrayList<>(counts.size());
+                for (int i = 0; i < counts.size(); ++i) {
+                    ScheduledRecording r = scheduledRecordings[i];
+                    if (counts.get(i) == 1) {
+                        mScheduledRecordings.remove(r.getId());
+                        if (r.getProgramId() != ScheduledRecording.ID_NOT_SET) {
+                            mProgramId2ScheduledRecordings.remove(r.getProgramId());
                         }
-                        //TODO change to notifyRecordingUpdated
-                        notifyScheduledRecordingRemoved(scheduledRecording);
+                        removed.add(r);
                     } else {
-                        Log.w(TAG, "Error removing " + scheduledRecording);
+                        Log.w(TAG, "Error removing " + r);
                     }
                 }
-
+                //TODO change to notifyRecordingUpdated
+                notifyScheduledRecordingRemoved(
+                        removed.toArray(new ScheduledRecording[removed.size()]));
             }
-        }.executeOnDbThread(scheduledRecording);
+        }.executeOnDbThread(scheduledRecordings);
     }
 
     @Override
     public void removeSeasonSchedule(SeasonRecording seasonSchedule) { }
 
     @Override
-    public void updateScheduledRecording(final ScheduledRecording scheduledRecording) {
+    public void updateScheduledRecording(final ScheduledRecording... scheduledRecordings) {
+        if (scheduledRecordings.length == 0) {
+            return;
+        }
         new AsyncDvrDbTask.AsyncUpdateRecordingTask(mContext) {
             @Override
             protected void onPostExecute(List<Integer> counts) {
                 super.onPostExecute(counts);
-                SoftPreconditions.checkArgument(counts.size() == 1);
-                for (Integer c : counts) {
-                    if (c == 1) {
-                        ScheduledRecording oldScheduledRecording = mScheduledRecordings
-                                .put(scheduledRecording.getId(), scheduledRecording);
-                        long programId = scheduledRecording.getProgramId();
-                        if (oldScheduledRecording != null
-                                && oldScheduledRecording.getProgramId() != programId
-                                && oldScheduledRecording.getProgramId()
-                                != ScheduledRecording.ID_NOT_SET) {
-                            ScheduledRecording oldValueForProgramId = mProgramId2ScheduledRecordings
-                                    .get(oldScheduledRecording.getProgramId());
-                            if (oldValueForProgramId.getId() == scheduledRecording.getId()) {
-                                //Only remove the old ScheduledRecording if it has the same ID as
-                                // the new one.
-                                mProgramId2ScheduledRecordings
-                                        .remove(oldScheduledRecording.getProgramId());
-                            }
-                        }
-                        if (programId != ScheduledRecording.ID_NOT_SET) {
-                            mProgramId2ScheduledRecordings.put(programId, scheduledRecording);
-                        }
-                        //TODO change to notifyRecordingUpdated
-                        notifyScheduledRecordingStatusChanged(scheduledRecording);
+                SoftPreconditions.checkArgument(counts.size() == scheduledRecordings.length);
+                List<ScheduledRecording> updated = new ArrayList<>(counts.size());
+                for (int i = 0; i < counts.size(); ++i) {
+                    ScheduledRecording r = scheduledRecordings[i];
+                    if (counts.get(i) == 1) {
+                        updateScheduledRecordingInMemory(r);
+                        updated.add(r);
                     } else {
-                        Log.w(TAG, "Error updating " + scheduledRecording);
+                        Log.w(TAG, "Error updating " + r);
                     }
                 }
+                //TODO change to notifyRecordingUpdated
+                notifyScheduledRecordingStatusChanged(
+                        updated.toArray(new ScheduledRecording[updated.size()]));
+            }
+        }.executeOnDbThread(scheduledRecordings);
+    }
+
+    private void updateScheduledRecordingInMemory(ScheduledRecording scheduledRecording) {
+        ScheduledRecording oldScheduledRecording = mScheduledRecordings.put(scheduledRecording);
+        long programId = scheduledRecording.getProgramId();
+        if (oldScheduledRecording != null
+                && oldScheduledRecording.getProgramId() != programId
+                && oldScheduledRecording.getProgramId() != ScheduledRecording.ID_NOT_SET) {
+            ScheduledRecording oldValueForProgramId = mProgramId2ScheduledRecordings
+                    .get(oldScheduledRecording.getProgramId());
+            if (oldValueForProgramId != null
+                    && oldValueForProgramId.getId() == scheduledRecording.getId()) {
+                //Only remove the old ScheduledRecording if it has the same ID as
+                // the new one.
+                mProgramId2ScheduledRecordings.remove(oldScheduledRecording.getProgramId());
             }
-        }.executeOnDbThread(scheduledRecording);
+        }
+        if (programId != ScheduledRecording.ID_NOT_SET) {
+            mProgramId2ScheduledRecordings.put(programId, scheduledRecording);
+        }
     }
 
+    /**
+     * Loads the summaries of all the recorded programs. The full rows are loaded on demand.
+     */
     private final class AsyncRecordedProgramsQueryTask
-            extends AsyncDbTask.AsyncQueryListTask<RecordedProgram> {
+            extends AsyncDbTask.AsyncQueryListTask<RecordedProgramSummary> {
         public AsyncRecordedProgramsQueryTask(ContentResolver contentResolver) {
             super(contentResolver, TvContract.RecordedPrograms.CONTENT_URI,
-                    RecordedProgram.PROJECTION, null, null, null);
+                    RecordedProgramSummary.PROJECTION, null, null, null);
         }
 
         @Override
-        protected RecordedProgram fromCursor(Cursor c) {
-            return RecordedProgram.fromCursor(c);
+        protected RecordedProgramSummary fromCursor(Cursor c) {
+            return RecordedProgramSummary.fromCursor(c);
         }
 
         @Override
-        protected void onCancelled(List<RecordedProgram> scheduledRecordings) {
+        protected void onCancelled(List<RecordedProgramSummary> summaries) {
             mPendingTasks.remove(this);
         }
 
         @Override
-        protected void onPostExecute(List<RecordedProgram> result) {
+        protected void onPostExecute(List<RecordedProgramSummary> result) {
             mPendingTasks.remove(this);
             mRecordedProgramLoadFinished = true;
             if (result != null) {
-                for (RecordedProgram r : result) {
-                    mRecordedPrograms.put(r.getId(), r);
+                for (RecordedProgramSummary r : result) {
+                    mRecordedPrograms.put(r);
                 }
             }
         }
     }
 
-    private final class AsyncRecordedProgramQueryTask
+    private class AsyncRecordedProgramQueryTask
             extends AsyncDbTask.AsyncQueryItemTask<RecordedProgram> {
 
         private final Uri mUri;
@@ -44,6 +44,7 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
     private final AtomicLong mNextId = new AtomicLong(1);
     private final Map<Long, ScheduledRecording> mScheduledRecordings = new HashMap<>();
     private final Map<Long, RecordedProgram> mRecordedPrograms = new HashMap<>();
+    private final RecordedProgramLibrary mRecordedProgramSummaries = new RecordedProgramLibrary();
     private final List<SeasonRecording> mSeasonSchedule = new ArrayList<>();
 
     public DvrDataManagerInMemoryImpl(Context context, Clock clock) {
@@ -60,8 +61,25 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
     }
 
     @Override
-    public List<RecordedProgram> getRecordedPrograms() {
-        return new ArrayList<>(mRecordedPrograms.values());
+    public List<RecordedProgramSummary> getRecordedProgramSummaries() {
+        return mRecordedProgramSummaries.getSummaries();
+    }
+
+    @Override
+    public List<RecordedProgramSummary> getRecordedProgramSummariesForChannel(long channelId) {
+        return mRecordedProgramSummaries.getSummariesForChannel(channelId);
+    }
+
+    @Override
+    public List<RecordedProgramSummary> getRecordedProgramSummariesForGenre(String genre) {
+        return mRecordedProgramSummaries.getSummariesForGenre(genre);
+    }
+
+    @Override
+    public List<RecordedProgramSummary> getRecordedProgramSummariesStartingBetween(
+            long startUtcMillis, long endUtcMillis) {
+        return mRecordedProgramSummaries.getSummariesStartingBetween(startUtcMillis,
+                endUtcMillis);
     }
 
     @Override
@@ -99,11 +117,15 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
     }
 
     /**
-     * Add a new scheduled recording.
+     * Add new scheduled recordings.
      */
     @Override
-    public void addScheduledRecording(ScheduledRecording scheduledRecording) {
-        addScheduledRecordingInternal(scheduledRecording);
+    public void addScheduledRecording(ScheduledRecording... scheduledRecordings) {
+        ScheduledRecording[] added = new ScheduledRecording[scheduledRecordings.length];
+        for (int i = 0; i < scheduledRecordings.length; ++i) {
+            added[i] = addScheduledRecordingInternal(scheduledRecordings[i], false);
+        }
+        notifyScheduledRecordingAdded(added);
     }
 
 
@@ -115,7 +137,8 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
         long id = r.getId();
         if (mRecordedPrograms.containsKey(id)) {
             mRecordedPrograms.put(id, r);
-            notifyRecordedProgramChanged(r);
+            mRecordedProgramSummaries.put(RecordedProgramSummary.fromRecordedProgram(r));
+            notifyRecordedProgramChanged(mRecordedProgramSummaries.getSummary(id));
         } else {
             throw new IllegalArgumentException("Recording not found:" + r);
         }
@@ -123,11 +146,20 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
 
     public void removeRecordedProgram(RecordedProgram scheduledRecording) {
         mRecordedPrograms.remove(scheduledRecording.getId());
-        notifyRecordedProgramRemoved(scheduledRecording);
+        RecordedProgramSummary removed =
+                mRecordedProgramSummaries.remove(scheduledRecording.getId());
+        if (removed != null) {
+            notifyRecordedProgramRemoved(removed);
+        }
     }
 
 
     public ScheduledRecording addScheduledRecordingInternal(ScheduledRecording scheduledRecording) {
+        return addScheduledRecordingInternal(scheduledRecording, true);
+    }
+
+    private ScheduledRecording addScheduledRecordingInternal(ScheduledRecording scheduledRecording,
+            boolean notify) {
         SoftPreconditions
                 .checkState(scheduledRecording.getId() == ScheduledRecording.ID_NOT_SET, TAG,
                         "expected id of " + ScheduledRecording.ID_NOT_SET + " but was "
@@ -136,7 +168,9 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
                 .setId(mNextId.incrementAndGet())
                 .build();
         mScheduledRecordings.put(scheduledRecording.getId(), scheduledRecording);
-        notifyScheduledRecordingAdded(scheduledRecording);
+        if (notify) {
+            notifyScheduledRecordingAdded(scheduledRecording);
+        }
         return scheduledRecording;
     }
 
@@ -147,7 +181,8 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
                 .setId(mNextId.incrementAndGet())
                 .build();
         mRecordedPrograms.put(recordedProgram.getId(), recordedProgram);
-        notifyRecordedProgramAdded(recordedProgram);
+        mRecordedProgramSummaries.put(RecordedProgramSummary.fromRecordedProgram(recordedProgram));
+        notifyRecordedProgramAdded(mRecordedProgramSummaries.getSummary(recordedProgram.getId()));
         return recordedProgram;
     }
 
@@ -157,9 +192,11 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
     }
 
     @Override
-    public void removeScheduledRecording(ScheduledRecording scheduledRecording) {
-        mScheduledRecordings.remove(scheduledRecording.getId());
-        notifyScheduledRecordingRemoved(scheduledRecording);
+    public void removeScheduledRecording(ScheduledRecording... scheduledRecordings) {
+        for (ScheduledRecording r : scheduledRecordings) {
+            mScheduledRecordings.remove(r.getId());
+        }
+        notifyScheduledRecordingRemoved(scheduledRecordings);
     }
 
     @Override
@@ -168,14 +205,16 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
     }
 
     @Override
-    public void updateScheduledRecording(ScheduledRecording r) {
-        long id = r.getId();
-        if (mScheduledRecordings.containsKey(id)) {
-            mScheduledRecordings.put(id, r);
-            notifyScheduledRecordingStatusChanged(r);
-        } else {
-            throw new IllegalArgumentException("Recording not found:" + r);
+    public void updateScheduledRecording(ScheduledRecording... scheduledRecordings) {
+        for (ScheduledRecording r : scheduledRecordings) {
+            if (!mScheduledRecordings.containsKey(r.getId())) {
+                throw new IllegalArgumentException("Recording not found:" + r);
+            }
+        }
+        for (ScheduledRecording r : scheduledRecordings) {
+            mScheduledRecordings.put(r.getId(), r);
         }
+        notifyScheduledRecordingStatusChanged(scheduledRecordings);
     }
 
     @Nullable
@@ -201,6 +240,11 @@ public final class DvrDataManagerInMemoryImpl extends BaseDvrDataManager {
         return mRecordedPrograms.get(recordingId);
     }
 
+    @Override
+    public void loadRecordedProgram(long recordingId, OnRecordedProgramLoadedCallback callback) {
+        callback.onRecordedProgramLoaded(mRecordedPrograms.get(recordingId));
+    }
+
     @Override
     @NonNull
     protected List<ScheduledRecording> getRecordingsWithState(int state) {
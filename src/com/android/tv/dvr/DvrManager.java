@@ -38,6 +38,7 @@ import com.android.tv.data.Program;
 import com.android.tv.util.AsyncDbTask;
 import com.android.tv.util.Utils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -158,26 +159,35 @@ public class DvrManager {
      */
     public List<ScheduledRecording> getScheduledRecordingsThatConflict(Program program) {
         //TODO(DVR): move to scheduler.
-        //TODO(DVR): deal with more than one DvrInputService
         List<ScheduledRecording> overLap = mDataManager.getRecordingsThatOverlapWith(getPeriod(program));
-        if (!overLap.isEmpty()) {
-            // TODO(DVR): ignore shows that already won't record.
-            Channel channel = mChannelDataManager.getChannel(program.getChannelId());
-            if (channel != null) {
-                TvInputInfo info = mDvrSessionManager.getTvInputInfo(channel.getInputId());
-                if (info == null) {
-                    Log.w(TAG,
-                            "Could not find a recording TvInputInfo for " + channel.getInputId());
-                    return overLap;
-                }
-                int remove = Math.max(0, info.getTunerCount() - 1);
-                if (remove >= overLap.size()) {
-                    return Collections.EMPTY_LIST;
-                }
-                overLap = overLap.subList(remove, overLap.size() - 1);
+        if (overLap.isEmpty()) {
+            return overLap;
+        }
+        Channel channel = mChannelDataManager.getChannel(program.getChannelId());
+        if (channel == null) {
+            return overLap;
+        }
+        TvInputInfo info = mDvrSessionManager.getTvInputInfo(channel.getInputId());
+        if (info == null) {
+            Log.w(TAG, "Could not find a recording TvInputInfo for " + channel.getInputId());
+            return overLap;
+        }
+        // Only the recordings which will use a tuner of the same input can conflict.
+        List<ScheduledRecording> candidates = new ArrayList<>();
+        for (ScheduledRecording r : overLap) {
+            if (r.getState() != ScheduledRecording.STATE_RECORDING_NOT_STARTED
+                    && r.getState() != ScheduledRecording.STATE_RECORDING_IN_PROGRESS) {
+                continue;
+            }
+            Channel recordingChannel = mChannelDataManager.getChannel(r.getChannelId());
+            if (recordingChannel != null
+                    && channel.getInputId().equals(recordingChannel.getInputId())) {
+                candidates.add(r);
             }
         }
-        return overLap;
+        return ScheduledRecordingIndex.getConflictingRecordings(candidates,
+                program.getStartTimeUtcMillis(), program.getEndTimeUtcMillis(),
+                info.getTunerCount());
     }
 
     @NonNull
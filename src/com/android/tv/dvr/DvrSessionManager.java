@@ -49,6 +49,8 @@ public class DvrSessionManager extends TvInputManager.TvInputCallback {
     private final Context mContext;
     private final TvInputManager mTvInputManager;
     private final ArrayMap<String, TvInputInfo> mRecordingTvInputs = new ArrayMap<>();
+    // The input ID of each recording client which holds a tuner.
+    private final ArrayMap<TvRecordingClient, String> mRecordingClients = new ArrayMap<>();
 
     public DvrSessionManager(Context context) {
         this(context, (TvInputManager) context.getSystemService(Context.TV_INPUT_SERVICE),
@@ -73,18 +75,47 @@ public class DvrSessionManager extends TvInputManager.TvInputCallback {
 
     }
 
-    public TvRecordingClient createTvRecordingClient(String tag,
+    /**
+     * Creates a recording client which holds a tuner of {@code inputId} until it is released by
+     * {@link #releaseTvRecordingClient}.
+     */
+    public TvRecordingClient createTvRecordingClient(String inputId, String tag,
             TvRecordingClient.RecordingCallback callback, Handler handler) {
-        return new TvRecordingClient(mContext, tag, callback, handler);
+        TvRecordingClient recordingClient = new TvRecordingClient(mContext, tag, callback,
+                handler);
+        synchronized (mRecordingClients) {
+            mRecordingClients.put(recordingClient, inputId);
+        }
+        return recordingClient;
     }
 
+    /**
+     * Returns {@code true} if {@code inputId} has a tuner which is not used by any recording.
+     */
     public boolean canAcquireDvrSession(String inputId, Channel channel) {
-        // TODO(DVR): implement checking tuner count etc.
         TvInputInfo info = mRecordingTvInputs.get(inputId);
-        return info != null;
+        return info != null && getAcquiredSessionCount(inputId) < info.getTunerCount();
+    }
+
+    /**
+     * Returns the number of the recording clients which hold a tuner of {@code inputId}.
+     */
+    private int getAcquiredSessionCount(String inputId) {
+        int count = 0;
+        synchronized (mRecordingClients) {
+            for (int i = 0; i < mRecordingClients.size(); ++i) {
+                if (inputId.equals(mRecordingClients.valueAt(i))) {
+                    ++count;
+                }
+            }
+        }
+        return count;
     }
 
     public void releaseTvRecordingClient(TvRecordingClient recordingClient) {
+        synchronized (mRecordingClients) {
+            mRecordingClients.remove(recordingClient);
+        }
         recordingClient.release();
     }
 
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.dvr;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.android.tv.common.recording.RecordedProgram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the {@link RecordedProgramSummary}s of all the recorded programs with the indexes by the
+ * channel, the genre and the start time, and caches the recently used full
+ * {@link RecordedProgram}s.
+ */
+@MainThread
+class RecordedProgramLibrary {
+    private static final int MAX_CACHED_PROGRAMS = 50;
+
+    private final Map<Long, RecordedProgramSummary> mSummaries = new HashMap<>();
+    private final TreeSet<RecordedProgramSummary> mSummariesByStartTime =
+            new TreeSet<>(RecordedProgramSummary.START_TIME_THEN_ID_COMPARATOR);
+    private final Map<Long, Set<RecordedProgramSummary>> mSummariesByChannel = new HashMap<>();
+    private final Map<String, Set<RecordedProgramSummary>> mSummariesByGenre = new HashMap<>();
+    private final LruCache<Long, RecordedProgram> mPrograms;
+
+    RecordedProgramLibrary() {
+        this(MAX_CACHED_PROGRAMS);
+    }
+
+    RecordedProgramLibrary(int maxCachedPrograms) {
+        mPrograms = new LruCache<>(maxCachedPrograms);
+    }
+
+    /**
+     * Adds or replaces the summary of the same ID. The cached program of the ID is dropped since
+     * it may be outdated.
+     *
+     * @return the old summary of the same ID or {@code null}.
+     */
+    @Nullable
+    RecordedProgramSummary put(RecordedProgramSummary summary) {
+        RecordedProgramSummary old = removeSummary(summary.getId());
+        if (old != null) {
+            mPrograms.remove(summary.getId());
+        }
+        mSummaries.put(summary.getId(), summary);
+        mSummariesByStartTime.add(summary);
+        addToGroup(mSummariesByChannel, summary.getChannelId(), summary);
+        for (String genre : summary.getCanonicalGenres()) {
+            addToGroup(mSummariesByGenre, genre, summary);
+        }
+        return old;
+    }
+
+    /**
+     * Adds or replaces the program of the same ID, and caches it.
+     *
+     * @return the old summary of the same ID or {@code null}.
+     */
+    @Nullable
+    RecordedProgramSummary put(RecordedProgram program) {
+        RecordedProgramSummary old = put(RecordedProgramSummary.fromRecordedProgram(program));
+        mPrograms.put(program.getId(), program);
+        return old;
+    }
+
+    /**
+     * Caches the program if its summary is in the library.
+     */
+    void cache(RecordedProgram program) {
+        if (mSummaries.containsKey(program.getId())) {
+            mPrograms.put(program.getId(), program);
+        }
+    }
+
+    /**
+     * Removes the program of the ID.
+     *
+     * @return the removed summary or {@code null}.
+     */
+    @Nullable
+    RecordedProgramSummary remove(long id) {
+        mPrograms.remove(id);
+        return removeSummary(id);
+    }
+
+    void clear() {
+        mSummaries.clear();
+        mSummariesByStartTime.clear();
+        mSummariesByChannel.clear();
+        mSummariesByGenre.clear();
+        mPrograms.evictAll();
+    }
+
+    int size() {
+        return mSummaries.size();
+    }
+
+    @Nullable
+    RecordedProgramSummary getSummary(long id) {
+        return mSummaries.get(id);
+    }
+
+    /**
+     * Returns the cached program of the ID, or {@code null} if it is not loaded.
+     */
+    @Nullable
+    RecordedProgram getCachedProgram(long id) {
+        return mPrograms.get(id);
+    }
+
+    /**
+     * Returns all the summaries in the order of the start time.
+     */
+    List<RecordedProgramSummary> getSummaries() {
+        return new ArrayList<>(mSummariesByStartTime);
+    }
+
+    /**
+     * Returns the summaries of the channel in the order of the start time.
+     */
+    List<RecordedProgramSummary> getSummariesForChannel(long channelId) {
+        return toList(mSummariesByChannel.get(channelId));
+    }
+
+    /**
+     * Returns the summaries of the canonical genre in the order of the start time.
+     */
+    List<RecordedProgramSummary> getSummariesForGenre(String genre) {
+        return toList(mSummariesByGenre.get(genre));
+    }
+
+    /**
+     * Returns the summaries which start in {@code [startUtcMillis, endUtcMillis)} in the order of
+     * the start time.
+     */
+    List<RecordedProgramSummary> getSummariesStartingBetween(long startUtcMillis,
+            long endUtcMillis) {
+        if (startUtcMillis >= endUtcMillis) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(mSummariesByStartTime.subSet(createKey(startUtcMillis),
+                createKey(endUtcMillis)));
+    }
+
+    @Nullable
+    private RecordedProgramSummary removeSummary(long id) {
+        RecordedProgramSummary summary = mSummaries.remove(id);
+        if (summary == null) {
+            return null;
+        }
+        mSummariesByStartTime.remove(summary);
+        removeFromGroup(mSummariesByChannel, summary.getChannelId(), summary);
+        for (String genre : summary.getCanonicalGenres()) {
+            removeFromGroup(mSummariesByGenre, genre, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Creates a key which precedes all the summaries starting at {@code startUtcMillis}.
+     */
+    private static RecordedProgramSummary createKey(long startUtcMillis) {
+        return RecordedProgramSummary.fromRecordedProgram(RecordedProgram.builder()
+                .setId(Long.MIN_VALUE).setStartTimeUtcMillis(startUtcMillis).build());
+    }
+
+    private static List<RecordedProgramSummary> toList(
+            @Nullable Set<RecordedProgramSummary> summaries) {
+        return summaries == null ? new ArrayList<RecordedProgramSummary>()
+                : new ArrayList<>(summaries);
+    }
+
+    private static <K> void addToGroup(Map<K, Set<RecordedProgramSummary>> groups, K key,
+            RecordedProgramSummary summary) {
+        Set<RecordedProgramSummary> group = groups.get(key);
+        if (group == null) {
+            group = new TreeSet<>(RecordedProgramSummary.START_TIME_THEN_ID_COMPARATOR);
+            groups.put(key, group);
+        }
+        group.add(summary);
+    }
+
+    private static <K> void removeFromGroup(Map<K, Set<RecordedProgramSummary>> groups, K key,
+            RecordedProgramSummary summary) {
+        Set<RecordedProgramSummary> group = groups.get(key);
+        if (group != null && group.remove(summary) && group.isEmpty()) {
+            groups.remove(key);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.dvr;
+
+import android.database.Cursor;
+import android.media.tv.TvContract;
+import android.media.tv.TvContract.RecordedPrograms;
+import android.net.Uri;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import com.android.tv.common.recording.RecordedProgram;
+
+import java.util.Comparator;
+
+/**
+ * A lightweight summary of a {@link RecordedProgram} which has only the fields to list and to
+ * index the recorded programs. The full {@link RecordedProgram} is loaded on demand by
+ * {@link DvrDataManager#loadRecordedProgram}.
+ */
+public final class RecordedProgramSummary {
+    public static final String[] PROJECTION = {
+            RecordedPrograms._ID,
+            RecordedPrograms.COLUMN_INPUT_ID,
+            RecordedPrograms.COLUMN_CHANNEL_ID,
+            RecordedPrograms.COLUMN_TITLE,
+            RecordedPrograms.COLUMN_START_TIME_UTC_MILLIS,
+            RecordedPrograms.COLUMN_END_TIME_UTC_MILLIS,
+            RecordedPrograms.COLUMN_CANONICAL_GENRE,
+            RecordedPrograms.COLUMN_POSTER_ART_URI,
+            RecordedPrograms.COLUMN_THUMBNAIL_URI,
+            RecordedPrograms.COLUMN_RECORDING_DATA_BYTES,
+    };
+
+    public static final Comparator<RecordedProgramSummary> START_TIME_THEN_ID_COMPARATOR =
+            new Comparator<RecordedProgramSummary>() {
+        @Override
+        public int compare(RecordedProgramSummary lhs, RecordedProgramSummary rhs) {
+            int res = Long.compare(lhs.mStartTimeUtcMillis, rhs.mStartTimeUtcMillis);
+            if (res != 0) {
+                return res;
+            }
+            return Long.compare(lhs.mId, rhs.mId);
+        }
+    };
+
+    private static final String[] EMPTY_GENRES = new String[0];
+
+    private final long mId;
+    private final String mInputId;
+    private final long mChannelId;
+    private final String mTitle;
+    private final long mStartTimeUtcMillis;
+    private final long mEndTimeUtcMillis;
+    private final String[] mCanonicalGenres;
+    private final String mPosterArtUri;
+    private final String mThumbnailUri;
+    private final long mDataBytes;
+
+    private RecordedProgramSummary(long id, String inputId, long channelId, String title,
+            long startTimeUtcMillis, long endTimeUtcMillis, String[] canonicalGenres,
+            String posterArtUri, String thumbnailUri, long dataBytes) {
+        mId = id;
+        mInputId = inputId;
+        mChannelId = channelId;
+        mTitle = title;
+        mStartTimeUtcMillis = startTimeUtcMillis;
+        mEndTimeUtcMillis = endTimeUtcMillis;
+        mCanonicalGenres = canonicalGenres == null ? EMPTY_GENRES : canonicalGenres;
+        mPosterArtUri = posterArtUri;
+        mThumbnailUri = thumbnailUri;
+        mDataBytes = dataBytes;
+    }
+
+    /**
+     * Creates a summary from the cursor which is queried with {@link #PROJECTION}.
+     */
+    public static RecordedProgramSummary fromCursor(Cursor cursor) {
+        int index = 0;
+        long id = cursor.getLong(index++);
+        String inputId = cursor.getString(index++);
+        long channelId = cursor.getLong(index++);
+        String title = cursor.getString(index++);
+        long startTimeUtcMillis = cursor.getLong(index++);
+        long endTimeUtcMillis = cursor.getLong(index++);
+        String genres = cursor.getString(index++);
+        String posterArtUri = cursor.getString(index++);
+        String thumbnailUri = cursor.getString(index++);
+        long dataBytes = cursor.getLong(index++);
+        return new RecordedProgramSummary(id, inputId, channelId, title, startTimeUtcMillis,
+                endTimeUtcMillis,
+                TextUtils.isEmpty(genres) ? null : TvContract.Programs.Genres.decode(genres),
+                posterArtUri, thumbnailUri, dataBytes);
+    }
+
+    public static RecordedProgramSummary fromRecordedProgram(RecordedProgram program) {
+        return new RecordedProgramSummary(program.getId(), program.getInputId(),
+                program.getChannelId(), program.getTitle(), program.getStartTimeUtcMillis(),
+                program.getEndTimeUtcMillis(), program.getCanonicalGenres(),
+                safeToString(program.getPosterArt()), safeToString(program.getThumbnail()),
+                program.getDataBytes());
+    }
+
+    public long getId() {
+        return mId;
+    }
+
+    public String getInputId() {
+        return mInputId;
+    }
+
+    public long getChannelId() {
+        return mChannelId;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public long getStartTimeUtcMillis() {
+        return mStartTimeUtcMillis;
+    }
+
+    public long getEndTimeUtcMillis() {
+        return mEndTimeUtcMillis;
+    }
+
+    /**
+     * Returns the canonical genres, or an empty array if there's none.
+     */
+    public String[] getCanonicalGenres() {
+        return mCanonicalGenres;
+    }
+
+    @Nullable
+    public String getPosterArtUri() {
+        return mPosterArtUri;
+    }
+
+    @Nullable
+    public String getThumbnailUri() {
+        return mThumbnailUri;
+    }
+
+    public long getDataBytes() {
+        return mDataBytes;
+    }
+
+    public Uri getUri() {
+        return TvContract.buildRecordedProgramUri(mId);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordedProgramSummary[" + mId + "]{channelId=" + mChannelId + ", title="
+                + mTitle + ", startTimeUtcMillis=" + mStartTimeUtcMillis + ", endTimeUtcMillis="
+                + mEndTimeUtcMillis + "}";
+    }
+
+    private static String safeToString(@Nullable Object o) {
+        return o == null ? null : o.toString();
+    }
+}
@@ -56,6 +56,14 @@ class RecordingTask extends TvRecordingClient.RecordingCallback
     static final long MS_BEFORE_START = TimeUnit.SECONDS.toMillis(5);
     @VisibleForTesting
     static final long MS_AFTER_END = TimeUnit.SECONDS.toMillis(5);
+    /**
+     * The time to wait for a tuner after the start time, since the recording which ends at the
+     * start time keeps the tuner for {@link #MS_AFTER_END}.
+     */
+    @VisibleForTesting
+    static final long MS_TO_WAIT_FOR_SESSION = MS_AFTER_END * 2;
+    @VisibleForTesting
+    static final long MS_TO_RETRY_SESSION = TimeUnit.SECONDS.toMillis(1);
 
     @VisibleForTesting
     enum State {
@@ -194,10 +202,14 @@ class RecordingTask extends TvRecordingClient.RecordingCallback
 
         String inputId = mChannel.getInputId();
         if (mSessionManager.canAcquireDvrSession(inputId, mChannel)) {
-            mTvRecordingClient = mSessionManager
-                    .createTvRecordingClient("recordingTask-" + mScheduledRecording.getId(), this,
-                            mHandler);
+            mTvRecordingClient = mSessionManager.createTvRecordingClient(inputId,
+                    "recordingTask-" + mScheduledRecording.getId(), this, mHandler);
             mState = State.SESSION_ACQUIRED;
+        } else if (mClock.currentTimeMillis()
+                < mScheduledRecording.getStartTimeMs() + MS_TO_WAIT_FOR_SESSION) {
+            if (DEBUG) Log.d(TAG, "Waiting for a session for " + mScheduledRecording);
+            mHandler.sendEmptyMessageDelayed(MESSAGE_INIT, MS_TO_RETRY_SESSION);
+            return;
         } else {
             Log.w(TAG, "Unable to acquire a session for " + mScheduledRecording);
             failAndQuit();
@@ -21,6 +21,7 @@ import android.support.annotation.VisibleForTesting;
 
 import com.android.tv.util.Clock;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -44,10 +45,14 @@ class ScheduledProgramReaper implements Runnable {
     public void run() {
         List<ScheduledRecording> recordings = mDvrDataManager.getAllScheduledRecordings();
         long cutoff = mClock.currentTimeMillis() - TimeUnit.DAYS.toMillis(DAYS);
+        List<ScheduledRecording> expiredRecordings = new ArrayList<>();
         for (ScheduledRecording r : recordings) {
             if (r.getEndTimeMs() < cutoff) {
-                mDvrDataManager.removeScheduledRecording(r);
+                expiredRecordings.add(r);
             }
         }
+        // Removes all of them in one transaction.
+        mDvrDataManager.removeScheduledRecording(
+                expiredRecordings.toArray(new ScheduledRecording[expiredRecordings.size()]));
     }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.tv.dvr;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.util.ArraySet;
+import android.util.Range;
+
+import com.android.tv.dvr.ScheduledRecording.RecordingState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An index of {@link ScheduledRecording}s by the ID, the time and the state, which is maintained
+ * on every change instead of scanning all the recordings for each query.
+ *
+ * <p>The recordings are sorted by the start time. Since the durations of the recordings are
+ * bounded by the longest one, the recordings which overlap with a period can be found among the
+ * ones which start between {@code period.lower - longestDuration} and {@code period.upper}.
+ */
+@MainThread
+class ScheduledRecordingIndex {
+    private static final Comparator<ScheduledRecording> START_TIME_THEN_ID_COMPARATOR =
+            new Comparator<ScheduledRecording>() {
+        @Override
+        public int compare(ScheduledRecording lhs, ScheduledRecording rhs) {
+            int value = ScheduledRecording.START_TIME_COMPARATOR.compare(lhs, rhs);
+            if (value == 0) {
+                value = Long.compare(lhs.getId(), rhs.getId());
+            }
+            return value;
+        }
+    };
+
+    private final Map<Long, ScheduledRecording> mRecordings = new HashMap<>();
+    private final TreeSet<ScheduledRecording> mRecordingsByStartTime =
+            new TreeSet<>(START_TIME_THEN_ID_COMPARATOR);
+    // The number of the recordings for each duration, to know the longest duration.
+    private final TreeMap<Long, Integer> mDurationCounts = new TreeMap<>();
+    private final Map<Integer, Set<ScheduledRecording>> mRecordingsByState = new HashMap<>();
+
+    /**
+     * Adds or replaces the recording of the same ID.
+     *
+     * @return the old recording of the same ID or {@code null}.
+     */
+    @Nullable
+    ScheduledRecording put(ScheduledRecording recording) {
+        ScheduledRecording old = remove(recording.getId());
+        mRecordings.put(recording.getId(), recording);
+        mRecordingsByStartTime.add(recording);
+        Integer count = mDurationCounts.get(recording.getDuration());
+        mDurationCounts.put(recording.getDuration(), count == null ? 1 : count + 1);
+        addToGroup(mRecordingsByState, recording.getState(), recording);
+        return old;
+    }
+
+    /**
+     * Removes the recording of the ID.
+     *
+     * @return the removed recording or {@code null}.
+     */
+    @Nullable
+    ScheduledRecording remove(long recordingId) {
+        ScheduledRecording recording = mRecordings.remove(recordingId);
+        if (recording == null) {
+            return null;
+        }
+        mRecordingsByStartTime.remove(recording);
+        Integer count = mDurationCounts.get(recording.getDuration());
+        if (count == null || count <= 1) {
+            mDurationCounts.remove(recording.getDuration());
+        } else {
+            mDurationCounts.put(recording.getDuration(), count - 1);
+        }
+        removeFromGroup(mRecordingsByState, recording.getState(), recording);
+        return recording;
+    }
+
+    void clear() {
+        mRecordings.clear();
+        mRecordingsByStartTime.clear();
+        mDurationCounts.clear();
+        mRecordingsByState.clear();
+    }
+
+    int size() {
+        return mRecordings.size();
+    }
+
+    @Nullable
+    ScheduledRecording get(long recordingId) {
+        return mRecordings.get(recordingId);
+    }
+
+    /**
+     * Returns all the recordings.
+     */
+    Collection<ScheduledRecording> getAll() {
+        return Collections.unmodifiableCollection(mRecordings.values());
+    }
+
+    /**
+     * Returns the recordings with the state.
+     */
+    List<ScheduledRecording> getRecordingsWithState(@RecordingState int state) {
+        Set<ScheduledRecording> recordings = mRecordingsByState.get(state);
+        return recordings == null ? new ArrayList<ScheduledRecording>()
+                : new ArrayList<>(recordings);
+    }
+
+    /**
+     * Returns the earliest start time after {@code time}, or
+     * {@link DvrDataManager#NEXT_START_TIME_NOT_FOUND} if there's no such recording.
+     */
+    long getNextStartTimeAfter(long time) {
+        ScheduledRecording next = mRecordingsByStartTime.higher(createKey(time, Long.MAX_VALUE));
+        return next == null ? DvrDataManager.NEXT_START_TIME_NOT_FOUND : next.getStartTimeMs();
+    }
+
+    /**
+     * Returns the recordings which overlap with the period inclusive, in the order of the start
+     * time.
+     *
+     * @see ScheduledRecording#isOverLapping
+     */
+    List<ScheduledRecording> getRecordingsThatOverlapWith(Range<Long> period) {
+        List<ScheduledRecording> result = new ArrayList<>();
+        if (mDurationCounts.isEmpty()) {
+            return result;
+        }
+        long longestDuration = mDurationCounts.lastKey();
+        long lower = period.getLower();
+        long earliestStartTime = lower - longestDuration < lower ? lower - longestDuration
+                : Long.MIN_VALUE;
+        NavigableSet<ScheduledRecording> candidates = mRecordingsByStartTime.subSet(
+                createKey(earliestStartTime, Long.MIN_VALUE), true,
+                createKey(period.getUpper(), Long.MAX_VALUE), true);
+        for (ScheduledRecording r : candidates) {
+            if (r.isOverLapping(period)) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the recordings in {@code overlappingRecordings} which can't be recorded if a new
+     * recording from {@code startTimeMs} to {@code endTimeMs} is recorded with the higher
+     * priority, when {@code tunerCount} recordings can run at the same time.
+     *
+     * <p>At each moment while the new recording runs, the recordings with the lowest priorities
+     * among the running ones are dropped to make the number of them fit to the tuners. The result
+     * is ordered by {@link ScheduledRecording#PRIORITY_COMPARATOR}.
+     */
+    static List<ScheduledRecording> getConflictingRecordings(
+            List<ScheduledRecording> overlappingRecordings, long startTimeMs, long endTimeMs,
+            int tunerCount) {
+        return getConflictingRecordings(overlappingRecordings, startTimeMs, endTimeMs, tunerCount,
+                0, 0);
+    }
+
+    /**
+     * Same as {@link #getConflictingRecordings(List, long, long, int)}, but every recording
+     * including the new one takes a tuner from {@code msBeforeStart} before its start time to
+     * {@code msAfterEnd} after its end time.
+     */
+    static List<ScheduledRecording> getConflictingRecordings(
+            List<ScheduledRecording> overlappingRecordings, long startTimeMs, long endTimeMs,
+            int tunerCount, long msBeforeStart, long msAfterEnd) {
+        startTimeMs -= msBeforeStart;
+        endTimeMs += msAfterEnd;
+        List<ScheduledRecording> recordings = new ArrayList<>();
+        for (ScheduledRecording r : overlappingRecordings) {
+            // Recordings which just touch the new one don't take a tuner at the same time.
+            if (r.getStartTimeMs() - msBeforeStart < endTimeMs
+                    && r.getEndTimeMs() + msAfterEnd > startTimeMs) {
+                recordings.add(r);
+            }
+        }
+        // The moments when the set of the running recordings changes.
+        TreeSet<Long> times = new TreeSet<>();
+        times.add(startTimeMs);
+        for (ScheduledRecording r : recordings) {
+            if (r.getStartTimeMs() - msBeforeStart > startTimeMs) {
+                times.add(r.getStartTimeMs() - msBeforeStart);
+            }
+        }
+        Set<ScheduledRecording> conflicts = new ArraySet<>();
+        int availableTunerCount = Math.max(0, tunerCount - 1);
+        List<ScheduledRecording> running = new ArrayList<>();
+        for (long time : times) {
+            running.clear();
+            for (ScheduledRecording r : recordings) {
+                if (r.getStartTimeMs() - msBeforeStart <= time
+                        && r.getEndTimeMs() + msAfterEnd > time) {
+                    running.add(r);
+                }
+            }
+            if (running.size() > availableTunerCount) {
+                Collections.sort(running, ScheduledRecording.PRIORITY_COMPARATOR);
+                conflicts.addAll(running.subList(availableTunerCount, running.size()));
+            }
+        }
+        List<ScheduledRecording> result = new ArrayList<>(conflicts);
+        Collections.sort(result, ScheduledRecording.PRIORITY_COMPARATOR);
+        return result;
+    }
+
+    private static ScheduledRecording createKey(long startTimeMs, long id) {
+        return ScheduledRecording.builder(startTimeMs, startTimeMs).setId(id).build();
+    }
+
+    private static <K> void addToGroup(Map<K, Set<ScheduledRecording>> groups, K key,
+            ScheduledRecording recording) {
+        Set<ScheduledRecording> group = groups.get(key);
+        if (group == null) {
+            group = new TreeSet<>(START_TIME_THEN_ID_COMPARATOR);
+            groups.put(key, group);
+        }
+        group.add(recording);
+    }
+
+    private static <K> void removeFromGroup(Map<K, Set<ScheduledRecording>> groups, K key,
+            ScheduledRecording recording) {
+        Set<ScheduledRecording> group = groups.get(key);
+        if (group != null && group.remove(recording) && group.isEmpty()) {
+            groups.remove(key);
+        }
+    }
+}
@@ -20,10 +20,12 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.media.tv.TvInputInfo;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.support.annotation.VisibleForTesting;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.util.LongSparseArray;
 import android.util.Range;
@@ -32,7 +34,11 @@ import com.android.tv.data.Channel;
 import com.android.tv.data.ChannelDataManager;
 import com.android.tv.util.Clock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -45,6 +51,11 @@ public class Scheduler implements DvrDataManager.ScheduledRecordingListener {
 
     private final static long SOON_DURATION_IN_MS = TimeUnit.MINUTES.toMillis(5);
     @VisibleForTesting final static long MS_TO_WAKE_BEFORE_START = TimeUnit.MINUTES.toMillis(1);
+    /**
+     * The time to acquire a session and tune before the start time, so that the recording can
+     * start from the very beginning of the program.
+     */
+    @VisibleForTesting final static long MS_TO_TUNE_BEFORE_START = TimeUnit.SECONDS.toMillis(30);
 
     /**
      * Wraps a {@link RecordingTask} removing it from {@link #mPendingRecordings} when it is done.
@@ -52,10 +63,12 @@ public class Scheduler implements DvrDataManager.ScheduledRecordingListener {
     public final class HandlerWrapper extends Handler {
         public static final int MESSAGE_REMOVE = 999;
         private final long mId;
+        private final ScheduledRecording mScheduledRecording;
 
         HandlerWrapper(Looper looper, ScheduledRecording scheduledRecording, RecordingTask recordingTask) {
             super(looper, recordingTask);
             mId = scheduledRecording.getId();
+            mScheduledRecording = scheduledRecording;
         }
 
         @Override
@@ -64,7 +77,10 @@ public class Scheduler implements DvrDataManager.ScheduledRecordingListener {
             // It must return false to pass this message to here.
             if (msg.what == MESSAGE_REMOVE) {
                 if (DEBUG)  Log.d(TAG, "done " + mId);
-                mPendingRecordings.remove(mId);
+                // The recording can be scheduled again with a new task before this message.
+                if (mPendingRecordings.get(mId) == this) {
+                    mPendingRecordings.remove(mId);
+                }
             }
             removeCallbacksAndMessages(null);
             super.handleMessage(msg);
@@ -72,6 +88,8 @@ public class Scheduler implements DvrDataManager.ScheduledRecordingListener {
     }
 
     private final LongSparseArray<HandlerWrapper> mPendingRecordings = new LongSparseArray<>();
+    // The recordings which start soon but couldn't get a tuner at the last update.
+    private final List<ScheduledRecording> mRecordingsWaitingForTuner = new ArrayList<>();
     private final Looper mLooper;
     private final DvrSessionManager mSessionManager;
     private final WritableDvrDataManager mDataManager;
@@ -96,15 +114,98 @@ public class Scheduler implements DvrDataManager.ScheduledRecordingListener {
     }
 
     private void updatePendingRecordings() {
+        mRecordingsWaitingForTuner.clear();
+        long now = mClock.currentTimeMillis();
+        long soonEndTime = now + SOON_DURATION_IN_MS;
         List<ScheduledRecording> scheduledRecordings = mDataManager.getRecordingsThatOverlapWith(
-                new Range(mClock.currentTimeMillis(),
-                        mClock.currentTimeMillis() + SOON_DURATION_IN_MS));
-        // TODO(DVR): handle removing and updating exiting recordings.
+                new Range<>(now, soonEndTime));
+        // Plans the tuners for the whole schedule while the soon recordings run, so that a soon
+        // recording doesn't take the tuner of a later one with a higher priority. The tasks are
+        // still created only for the soon recordings.
+        long planEndTime = soonEndTime;
+        for (ScheduledRecording r : scheduledRecordings) {
+            planEndTime = Math.max(planEndTime, r.getEndTimeMs() + RecordingTask.MS_AFTER_END);
+        }
+        if (planEndTime > soonEndTime) {
+            scheduledRecordings = mDataManager.getRecordingsThatOverlapWith(
+                    new Range<>(now, planEndTime + MS_TO_TUNE_BEFORE_START));
+        }
+        // Gives the tuners of each input to the recordings in the order of the priority.
+        Map<String, List<ScheduledRecording>> inputRecordingsMap = new ArrayMap<>();
         for (ScheduledRecording r : scheduledRecordings) {
-            scheduleRecordingSoon(r);
+            if (r.getState() != ScheduledRecording.STATE_RECORDING_NOT_STARTED
+                    || mPendingRecordings.get(r.getId()) != null) {
+                continue;
+            }
+            Channel channel = mChannelDataManager.getChannel(r.getChannelId());
+            if (channel == null) {
+                if (r.getStartTimeMs() <= soonEndTime) {
+                    // RecordingTask will mark it as failed.
+                    scheduleRecordingSoon(r, null);
+                }
+                continue;
+            }
+            List<ScheduledRecording> recordings = inputRecordingsMap.get(channel.getInputId());
+            if (recordings == null) {
+                recordings = new ArrayList<>();
+                inputRecordingsMap.put(channel.getInputId(), recordings);
+            }
+            recordings.add(r);
+        }
+        for (Map.Entry<String, List<ScheduledRecording>> entry : inputRecordingsMap.entrySet()) {
+            scheduleRecordingsSoon(entry.getKey(), entry.getValue(), soonEndTime);
         }
     }
 
+    /**
+     * Gives the tuners of the input to {@code recordings} in the order of the priority, and
+     * starts the tasks of the accepted ones which start until {@code soonEndTime}.
+     */
+    private void scheduleRecordingsSoon(String inputId, List<ScheduledRecording> recordings,
+            long soonEndTime) {
+        TvInputInfo info = mSessionManager.getTvInputInfo(inputId);
+        List<ScheduledRecording> acceptedRecordings = getPendingRecordings(inputId);
+        Collections.sort(recordings, ScheduledRecording.PRIORITY_COMPARATOR);
+        for (ScheduledRecording r : recordings) {
+            boolean startsSoon = r.getStartTimeMs() <= soonEndTime;
+            // A task takes the tuner from the tune before the start time until it's released
+            // after the end time, so the back-to-back recordings can't share a tuner.
+            // If the input is not available, RecordingTask will mark it as failed.
+            if (info != null && !ScheduledRecordingIndex.getConflictingRecordings(
+                    acceptedRecordings, r.getStartTimeMs(), r.getEndTimeMs(),
+                    info.getTunerCount(), MS_TO_TUNE_BEFORE_START,
+                    RecordingTask.MS_AFTER_END).isEmpty()) {
+                if (startsSoon) {
+                    // It will be scheduled again when a tuner becomes available.
+                    Log.w(TAG, "Not enough tuners to record " + r);
+                    mRecordingsWaitingForTuner.add(r);
+                }
+                continue;
+            }
+            acceptedRecordings.add(r);
+            if (startsSoon) {
+                scheduleRecordingSoon(r, mChannelDataManager.getChannel(r.getChannelId()));
+            }
+        }
+    }
+
+    private List<ScheduledRecording> getPendingRecordings(String inputId) {
+        List<ScheduledRecording> result = new ArrayList<>();
+        for (int i = 0; i < mPendingRecordings.size(); ++i) {
+            ScheduledRecording r = mDataManager.getScheduledRecording(mPendingRecordings.keyAt(i));
+            if (r == null || (r.getState() != ScheduledRecording.STATE_RECORDING_NOT_STARTED
+                    && r.getState() != ScheduledRecording.STATE_RECORDING_IN_PROGRESS)) {
+                // The task will be removed soon.
+                continue;
+            }
+            Channel channel = mChannelDataManager.getChannel(r.getChannelId());
+            if (channel != null && inputId.equals(channel.getInputId())) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
     /**
      * Start recording that will happen soon, and set the next alarm time.
      */
@@ -115,48 +216,79 @@ public class Scheduler implements DvrDataManager.ScheduledRecordingListener {
     }
 
     @Override
-    public void onScheduledRecordingAdded(ScheduledRecording scheduledRecording) {
-        if (DEBUG) Log.d(TAG, "added " + scheduledRecording);
-        if (startsWithin(scheduledRecording, SOON_DURATION_IN_MS)) {
-            scheduleRecordingSoon(scheduledRecording);
-        } else {
-            updateNextAlarm();
+    public void onScheduledRecordingAdded(ScheduledRecording... scheduledRecordings) {
+        if (DEBUG) Log.d(TAG, "added " + Arrays.toString(scheduledRecordings));
+        update();
+    }
+
+    @Override
+    public void onScheduledRecordingRemoved(ScheduledRecording... scheduledRecordings) {
+        if (DEBUG) Log.d(TAG, "removed " + Arrays.toString(scheduledRecordings));
+        for (ScheduledRecording r : scheduledRecordings) {
+            cancelPendingRecording(r.getId());
         }
+        // The tuner might be available for other recordings now.
+        update();
     }
 
     @Override
-    public void onScheduledRecordingRemoved(ScheduledRecording scheduledRecording) {
-        long id = scheduledRecording.getId();
+    public void onScheduledRecordingStatusChanged(ScheduledRecording... scheduledRecordings) {
+        if (DEBUG) Log.d(TAG, "status changed " + Arrays.toString(scheduledRecordings));
+        for (ScheduledRecording r : scheduledRecordings) {
+            HandlerWrapper wrapper = mPendingRecordings.get(r.getId());
+            if (wrapper != null && r.getState() == ScheduledRecording.STATE_RECORDING_NOT_STARTED
+                    && !isSameSchedule(wrapper.mScheduledRecording, r)) {
+                cancelPendingRecording(r.getId());
+            }
+        }
+        // Re-plans for the finished, failed or rescheduled recordings.
+        update();
+    }
+
+    private static boolean isSameSchedule(ScheduledRecording lhs, ScheduledRecording rhs) {
+        return lhs.getChannelId() == rhs.getChannelId()
+                && lhs.getStartTimeMs() == rhs.getStartTimeMs()
+                && lhs.getEndTimeMs() == rhs.getEndTimeMs();
+    }
+
+    private void cancelPendingRecording(long id) {
         HandlerWrapper wrapper = mPendingRecordings.get(id);
         if (wrapper != null) {
-            wrapper.removeCallbacksAndMessages(null);
             mPendingRecordings.remove(id);
-        } else {
-            updateNextAlarm();
+            wrapper.removeCallbacksAndMessages(null);
+            // Releases the session of the task.
+            wrapper.sendEmptyMessage(HandlerWrapper.MESSAGE_REMOVE);
         }
     }
 
-    @Override
-    public void onScheduledRecordingStatusChanged(ScheduledRecording scheduledRecording) {
-        //TODO(DVR): implement
-    }
-
-    private void scheduleRecordingSoon(ScheduledRecording scheduledRecording) {
-        Channel channel = mChannelDataManager.getChannel(scheduledRecording.getChannelId());
+    private void scheduleRecordingSoon(ScheduledRecording scheduledRecording, Channel channel) {
         RecordingTask recordingTask = new RecordingTask(scheduledRecording, channel, mDvrManager,
                 mSessionManager, mDataManager, mClock);
         HandlerWrapper handlerWrapper = new HandlerWrapper(mLooper, scheduledRecording,
                 recordingTask);
         recordingTask.setHandler(handlerWrapper);
         mPendingRecordings.put(scheduledRecording.getId(), handlerWrapper);
-        handlerWrapper.sendEmptyMessage(RecordingTask.MESSAGE_INIT);
+        long delay = Math.max(0L, scheduledRecording.getStartTimeMs() - MS_TO_TUNE_BEFORE_START
+                - mClock.currentTimeMillis());
+        handlerWrapper.sendEmptyMessageDelayed(RecordingTask.MESSAGE_INIT, delay);
     }
 
     private void updateNextAlarm() {
+        long wakeAt = Long.MAX_VALUE;
         long lastStartTimePending = getLastStartTimePending();
         long nextStartTime = mDataManager.getNextScheduledStartTimeAfter(lastStartTimePending);
         if (nextStartTime != DvrDataManager.NEXT_START_TIME_NOT_FOUND) {
-            long wakeAt = nextStartTime - MS_TO_WAKE_BEFORE_START;
+            wakeAt = nextStartTime - MS_TO_WAKE_BEFORE_START;
+        }
+        // The recordings waiting for a tuner are skipped by the next start time above, so plan
+        // them again at their start time unless a change frees a tuner before.
+        long now = mClock.currentTimeMillis();
+        for (ScheduledRecording r : mRecordingsWaitingForTuner) {
+            if (r.getStartTimeMs() > now) {
+                wakeAt = Math.min(wakeAt, r.getStartTimeMs());
+            }
+        }
+        if (wakeAt != Long.MAX_VALUE) {
             if (DEBUG) Log.d(TAG, "Set alarm to record at " + wakeAt);
             Intent intent = new Intent(mContext, DvrStartRecordingReceiver.class);
             PendingIntent alarmIntent = PendingIntent.getBroadcast(mContext, 0, intent, 0);
@@ -167,9 +299,19 @@ public class Scheduler implements DvrDataManager.ScheduledRecordingListener {
         }
     }
 
-    private long getLastStartTimePending() {
-        // TODO(DVR): implement
-        return mClock.currentTimeMillis();
+    /**
+     * Returns the latest start time of the pending recordings, so that the alarm doesn't wake up
+     * for them again. All the recordings which start within {@link #SOON_DURATION_IN_MS} after
+     * the alarm are handled together.
+     */
+    @VisibleForTesting
+    long getLastStartTimePending() {
+        long lastStartTime = mClock.currentTimeMillis();
+        for (int i = 0; i < mPendingRecordings.size(); ++i) {
+            lastStartTime = Math.max(lastStartTime,
+                    mPendingRecordings.valueAt(i).mScheduledRecording.getStartTimeMs());
+        }
+        return lastStartTime;
     }
 
     @VisibleForTesting
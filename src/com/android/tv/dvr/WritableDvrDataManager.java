@@ -27,9 +27,9 @@ import android.support.annotation.MainThread;
 @MainThread
 interface WritableDvrDataManager extends DvrDataManager {
     /**
-     * Add a new recording.
+     * Add new recordings. The recordings are written in one transaction.
      */
-    void addScheduledRecording(ScheduledRecording scheduledRecording);
+    void addScheduledRecording(ScheduledRecording... scheduledRecordings);
 
     /**
      * Add a season recording/
@@ -37,9 +37,9 @@ interface WritableDvrDataManager extends DvrDataManager {
     void addSeasonRecording(SeasonRecording seasonRecording);
 
     /**
-     * Remove a recording.
+     * Remove recordings. The recordings are removed in one transaction.
      */
-    void removeScheduledRecording(ScheduledRecording ScheduledRecording);
+    void removeScheduledRecording(ScheduledRecording... scheduledRecordings);
 
     /**
      * Remove a season schedule.
@@ -47,7 +47,7 @@ interface WritableDvrDataManager extends DvrDataManager {
     void removeSeasonSchedule(SeasonRecording seasonSchedule);
 
     /**
-     * Update an existing recording.
+     * Update existing recordings. The recordings are written in one transaction.
      */
-    void updateScheduledRecording(ScheduledRecording r);
+    void updateScheduledRecording(ScheduledRecording... scheduledRecordings);
 }
@@ -22,6 +22,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import com.android.tv.dvr.ScheduledRecording;
@@ -54,6 +55,8 @@ public class DvrDatabaseHelper extends SQLiteOpenHelper {
     private static final String SQL_DROP_RECORDINGS = "DROP TABLE IF EXISTS "
             + Recordings.TABLE_NAME;
     public static final String WHERE_RECORDING_ID_EQUALS = Recordings._ID + " = ?";
+    private static final String SQL_DELETE_RECORDING = "DELETE FROM " + Recordings.TABLE_NAME
+            + " WHERE " + WHERE_RECORDING_ID_EQUALS;
 
     public DvrDatabaseHelper(Context context) {
         super(context.getApplicationContext(), DB_NAME, null, DATABASE_VERSION);
@@ -88,25 +91,31 @@ public class DvrDatabaseHelper extends SQLiteOpenHelper {
     }
 
     /**
-     * Inserts recordings.
+     * Inserts recordings in one transaction.
      *
      * @return The list of recordings with id set.  The id will be -1 if there was an error.
      */
     public List<ScheduledRecording> insertRecordings(ScheduledRecording... scheduledRecordings) {
         updateChannelsFromRecordings(scheduledRecordings);
 
-        SQLiteDatabase db = getReadableDatabase();
+        SQLiteDatabase db = getWritableDatabase();
         List<ScheduledRecording> results = new ArrayList<>();
-        for (ScheduledRecording r : scheduledRecordings) {
-            ContentValues values = ScheduledRecording.toContentValues(r);
-            long id = db.insert(Recordings.TABLE_NAME, null, values);
-            results.add(ScheduledRecording.buildFrom(r).setId(id).build());
+        db.beginTransaction();
+        try {
+            for (ScheduledRecording r : scheduledRecordings) {
+                ContentValues values = ScheduledRecording.toContentValues(r);
+                long id = db.insert(Recordings.TABLE_NAME, null, values);
+                results.add(ScheduledRecording.buildFrom(r).setId(id).build());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
         return results;
     }
 
     /**
-     * Update recordings.
+     * Update recordings in one transaction.
      *
      * @return The list of row update counts.  The count will be -1 if there was an error or 0
      * if no match was found.  The count is expected to be exactly 1 for each recording.
@@ -115,11 +124,17 @@ public class DvrDatabaseHelper extends SQLiteOpenHelper {
         updateChannelsFromRecordings(scheduledRecordings);
         SQLiteDatabase db = getWritableDatabase();
         List<Integer> results = new ArrayList<>();
-        for (ScheduledRecording r : scheduledRecordings) {
-            ContentValues values = ScheduledRecording.toContentValues(r);
-            int updated = db.update(Recordings.TABLE_NAME, values, Recordings._ID + " = ?",
-                    new String[] {String.valueOf(r.getId())});
-            results.add(updated);
+        db.beginTransaction();
+        try {
+            for (ScheduledRecording r : scheduledRecordings) {
+                ContentValues values = ScheduledRecording.toContentValues(r);
+                int updated = db.update(Recordings.TABLE_NAME, values, WHERE_RECORDING_ID_EQUALS,
+                        new String[] {String.valueOf(r.getId())});
+                results.add(updated);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
         return results;
     }
@@ -130,7 +145,7 @@ public class DvrDatabaseHelper extends SQLiteOpenHelper {
     }
 
     /**
-     * Delete recordings.
+     * Delete recordings in one transaction.
      *
      * @return The list of row update counts.  The count will be -1 if there was an error or 0
      * if no match was found.  The count is expected to be exactly 1 for each recording.
@@ -138,10 +153,15 @@ public class DvrDatabaseHelper extends SQLiteOpenHelper {
     public List<Integer> deleteRecordings(ScheduledRecording[] scheduledRecordings) {
         SQLiteDatabase db = getWritableDatabase();
         List<Integer> results = new ArrayList<>();
-        for (ScheduledRecording r : scheduledRecordings) {
-            int deleted = db.delete(Recordings.TABLE_NAME, WHERE_RECORDING_ID_EQUALS,
-                    new String[] {String.valueOf(r.getId())});
-            results.add(deleted);
+        db.beginTransaction();
+        try (SQLiteStatement statement = db.compileStatement(SQL_DELETE_RECORDING)) {
+            for (ScheduledRecording r : scheduledRecordings) {
+                statement.bindLong(1, r.getId());
+                results.add(statement.executeUpdateDelete());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
         return results;
     }
@@ -29,8 +29,8 @@ import android.util.Log;
 
 import com.android.tv.R;
 import com.android.tv.TvApplication;
-import com.android.tv.common.recording.RecordedProgram;
 import com.android.tv.dvr.DvrDataManager;
+import com.android.tv.dvr.RecordedProgramSummary;
 import com.android.tv.dvr.ScheduledRecording;
 
 import java.lang.annotation.Retention;
@@ -115,7 +115,7 @@ public class DvrBrowseFragment extends BrowseFragment {
         RecordedProgramPresenter recordedProgramPresenter = new RecordedProgramPresenter(
                 getContext());
         presenterSelector.addClassPresenter(ScheduledRecording.class, scheduledRecordingPresenter);
-        presenterSelector.addClassPresenter(RecordedProgram.class, recordedProgramPresenter);
+        presenterSelector.addClassPresenter(RecordedProgramSummary.class, recordedProgramPresenter);
         presenterSelector.addClassPresenter(EmptyHolder.class, emptyItemPresenter);
         mRecordingsInProgressAdapter = new ScheduledRecordingsAdapter(mDvrDataManager,
                 ScheduledRecording.STATE_RECORDING_IN_PROGRESS, presenterSelector);
@@ -36,18 +36,23 @@ import com.android.tv.TvApplication;
 import com.android.tv.common.recording.RecordedProgram;
 import com.android.tv.data.Channel;
 import com.android.tv.data.ChannelDataManager;
+import com.android.tv.dvr.DvrDataManager;
+import com.android.tv.dvr.DvrDataManager.OnRecordedProgramLoadedCallback;
 import com.android.tv.dvr.DvrManager;
+import com.android.tv.dvr.RecordedProgramSummary;
 import com.android.tv.ui.DialogUtils;
 import com.android.tv.util.Utils;
 
 /**
- * Presents a {@link RecordedProgram} in the {@link DvrBrowseFragment}.
+ * Presents a {@link RecordedProgramSummary} in the {@link DvrBrowseFragment}.
  */
 public class RecordedProgramPresenter extends Presenter {
     private final ChannelDataManager mChannelDataManager;
+    private final DvrDataManager mDvrDataManager;
 
     public RecordedProgramPresenter(Context context) {
         mChannelDataManager = TvApplication.getSingletons(context).getChannelDataManager();
+        mDvrDataManager = TvApplication.getSingletons(context).getDvrDataManager();
     }
 
     @Override
@@ -59,7 +64,7 @@ public class RecordedProgramPresenter extends Presenter {
 
     @Override
     public void onBindViewHolder(ViewHolder viewHolder, Object o) {
-        final RecordedProgram recording = (RecordedProgram) o;
+        final RecordedProgramSummary recording = (RecordedProgramSummary) o;
         final RecordingCardView cardView = (RecordingCardView) viewHolder.view;
         final Context context = viewHolder.view.getContext();
         final Resources resources = context.getResources();
@@ -71,10 +76,10 @@ public class RecordedProgramPresenter extends Presenter {
         } else {
             cardView.setTitle(resources.getString(R.string.dvr_msg_program_title_unknown));
         }
-        if (recording.getPosterArt() != null) {
-            cardView.setImageUri(recording.getPosterArt());
-        } else if (recording.getThumbnail() != null) {
-            cardView.setImageUri(recording.getThumbnail());
+        if (recording.getPosterArtUri() != null) {
+            cardView.setImageUri(recording.getPosterArtUri());
+        } else if (recording.getThumbnailUri() != null) {
+            cardView.setImageUri(recording.getThumbnailUri());
         } else {
             if (channel != null) {
                 cardView.setImageUri(TvContract.buildChannelLogoUri(channel.getId()).toString());
@@ -92,19 +97,43 @@ public class RecordedProgramPresenter extends Presenter {
                                 new Runnable() {
                                     @Override
                                     public void run() {
-                                        Intent intent = new Intent(context, MainActivity.class);
-                                        intent.putExtra(Utils.EXTRA_KEY_RECORDING_URI,
-                                                recording.getUri());
-                                        context.startActivity(intent);
-                                        ((Activity) context).finish();
+                                        // Loads the full program first so that the playback
+                                        // can find it in the cache.
+                                        mDvrDataManager.loadRecordedProgram(recording.getId(),
+                                                new OnRecordedProgramLoadedCallback() {
+                                            @Override
+                                            public void onRecordedProgramLoaded(
+                                                    RecordedProgram recordedProgram) {
+                                                if (recordedProgram == null) {
+                                                    // The recording is removed meanwhile.
+                                                    return;
+                                                }
+                                                Intent intent = new Intent(context,
+                                                        MainActivity.class);
+                                                intent.putExtra(Utils.EXTRA_KEY_RECORDING_URI,
+                                                        recording.getUri());
+                                                context.startActivity(intent);
+                                                ((Activity) context).finish();
+                                            }
+                                        });
                                     }
                                 },
                                 new Runnable() {
                                     @Override
                                     public void run() {
-                                        DvrManager dvrManager = TvApplication
-                                                .getSingletons(context).getDvrManager();
-                                        dvrManager.removeRecordedProgram(recording);
+                                        mDvrDataManager.loadRecordedProgram(recording.getId(),
+                                                new OnRecordedProgramLoadedCallback() {
+                                            @Override
+                                            public void onRecordedProgramLoaded(
+                                                    RecordedProgram recordedProgram) {
+                                                if (recordedProgram == null) {
+                                                    return;
+                                                }
+                                                DvrManager dvrManager = TvApplication
+                                                        .getSingletons(context).getDvrManager();
+                                                dvrManager.removeRecordedProgram(recordedProgram);
+                                            }
+                                        });
                                     }
                                 },
                         });
@@ -18,24 +18,24 @@ package com.android.tv.dvr.ui;
 
 import android.support.v17.leanback.widget.PresenterSelector;
 
-import com.android.tv.common.recording.RecordedProgram;
 import com.android.tv.dvr.DvrDataManager;
+import com.android.tv.dvr.RecordedProgramSummary;
 
 /**
- * Adapter for {@link RecordedProgram}.
+ * Adapter for {@link RecordedProgramSummary}.
  */
-final class RecordedProgramsAdapter extends SortedArrayAdapter<RecordedProgram>
+final class RecordedProgramsAdapter extends SortedArrayAdapter<RecordedProgramSummary>
         implements DvrDataManager.RecordedProgramListener {
     private final DvrDataManager mDataManager;
 
     RecordedProgramsAdapter(DvrDataManager dataManager, PresenterSelector presenterSelector) {
-        super(presenterSelector, RecordedProgram.START_TIME_THEN_ID_COMPARATOR);
+        super(presenterSelector, RecordedProgramSummary.START_TIME_THEN_ID_COMPARATOR);
         mDataManager = dataManager;
     }
 
     public void start() {
         clear();
-        addAll(mDataManager.getRecordedPrograms());
+        addAll(mDataManager.getRecordedProgramSummaries());
         mDataManager.addRecordedProgramListener(this);
     }
 
@@ -44,22 +44,22 @@ final class RecordedProgramsAdapter extends SortedArrayAdapter<RecordedProgram>
     }
 
     @Override
-    long getId(RecordedProgram item) {
+    long getId(RecordedProgramSummary item) {
         return item.getId();
     }
 
     @Override  // DvrDataManager.RecordedProgramListener
-    public void onRecordedProgramAdded(RecordedProgram recordedProgram) {
+    public void onRecordedProgramAdded(RecordedProgramSummary recordedProgram) {
         add(recordedProgram);
     }
 
     @Override  // DvrDataManager.RecordedProgramListener
-    public void onRecordedProgramChanged(RecordedProgram recordedProgram) {
+    public void onRecordedProgramChanged(RecordedProgramSummary recordedProgram) {
         change(recordedProgram);
     }
 
     @Override  // DvrDataManager.RecordedProgramListener
-    public void onRecordedProgramRemoved(RecordedProgram recordedProgram) {
+    public void onRecordedProgramRemoved(RecordedProgramSummary recordedProgram) {
         remove(recordedProgram);
     }
 }
@@ -63,23 +63,29 @@ final class ScheduledRecordingsAdapter extends SortedArrayAdapter<ScheduledRecor
     }
 
     @Override  //DvrDataManager.ScheduledRecordingListener
-    public void onScheduledRecordingAdded(ScheduledRecording scheduledRecording) {
-        if (scheduledRecording.getState() == mState) {
-            add(scheduledRecording);
+    public void onScheduledRecordingAdded(ScheduledRecording... scheduledRecordings) {
+        for (ScheduledRecording scheduledRecording : scheduledRecordings) {
+            if (scheduledRecording.getState() == mState) {
+                add(scheduledRecording);
+            }
         }
     }
 
     @Override  //DvrDataManager.ScheduledRecordingListener
-    public void onScheduledRecordingRemoved(ScheduledRecording scheduledRecording) {
-        remove(scheduledRecording);
+    public void onScheduledRecordingRemoved(ScheduledRecording... scheduledRecordings) {
+        for (ScheduledRecording scheduledRecording : scheduledRecordings) {
+            remove(scheduledRecording);
+        }
     }
 
     @Override  //DvrDataManager.ScheduledRecordingListener
-    public void onScheduledRecordingStatusChanged(ScheduledRecording scheduledRecording) {
-        if (scheduledRecording.getState() == mState) {
-            change(scheduledRecording);
-        } else {
-            remove(scheduledRecording);
+    public void onScheduledRecordingStatusChanged(ScheduledRecording... scheduledRecordings) {
+        for (ScheduledRecording scheduledRecording : scheduledRecordings) {
+            if (scheduledRecording.getState() == mState) {
+                change(scheduledRecording);
+            } else {
+                remove(scheduledRecording);
+            }
         }
     }
 }
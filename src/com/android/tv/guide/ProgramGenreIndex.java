@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.guide;
+
+import android.support.annotation.MainThread;
+
+import com.android.tv.data.GenreItems;
+import com.android.tv.data.Program;
+import com.android.tv.guide.ProgramManager.TableEntry;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An index from genres to the channels which have a program of the genre in a given time range.
+ *
+ * <p>The managed time range is split into buckets of {@link #BUCKET_MILLIS}. For each bucket and
+ * genre, a {@link BitSet} over channel indices is kept. The index is updated per channel, so only
+ * the bits of buckets whose genres actually changed are touched.
+ */
+@MainThread
+class ProgramGenreIndex {
+    static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    // The program guide shows up to 2 days of programs. See ProgramDataManager.
+    private static final int MAX_BUCKET_COUNT =
+            (int) (TimeUnit.DAYS.toMillis(2) / BUCKET_MILLIS) + 1;
+    private static final int[] EMPTY_MASKS = new int[0];
+
+    private final int mGenreCount;
+    private long mStartUtcMillis;
+    // mBuckets.get(bucket)[genreId] is the set of channel indices which have a program of the
+    // genre in the bucket.
+    private final List<BitSet[]> mBuckets = new ArrayList<>();
+    // mChannelMasks.get(channelIndex)[bucket] is the bit mask of the genre ids of the channel in
+    // the bucket.
+    private final List<int[]> mChannelMasks = new ArrayList<>();
+
+    ProgramGenreIndex() {
+        this(GenreItems.getGenreCount());
+    }
+
+    ProgramGenreIndex(int genreCount) {
+        if (genreCount > Integer.SIZE) {
+            throw new IllegalArgumentException("Too many genres: " + genreCount);
+        }
+        mGenreCount = genreCount;
+    }
+
+    /**
+     * Clears the index and sets the start time of the first bucket.
+     */
+    void reset(long startUtcMillis) {
+        mStartUtcMillis = startUtcMillis;
+        mBuckets.clear();
+        mChannelMasks.clear();
+    }
+
+    /**
+     * Updates the genres of the channel at {@code channelIndex} with the given table entries.
+     */
+    void update(int channelIndex, List<TableEntry> entries) {
+        while (mChannelMasks.size() <= channelIndex) {
+            mChannelMasks.add(EMPTY_MASKS);
+        }
+        int[] oldMasks = mChannelMasks.get(channelIndex);
+        int[] newMasks = buildMasks(entries);
+        int bucketCount = Math.max(oldMasks.length, newMasks.length);
+        for (int bucket = 0; bucket < bucketCount; ++bucket) {
+            int oldMask = bucket < oldMasks.length ? oldMasks[bucket] : 0;
+            int newMask = bucket < newMasks.length ? newMasks[bucket] : 0;
+            int changed = oldMask ^ newMask;
+            if (changed == 0) {
+                continue;
+            }
+            BitSet[] genreChannels = getBucket(bucket);
+            for (int genreId = 1; genreId < mGenreCount; ++genreId) {
+                if ((changed & (1 << genreId)) != 0) {
+                    genreChannels[genreId].set(channelIndex, (newMask & (1 << genreId)) != 0);
+                }
+            }
+        }
+        mChannelMasks.set(channelIndex, newMasks);
+    }
+
+    /**
+     * Returns the indices of the channels which have a program of the given genre between
+     * {@code fromUtcMillis} and {@code toUtcMillis}.
+     */
+    BitSet getChannelIndices(int genreId, long fromUtcMillis, long toUtcMillis) {
+        BitSet result = new BitSet();
+        if (genreId <= GenreItems.ID_ALL_CHANNELS || genreId >= mGenreCount) {
+            return result;
+        }
+        int toBucket = Math.min(getBucketIndex(toUtcMillis - 1), mBuckets.size() - 1);
+        for (int bucket = Math.max(getBucketIndex(fromUtcMillis), 0); bucket <= toBucket;
+                ++bucket) {
+            result.or(mBuckets.get(bucket)[genreId]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if any channel has a program of the given genre between
+     * {@code fromUtcMillis} and {@code toUtcMillis}.
+     */
+    boolean hasChannels(int genreId, long fromUtcMillis, long toUtcMillis) {
+        if (genreId <= GenreItems.ID_ALL_CHANNELS || genreId >= mGenreCount) {
+            return false;
+        }
+        int toBucket = Math.min(getBucketIndex(toUtcMillis - 1), mBuckets.size() - 1);
+        for (int bucket = Math.max(getBucketIndex(fromUtcMillis), 0); bucket <= toBucket;
+                ++bucket) {
+            if (!mBuckets.get(bucket)[genreId].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] buildMasks(List<TableEntry> entries) {
+        int[] masks = EMPTY_MASKS;
+        for (TableEntry entry : entries) {
+            if (entry.isGap() || entry.isBlocked()) {
+                continue;
+            }
+            int[] genreIds = entry.program.getCanonicalGenreIds();
+            if (genreIds == null || genreIds.length == 0) {
+                continue;
+            }
+            int mask = 0;
+            for (int genreId : genreIds) {
+                mask |= 1 << genreId;
+            }
+            int fromBucket = Math.max(getBucketIndex(entry.entryStartUtcMillis), 0);
+            int toBucket = Math.min(getBucketIndex(entry.entryEndUtcMillis - 1),
+                    MAX_BUCKET_COUNT - 1);
+            if (toBucket < fromBucket) {
+                continue;
+            }
+            if (masks.length <= toBucket) {
+                int[] newMasks = new int[toBucket + 1];
+                System.arraycopy(masks, 0, newMasks, 0, masks.length);
+                masks = newMasks;
+            }
+            for (int bucket = fromBucket; bucket <= toBucket; ++bucket) {
+                masks[bucket] |= mask;
+            }
+        }
+        return masks;
+    }
+
+    private BitSet[] getBucket(int bucket) {
+        while (mBuckets.size() <= bucket) {
+            BitSet[] genreChannels = new BitSet[mGenreCount];
+            for (int i = 0; i < mGenreCount; ++i) {
+                genreChannels[i] = new BitSet();
+            }
+            mBuckets.add(genreChannels);
+        }
+        return mBuckets.get(bucket);
+    }
+
+    private int getBucketIndex(long utcMillis) {
+        long offset = utcMillis - mStartUtcMillis;
+        if (offset < 0) {
+            return -1;
+        }
+        return (int) Math.min(offset / BUCKET_MILLIS, Integer.MAX_VALUE);
+    }
+}
@@ -18,6 +18,7 @@ package com.android.tv.guide;
 
 import android.support.annotation.MainThread;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.util.ArraySet;
 import android.util.Log;
 
@@ -32,6 +33,8 @@ import com.android.tv.util.TvInputManagerHelper;
 import com.android.tv.util.Utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -64,6 +67,7 @@ public class ProgramManager {
     private long mEndUtcMillis;
     private long mFromUtcMillis;
     private long mToUtcMillis;
+    private long mViewPortMillis;
     private Program mSelectedProgram;
 
     /**
@@ -97,7 +101,8 @@ public class ProgramManager {
             this(channelId, null, null, startUtcMillis, endUtcMillis, blocked);
         }
 
-        private TableEntry(long channelId, Program program, long entryStartUtcMillis,
+        @VisibleForTesting
+        TableEntry(long channelId, Program program, long entryStartUtcMillis,
                 long entryEndUtcMillis, boolean isBlocked) {
             this(channelId, program, null, entryStartUtcMillis, entryEndUtcMillis, isBlocked);
         }
@@ -169,7 +174,9 @@ public class ProgramManager {
 
     private List<Channel> mChannels = new ArrayList<>();
     private final Map<Long, List<TableEntry>> mChannelIdEntriesMap = new HashMap<>();
-    private final List<List<Channel>> mGenreChannelList = new ArrayList<>();
+    private final ProgramGenreIndex mGenreIndex = new ProgramGenreIndex();
+    // False if mGenreIndex is reset and should be updated for all the channels.
+    private boolean mGenreIndexUpToDate;
     private final List<Integer> mFilteredGenreIds = new ArrayList<>();
 
     // Position of selected genre to filter channel list.
@@ -212,35 +219,41 @@ public class ProgramManager {
     private final DvrDataManager.ScheduledRecordingListener mScheduledRecordingListener =
             new DvrDataManager.ScheduledRecordingListener() {
         @Override
-        public void onScheduledRecordingAdded(ScheduledRecording scheduledRecording) {
-            TableEntry oldEntry = getTableEntry(scheduledRecording);
-            if (oldEntry != null) {
-                TableEntry newEntry = new TableEntry(oldEntry.channelId, oldEntry.program,
-                        scheduledRecording, oldEntry.entryStartUtcMillis,
-                        oldEntry.entryEndUtcMillis, oldEntry.isBlocked());
-                updateEntry(oldEntry, newEntry);
+        public void onScheduledRecordingAdded(ScheduledRecording... scheduledRecordings) {
+            for (ScheduledRecording scheduledRecording : scheduledRecordings) {
+                TableEntry oldEntry = getTableEntry(scheduledRecording);
+                if (oldEntry != null) {
+                    TableEntry newEntry = new TableEntry(oldEntry.channelId, oldEntry.program,
+                            scheduledRecording, oldEntry.entryStartUtcMillis,
+                            oldEntry.entryEndUtcMillis, oldEntry.isBlocked());
+                    updateEntry(oldEntry, newEntry);
+                }
             }
         }
 
         @Override
-        public void onScheduledRecordingRemoved(ScheduledRecording scheduledRecording) {
-            TableEntry oldEntry = getTableEntry(scheduledRecording);
-            if (oldEntry != null) {
-                TableEntry newEntry = new TableEntry(oldEntry.channelId, oldEntry.program, null,
-                        oldEntry.entryStartUtcMillis, oldEntry.entryEndUtcMillis,
-                        oldEntry.isBlocked());
-                updateEntry(oldEntry, newEntry);
+        public void onScheduledRecordingRemoved(ScheduledRecording... scheduledRecordings) {
+            for (ScheduledRecording scheduledRecording : scheduledRecordings) {
+                TableEntry oldEntry = getTableEntry(scheduledRecording);
+                if (oldEntry != null) {
+                    TableEntry newEntry = new TableEntry(oldEntry.channelId, oldEntry.program,
+                            null, oldEntry.entryStartUtcMillis, oldEntry.entryEndUtcMillis,
+                            oldEntry.isBlocked());
+                    updateEntry(oldEntry, newEntry);
+                }
             }
         }
 
         @Override
-        public void onScheduledRecordingStatusChanged(ScheduledRecording scheduledRecording) {
-            TableEntry oldEntry = getTableEntry(scheduledRecording);
-            if (oldEntry != null) {
-                TableEntry newEntry = new TableEntry(oldEntry.channelId, oldEntry.program,
-                        scheduledRecording, oldEntry.entryStartUtcMillis,
-                        oldEntry.entryEndUtcMillis, oldEntry.isBlocked());
-                updateEntry(oldEntry, newEntry);
+        public void onScheduledRecordingStatusChanged(ScheduledRecording... scheduledRecordings) {
+            for (ScheduledRecording scheduledRecording : scheduledRecordings) {
+                TableEntry oldEntry = getTableEntry(scheduledRecording);
+                if (oldEntry != null) {
+                    TableEntry newEntry = new TableEntry(oldEntry.channelId, oldEntry.program,
+                            scheduledRecording, oldEntry.entryStartUtcMillis,
+                            oldEntry.entryEndUtcMillis, oldEntry.isBlocked());
+                    updateEntry(oldEntry, newEntry);
+                }
             }
         }
     };
@@ -314,33 +327,21 @@ public class ProgramManager {
     }
 
     /**
-     * Build genre filters based on the current programs.
-     * This categories channels by its current program's canonical genres
+     * Build genre filters based on the programs in the initial visible area.
+     * This categories channels by the canonical genres of their programs in the area
      * and subsequent @{link resetChannelListWithGenre(int)} calls will reset channel list
-     * with built channel list.
+     * with the channels of the genre.
      * This is expected to be called whenever program guide is shown.
      */
     public void buildGenreFilters() {
         if (DEBUG) Log.d(TAG, "buildGenreFilters");
 
-        mGenreChannelList.clear();
-        for (int i = 0; i < GenreItems.getGenreCount(); i++) {
-            mGenreChannelList.add(new ArrayList<Channel>());
-        }
-        for (Channel channel : mChannels) {
-            // TODO: Use programs in visible area instead of using current programs only.
-            Program currentProgram = mProgramDataManager.getCurrentProgram(channel.getId());
-            if (currentProgram != null && currentProgram.getCanonicalGenres() != null) {
-                for (String genre : currentProgram.getCanonicalGenres()) {
-                    mGenreChannelList.get(GenreItems.getId(genre)).add(channel);
-                }
-            }
-        }
-        mGenreChannelList.set(GenreItems.ID_ALL_CHANNELS, mChannels);
+        long fromUtcMillis = mStartUtcMillis;
+        long toUtcMillis = mStartUtcMillis + mViewPortMillis;
         mFilteredGenreIds.clear();
         mFilteredGenreIds.add(0);
         for (int i = 1; i < GenreItems.getGenreCount(); i++) {
-            if (mGenreChannelList.get(i).size() > 0) {
+            if (mGenreIndex.hasChannels(i, fromUtcMillis, toUtcMillis)) {
                 mFilteredGenreIds.add(i);
             }
         }
@@ -351,6 +352,8 @@ public class ProgramManager {
 
     /**
      * Resets channel list with given genre.
+     * The channels which have a program of the genre in the initial visible area are kept, since
+     * the time line is scrolled back to the start time when the genre is changed.
      * Caller should call {@link #buildGenreFilters()} prior to call this API to make
      * This notifies channel updates to listeners.
      */
@@ -358,18 +361,35 @@ public class ProgramManager {
         if (genreId == mSelectedGenreId) {
             return;
         }
-        mFilteredChannels = mGenreChannelList.get(genreId);
+        mFilteredChannels = getChannelsWithGenre(genreId, mStartUtcMillis,
+                mStartUtcMillis + mViewPortMillis);
         mSelectedGenreId = genreId;
         if (DEBUG) {
             Log.d(TAG, "resetChannelListWithGenre: " + GenreItems.getCanonicalGenre(genreId)
                     + " has " + mFilteredChannels.size() + " channels out of " + mChannels.size());
         }
-        if (mGenreChannelList.get(mSelectedGenreId) == null) {
-            throw new IllegalStateException("Genre filter isn't ready.");
-        }
         notifyChannelsUpdated();
     }
 
+    /**
+     * Returns the channels which have a program of the given genre between
+     * {@code fromUtcMillis} and {@code toUtcMillis}.
+     */
+    public List<Channel> getChannelsWithGenre(int genreId, long fromUtcMillis,
+            long toUtcMillis) {
+        if (genreId == GenreItems.ID_ALL_CHANNELS) {
+            return mChannels;
+        }
+        BitSet channelIndices = mGenreIndex.getChannelIndices(genreId, fromUtcMillis,
+                toUtcMillis);
+        List<Channel> channels = new ArrayList<>(channelIndices.cardinality());
+        for (int i = channelIndices.nextSetBit(0); i >= 0 && i < mChannels.size();
+                i = channelIndices.nextSetBit(i + 1)) {
+            channels.add(mChannels.get(i));
+        }
+        return channels;
+    }
+
     /**
      * Returns list genre ID's which has a channel.
      */
@@ -388,6 +408,9 @@ public class ProgramManager {
         mChannels = mChannelDataManager.getBrowsableChannelList();
         mSelectedGenreId = GenreItems.ID_ALL_CHANNELS;
         mFilteredChannels = mChannels;
+        // The genre index is keyed by the channel positions, which might have been changed.
+        mGenreIndex.reset(mStartUtcMillis);
+        mGenreIndexUpToDate = false;
         if (notify) {
             notifyChannelsUpdated();
         }
@@ -395,6 +418,9 @@ public class ProgramManager {
     }
 
     private void updateTableEntries(boolean notify, boolean clear) {
+        // Keep the previous entries to update the genre index only for the changed channels.
+        Map<Long, List<TableEntry>> previousEntriesMap =
+                mGenreIndexUpToDate ? new HashMap<>(mChannelIdEntriesMap) : null;
         if (clear) {
             mChannelIdEntriesMap.clear();
         }
@@ -442,6 +468,15 @@ public class ProgramManager {
                 }
             }
         }
+        for (int i = 0; i < mChannels.size(); ++i) {
+            long channelId = mChannels.get(i).getId();
+            List<TableEntry> entries = mChannelIdEntriesMap.get(channelId);
+            if (previousEntriesMap == null
+                    || !hasSameGenres(previousEntriesMap.get(channelId), entries)) {
+                mGenreIndex.update(i, entries);
+            }
+        }
+        mGenreIndexUpToDate = true;
 
         if (notify) {
             notifyTableEntriesUpdated();
@@ -449,6 +484,33 @@ public class ProgramManager {
         buildGenreFilters();
     }
 
+    /**
+     * Returns {@code true} if the entries have the same genres in the same time ranges, which
+     * means that {@link ProgramGenreIndex} doesn't need to be updated.
+     */
+    private static boolean hasSameGenres(@Nullable List<TableEntry> oldEntries,
+            List<TableEntry> newEntries) {
+        if (oldEntries == null || oldEntries.size() != newEntries.size()) {
+            return false;
+        }
+        for (int i = 0; i < newEntries.size(); ++i) {
+            TableEntry oldEntry = oldEntries.get(i);
+            TableEntry newEntry = newEntries.get(i);
+            if (oldEntry.entryStartUtcMillis != newEntry.entryStartUtcMillis
+                    || oldEntry.entryEndUtcMillis != newEntry.entryEndUtcMillis
+                    || oldEntry.isBlocked() != newEntry.isBlocked()
+                    || oldEntry.isGap() != newEntry.isGap()) {
+                return false;
+            }
+            if (!newEntry.isGap() && oldEntry.program != newEntry.program
+                    && !Arrays.equals(oldEntry.program.getCanonicalGenreIds(),
+                            newEntry.program.getCanonicalGenreIds())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void notifyGenresUpdated() {
         for (Listener listener : mListeners) {
             listener.onGenresUpdated();
@@ -523,6 +585,7 @@ public class ProgramManager {
      */
     public void updateInitialTimeRange(long startUtcMillis, long endUtcMillis) {
         mStartUtcMillis = startUtcMillis;
+        mViewPortMillis = endUtcMillis - startUtcMillis;
         if (endUtcMillis > mEndUtcMillis) {
             mEndUtcMillis = endUtcMillis;
         }
@@ -179,17 +179,36 @@ public class AppLinkCardView extends BaseCardView<Channel> {
     }
 
     private static ImageLoader.ImageLoaderCallback<AppLinkCardView> createChannelLogoCallback(
-            AppLinkCardView cardView, final Channel channel, final int type) {
-        return new ImageLoader.ImageLoaderCallback<AppLinkCardView>(cardView) {
-            @Override
-            public void onBitmapLoaded(AppLinkCardView cardView, @Nullable Bitmap bitmap) {
-                // mChannel can be changed before the image load finished.
-                if (!cardView.mChannel.hasSameReadOnlyInfo(channel)) {
-                    return;
-                }
-                cardView.updateChannelLogo(bitmap, type);
+            AppLinkCardView cardView, Channel channel, int type) {
+        return new ChannelLogoCallback(cardView, channel, type);
+    }
+
+    private static class ChannelLogoCallback
+            extends ImageLoader.ImageLoaderCallback<AppLinkCardView> {
+        private final Channel mChannel;
+        private final int mType;
+
+        ChannelLogoCallback(AppLinkCardView cardView, Channel channel, int type) {
+            super(cardView);
+            mChannel = channel;
+            mType = type;
+        }
+
+        @Override
+        public void onBitmapLoaded(AppLinkCardView cardView, @Nullable Bitmap bitmap) {
+            // mChannel can be changed before the image load finished.
+            if (!cardView.mChannel.hasSameReadOnlyInfo(mChannel)) {
+                return;
             }
-        };
+            cardView.updateChannelLogo(bitmap, mType);
+        }
+
+        @Override
+        protected boolean isReplacedBy(ImageLoader.ImageLoaderCallback<?> callback) {
+            // The icon and the poster art are loaded for the same card at the same time.
+            return callback instanceof ChannelLogoCallback
+                    && ((ChannelLogoCallback) callback).mType == mType;
+        }
     }
 
     private void updateChannelLogo(@Nullable Bitmap bitmap, int type) {
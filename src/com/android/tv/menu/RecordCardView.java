@@ -154,36 +154,40 @@ public class RecordCardView extends SimpleCardView implements
     }
 
     @Override
-    public void onScheduledRecordingAdded(ScheduledRecording recording) {
+    public void onScheduledRecordingAdded(ScheduledRecording... recordings) {
     }
 
     @Override
-    public void onScheduledRecordingRemoved(ScheduledRecording recording) {
-        if (recording.getChannelId() != mCurrentChannel.getId()) {
-            return;
-        }
-        if (mIsRecording) {
-            mIsRecording = false;
-            mCurrentRecording = null;
-            updateCardView();
+    public void onScheduledRecordingRemoved(ScheduledRecording... recordings) {
+        for (ScheduledRecording recording : recordings) {
+            if (recording.getChannelId() != mCurrentChannel.getId()) {
+                continue;
+            }
+            if (mIsRecording) {
+                mIsRecording = false;
+                mCurrentRecording = null;
+                updateCardView();
+            }
         }
     }
 
     @Override
-    public void onScheduledRecordingStatusChanged(ScheduledRecording recording) {
-        if (recording.getChannelId() != mCurrentChannel.getId()) {
-            return;
-        }
-        int state = recording.getState();
-        if (state == ScheduledRecording.STATE_RECORDING_FAILED
-                || state == ScheduledRecording.STATE_RECORDING_FINISHED) {
-            mIsRecording = false;
-            mCurrentRecording = null;
-            updateCardView();
-        } else if (state == ScheduledRecording.STATE_RECORDING_IN_PROGRESS) {
-            mIsRecording = true;
-            mCurrentRecording = recording;
-            updateCardView();
+    public void onScheduledRecordingStatusChanged(ScheduledRecording... recordings) {
+        for (ScheduledRecording recording : recordings) {
+            if (recording.getChannelId() != mCurrentChannel.getId()) {
+                continue;
+            }
+            int state = recording.getState();
+            if (state == ScheduledRecording.STATE_RECORDING_FAILED
+                    || state == ScheduledRecording.STATE_RECORDING_FINISHED) {
+                mIsRecording = false;
+                mCurrentRecording = null;
+                updateCardView();
+            } else if (state == ScheduledRecording.STATE_RECORDING_IN_PROGRESS) {
+                mIsRecording = true;
+                mCurrentRecording = recording;
+                updateCardView();
+            }
         }
     }
 }
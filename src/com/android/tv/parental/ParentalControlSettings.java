@@ -16,9 +16,14 @@
 
 package com.android.tv.parental;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.media.tv.TvContentRating;
 import android.media.tv.TvInputManager;
+import android.util.ArrayMap;
+import android.util.Log;
 
 import com.android.tv.parental.ContentRatingSystem.Rating;
 import com.android.tv.parental.ContentRatingSystem.SubRating;
@@ -26,9 +31,14 @@ import com.android.tv.util.TvSettings;
 import com.android.tv.util.TvSettings.ContentRatingLevel;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 public class ParentalControlSettings {
+    private static final String TAG = "ParentalControlSettings";
+    private static final boolean DEBUG = false;
+
     /**
      * The rating and all of its sub-ratings are blocked.
      */
@@ -51,9 +61,34 @@ public class ParentalControlSettings {
     private Set<TvContentRating> mRatings;
     private Set<TvContentRating> mCustomRatings;
 
+    // The caches of TvInputManager.isRatingBlocked, which is an IPC call, since the ratings are
+    // checked for every program shown. They are cleared when the blocked ratings are changed.
+    // They can be accessed from the search threads, so guarded by mBlockedRatingCacheLock.
+    private final Object mBlockedRatingCacheLock = new Object();
+    private final Map<TvContentRating, Boolean> mBlockedRatingCache = new ArrayMap<>();
+    // The first blocked rating for each rating array. The arrays are shared by
+    // TvContentRatingCache and compared by identity, and the entries of the arrays which are no
+    // longer used are dropped.
+    private final Map<TvContentRating[], TvContentRating> mBlockedRatingArrayCache =
+            new WeakHashMap<>();
+    // The value of mBlockedRatingArrayCache for the arrays which have no blocked rating.
+    private static final TvContentRating NO_BLOCKED_RATING =
+            TvContentRating.createRating("com.android.tv", "NONE", "NONE");
+
+    private final BroadcastReceiver mBlockedRatingsChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (DEBUG) Log.d(TAG, "Blocked ratings changed");
+            invalidateBlockedRatingCache();
+        }
+    };
+
     public ParentalControlSettings(Context context) {
         mContext = context;
         mTvInputManager = (TvInputManager) mContext.getSystemService(Context.TV_INPUT_SERVICE);
+        // The blocked ratings can be changed by the system settings or other apps.
+        mContext.getApplicationContext().registerReceiver(mBlockedRatingsChangedReceiver,
+                new IntentFilter(TvInputManager.ACTION_BLOCKED_RATINGS_CHANGED));
     }
 
     public boolean isParentalControlsEnabled() {
@@ -78,6 +113,7 @@ public class ParentalControlSettings {
                     mTvInputManager.removeBlockedRating(tvContentRating);
                 }
             }
+            invalidateBlockedRatingCache();
 
             TvSettings.removeContentRatingSystem(mContext, contentRatingSystem.getId());
         }
@@ -103,6 +139,7 @@ public class ParentalControlSettings {
         for (TvContentRating tvContentRating : added) {
             mTvInputManager.addBlockedRating(tvContentRating);
         }
+        invalidateBlockedRatingCache();
     }
 
     private void updateRatingsForCurrentLevel(ContentRatingsManager manager) {
@@ -175,12 +212,44 @@ public class ParentalControlSettings {
         if (ratings == null) {
             return null;
         }
-        for (TvContentRating rating : ratings) {
-            if (mTvInputManager.isRatingBlocked(rating)) {
-                return rating;
+        synchronized (mBlockedRatingCacheLock) {
+            TvContentRating blockedRating = mBlockedRatingArrayCache.get(ratings);
+            if (blockedRating == null) {
+                blockedRating = NO_BLOCKED_RATING;
+                for (TvContentRating rating : ratings) {
+                    if (isRatingBlockedCached(rating)) {
+                        blockedRating = rating;
+                        break;
+                    }
+                }
+                mBlockedRatingArrayCache.put(ratings, blockedRating);
             }
+            return blockedRating == NO_BLOCKED_RATING ? null : blockedRating;
+        }
+    }
+
+    private boolean isRatingBlockedCached(TvContentRating rating) {
+        Boolean blocked = mBlockedRatingCache.get(rating);
+        if (blocked == null) {
+            try {
+                blocked = mTvInputManager.isRatingBlocked(rating);
+            } catch (IllegalArgumentException e) {
+                blocked = false;
+            }
+            mBlockedRatingCache.put(rating, blocked);
+        }
+        return blocked;
+    }
+
+    /**
+     * Clears the cached blocked status of the ratings. This should be called when the blocked
+     * ratings are changed.
+     */
+    public void invalidateBlockedRatingCache() {
+        synchronized (mBlockedRatingCacheLock) {
+            mBlockedRatingCache.clear();
+            mBlockedRatingArrayCache.clear();
         }
-        return null;
     }
 
     /**
@@ -238,6 +307,7 @@ public class ParentalControlSettings {
             changed = mRatings.remove(tvContentRating);
             mTvInputManager.removeBlockedRating(tvContentRating);
         }
+        invalidateBlockedRatingCache();
         if (changed) {
             changeToCustomLevel();
         }
@@ -27,6 +27,7 @@ import com.android.tv.util.Utils;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.Iterator;
 
 public class ChannelRecord {
     // TODO: decide the value for max history size.
@@ -77,6 +78,15 @@ public class ChannelRecord {
         return mCurrentProgram;
     }
 
+    /**
+     * Returns the end time of the current program which is loaded by {@link #getCurrentProgram}
+     * last time, or {@link Long#MAX_VALUE} if there's none. Unlike {@link #getCurrentProgram}, it
+     * doesn't load the current program.
+     */
+    long getLoadedCurrentProgramEndTimeMs() {
+        return mCurrentProgram == null ? Long.MAX_VALUE : mCurrentProgram.getEndTimeUtcMillis();
+    }
+
     public long getTotalWatchDurationMs() {
         return mTotalWatchDurationMs;
     }
@@ -85,6 +95,13 @@ public class ChannelRecord {
         return mWatchHistory.toArray(new WatchedProgram[mWatchHistory.size()]);
     }
 
+    /**
+     * Returns an iterator over the watch history from the latest one, without copying it.
+     */
+    Iterator<WatchedProgram> getWatchHistoryDescendingIterator() {
+        return mWatchHistory.descendingIterator();
+    }
+
     public void logWatchHistory(WatchedProgram p) {
         mWatchHistory.offer(p);
         mTotalWatchDurationMs += p.getWatchedDurationMs();
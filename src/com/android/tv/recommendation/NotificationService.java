@@ -49,6 +49,7 @@ import com.android.tv.TvApplication;
 import com.android.tv.common.WeakHandler;
 import com.android.tv.data.Channel;
 import com.android.tv.data.Program;
+import com.android.tv.util.BitmapPool;
 import com.android.tv.util.BitmapUtils;
 import com.android.tv.util.BitmapUtils.ScaledBitmapInfo;
 import com.android.tv.util.ImageLoader;
@@ -422,6 +423,12 @@ public class NotificationService extends Service implements Recommender.Listener
                 service.sendNotification(notificationId, channelLogo, channel, posterArtBitmap,
                         program, inputDisplayName);
             }
+
+            @Override
+            protected boolean isReplacedBy(ImageLoader.ImageLoaderCallback<?> callback) {
+                // The notifications for the other channels don't replace this.
+                return false;
+            }
         };
     }
 
@@ -457,6 +464,9 @@ public class NotificationService extends Service implements Recommender.Listener
                     .putString(Notification.EXTRA_BACKGROUND_IMAGE_URI, program.getThumbnailUri());
         }
         mNotificationManager.notify(NOTIFY_TAG, notificationId, notification);
+        // The bitmaps are copied to the notification manager, and not used any more.
+        BitmapPool.getInstance().put(largeIconBitmap);
+        BitmapPool.getInstance().put(posterArtBitmap);
         Message msg = mHandler.obtainMessage(MSG_UPDATE_RECOMMENDATION, notificationId, 0, channel);
         mHandler.sendMessageDelayed(msg, programDurationMs / MAX_PROGRAM_UPDATE_COUNT);
     }
@@ -38,6 +38,9 @@ public class Recommender implements RecommendationDataManager.Listener {
     @VisibleForTesting
     static final String INVALID_CHANNEL_SORT_KEY = "INVALID";
     private static final long MINIMUM_RECOMMENDATION_UPDATE_PERIOD = TimeUnit.MINUTES.toMillis(5);
+    // Some evaluators depend on the current time, so the cached scores are evaluated again after
+    // this period or when a current program ends, even if nothing is changed.
+    private static final long SCORE_CACHE_EXPIRATION_PERIOD = TimeUnit.MINUTES.toMillis(1);
     private static final Comparator<Pair<Channel, Double>> mChannelScoreComparator =
             new Comparator<Pair<Channel, Double>>() {
                 @Override
@@ -51,8 +54,15 @@ public class Recommender implements RecommendationDataManager.Listener {
     private final boolean mIncludeRecommendedOnly;
     private final Listener mListener;
 
-    private final Map<Long, String> mChannelSortKey = new HashMap<>();
     private final RecommendationDataManager mDataManager;
+    // The channels sorted by the cached scores in descending order.
+    private final List<Channel> mRankedChannels = new ArrayList<>();
+    private final Map<Long, Integer> mChannelRanks = new HashMap<>();
+    private boolean mScoreCacheValid;
+    private long mScoreCacheExpirationTimeUtcMillis;
+    // The number of channels returned by the last recommendChannels(). It determines the sort
+    // keys.
+    private int mRecommendedChannelCount;
     private List<Channel> mPreviousRecommendedChannels = new ArrayList<>();
     private long mLastRecommendationUpdatedTimeUtcMillis;
     private boolean mChannelRecordLoaded;
@@ -101,6 +111,7 @@ public class Recommender implements RecommendationDataManager.Listener {
      */
     public void registerEvaluator(Evaluator evaluator, double baseScore, double weight) {
         mEvaluators.add(new EvaluatorWrapper(this, evaluator, baseScore, weight));
+        invalidateScoreCache();
     }
 
     public List<Channel> recommendChannels() {
@@ -117,6 +128,28 @@ public class Recommender implements RecommendationDataManager.Listener {
      *         be less than {@code size}.
      */
     public List<Channel> recommendChannels(int size) {
+        updateScoreCacheIfNeeded();
+        size = Math.max(0, Math.min(size, mRankedChannels.size()));
+        // Channel with smaller sort key has higher priority.
+        mRecommendedChannelCount = size;
+        return new ArrayList<>(mRankedChannels.subList(0, size));
+    }
+
+    /**
+     * Invalidates the cached scores. They will be evaluated again when the recommendation is
+     * requested next time.
+     */
+    private void invalidateScoreCache() {
+        mScoreCacheValid = false;
+    }
+
+    private void updateScoreCacheIfNeeded() {
+        long currentTimeUtcMillis = System.currentTimeMillis();
+        if (mScoreCacheValid && currentTimeUtcMillis < mScoreCacheExpirationTimeUtcMillis) {
+            return;
+        }
+        mScoreCacheValid = true;
+        long expirationTimeUtcMillis = currentTimeUtcMillis + SCORE_CACHE_EXPIRATION_PERIOD;
         List<Pair<Channel, Double>> records = new ArrayList<>();
         Collection<ChannelRecord> channelRecordList = mDataManager.getChannelRecords();
         for (ChannelRecord cr : channelRecordList) {
@@ -130,22 +163,22 @@ public class Recommender implements RecommendationDataManager.Listener {
             if (!mIncludeRecommendedOnly || maxScore != Evaluator.NOT_RECOMMENDED) {
                 records.add(new Pair<>(cr.getChannel(), maxScore));
             }
+            // The scores can be changed when the current program which the evaluators used ends.
+            long programEndTimeUtcMillis = cr.getLoadedCurrentProgramEndTimeMs();
+            if (programEndTimeUtcMillis > currentTimeUtcMillis) {
+                expirationTimeUtcMillis =
+                        Math.min(expirationTimeUtcMillis, programEndTimeUtcMillis);
+            }
         }
-        if (size > records.size()) {
-            size = records.size();
-        }
+        mScoreCacheExpirationTimeUtcMillis = expirationTimeUtcMillis;
         Collections.sort(records, mChannelScoreComparator);
-
-        List<Channel> results = new ArrayList<>();
-
-        mChannelSortKey.clear();
-        String sortKeyFormat = "%0" + String.valueOf(size).length() + "d";
-        for (int i = 0; i < size; ++i) {
-            // Channel with smaller sort key has higher priority.
-            mChannelSortKey.put(records.get(i).first.getId(), String.format(sortKeyFormat, i));
-            results.add(records.get(i).first);
+        mRankedChannels.clear();
+        mChannelRanks.clear();
+        for (int i = 0; i < records.size(); ++i) {
+            Channel channel = records.get(i).first;
+            mRankedChannels.add(channel);
+            mChannelRanks.put(channel.getId(), i);
         }
-        return results;
     }
 
     /**
@@ -179,13 +212,18 @@ public class Recommender implements RecommendationDataManager.Listener {
      * of non-recommended channel, it returns {@link #INVALID_CHANNEL_SORT_KEY}.
      */
     public String getChannelSortKey(long channelId) {
-        String key = mChannelSortKey.get(channelId);
-        return key == null ? INVALID_CHANNEL_SORT_KEY : key;
+        Integer rank = mChannelRanks.get(channelId);
+        if (rank == null || rank >= mRecommendedChannelCount) {
+            return INVALID_CHANNEL_SORT_KEY;
+        }
+        String sortKeyFormat = "%0" + String.valueOf(mRecommendedChannelCount).length() + "d";
+        return String.format(sortKeyFormat, rank);
     }
 
     @Override
     public void onChannelRecordLoaded() {
         mChannelRecordLoaded = true;
+        invalidateScoreCache();
         mListener.onRecommenderReady();
         List<ChannelRecord> channels = new ArrayList<>(mDataManager.getChannelRecords());
         for (EvaluatorWrapper evaluator : mEvaluators) {
@@ -198,6 +236,7 @@ public class Recommender implements RecommendationDataManager.Listener {
         for (EvaluatorWrapper evaluator : mEvaluators) {
             evaluator.onNewWatchLog(channelRecord);
         }
+        invalidateScoreCache();
         checkRecommendationChanged();
     }
 
@@ -209,6 +248,7 @@ public class Recommender implements RecommendationDataManager.Listener {
                 evaluator.onChannelListChanged(Collections.unmodifiableList(channels));
             }
         }
+        invalidateScoreCache();
         checkRecommendationChanged();
     }
 
@@ -262,6 +302,17 @@ public class Recommender implements RecommendationDataManager.Listener {
             mRecommender = recommender;
         }
 
+        /**
+         * Notifies the recommender that the scores of this evaluator have been changed for a
+         * reason other than {@link #onNewWatchLog} and {@link #onChannelRecordListChanged}.
+         * The recommender caches the evaluated scores until then.
+         */
+        protected void notifyScoreChanged() {
+            if (mRecommender != null) {
+                mRecommender.invalidateScoreCache();
+            }
+        }
+
         protected Recommender getRecommender() {
             return mRecommender;
         }
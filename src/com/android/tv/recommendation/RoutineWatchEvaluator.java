@@ -25,7 +25,11 @@ import com.android.tv.data.Program;
 import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class RoutineWatchEvaluator extends Recommender.Evaluator {
@@ -39,6 +43,15 @@ public class RoutineWatchEvaluator extends Recommender.Evaluator {
     private static final long DIFF_MS_TOLERANCE_FOR_OLD_PROGRAM = TimeUnit.DAYS.toMillis(14);
     private static final long MAX_DIFF_MS_FOR_OLD_PROGRAM = TimeUnit.DAYS.toMillis(56);
 
+    // The word IDs are reassigned when the number of words reaches this.
+    private static final int MAX_WORD_COUNT = 10000;
+
+    // The IDs of the words in the titles.
+    private final Map<String, Integer> mWordIds = new HashMap<>();
+    // The features of the programs in the watch history and the current programs. The entries
+    // are removed when the programs are not used anymore.
+    private final Map<Program, ProgramFeatures> mProgramFeatures = new WeakHashMap<>();
+
     @Override
     public double evaluateChannel(long channelId) {
         ChannelRecord cr = getRecommender().getChannelRecord(channelId);
@@ -46,39 +59,49 @@ public class RoutineWatchEvaluator extends Recommender.Evaluator {
             return NOT_RECOMMENDED;
         }
 
-        Program currentProgram = cr.getCurrentProgram();
-        if (currentProgram == null) {
+        Program program = cr.getCurrentProgram();
+        if (program == null) {
             return NOT_RECOMMENDED;
         }
+        if (mWordIds.size() >= MAX_WORD_COUNT) {
+            // The cached features use the old word IDs, so they should be cleared together. It's
+            // done before the evaluation so that all the features in it use the same IDs.
+            mWordIds.clear();
+            mProgramFeatures.clear();
+        }
+        ProgramFeatures currentProgram = getProgramFeatures(program);
 
-        WatchedProgram[] watchHistory = cr.getWatchHistory();
-        if (watchHistory.length < 1) {
+        Iterator<WatchedProgram> watchHistory = cr.getWatchHistoryDescendingIterator();
+        if (!watchHistory.hasNext()) {
             return NOT_RECOMMENDED;
         }
 
-        Program watchedProgram = watchHistory[watchHistory.length - 1].getProgram();
-        long startTimeDiffMsWithCurrentProgram = currentProgram.getStartTimeUtcMillis()
-                - watchedProgram.getStartTimeUtcMillis();
+        WatchedProgram lastWatchedProgram = watchHistory.next();
+        ProgramFeatures watchedProgram = getProgramFeatures(lastWatchedProgram.getProgram());
+        long startTimeDiffMsWithCurrentProgram = currentProgram.startTimeUtcMillis
+                - watchedProgram.startTimeUtcMillis;
         if (startTimeDiffMsWithCurrentProgram >= MAX_DIFF_MS_FOR_OLD_PROGRAM) {
             return NOT_RECOMMENDED;
         }
 
         double maxScore = NOT_RECOMMENDED;
-        long watchedDurationMs = watchHistory[watchHistory.length - 1].getWatchedDurationMs();
-        for (int i = watchHistory.length - 2; i >= 0; --i) {
-            if (watchedProgram.getStartTimeUtcMillis()
-                    == watchHistory[i].getProgram().getStartTimeUtcMillis()) {
-                watchedDurationMs += watchHistory[i].getWatchedDurationMs();
+        long watchedDurationMs = lastWatchedProgram.getWatchedDurationMs();
+        while (watchHistory.hasNext()) {
+            WatchedProgram previousWatchedProgram = watchHistory.next();
+            ProgramFeatures previousProgram =
+                    getProgramFeatures(previousWatchedProgram.getProgram());
+            if (watchedProgram.startTimeUtcMillis == previousProgram.startTimeUtcMillis) {
+                watchedDurationMs += previousWatchedProgram.getWatchedDurationMs();
             } else {
                 double score = calculateRoutineWatchScore(
                         currentProgram, watchedProgram, watchedDurationMs);
                 if (score >= REQUIRED_MIN_SCORE && score > maxScore) {
                     maxScore = score;
                 }
-                watchedProgram = watchHistory[i].getProgram();
-                watchedDurationMs = watchHistory[i].getWatchedDurationMs();
-                startTimeDiffMsWithCurrentProgram = currentProgram.getStartTimeUtcMillis()
-                        - watchedProgram.getStartTimeUtcMillis();
+                watchedProgram = previousProgram;
+                watchedDurationMs = previousWatchedProgram.getWatchedDurationMs();
+                startTimeDiffMsWithCurrentProgram = currentProgram.startTimeUtcMillis
+                        - watchedProgram.startTimeUtcMillis;
                 if (startTimeDiffMsWithCurrentProgram >= MAX_DIFF_MS_FOR_OLD_PROGRAM) {
                     return maxScore;
                 }
@@ -92,14 +115,13 @@ public class RoutineWatchEvaluator extends Recommender.Evaluator {
         return maxScore;
     }
 
-    private static double calculateRoutineWatchScore(Program currentProgram, Program watchedProgram,
-            long watchedDurationMs) {
-        double timeMatchScore = calculateTimeMatchScore(currentProgram, watchedProgram);
+    private static double calculateRoutineWatchScore(ProgramFeatures currentProgram,
+            ProgramFeatures watchedProgram, long watchedDurationMs) {
+        double timeMatchScore = calculateTimeMatchScore(currentProgram.time, watchedProgram.time);
         double titleMatchScore = calculateTitleMatchScore(
-                currentProgram.getTitle(), watchedProgram.getTitle());
+                currentProgram.titleWordIds, watchedProgram.titleWordIds);
         double watchDurationScore = calculateWatchDurationScore(watchedProgram, watchedDurationMs);
-        long diffMs = currentProgram.getStartTimeUtcMillis()
-                - watchedProgram.getStartTimeUtcMillis();
+        long diffMs = currentProgram.startTimeUtcMillis - watchedProgram.startTimeUtcMillis;
         double multiplierForOldProgram = (diffMs < MAX_DIFF_MS_FOR_OLD_PROGRAM)
                 ? 1.0 - (double) Math.max(diffMs - DIFF_MS_TOLERANCE_FOR_OLD_PROGRAM, 0)
                         / (MAX_DIFF_MS_FOR_OLD_PROGRAM - DIFF_MS_TOLERANCE_FOR_OLD_PROGRAM)
@@ -110,31 +132,38 @@ public class RoutineWatchEvaluator extends Recommender.Evaluator {
 
     @VisibleForTesting
     static double calculateTitleMatchScore(@Nullable String title1, @Nullable String title2) {
-        if (TextUtils.isEmpty(title1) || TextUtils.isEmpty(title2)) {
-            return 0;
-        }
-        List<String> wordList1 = splitTextToWords(title1);
-        List<String> wordList2 = splitTextToWords(title2);
-        if (wordList1.isEmpty() || wordList2.isEmpty()) {
+        Map<String, Integer> wordIds = new HashMap<>();
+        return calculateTitleMatchScore(toWordIds(wordIds, title1), toWordIds(wordIds, title2));
+    }
+
+    private static double calculateTitleMatchScore(int[] wordIds1, int[] wordIds2) {
+        if (wordIds1.length == 0 || wordIds2.length == 0) {
             return 0;
         }
         int maxMatchedWordSeqLen = calculateMaximumMatchedWordSequenceLength(
-                wordList1, wordList2);
+                wordIds1, wordIds2);
 
         // F-measure score
-        double precision = (double) maxMatchedWordSeqLen / wordList1.size();
-        double recall = (double) maxMatchedWordSeqLen / wordList2.size();
+        double precision = (double) maxMatchedWordSeqLen / wordIds1.length;
+        double recall = (double) maxMatchedWordSeqLen / wordIds2.length;
         return 2.0 * precision * recall / (precision + recall);
     }
 
     @VisibleForTesting
     static int calculateMaximumMatchedWordSequenceLength(List<String> toSearchWords,
             List<String> toMatchWords) {
-        int[] matchedWordSeqLen = new int[toMatchWords.size()];
+        Map<String, Integer> wordIds = new HashMap<>();
+        return calculateMaximumMatchedWordSequenceLength(toWordIds(wordIds, toSearchWords),
+                toWordIds(wordIds, toMatchWords));
+    }
+
+    private static int calculateMaximumMatchedWordSequenceLength(int[] toSearchWords,
+            int[] toMatchWords) {
+        int[] matchedWordSeqLen = new int[toMatchWords.length];
         int maxMatchedWordSeqLen = 0;
-        for (String word : toSearchWords) {
-            for (int j = toMatchWords.size() - 1; j >= 0; --j) {
-                if (word.equals(toMatchWords.get(j))) {
+        for (int word : toSearchWords) {
+            for (int j = toMatchWords.length - 1; j >= 0; --j) {
+                if (word == toMatchWords[j]) {
                     matchedWordSeqLen[j] = j > 0 ? matchedWordSeqLen[j - 1] + 1 : 1;
                 } else {
                     maxMatchedWordSeqLen = Math.max(maxMatchedWordSeqLen, matchedWordSeqLen[j]);
@@ -149,10 +178,7 @@ public class RoutineWatchEvaluator extends Recommender.Evaluator {
         return maxMatchedWordSeqLen;
     }
 
-    private static double calculateTimeMatchScore(Program p1, Program p2) {
-        ProgramTime t1 = ProgramTime.createFromProgram(p1);
-        ProgramTime t2 = ProgramTime.createFromProgram(p2);
-
+    private static double calculateTimeMatchScore(ProgramTime t1, ProgramTime t2) {
         double dupTimeScore = calculateOverlappedIntervalScore(t1, t2);
 
         // F-measure score
@@ -188,9 +214,9 @@ public class RoutineWatchEvaluator extends Recommender.Evaluator {
         return score;
     }
 
-    private static double calculateWatchDurationScore(Program program, long durationMs) {
-        return (double) durationMs
-                / (program.getEndTimeUtcMillis() - program.getStartTimeUtcMillis());
+    private static double calculateWatchDurationScore(ProgramFeatures program,
+            long durationMs) {
+        return (double) durationMs / (program.endTimeUtcMillis - program.startTimeUtcMillis);
     }
 
     @VisibleForTesting
@@ -216,6 +242,59 @@ public class RoutineWatchEvaluator extends Recommender.Evaluator {
         return wordList;
     }
 
+    /**
+     * Returns the features of the program, which are computed once and reused while the program
+     * is in use.
+     */
+    private ProgramFeatures getProgramFeatures(Program program) {
+        ProgramFeatures features = mProgramFeatures.get(program);
+        if (features == null) {
+            features = new ProgramFeatures(program, toWordIds(mWordIds, program.getTitle()));
+            mProgramFeatures.put(program, features);
+        }
+        return features;
+    }
+
+    /**
+     * Returns the IDs of the words in the text. The same word has the same ID in {@code wordIds}.
+     */
+    private static int[] toWordIds(Map<String, Integer> wordIds, @Nullable String text) {
+        if (TextUtils.isEmpty(text)) {
+            return new int[0];
+        }
+        return toWordIds(wordIds, splitTextToWords(text));
+    }
+
+    private static int[] toWordIds(Map<String, Integer> wordIds, List<String> words) {
+        int[] ids = new int[words.size()];
+        for (int i = 0; i < ids.length; ++i) {
+            Integer id = wordIds.get(words.get(i));
+            if (id == null) {
+                id = wordIds.size();
+                wordIds.put(words.get(i), id);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * The features of a program used to evaluate the routine watch score.
+     */
+    private static class ProgramFeatures {
+        final long startTimeUtcMillis;
+        final long endTimeUtcMillis;
+        final int[] titleWordIds;
+        final ProgramTime time;
+
+        ProgramFeatures(Program program, int[] titleWordIds) {
+            startTimeUtcMillis = program.getStartTimeUtcMillis();
+            endTimeUtcMillis = program.getEndTimeUtcMillis();
+            this.titleWordIds = titleWordIds;
+            time = ProgramTime.createFromProgram(program);
+        }
+    }
+
     @VisibleForTesting
     static class ProgramTime {
         final int startTimeOfDayInSec;
@@ -32,15 +32,14 @@ import com.android.tv.data.Channel;
 import com.android.tv.data.ChannelDataManager;
 import com.android.tv.data.Program;
 import com.android.tv.data.ProgramDataManager;
+import com.android.tv.parental.ParentalControlSettings;
 import com.android.tv.search.LocalSearchProvider.SearchResult;
 import com.android.tv.util.MainThreadExecutor;
 import com.android.tv.util.Utils;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -57,6 +56,7 @@ public class DataManagerSearch implements SearchInterface {
     private final TvInputManager mTvInputManager;
     private final ChannelDataManager mChannelDataManager;
     private final ProgramDataManager mProgramDataManager;
+    private final ParentalControlSettings mParentalControlSettings;
 
     DataManagerSearch(Context context) {
         mContext = context;
@@ -64,6 +64,8 @@ public class DataManagerSearch implements SearchInterface {
         ApplicationSingletons appSingletons = TvApplication.getSingletons(context);
         mChannelDataManager = appSingletons.getChannelDataManager();
         mProgramDataManager = appSingletons.getProgramDataManager();
+        mParentalControlSettings =
+                appSingletons.getTvInputManagerHelper().getParentalControlSettings();
     }
 
     @Override
@@ -98,80 +100,26 @@ public class DataManagerSearch implements SearchInterface {
             // Voice search query should be handled by the a system TV app.
             return results;
         }
-        Set<Long> channelsFound = new HashSet<>();
-        List<Channel> channelList = mChannelDataManager.getBrowsableChannelList();
-        query = query.toLowerCase();
-        if (TextUtils.isDigitsOnly(query)) {
-            for (Channel channel : channelList) {
-                if (channelsFound.contains(channel.getId())) {
-                    continue;
-                }
-                if (contains(channel.getDisplayNumber(), query)) {
-                    addResult(results, channelsFound, channel, null);
-                }
-                if (results.size() >= limit) {
-                    return results;
-                }
-            }
-            // TODO: recently watched channels may have higher priority.
-        }
-        for (Channel channel : channelList) {
-            if (channelsFound.contains(channel.getId())) {
-                continue;
-            }
-            if (contains(channel.getDisplayName(), query)
-                    || contains(channel.getDescription(), query)) {
-                addResult(results, channelsFound, channel, null);
-            }
-            if (results.size() >= limit) {
-                return results;
-            }
-        }
-        for (Channel channel : channelList) {
-            if (channelsFound.contains(channel.getId())) {
-                continue;
-            }
-            Program program = mProgramDataManager.getCurrentProgram(channel.getId());
-            if (program == null) {
-                continue;
-            }
-            if (contains(program.getTitle(), query)
-                    && !isRatingBlocked(program.getContentRatings())) {
-                addResult(results, channelsFound, channel, program);
-            }
-            if (results.size() >= limit) {
-                return results;
-            }
-        }
-        for (Channel channel : channelList) {
-            if (channelsFound.contains(channel.getId())) {
-                continue;
-            }
-            Program program = mProgramDataManager.getCurrentProgram(channel.getId());
-            if (program == null) {
-                continue;
-            }
-            if (contains(program.getDescription(), query)
-                    && !isRatingBlocked(program.getContentRatings())) {
-                addResult(results, channelsFound, channel, program);
-            }
-            if (results.size() >= limit) {
-                return results;
-            }
+        SearchIndex searchIndex = SearchIndex.getInstance(mChannelDataManager,
+                mProgramDataManager);
+        List<SearchIndex.Match> matches = searchIndex.search(query.toLowerCase(),
+                TextUtils.isDigitsOnly(query), limit, new SearchIndex.ProgramFilter() {
+                    @Override
+                    public boolean isExcluded(Program program) {
+                        return isRatingBlocked(program.getContentRatings());
+                    }
+                });
+        // TODO: recently watched channels may have higher priority.
+        for (SearchIndex.Match match : matches) {
+            addResult(results, match.channel, match.program);
         }
         return results;
     }
 
-    // It assumes that query is already lower cases.
-    private boolean contains(String string, String query) {
-        return string != null && string.toLowerCase().contains(query);
-    }
-
     /**
      * If query is matched to channel, {@code program} should be null.
      */
-    private void addResult(List<SearchResult> results, Set<Long> channelsFound, Channel channel,
-            Program program) {
+    private void addResult(List<SearchResult> results, Channel channel, Program program) {
         if (program == null) {
             program = mProgramDataManager.getCurrentProgram(channel.getId());
             if (program != null && isRatingBlocked(program.getContentRatings())) {
@@ -213,7 +161,6 @@ public class DataManagerSearch implements SearchInterface {
             Log.d(TAG, "Add a result : channel=" + channel + " program=" + program);
         }
         results.add(result);
-        channelsFound.add(channel.getId());
     }
 
     private String buildProgramDescription(String channelNumber, String channelName,
@@ -241,15 +188,6 @@ public class DataManagerSearch implements SearchInterface {
                 || !mTvInputManager.isParentalControlsEnabled()) {
             return false;
         }
-        for (TvContentRating rating : ratings) {
-            try {
-                if (mTvInputManager.isRatingBlocked(rating)) {
-                    return true;
-                }
-            } catch (IllegalArgumentException e) {
-                // Do nothing.
-            }
-        }
-        return false;
+        return mParentalControlSettings.isRatingBlocked(ratings);
     }
 }
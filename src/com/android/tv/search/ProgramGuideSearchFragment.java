@@ -86,7 +86,7 @@ public class ProgramGuideSearchFragment extends SearchFragment {
 
         @Override
         public void onUnbindViewHolder(ViewHolder viewHolder) {
-            // Do nothing here.
+            ImageLoader.cancelLoadBitmap(viewHolder.view);
         }
     };
 
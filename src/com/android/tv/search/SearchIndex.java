@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.search;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.VisibleForTesting;
+import android.util.LongSparseArray;
+import android.util.SparseBooleanArray;
+
+import com.android.tv.data.Channel;
+import com.android.tv.data.ChannelDataManager;
+import com.android.tv.data.OnCurrentProgramUpdatedListener;
+import com.android.tv.data.Program;
+import com.android.tv.data.ProgramDataManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory inverted index over the browsable channels and their current programs.
+ *
+ * <p>Every indexed text is lower-cased once and split into the n-grams of up to three
+ * characters. A query is answered by intersecting the posting lists of its n-grams and verifying
+ * only the candidates, so the cost of a search depends on the number of matches rather than the
+ * number of channels. The index is kept up to date by listening to {@link ChannelDataManager} and
+ * {@link ProgramDataManager} while it's in use, and released after a while without searches.
+ */
+@MainThread
+class SearchIndex {
+    /**
+     * The ranks of the matched fields. Lower is better.
+     */
+    static final int RANK_CHANNEL_NUMBER = 0;
+    static final int RANK_CHANNEL_NAME = 1;
+    static final int RANK_PROGRAM_TITLE = 2;
+    static final int RANK_PROGRAM_DESCRIPTION = 3;
+
+    private static final int FIELD_CHANNEL_NUMBER = 0;
+    private static final int FIELD_CHANNEL_NAME = 1;
+    private static final int FIELD_CHANNEL_DESCRIPTION = 2;
+    private static final int FIELD_PROGRAM_TITLE = 3;
+    private static final int FIELD_PROGRAM_DESCRIPTION = 4;
+    private static final int FIELD_COUNT = 5;
+    private static final int[] FIELD_RANKS = {RANK_CHANNEL_NUMBER, RANK_CHANNEL_NAME,
+            RANK_CHANNEL_NAME, RANK_PROGRAM_TITLE, RANK_PROGRAM_DESCRIPTION};
+
+    private static final int MIN_GRAM_LENGTH = 1;
+    private static final int MAX_GRAM_LENGTH = 3;
+
+    // The index is released after this time without searches, not to update it for nothing.
+    private static final long RELEASE_DELAY_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * A filter to exclude programs, e.g. the ones blocked by parental controls, from the matches.
+     */
+    interface ProgramFilter {
+        boolean isExcluded(Program program);
+    }
+
+    /**
+     * A search result of {@link #search}.
+     */
+    static class Match {
+        final Channel channel;
+        /** The matched program. {@code null} if the channel itself is matched. */
+        final Program program;
+        final int rank;
+        final boolean wordPrefix;
+        private final int mOrder;
+
+        private Match(Channel channel, Program program, int rank, boolean wordPrefix, int order) {
+            this.channel = channel;
+            this.program = program;
+            this.rank = rank;
+            this.wordPrefix = wordPrefix;
+            mOrder = order;
+        }
+    }
+
+    private static final Comparator<Match> MATCH_COMPARATOR = new Comparator<Match>() {
+        @Override
+        public int compare(Match lhs, Match rhs) {
+            if (lhs.rank != rhs.rank) {
+                return lhs.rank - rhs.rank;
+            }
+            if (lhs.wordPrefix != rhs.wordPrefix) {
+                return lhs.wordPrefix ? -1 : 1;
+            }
+            return Integer.compare(lhs.mOrder, rhs.mOrder);
+        }
+    };
+
+    private static class Document {
+        Channel channel;
+        Program program;
+        int order;
+        final String[] texts = new String[FIELD_COUNT];
+    }
+
+    private static SearchIndex sInstance;
+    private static Handler sHandler;
+    private static final Runnable sReleaseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (sInstance != null) {
+                sInstance.release();
+                sInstance = null;
+            }
+        }
+    };
+
+    private final LongSparseArray<Integer> mChannelIdToSlot = new LongSparseArray<>();
+    private final List<Document> mDocuments = new ArrayList<>();
+    private final List<Integer> mFreeSlots = new ArrayList<>();
+    private final Map<Long, SparseBooleanArray> mPostings = new HashMap<>();
+
+    private ChannelDataManager mChannelDataManager;
+    private ProgramDataManager mProgramDataManager;
+
+    private final ChannelDataManager.Listener mChannelDataManagerListener =
+            new ChannelDataManager.Listener() {
+                @Override
+                public void onLoadFinished() {
+                    syncChannels();
+                }
+
+                @Override
+                public void onChannelListUpdated() {
+                    syncChannels();
+                }
+
+                @Override
+                public void onChannelBrowsableChanged() {
+                    syncChannels();
+                }
+            };
+
+    private final OnCurrentProgramUpdatedListener mOnCurrentProgramUpdatedListener =
+            new OnCurrentProgramUpdatedListener() {
+                @Override
+                public void onCurrentProgramUpdated(long channelId, Program program) {
+                    updateProgram(channelId, program);
+                }
+            };
+
+    /**
+     * Returns the index which is kept up to date with the given data managers. It's released when
+     * this method is not called for {@link #RELEASE_DELAY_MS}.
+     */
+    static SearchIndex getInstance(ChannelDataManager channelDataManager,
+            ProgramDataManager programDataManager) {
+        if (sHandler == null) {
+            sHandler = new Handler(Looper.getMainLooper());
+        }
+        sHandler.removeCallbacks(sReleaseRunnable);
+        sHandler.postDelayed(sReleaseRunnable, RELEASE_DELAY_MS);
+        if (sInstance == null) {
+            sInstance = new SearchIndex();
+            sInstance.mChannelDataManager = channelDataManager;
+            sInstance.mProgramDataManager = programDataManager;
+            channelDataManager.addListener(sInstance.mChannelDataManagerListener);
+            programDataManager.addOnCurrentProgramUpdatedListener(Channel.INVALID_ID,
+                    sInstance.mOnCurrentProgramUpdatedListener);
+            if (channelDataManager.isDbLoadFinished()) {
+                sInstance.syncChannels();
+            }
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SearchIndex() { }
+
+    private void release() {
+        mChannelDataManager.removeListener(mChannelDataManagerListener);
+        mProgramDataManager.removeOnCurrentProgramUpdatedListener(Channel.INVALID_ID,
+                mOnCurrentProgramUpdatedListener);
+    }
+
+    private void syncChannels() {
+        List<Channel> channels = mChannelDataManager.getBrowsableChannelList();
+        Set<Long> browsableChannelIds = new HashSet<>();
+        for (int i = 0; i < channels.size(); ++i) {
+            Channel channel = channels.get(i);
+            browsableChannelIds.add(channel.getId());
+            updateChannel(channel, i);
+            updateProgram(channel.getId(), mProgramDataManager.getCurrentProgram(channel.getId()));
+        }
+        for (int i = mChannelIdToSlot.size() - 1; i >= 0; --i) {
+            long channelId = mChannelIdToSlot.keyAt(i);
+            if (!browsableChannelIds.contains(channelId)) {
+                removeChannel(channelId);
+            }
+        }
+    }
+
+    /**
+     * Adds or updates the channel. {@code order} is used to sort the matches of the same rank.
+     */
+    @VisibleForTesting
+    void updateChannel(Channel channel, int order) {
+        Integer slot = mChannelIdToSlot.get(channel.getId());
+        Document document;
+        if (slot == null) {
+            slot = mFreeSlots.isEmpty() ? mDocuments.size()
+                    : mFreeSlots.remove(mFreeSlots.size() - 1);
+            document = new Document();
+            if (slot == mDocuments.size()) {
+                mDocuments.add(document);
+            } else {
+                mDocuments.set(slot, document);
+            }
+            mChannelIdToSlot.put(channel.getId(), slot);
+        } else {
+            document = mDocuments.get(slot);
+        }
+        document.channel = channel;
+        document.order = order;
+        setText(slot, FIELD_CHANNEL_NUMBER, channel.getDisplayNumber());
+        setText(slot, FIELD_CHANNEL_NAME, channel.getDisplayName());
+        setText(slot, FIELD_CHANNEL_DESCRIPTION, channel.getDescription());
+    }
+
+    /**
+     * Updates the current program of the channel. It's ignored if the channel is not indexed.
+     */
+    @VisibleForTesting
+    void updateProgram(long channelId, Program program) {
+        Integer slot = mChannelIdToSlot.get(channelId);
+        if (slot == null) {
+            return;
+        }
+        mDocuments.get(slot).program = program;
+        setText(slot, FIELD_PROGRAM_TITLE, program == null ? null : program.getTitle());
+        setText(slot, FIELD_PROGRAM_DESCRIPTION,
+                program == null ? null : program.getDescription());
+    }
+
+    @VisibleForTesting
+    void removeChannel(long channelId) {
+        Integer slot = mChannelIdToSlot.get(channelId);
+        if (slot == null) {
+            return;
+        }
+        for (int field = 0; field < FIELD_COUNT; ++field) {
+            setText(slot, field, null);
+        }
+        mDocuments.set(slot, null);
+        mFreeSlots.add(slot);
+        mChannelIdToSlot.remove(channelId);
+    }
+
+    /**
+     * Searches the channels and programs which contain the lower-cased {@code query}.
+     * At most one match is returned per channel, and the matches are sorted by rank, whether the
+     * query is matched at the beginning of a word, and the order of the channel.
+     *
+     * @param matchChannelNumber whether the channel numbers should be searched.
+     * @param filter the programs accepted by this filter are not matched.
+     */
+    List<Match> search(String query, boolean matchChannelNumber, int limit,
+            ProgramFilter filter) {
+        if (query.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Match> matches = new ArrayList<>();
+        for (int docKey : findCandidates(query)) {
+            int slot = docKey / FIELD_COUNT;
+            int field = docKey % FIELD_COUNT;
+            Document document = mDocuments.get(slot);
+            if (field == FIELD_CHANNEL_NUMBER && !matchChannelNumber) {
+                continue;
+            }
+            int wordPrefix = findMatch(document.texts[field], query);
+            if (wordPrefix < 0) {
+                continue;
+            }
+            boolean isProgramField = field >= FIELD_PROGRAM_TITLE;
+            if (isProgramField && filter != null && filter.isExcluded(document.program)) {
+                continue;
+            }
+            matches.add(new Match(document.channel, isProgramField ? document.program : null,
+                    FIELD_RANKS[field], wordPrefix == 1, document.order));
+        }
+        Collections.sort(matches, MATCH_COMPARATOR);
+        // Only keep the best match for each channel.
+        Set<Long> channelsFound = new HashSet<>();
+        List<Match> results = new ArrayList<>();
+        for (Match match : matches) {
+            if (channelsFound.add(match.channel.getId())) {
+                results.add(match);
+                if (results.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the doc keys which may contain the query.
+     */
+    private Iterable<Integer> findCandidates(String query) {
+        List<Integer> candidates = new ArrayList<>();
+        int gramLength = Math.min(query.length(), MAX_GRAM_LENGTH);
+        List<SparseBooleanArray> postings = new ArrayList<>();
+        SparseBooleanArray smallest = null;
+        for (int i = 0; i + gramLength <= query.length(); ++i) {
+            SparseBooleanArray posting = mPostings.get(toGram(query, i, gramLength));
+            if (posting == null) {
+                return candidates;
+            }
+            postings.add(posting);
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        for (int i = 0; i < smallest.size(); ++i) {
+            int docKey = smallest.keyAt(i);
+            boolean inAll = true;
+            for (SparseBooleanArray posting : postings) {
+                if (posting != smallest && posting.indexOfKey(docKey) < 0) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll) {
+                candidates.add(docKey);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns 1 if the query is found at the beginning of a word in the text, 0 if it's found
+     * elsewhere, and -1 if it isn't found.
+     */
+    private static int findMatch(String text, String query) {
+        if (text == null) {
+            return -1;
+        }
+        int result = -1;
+        for (int index = text.indexOf(query); index >= 0;
+                index = text.indexOf(query, index + 1)) {
+            if (index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1))) {
+                return 1;
+            }
+            result = 0;
+        }
+        return result;
+    }
+
+    private void setText(int slot, int field, String text) {
+        String lowerCaseText = text == null ? null : text.toLowerCase();
+        Document document = mDocuments.get(slot);
+        String oldText = document.texts[field];
+        if (Objects.equals(oldText, lowerCaseText)) {
+            return;
+        }
+        int docKey = slot * FIELD_COUNT + field;
+        if (oldText != null) {
+            for (long gram : toGrams(oldText)) {
+                SparseBooleanArray posting = mPostings.get(gram);
+                if (posting != null) {
+                    posting.delete(docKey);
+                    if (posting.size() == 0) {
+                        mPostings.remove(gram);
+                    }
+                }
+            }
+        }
+        document.texts[field] = lowerCaseText;
+        if (lowerCaseText != null) {
+            for (long gram : toGrams(lowerCaseText)) {
+                SparseBooleanArray posting = mPostings.get(gram);
+                if (posting == null) {
+                    posting = new SparseBooleanArray(1);
+                    mPostings.put(gram, posting);
+                }
+                posting.put(docKey, true);
+            }
+        }
+    }
+
+    private static Set<Long> toGrams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int length = MIN_GRAM_LENGTH; length <= MAX_GRAM_LENGTH; ++length) {
+            for (int i = 0; i + length <= text.length(); ++i) {
+                grams.add(toGram(text, i, length));
+            }
+        }
+        return grams;
+    }
+
+    private static long toGram(String text, int start, int length) {
+        long gram = 0;
+        for (int i = start; i < start + length; ++i) {
+            gram = (gram << Character.SIZE) | text.charAt(i);
+        }
+        // Distinguish the grams of different lengths.
+        return gram | ((long) length << (Character.SIZE * MAX_GRAM_LENGTH));
+    }
+}
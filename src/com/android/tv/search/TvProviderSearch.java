@@ -20,7 +20,6 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
-import android.media.tv.TvContentRating;
 import android.media.tv.TvContract;
 import android.media.tv.TvContract.Channels;
 import android.media.tv.TvContract.Programs;
@@ -32,7 +31,9 @@ import android.support.annotation.WorkerThread;
 import android.text.TextUtils;
 import android.util.Log;
 
+import com.android.tv.TvApplication;
 import com.android.tv.common.TvContentRatingCache;
+import com.android.tv.parental.ParentalControlSettings;
 import com.android.tv.search.LocalSearchProvider.SearchResult;
 import com.android.tv.util.PermissionUtils;
 import com.android.tv.util.Utils;
@@ -58,16 +59,22 @@ public class TvProviderSearch implements SearchInterface {
     private static final String TAG = "TvProviderSearch";
 
     private static final int NO_LIMIT = 0;
+    // The maximum number of channels resolved by a query. This should be less than the maximum
+    // number of host parameters of SQLite, 999.
+    private static final int CHANNEL_BATCH_SIZE = 100;
 
     private final Context mContext;
     private final ContentResolver mContentResolver;
     private final TvInputManager mTvInputManager;
     private final TvContentRatingCache mTvContentRatingCache = TvContentRatingCache.getInstance();
+    private final ParentalControlSettings mParentalControlSettings;
 
     TvProviderSearch(Context context) {
         mContext = context;
         mContentResolver = context.getContentResolver();
         mTvInputManager = (TvInputManager) context.getSystemService(Context.TV_INPUT_SERVICE);
+        mParentalControlSettings = TvApplication.getSingletons(context).getTvInputManagerHelper()
+                .getParentalControlSettings();
     }
 
     /**
@@ -340,57 +347,54 @@ public class TvProviderSearch implements SearchInterface {
         try (Cursor c = mContentResolver.query(Programs.CONTENT_URI, projection, selection,
                 selectionArgs, null)) {
             if (c != null) {
-                int count = 0;
-                while (c.moveToNext()) {
+                // Resolves the channels of the matched programs in batches instead of querying
+                // the channel of each program separately.
+                List<SearchResult> pendingResults = new ArrayList<>();
+                List<long[]> pendingTimes = new ArrayList<>();
+                boolean hasNext = c.moveToNext();
+                while (hasNext) {
                     long id = c.getLong(0);
-                    // Filter out the program whose channel is already searched.
-                    if (channelsFound.contains(id)) {
-                        continue;
+                    // Filter out the program whose channel is already searched. The channel is
+                    // marked as found even if the program is blocked by its rating.
+                    if (channelsFound.add(id) && !isRatingBlocked(c.getString(3))) {
+                        SearchResult result = new SearchResult();
+                        result.channelId = id;
+                        result.title = c.getString(1);
+                        result.imageUri = c.getString(2);
+                        result.intentAction = Intent.ACTION_VIEW;
+                        result.intentData = buildIntentData(id);
+                        result.contentType = Programs.CONTENT_ITEM_TYPE;
+                        result.isLive = true;
+                        result.videoWidth = c.getInt(4);
+                        result.videoHeight = c.getInt(5);
+                        pendingResults.add(result);
+                        pendingTimes.add(new long[] { c.getLong(6), c.getLong(7) });
                     }
-                    channelsFound.add(id);
-
-                    // Don't know whether the channel is searchable or not.
-                    String[] channelProjection = {
-                            Channels._ID,
-                            Channels.COLUMN_DISPLAY_NUMBER,
-                            Channels.COLUMN_DISPLAY_NAME
-                    };
-                    sb = new StringBuilder();
-                    sb.append(Channels._ID).append("=? AND ")
-                            .append(Channels.COLUMN_BROWSABLE).append("=1 AND ")
-                            .append(Channels.COLUMN_SEARCHABLE).append("=1");
-                    if (mTvInputManager.isParentalControlsEnabled()) {
-                        sb.append(" AND ").append(Channels.COLUMN_LOCKED).append("=0");
-                    }
-                    String selectionChannel = sb.toString();
-                    try (Cursor cChannel = mContentResolver.query(Channels.CONTENT_URI,
-                            channelProjection, selectionChannel,
-                            new String[] { String.valueOf(id) }, null)) {
-                        if (cChannel != null && cChannel.moveToNext()
-                                && !isRatingBlocked(c.getString(3))) {
-                            long startUtcMillis = c.getLong(6);
-                            long endUtcMillis = c.getLong(7);
-                            SearchResult result = new SearchResult();
-                            result.channelId = c.getLong(0);
-                            result.title = c.getString(1);
-                            result.description = buildProgramDescription(cChannel.getString(1),
-                                    cChannel.getString(2), startUtcMillis, endUtcMillis);
-                            result.imageUri = c.getString(2);
-                            result.intentAction = Intent.ACTION_VIEW;
-                            result.intentData = buildIntentData(id);
-                            result.contentType = Programs.CONTENT_ITEM_TYPE;
-                            result.isLive = true;
-                            result.videoWidth = c.getInt(4);
-                            result.videoHeight = c.getInt(5);
+                    hasNext = c.moveToNext();
+                    if (pendingResults.size() >= CHANNEL_BATCH_SIZE
+                            || (!hasNext && !pendingResults.isEmpty())) {
+                        Map<Long, String[]> channels = querySearchableChannels(pendingResults);
+                        for (int i = 0; i < pendingResults.size(); ++i) {
+                            SearchResult result = pendingResults.get(i);
+                            // Skip the result if its channel is not browsable or searchable.
+                            String[] channel = channels.get(result.channelId);
+                            if (channel == null) {
+                                continue;
+                            }
+                            long startUtcMillis = pendingTimes.get(i)[0];
+                            long endUtcMillis = pendingTimes.get(i)[1];
+                            result.description = buildProgramDescription(channel[0], channel[1],
+                                    startUtcMillis, endUtcMillis);
                             result.duration = endUtcMillis - startUtcMillis;
                             result.progressPercentage = getProgressPercentage(startUtcMillis,
                                     endUtcMillis);
                             searchResults.add(result);
-
-                            if (limit != NO_LIMIT && ++count >= limit) {
-                                break;
+                            if (limit != NO_LIMIT && searchResults.size() >= limit) {
+                                return searchResults;
                             }
                         }
+                        pendingResults.clear();
+                        pendingTimes.clear();
                     }
                 }
             }
@@ -398,6 +402,43 @@ public class TvProviderSearch implements SearchInterface {
         return searchResults;
     }
 
+    /**
+     * Returns the display numbers and names of the browsable and searchable channels among the
+     * channels of the given results, keyed by the channel ID, with a single query.
+     */
+    @WorkerThread
+    private Map<Long, String[]> querySearchableChannels(List<SearchResult> results) {
+        String[] projection = {
+                Channels._ID,
+                Channels.COLUMN_DISPLAY_NUMBER,
+                Channels.COLUMN_DISPLAY_NAME
+        };
+        StringBuilder sb = new StringBuilder();
+        sb.append(Channels.COLUMN_BROWSABLE).append("=1 AND ")
+                .append(Channels.COLUMN_SEARCHABLE).append("=1");
+        if (mTvInputManager.isParentalControlsEnabled()) {
+            sb.append(" AND ").append(Channels.COLUMN_LOCKED).append("=0");
+        }
+        sb.append(" AND ").append(Channels._ID).append(" IN (");
+        String[] selectionArgs = new String[results.size()];
+        for (int i = 0; i < results.size(); ++i) {
+            sb.append(i == 0 ? "?" : ",?");
+            selectionArgs[i] = String.valueOf(results.get(i).channelId);
+        }
+        sb.append(")");
+
+        Map<Long, String[]> channels = new HashMap<>();
+        try (Cursor c = mContentResolver.query(Channels.CONTENT_URI, projection, sb.toString(),
+                selectionArgs, null)) {
+            if (c != null) {
+                while (c.moveToNext()) {
+                    channels.put(c.getLong(0), new String[] { c.getString(1), c.getString(2) });
+                }
+            }
+        }
+        return channels;
+    }
+
     private String buildIntentData(long channelId) {
         return TvContract.buildChannelUri(channelId).buildUpon()
                 .appendQueryParameter(Utils.PARAM_SOURCE, SOURCE_TV_SEARCH)
@@ -408,15 +449,8 @@ public class TvProviderSearch implements SearchInterface {
         if (TextUtils.isEmpty(ratings) || !mTvInputManager.isParentalControlsEnabled()) {
             return false;
         }
-        TvContentRating[] ratingArray = mTvContentRatingCache.getRatings(ratings);
-        if (ratingArray != null) {
-            for (TvContentRating r : ratingArray) {
-                if (mTvInputManager.isRatingBlocked(r)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return mParentalControlSettings.isRatingBlocked(
+                mTvContentRatingCache.getRatings(ratings));
     }
 
     private List<SearchResult> searchInputs(String query, int limit) {
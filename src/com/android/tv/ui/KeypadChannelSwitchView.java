@@ -23,7 +23,6 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -44,6 +43,7 @@ import com.android.tv.analytics.Tracker;
 import com.android.tv.common.SoftPreconditions;
 import com.android.tv.data.Channel;
 import com.android.tv.data.ChannelNumber;
+import com.android.tv.data.ChannelNumberIndex;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -55,7 +55,6 @@ public class KeypadChannelSwitchView extends LinearLayout implements
     private static final int MAX_CHANNEL_NUMBER_DIGIT = 4;
     private static final int MAX_MINOR_CHANNEL_NUMBER_DIGIT = 3;
     private static final int MAX_CHANNEL_ITEM = 8;
-    private static final String CHANNEL_DELIMITERS_REGEX = "[-\\.\\s]";
     public static final String SCREEN_NAME = "Channel switch";
 
     private final MainActivity mMainActivity;
@@ -64,6 +63,8 @@ public class KeypadChannelSwitchView extends LinearLayout implements
     private boolean mNavigated = false;
     @Nullable  //Once mChannels is set to null it should not be used again.
     private List<Channel> mChannels;
+    // Built from mChannels when it's needed first, not to rebuild it on every channel update.
+    private ChannelNumberIndex mChannelNumberIndex;
     private TextView mChannelNumberView;
     private ListView mChannelItemListView;
     private final ChannelNumber mTypedChannelNumber = new ChannelNumber();
@@ -232,6 +233,7 @@ public class KeypadChannelSwitchView extends LinearLayout implements
 
     public void setChannels(@Nullable List<Channel> channels) {
         mChannels = channels;
+        mChannelNumberIndex = null;
     }
 
     public static boolean isChannelNumberKey(int keyCode) {
@@ -272,27 +274,12 @@ public class KeypadChannelSwitchView extends LinearLayout implements
     private void updateView() {
         mChannelNumberView.setText(mTypedChannelNumber.toString() + "_");
         mChannelCandidates.clear();
-        ArrayList<Channel> secondaryChannelCandidates = new ArrayList<>();
-        for (Channel channel : mChannels) {
-            ChannelNumber chNumber = ChannelNumber.parseChannelNumber(channel.getDisplayNumber());
-            if (chNumber == null) {
-                Log.i(TAG, "Malformed channel number (name=" + channel.getDisplayName()
-                        + ", number=" + channel.getDisplayNumber() + ")");
-                continue;
-            }
-            if (matchChannelNumber(mTypedChannelNumber, chNumber)) {
-                mChannelCandidates.add(channel);
-            } else if (!mTypedChannelNumber.hasDelimiter) {
-                // Even if a user doesn't type '-', we need to match the typed number to not only
-                // the major number but also the minor number. For example, when a user types '111'
-                // without delimiter, it should be matched to '111', '1-11' and '11-1'.
-                if (channel.getDisplayNumber().replaceAll(CHANNEL_DELIMITERS_REGEX, "")
-                        .startsWith(mTypedChannelNumber.majorNumber)) {
-                    secondaryChannelCandidates.add(channel);
-                }
-            }
+        if (mChannelNumberIndex == null && mChannels != null) {
+            mChannelNumberIndex = new ChannelNumberIndex(mChannels);
+        }
+        if (mChannelNumberIndex != null) {
+            mChannelCandidates.addAll(mChannelNumberIndex.getCandidates(mTypedChannelNumber));
         }
-        mChannelCandidates.addAll(secondaryChannelCandidates);
         mAdapter.notifyDataSetChanged();
         if (mAdapter.getCount() > 0) {
             mChannelItemListView.requestFocus();
@@ -350,21 +337,6 @@ public class KeypadChannelSwitchView extends LinearLayout implements
         }
     }
 
-    private static boolean matchChannelNumber(ChannelNumber typedChNumber, ChannelNumber chNumber) {
-        if (!chNumber.majorNumber.equals(typedChNumber.majorNumber)) {
-            return false;
-        }
-        if (typedChNumber.hasDelimiter) {
-            if (!chNumber.hasDelimiter) {
-                return false;
-            }
-            if (!chNumber.minorNumber.startsWith(typedChNumber.minorNumber)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     class ChannelItemAdapter extends BaseAdapter {
         @Override
         public int getCount() {
@@ -44,6 +44,7 @@ import android.support.v4.os.BuildCompat;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.Range;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.SurfaceView;
@@ -64,6 +65,8 @@ import com.android.tv.data.ChannelDataManager;
 import com.android.tv.data.StreamInfo;
 import com.android.tv.data.WatchedHistoryManager;
 import com.android.tv.dvr.DvrDataManager;
+import com.android.tv.dvr.DvrDataManager.OnRecordedProgramLoadedCallback;
+import com.android.tv.dvr.ScheduledRecording;
 import com.android.tv.parental.ContentRatingsManager;
 import com.android.tv.recommendation.NotificationService;
 import com.android.tv.util.NetworkUtils;
@@ -75,7 +78,10 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class TunableTvView extends FrameLayout implements StreamInfo {
     private static final boolean DEBUG = false;
@@ -110,12 +116,48 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
 
     private static final long INVALID_TIME = -1;
 
+    // The pre-tuned session is released after this not to hold a tuner for long.
+    private static final long PRE_TUNE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(3);
+    // A recording acquires its session before the start time.
+    private static final long PRE_TUNE_RECORDING_MARGIN_MS = TimeUnit.MINUTES.toMillis(1);
+
     // It is too small to see the description text without PIP_BLOCK_SCREEN_SCALE_FACTOR.
     private static final float PIP_BLOCK_SCREEN_SCALE_FACTOR = 1.2f;
 
     private AppLayerTvView mTvView;
+    // A hidden TV view which is pre-tuned to the channel which is likely to be tuned next.
+    @Nullable
+    private AppLayerTvView mPreTuneTvView;
+    private Channel mPreTunedChannel;
+    private PreTuneCallback mPreTuneCallback;
+    private final Runnable mCancelPreTuneRunnable = new Runnable() {
+        @Override
+        public void run() {
+            cancelPreTune();
+        }
+    };
+    private final DvrDataManager.ScheduledRecordingListener mPreTuneScheduledRecordingListener =
+            new DvrDataManager.ScheduledRecordingListener() {
+                @Override
+                public void onScheduledRecordingAdded(ScheduledRecording... recordings) {
+                    releasePreTunedTunerIfNeeded();
+                }
+
+                @Override
+                public void onScheduledRecordingRemoved(ScheduledRecording... recordings) { }
+
+                @Override
+                public void onScheduledRecordingStatusChanged(
+                        ScheduledRecording... recordings) {
+                    releasePreTunedTunerIfNeeded();
+                }
+            };
+    private OnUnhandledInputEventListener mOnUnhandledInputEventListener;
+    private Boolean mCaptionEnabled;
     private Channel mCurrentChannel;
     private RecordedProgram mRecordedProgram;
+    // The recording which will be played when its program is loaded.
+    private Uri mLoadingRecordingUri;
     private TvInputManagerHelper mInputManagerHelper;
     private ContentRatingsManager mContentRatingsManager;
     @Nullable
@@ -441,10 +483,123 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
         reset();
     }
 
+    /**
+     * Sets the hidden TV view to pre-tune to a channel by {@link #preTune}.
+     */
+    public void setPreTuneTvView(AppLayerTvView tvView) {
+        mPreTuneTvView = tvView;
+        mPreTuneTvView.setZOrderOnTop(false);
+        mPreTuneTvView.setVisibility(View.INVISIBLE);
+    }
+
+    /**
+     * Tunes the hidden TV view to the channel, so that the next {@link #tuneTo} to the channel
+     * can take over the session instead of tuning from scratch.
+     *
+     * <p>It's done only if the input has enough tuners for both of the views and the recordings
+     * which run in {@link #PRE_TUNE_TIMEOUT_MS}. The pre-tuned session is released after that,
+     * or as soon as a new recording needs the tuner.
+     *
+     * <p>Note that TvInputManagerService logs the hidden tune to the watched programs like any
+     * other tune, even if the user never switches to the channel. The log is bounded by
+     * {@link #PRE_TUNE_TIMEOUT_MS}, but it still affects the recommendations, which is why the
+     * feature is off by default.
+     *
+     * @return {@code true} if the channel is pre-tuned.
+     */
+    public boolean preTune(@Nullable Channel channel) {
+        if (!mStarted || mPreTuneTvView == null || mIsPip || channel == null
+                || channel.isPassthrough() || channel.equals(mCurrentChannel)
+                || !BuildCompat.isAtLeastN()) {
+            cancelPreTune();
+            return false;
+        }
+        if (channel.equals(mPreTunedChannel)) {
+            return true;
+        }
+        if (!hasTunerForPreTune(channel)) {
+            cancelPreTune();
+            return false;
+        }
+        if (DEBUG) Log.d(TAG, "preTune " + channel);
+        if (mPreTunedChannel == null && mDvrDataManager != null) {
+            mDvrDataManager.addScheduledRecordingListener(mPreTuneScheduledRecordingListener);
+        }
+        mPreTunedChannel = channel;
+        mPreTuneCallback = new PreTuneCallback();
+        mPreTuneTvView.setCallback(mPreTuneCallback);
+        mPreTuneTvView.setStreamVolume(0);
+        mPreTuneTvView.tune(channel.getInputId(), channel.getUri());
+        removeCallbacks(mCancelPreTuneRunnable);
+        postDelayed(mCancelPreTuneRunnable, PRE_TUNE_TIMEOUT_MS);
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the input of {@code channel} has a tuner for the pre-tuned session
+     * besides the one of the main view and the ones of the recordings which run until the
+     * pre-tuned session is released.
+     */
+    private boolean hasTunerForPreTune(Channel channel) {
+        TvInputInfo inputInfo = mInputManagerHelper.getTvInputInfo(channel.getInputId());
+        if (inputInfo == null) {
+            return false;
+        }
+        int neededTunerCount = inputInfo.equals(mInputInfo) ? 2 : 1;
+        if (mDvrDataManager != null) {
+            long now = System.currentTimeMillis();
+            // Counts all of them as if they run at the same time, to be safe.
+            for (ScheduledRecording r : mDvrDataManager.getRecordingsThatOverlapWith(new Range<>(
+                    now, now + PRE_TUNE_TIMEOUT_MS + PRE_TUNE_RECORDING_MARGIN_MS))) {
+                if (r.getState() != ScheduledRecording.STATE_RECORDING_NOT_STARTED
+                        && r.getState() != ScheduledRecording.STATE_RECORDING_IN_PROGRESS) {
+                    continue;
+                }
+                Channel recordingChannel = mChannelDataManager.getChannel(r.getChannelId());
+                if (recordingChannel != null
+                        && channel.getInputId().equals(recordingChannel.getInputId())) {
+                    ++neededTunerCount;
+                }
+            }
+        }
+        return inputInfo.getTunerCount() >= neededTunerCount;
+    }
+
+    private void releasePreTunedTunerIfNeeded() {
+        if (mPreTunedChannel != null && !hasTunerForPreTune(mPreTunedChannel)) {
+            if (DEBUG) Log.d(TAG, "Release the pre-tuned session for recordings");
+            cancelPreTune();
+        }
+    }
+
+    private void clearPreTunedChannel() {
+        if (mPreTunedChannel != null && mDvrDataManager != null) {
+            mDvrDataManager.removeScheduledRecordingListener(mPreTuneScheduledRecordingListener);
+        }
+        removeCallbacks(mCancelPreTuneRunnable);
+        mPreTunedChannel = null;
+        mPreTuneCallback = null;
+    }
+
+    /**
+     * Releases the session of the hidden TV view, if it's pre-tuned.
+     */
+    public void cancelPreTune() {
+        if (mPreTuneTvView == null || mPreTunedChannel == null) {
+            return;
+        }
+        if (DEBUG) Log.d(TAG, "cancelPreTune " + mPreTunedChannel);
+        mPreTuneTvView.setCallback(null);
+        mPreTuneTvView.reset();
+        clearPreTunedChannel();
+    }
+
     public void reset() {
+        cancelPreTune();
         mTvView.reset();
         mCurrentChannel = null;
         mRecordedProgram = null;
+        mLoadingRecordingUri = null;
         mInputInfo = null;
         mCanReceiveInputEvent = false;
         mOnTuneListener = null;
@@ -490,8 +645,14 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
 
     /**
      * Plays a recording.
+     *
+     * <p>If the recorded program is not cached, it's loaded first and the playback starts after
+     * that. In that case, a failure is reported by {@link OnTuneListener#onTuneFailed} with
+     * {@code null} channel.
+     *
+     * @return {@code false} if the playback can't be started.
      */
-    public boolean playRecording(Uri recordingUri, OnTuneListener listener) {
+    public boolean playRecording(final Uri recordingUri, final OnTuneListener listener) {
         if (!mStarted) {
             throw new IllegalStateException("TvView isn't started");
         }
@@ -499,12 +660,39 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
             return false;
         }
         if (DEBUG) Log.d(TAG, "playRecording " + recordingUri);
+        cancelPreTune();
         long recordingId = ContentUris.parseId(recordingUri);
-        mRecordedProgram = mDvrDataManager.getRecordedProgram(recordingId);
-        if (mRecordedProgram == null) {
-            Log.w(TAG, "No recorded program (Uri=" + recordingUri + ")");
-            return false;
+        RecordedProgram recordedProgram = mDvrDataManager.getRecordedProgram(recordingId);
+        if (recordedProgram != null) {
+            mLoadingRecordingUri = null;
+            return playRecordedProgram(recordingUri, recordedProgram, listener);
         }
+        // The full program is not cached. Load it and play it after that.
+        mLoadingRecordingUri = recordingUri;
+        mDvrDataManager.loadRecordedProgram(recordingId, new OnRecordedProgramLoadedCallback() {
+            @Override
+            public void onRecordedProgramLoaded(@Nullable RecordedProgram recordedProgram) {
+                if (!mStarted || !recordingUri.equals(mLoadingRecordingUri)) {
+                    // Stopped, or another channel or recording is requested.
+                    return;
+                }
+                mLoadingRecordingUri = null;
+                if (recordedProgram == null) {
+                    Log.w(TAG, "No recorded program (Uri=" + recordingUri + ")");
+                } else if (playRecordedProgram(recordingUri, recordedProgram, listener)) {
+                    return;
+                }
+                if (listener != null) {
+                    listener.onTuneFailed(null);
+                }
+            }
+        });
+        return true;
+    }
+
+    private boolean playRecordedProgram(Uri recordingUri, RecordedProgram recordedProgram,
+            OnTuneListener listener) {
+        mRecordedProgram = recordedProgram;
         String inputId = mRecordedProgram.getInputId();
         TvInputInfo inputInfo = mInputManagerHelper.getTvInputInfo(inputId);
         if (inputInfo == null) {
@@ -580,6 +768,7 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
         mOnTuneListener = listener;
         mCurrentChannel = channel;
         mRecordedProgram = null;
+        mLoadingRecordingUri = null;
         boolean tunedByRecommendation = params != null
                 && params.getString(NotificationService.TUNE_PARAMS_RECOMMENDATION_TYPE) != null;
         boolean needSurfaceSizeUpdate = false;
@@ -603,6 +792,11 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
         mVideoDisplayAspectRatio = 0f;
         mAudioChannelCount = StreamInfo.AUDIO_CHANNEL_COUNT_UNKNOWN;
         mHasClosedCaption = false;
+        PreTuneCallback preTuneCallback = null;
+        if (params == null && channel.equals(mPreTunedChannel)) {
+            preTuneCallback = swapPreTuneTvView();
+            needSurfaceSizeUpdate = true;
+        }
         mTvView.setCallback(mCallback);
         mTimeShiftCurrentPositionMs = INVALID_TIME;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -610,7 +804,9 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
             mTvView.setTimeShiftPositionCallback(null);
         }
         setTimeShiftAvailable(false);
-        mTvView.tune(mInputInfo.getId(), mCurrentChannel.getUri(), params);
+        if (preTuneCallback == null) {
+            mTvView.tune(mInputInfo.getId(), mCurrentChannel.getUri(), params);
+        }
         if (needSurfaceSizeUpdate && mFixedSurfaceWidth > 0 && mFixedSurfaceHeight > 0) {
             // When the input is changed, TvView recreates its SurfaceView internally.
             // So we need to call SurfaceHolder.setFixedSize for the new SurfaceView.
@@ -623,12 +819,42 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
         } else if (mParentControlEnabled) {
             mBlockScreenForTuneView.setVisibility(View.VISIBLE);
         }
+        if (preTuneCallback != null) {
+            // Catch up with the state of the pre-tuned session.
+            preTuneCallback.replay();
+        }
         if (mOnTuneListener != null) {
             mOnTuneListener.onStreamInfoChanged(this);
         }
         return true;
     }
 
+    /**
+     * Makes the pre-tuned TV view the main one, and releases the session of the old one which
+     * becomes the hidden TV view.
+     *
+     * @return the callback which has kept the events of the pre-tuned session.
+     */
+    private PreTuneCallback swapPreTuneTvView() {
+        if (DEBUG) Log.d(TAG, "Take over the pre-tuned session for " + mPreTunedChannel);
+        PreTuneCallback preTuneCallback = mPreTuneCallback;
+        AppLayerTvView oldTvView = mTvView;
+        mTvView = mPreTuneTvView;
+        mPreTuneTvView = oldTvView;
+        clearPreTunedChannel();
+        oldTvView.setCallback(null);
+        oldTvView.setOnUnhandledInputEventListener(null);
+        oldTvView.reset();
+        oldTvView.setVisibility(View.INVISIBLE);
+        copyLayoutParamsToTvView();
+        mTvView.setVisibility(getVisibility());
+        mTvView.setOnUnhandledInputEventListener(mOnUnhandledInputEventListener);
+        if (mCaptionEnabled != null) {
+            mTvView.setCaptionEnabled(mCaptionEnabled);
+        }
+        return preTuneCallback;
+    }
+
     @Override
     public Channel getCurrentChannel() {
         return mCurrentChannel;
@@ -778,10 +1004,12 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
     }
 
     public void setOnUnhandledInputEventListener(OnUnhandledInputEventListener listener) {
+        mOnUnhandledInputEventListener = listener;
         mTvView.setOnUnhandledInputEventListener(listener);
     }
 
     public void setClosedCaptionEnabled(boolean enabled) {
+        mCaptionEnabled = enabled;
         mTvView.setCaptionEnabled(enabled);
     }
 
@@ -1363,4 +1591,123 @@ public class TunableTvView extends FrameLayout implements StreamInfo {
             }
         }
     }
+
+    /**
+     * Keeps the latest event of each kind from the pre-tuned session, to replay them to
+     * {@link #mCallback} when the session is taken over.
+     */
+    private class PreTuneCallback extends TvInputCallback {
+        private final Map<String, Runnable> mLatestEvents = new LinkedHashMap<>();
+
+        void replay() {
+            for (Runnable event : mLatestEvents.values()) {
+                event.run();
+            }
+            mLatestEvents.clear();
+        }
+
+        private void keep(String kind, Runnable event) {
+            // Re-insert to keep the events in the order of arrival.
+            mLatestEvents.remove(kind);
+            mLatestEvents.put(kind, event);
+        }
+
+        @Override
+        public void onConnectionFailed(String inputId) {
+            onPreTuneFailed();
+        }
+
+        @Override
+        public void onDisconnected(String inputId) {
+            onPreTuneFailed();
+        }
+
+        private void onPreTuneFailed() {
+            if (mPreTuneCallback == this) {
+                Log.w(TAG, "Failed to pre-tune to " + mPreTunedChannel);
+                clearPreTunedChannel();
+            }
+        }
+
+        @Override
+        public void onChannelRetuned(final String inputId, final Uri channelUri) {
+            keep("channelRetuned", new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onChannelRetuned(inputId, channelUri);
+                }
+            });
+        }
+
+        @Override
+        public void onTracksChanged(final String inputId, final List<TvTrackInfo> tracks) {
+            keep("tracksChanged", new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onTracksChanged(inputId, tracks);
+                }
+            });
+        }
+
+        @Override
+        public void onTrackSelected(final String inputId, final int type, final String trackId) {
+            keep("trackSelected" + type, new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onTrackSelected(inputId, type, trackId);
+                }
+            });
+        }
+
+        @Override
+        public void onVideoAvailable(final String inputId) {
+            keep("video", new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onVideoAvailable(inputId);
+                }
+            });
+        }
+
+        @Override
+        public void onVideoUnavailable(final String inputId, final int reason) {
+            keep("video", new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onVideoUnavailable(inputId, reason);
+                }
+            });
+        }
+
+        @Override
+        public void onContentAllowed(final String inputId) {
+            keep("content", new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onContentAllowed(inputId);
+                }
+            });
+        }
+
+        @Override
+        public void onContentBlocked(final String inputId, final TvContentRating rating) {
+            keep("content", new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onContentBlocked(inputId, rating);
+                }
+            });
+        }
+
+        @Override
+        @TargetApi(Build.VERSION_CODES.M)
+        public void onTimeShiftStatusChanged(final String inputId, final int status) {
+            keep("timeShiftStatus", new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onTimeShiftStatusChanged(inputId, status);
+                }
+            });
+        }
+    }
 }
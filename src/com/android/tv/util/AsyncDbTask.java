@@ -38,10 +38,11 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 
 /**
- * {@link AsyncTask} that defaults to executing on its own single threaded Executor Service.
+ * {@link AsyncTask} that defaults to executing on its own {@link DbExecutor}.
  *
  * <p>Instances of this class should only be executed this using {@link
- * #executeOnDbThread(Object[])}.
+ * #executeOnDbThread(Object[])}. The tasks are run in the order of {@link #getPriority()}, and up
+ * to {@link #DB_THREAD_COUNT} tasks can run in parallel.
  *
  * @param <Params> the type of the parameters sent to the task upon execution.
  * @param <Progress> the type of the progress units published during the background computation.
@@ -52,22 +53,32 @@ public abstract class AsyncDbTask<Params, Progress, Result>
     private static final String TAG = "AsyncDbTask";
     private static final boolean DEBUG = false;
 
+    // Most of the queries are blocked on the provider, so a few threads are enough to prevent
+    // the long queries from delaying the short ones.
+    private static final int DB_THREAD_COUNT = 3;
+
     public static final NamedThreadFactory THREAD_FACTORY = new NamedThreadFactory(
             AsyncDbTask.class.getSimpleName());
-    private static final ExecutorService DB_EXECUTOR = Executors
+    private static final DbExecutor DB_EXECUTOR = new DbExecutor(DB_THREAD_COUNT,
+            THREAD_FACTORY);
+    // The writes are kept on their own single thread, so that they are applied in the order of
+    // the calls and are not delayed by the queries in DB_EXECUTOR.
+    private static final ExecutorService WRITE_EXECUTOR = Executors
             .newSingleThreadExecutor(THREAD_FACTORY);
 
     /**
-     * Returns the single tread executor used for DbTasks.
+     * Returns the executor used for DbTasks.
      */
-    public static ExecutorService getExecutor() {
+    public static DbExecutor getExecutor() {
         return DB_EXECUTOR;
     }
 
     /**
      * Executes the given command at some time in the future.
      *
-     * <p>The command will be executed by {@link #getExecutor()}.
+     * <p>The commands will be executed one at a time in the order of the calls on a thread
+     * separate from {@link #getExecutor()}, so they can be used for the writes which should not be
+     * reordered.
      *
      * @param command the runnable task
      * @throws RejectedExecutionException if this task cannot be
@@ -75,7 +86,15 @@ public abstract class AsyncDbTask<Params, Progress, Result>
      * @throws NullPointerException       if command is null
      */
     public static void execute(Runnable command) {
-        DB_EXECUTOR.execute(command);
+        WRITE_EXECUTOR.execute(command);
+    }
+
+    /**
+     * Returns the priority of this task, one of {@link DbExecutor#PRIORITY_HIGH},
+     * {@link DbExecutor#PRIORITY_NORMAL} and {@link DbExecutor#PRIORITY_LOW}.
+     */
+    protected int getPriority() {
+        return DbExecutor.PRIORITY_NORMAL;
     }
 
     /**
@@ -95,7 +114,6 @@ public abstract class AsyncDbTask<Params, Progress, Result>
         private final String[] mSelectionArgs;
         private final String mOrderBy;
 
-
         public AsyncQueryTask(ContentResolver contentResolver, Uri uri, String[] projection,
                 String selection, String[] selectionArgs, String orderBy) {
             mContentResolver = contentResolver;
@@ -273,12 +291,12 @@ public abstract class AsyncDbTask<Params, Progress, Result>
     }
 
     /**
-     * Execute the task on the {@link #DB_EXECUTOR} thread.
+     * Execute the task on the {@link #DB_EXECUTOR} thread with {@link #getPriority()}.
      */
     @SafeVarargs
     @MainThread
     public final void executeOnDbThread(Params... params) {
-        executeOnExecutor(DB_EXECUTOR, params);
+        executeOnExecutor(DB_EXECUTOR.withPriority(getPriority()), params);
     }
 
     /**
@@ -313,5 +331,10 @@ public abstract class AsyncDbTask<Params, Progress, Result>
         public final Range<Long> getPeriod() {
             return mPeriod;
         }
+
+        @Override
+        protected int getPriority() {
+            return DbExecutor.PRIORITY_HIGH;
+        }
     }
 }
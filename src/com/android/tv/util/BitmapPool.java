@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.util;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.android.tv.common.MemoryManageable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A pool of the bitmaps which are no longer used, to be reused by
+ * {@link android.graphics.BitmapFactory.Options#inBitmap} when decoding other bitmaps.
+ *
+ * <p>Only the bitmaps which are known not to be referenced anywhere else should be put. The
+ * bitmaps are kept by their allocation sizes up to {@link #MAX_SIZE_BYTES}, and the oldest ones
+ * are dropped first.
+ */
+public class BitmapPool implements MemoryManageable {
+    private static final String TAG = "BitmapPool";
+    private static final boolean DEBUG = false;
+
+    private static final int MAX_SIZE_BYTES = 8 * 1024 * 1024;  // 8MB
+    // A bitmap larger than this times the requested size is not used, not to waste the memory.
+    private static final int MAX_SIZE_MULTIPLIER = 2;
+
+    private static BitmapPool sInstance;
+
+    private final int mMaxSizeBytes;
+    // The bitmaps in the order of their allocation sizes.
+    private final TreeMap<Integer, List<Bitmap>> mBitmaps = new TreeMap<>();
+    // The bitmaps in the order of insertion, which is used to drop the oldest ones.
+    private final LinkedHashSet<Bitmap> mInsertionOrder = new LinkedHashSet<>();
+    private int mSizeBytes;
+
+    /**
+     * Returns the pool of the application.
+     */
+    public static synchronized BitmapPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new BitmapPool(MAX_SIZE_BYTES);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    BitmapPool(int maxSizeBytes) {
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Puts a bitmap which is no longer used. Immutable bitmaps are ignored, since they cannot be
+     * reused.
+     */
+    public synchronized void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || mInsertionOrder.contains(bitmap)) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > mMaxSizeBytes) {
+            return;
+        }
+        List<Bitmap> bitmaps = mBitmaps.get(size);
+        if (bitmaps == null) {
+            bitmaps = new ArrayList<>();
+            mBitmaps.put(size, bitmaps);
+        }
+        bitmaps.add(bitmap);
+        mInsertionOrder.add(bitmap);
+        mSizeBytes += size;
+        trimToSize(mMaxSizeBytes);
+        if (DEBUG) Log.d(TAG, "put " + size + " bytes, total " + mSizeBytes + " bytes");
+    }
+
+    /**
+     * Takes a bitmap of the config which can hold {@code width} x {@code height} pixels, or
+     * returns {@code null} if there's no such bitmap. The returned bitmap is removed from the
+     * pool.
+     */
+    @Nullable
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        int requiredSize = width * height * getBytesPerPixel(config);
+        if (requiredSize <= 0) {
+            return null;
+        }
+        for (Map.Entry<Integer, List<Bitmap>> entry
+                : mBitmaps.subMap(requiredSize, true, requiredSize * MAX_SIZE_MULTIPLIER, true)
+                .entrySet()) {
+            Iterator<Bitmap> iter = entry.getValue().iterator();
+            while (iter.hasNext()) {
+                Bitmap bitmap = iter.next();
+                if (bitmap.getConfig() == config) {
+                    iter.remove();
+                    if (entry.getValue().isEmpty()) {
+                        mBitmaps.remove(entry.getKey());
+                    }
+                    mInsertionOrder.remove(bitmap);
+                    mSizeBytes -= entry.getKey();
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    @VisibleForTesting
+    synchronized int getSizeBytes() {
+        return mSizeBytes;
+    }
+
+    @Override
+    public synchronized void performTrimMemory(int level) {
+        trimToSize(0);
+    }
+
+    private void trimToSize(int maxSizeBytes) {
+        Iterator<Bitmap> iter = mInsertionOrder.iterator();
+        while (mSizeBytes > maxSizeBytes && iter.hasNext()) {
+            Bitmap bitmap = iter.next();
+            iter.remove();
+            int size = bitmap.getAllocationByteCount();
+            List<Bitmap> bitmaps = mBitmaps.get(size);
+            bitmaps.remove(bitmap);
+            if (bitmaps.isEmpty()) {
+                mBitmaps.remove(size);
+            }
+            mSizeBytes -= size;
+        }
+    }
+
+    private static int getBytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ARGB_8888:
+                return 4;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            case ALPHA_8:
+                return 1;
+            default:
+                return 4;
+        }
+    }
+}
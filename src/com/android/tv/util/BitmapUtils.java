@@ -30,6 +30,7 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -48,6 +49,8 @@ public final class BitmapUtils {
     private static final int CONNECTION_TIMEOUT_MS_FOR_URLCONNECTION = 3000;  // 3 sec
     private static final int READ_TIMEOUT_MS_FOR_URLCONNECTION = 10000;  // 10 sec
 
+    private static final String MIME_TYPE_JPEG = "image/jpeg";
+
     private BitmapUtils() { /* cannot be instantiated */ }
 
     public static Bitmap scaleBitmap(Bitmap bm, int maxWidth, int maxHeight) {
@@ -77,13 +80,35 @@ public final class BitmapUtils {
 
     /**
      * Decode large sized bitmap into requested size.
+     *
+     * <p>If the size is given, the result is stored in {@link ImageDiskCache} and the next
+     * request for the same size is served from it without decoding the original.
      */
     public static ScaledBitmapInfo decodeSampledBitmapFromUriString(Context context,
             String uriString, int reqWidth, int reqHeight) {
         if (TextUtils.isEmpty(uriString)) {
             return null;
         }
+        // The full sized bitmaps are not cached, since they are used only once to be stored in
+        // other places.
+        ImageDiskCache diskCache = reqWidth == Integer.MAX_VALUE || reqHeight == Integer.MAX_VALUE
+                ? null : ImageDiskCache.getInstance(context);
+        if (diskCache != null) {
+            ScaledBitmapInfo bitmapInfo = diskCache.get(uriString, reqWidth, reqHeight);
+            if (bitmapInfo != null) {
+                return bitmapInfo;
+            }
+        }
+        ScaledBitmapInfo bitmapInfo = decodeSampledBitmapFromUriStringInternal(context,
+                uriString, reqWidth, reqHeight);
+        if (diskCache != null && bitmapInfo != null) {
+            diskCache.put(bitmapInfo, reqWidth, reqHeight);
+        }
+        return bitmapInfo;
+    }
 
+    private static ScaledBitmapInfo decodeSampledBitmapFromUriStringInternal(Context context,
+            String uriString, int reqWidth, int reqHeight) {
         InputStream inputStream = null;
         try {
             inputStream = new BufferedInputStream(getInputStream(context, uriString));
@@ -111,7 +136,30 @@ public final class BitmapUtils {
             options.inJustDecodeBounds = false;
             options.inPreferredConfig = Bitmap.Config.RGB_565;
             options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
-            Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+            // Make the bitmap reusable when it's put to BitmapPool.
+            options.inMutable = true;
+            // The other formats can have the alpha channel, which would be lost by decoding
+            // into an RGB_565 bitmap.
+            if (MIME_TYPE_JPEG.equals(options.outMimeType)) {
+                options.inBitmap = BitmapPool.getInstance().get(
+                        divideRoundingUp(options.outWidth, options.inSampleSize),
+                        divideRoundingUp(options.outHeight, options.inSampleSize),
+                        Bitmap.Config.RGB_565);
+            }
+            Bitmap bitmap;
+            try {
+                bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+            } catch (IllegalArgumentException e) {
+                if (options.inBitmap == null) {
+                    throw e;
+                }
+                if (DEBUG) Log.d(TAG, "Failed to reuse the bitmap for " + uriString, e);
+                BitmapPool.getInstance().put(options.inBitmap);
+                options.inBitmap = null;
+                close(inputStream);
+                inputStream = getInputStream(context, uriString);
+                bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+            }
             if (bitmap == null) {
                 return null;
             }
@@ -130,6 +178,76 @@ public final class BitmapUtils {
         }
     }
 
+    /**
+     * Reads the whole content of {@code uriString}, or returns {@code null} if it fails.
+     */
+    public static byte[] readBytesFromUriString(Context context, String uriString) {
+        if (TextUtils.isEmpty(uriString)) {
+            return null;
+        }
+        InputStream inputStream = null;
+        try {
+            inputStream = getInputStream(context, uriString);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8 * 1024];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            if (DEBUG) Log.w(TAG, "Failed to read stream: " + uriString, e);
+            return null;
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Failed to read stream: " + uriString, e);
+            return null;
+        } finally {
+            close(inputStream);
+        }
+    }
+
+    /**
+     * Decodes the image in {@code data} into requested size. The bitmap can be put to
+     * {@link BitmapPool} when it's not used anymore.
+     */
+    public static ScaledBitmapInfo decodeSampledBitmapFromBytes(String id, byte[] data,
+            int reqWidth, int reqHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+        // Make the bitmap reusable when it's put to BitmapPool.
+        options.inMutable = true;
+        if (MIME_TYPE_JPEG.equals(options.outMimeType)) {
+            options.inBitmap = BitmapPool.getInstance().get(
+                    divideRoundingUp(options.outWidth, options.inSampleSize),
+                    divideRoundingUp(options.outHeight, options.inSampleSize),
+                    Bitmap.Config.RGB_565);
+        }
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null) {
+                throw e;
+            }
+            if (DEBUG) Log.d(TAG, "Failed to reuse the bitmap for " + id, e);
+            BitmapPool.getInstance().put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+        if (bitmap == null) {
+            return null;
+        }
+        return new ScaledBitmapInfo(id, bitmap, options.inSampleSize);
+    }
+
+    private static int divideRoundingUp(int dividend, int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
     private static int calculateInSampleSize(BitmapFactory.Options options, int reqWidth,
             int reqHeight) {
         return calculateInSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.util;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An executor for the DB operations which runs the tasks on a small pool of threads in the order
+ * of their priorities.
+ *
+ * <p>The tasks of the same priority are executed in the submission order, but they can run in
+ * parallel. So the operations which should not be reordered, e.g. writes, should not be run on
+ * this executor.
+ */
+public class DbExecutor extends ThreadPoolExecutor {
+    private static final String TAG = "DbExecutor";
+    private static final boolean DEBUG = false;
+
+    /**
+     * The priority for the tasks whose results are waited by the user, e.g. the current program
+     * of the channel banner.
+     */
+    public static final int PRIORITY_HIGH = 0;
+    /**
+     * The default priority.
+     */
+    public static final int PRIORITY_NORMAL = 1;
+    /**
+     * The priority for the background tasks like prefetching.
+     */
+    public static final int PRIORITY_LOW = 2;
+    private static final int PRIORITY_COUNT = 3;
+
+    private final AtomicLong mSequence = new AtomicLong();
+    private final AtomicInteger[] mQueuedCounts = new AtomicInteger[PRIORITY_COUNT];
+    private final AtomicLong[] mExecutedCounts = new AtomicLong[PRIORITY_COUNT];
+    private final AtomicLong[] mTotalWaitTimesMs = new AtomicLong[PRIORITY_COUNT];
+    private final AtomicLong[] mMaxWaitTimesMs = new AtomicLong[PRIORITY_COUNT];
+
+    public DbExecutor(int threadCount, ThreadFactory threadFactory) {
+        super(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), threadFactory);
+        for (int i = 0; i < PRIORITY_COUNT; ++i) {
+            mQueuedCounts[i] = new AtomicInteger();
+            mExecutedCounts[i] = new AtomicLong();
+            mTotalWaitTimesMs[i] = new AtomicLong();
+            mMaxWaitTimesMs[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Executes the command with {@link #PRIORITY_NORMAL}.
+     */
+    @Override
+    public void execute(@NonNull Runnable command) {
+        execute(command, PRIORITY_NORMAL);
+    }
+
+    /**
+     * Executes the command with the given priority.
+     */
+    public void execute(@NonNull Runnable command, int priority) {
+        if (command instanceof PrioritizedCommand) {
+            super.execute(command);
+            return;
+        }
+        if (priority < PRIORITY_HIGH || priority >= PRIORITY_COUNT) {
+            throw new IllegalArgumentException("Invalid priority: " + priority);
+        }
+        mQueuedCounts[priority].incrementAndGet();
+        super.execute(new PrioritizedCommand(command, priority, mSequence.getAndIncrement()));
+    }
+
+    /**
+     * Returns an executor which submits the commands to this executor with the given priority.
+     */
+    public Executor withPriority(final int priority) {
+        return new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                DbExecutor.this.execute(command, priority);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of the tasks of the priority which are waiting to be executed.
+     */
+    public int getQueuedTaskCount(int priority) {
+        return mQueuedCounts[priority].get();
+    }
+
+    /**
+     * Returns the average time in milliseconds which the tasks of the priority have waited in
+     * the queue before being executed.
+     */
+    public long getAverageWaitTimeMs(int priority) {
+        long count = mExecutedCounts[priority].get();
+        return count == 0 ? 0 : mTotalWaitTimesMs[priority].get() / count;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds which a task of the priority has waited in the
+     * queue before being executed.
+     */
+    public long getMaxWaitTimeMs(int priority) {
+        return mMaxWaitTimesMs[priority].get();
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (!(r instanceof PrioritizedCommand)) {
+            return;
+        }
+        PrioritizedCommand command = (PrioritizedCommand) r;
+        int priority = command.mPriority;
+        long waitTimeMs = SystemClock.elapsedRealtime() - command.mEnqueuedTimeMs;
+        mQueuedCounts[priority].decrementAndGet();
+        mExecutedCounts[priority].incrementAndGet();
+        mTotalWaitTimesMs[priority].addAndGet(waitTimeMs);
+        long maxWaitTimeMs;
+        do {
+            maxWaitTimeMs = mMaxWaitTimesMs[priority].get();
+        } while (waitTimeMs > maxWaitTimeMs
+                && !mMaxWaitTimesMs[priority].compareAndSet(maxWaitTimeMs, waitTimeMs));
+        if (DEBUG) {
+            Log.d(TAG, "Waited " + waitTimeMs + "ms with priority " + priority + ", "
+                    + mQueuedCounts[priority].get() + " remaining");
+        }
+    }
+
+    private static class PrioritizedCommand implements Runnable, Comparable<PrioritizedCommand> {
+        private final Runnable mCommand;
+        private final int mPriority;
+        private final long mSequence;
+        private final long mEnqueuedTimeMs = SystemClock.elapsedRealtime();
+
+        PrioritizedCommand(Runnable command, int priority, long sequence) {
+            mCommand = command;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (mCommand instanceof Future && ((Future) mCommand).isCancelled()) {
+                // The canceled task doesn't need to be run.
+                return;
+            }
+            mCommand.run();
+        }
+
+        @Override
+        public int compareTo(@NonNull PrioritizedCommand other) {
+            if (mPriority != other.mPriority) {
+                return mPriority - other.mPriority;
+            }
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.util;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.android.tv.util.BitmapUtils.ScaledBitmapInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A size-bounded disk cache of the scaled down bitmaps, which is the second level of
+ * {@link ImageCache}.
+ *
+ * <p>The bitmaps are keyed by the URI and the requested size, so the cached bitmap can be used
+ * as is without decoding the original again. The least recently used entries are evicted when
+ * the total size exceeds the limit, and the entries older than {@link #MAX_AGE_MS} are ignored
+ * since the image of a URI can be changed.
+ */
+@WorkerThread
+public class ImageDiskCache {
+    private static final String TAG = "ImageDiskCache";
+    private static final boolean DEBUG = false;
+
+    private static final String DIR_NAME = "images";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int VERSION = 1;
+    private static final long MAX_SIZE_BYTES = 20 * 1024 * 1024;  // 20MB
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int JPEG_QUALITY = 90;
+
+    private static ImageDiskCache sInstance;
+
+    private final File mDir;
+    private final long mMaxSizeBytes;
+    // The file sizes in the access order.
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSizeBytes;
+    private boolean mInitialized;
+    private int mHitCount;
+    private int mMissCount;
+
+    /**
+     * Returns the disk cache of the application.
+     */
+    public static synchronized ImageDiskCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ImageDiskCache(
+                    new File(context.getApplicationContext().getCacheDir(), DIR_NAME),
+                    MAX_SIZE_BYTES);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ImageDiskCache(File dir, long maxSizeBytes) {
+        mDir = dir;
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Returns the cached bitmap which was decoded from {@code uriString} for the requested size,
+     * or {@code null} if there's no such bitmap.
+     */
+    @Nullable
+    public ScaledBitmapInfo get(String uriString, int reqWidth, int reqHeight) {
+        String name = getFileName(uriString, reqWidth, reqHeight);
+        File file = new File(mDir, name);
+        synchronized (this) {
+            initializeIfNeeded();
+            if (mEntries.get(name) == null) {
+                ++mMissCount;
+                return null;
+            }
+            if (System.currentTimeMillis() - file.lastModified() > MAX_AGE_MS) {
+                removeEntry(name);
+                ++mMissCount;
+                return null;
+            }
+        }
+        ScaledBitmapInfo bitmapInfo = read(uriString, file);
+        synchronized (this) {
+            if (bitmapInfo == null) {
+                removeEntry(name);
+                ++mMissCount;
+            } else {
+                ++mHitCount;
+            }
+            if (DEBUG) {
+                Log.d(TAG, "Disk cache " + (bitmapInfo == null ? "miss" : "hit") + " for "
+                        + uriString + " " + mHitCount + "h:" + mMissCount + "m");
+            }
+        }
+        return bitmapInfo;
+    }
+
+    /**
+     * Stores the bitmap decoded from {@code uriString} for the requested size.
+     */
+    public void put(ScaledBitmapInfo bitmapInfo, int reqWidth, int reqHeight) {
+        String name = getFileName(bitmapInfo.id, reqWidth, reqHeight);
+        synchronized (this) {
+            initializeIfNeeded();
+        }
+        File file = new File(mDir, name);
+        File tempFile = new File(mDir, name + TEMP_FILE_SUFFIX);
+        if (!write(bitmapInfo, tempFile) || !tempFile.renameTo(file)) {
+            tempFile.delete();
+            return;
+        }
+        synchronized (this) {
+            Long oldSize = mEntries.put(name, file.length());
+            if (oldSize != null) {
+                mSizeBytes -= oldSize;
+            }
+            mSizeBytes += file.length();
+            trimToSize();
+        }
+    }
+
+    /**
+     * Returns the number of the requests which are found in the cache.
+     */
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the number of the requests which are not found in the cache.
+     */
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the total size of the cached files in bytes.
+     */
+    public synchronized long getSizeBytes() {
+        return mSizeBytes;
+    }
+
+    private void initializeIfNeeded() {
+        if (mInitialized) {
+            return;
+        }
+        mInitialized = true;
+        if (!mDir.isDirectory() && !mDir.mkdirs()) {
+            Log.w(TAG, "Failed to create " + mDir);
+            return;
+        }
+        File[] files = mDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        // Use the modified time as the last access time of the previous sessions.
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return Long.compare(lhs.lastModified(), rhs.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            mEntries.put(file.getName(), file.length());
+            mSizeBytes += file.length();
+        }
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iter = mEntries.entrySet().iterator();
+        while (mSizeBytes > mMaxSizeBytes && iter.hasNext()) {
+            Map.Entry<String, Long> entry = iter.next();
+            iter.remove();
+            mSizeBytes -= entry.getValue();
+            new File(mDir, entry.getKey()).delete();
+            if (DEBUG) Log.d(TAG, "Evicted " + entry.getKey());
+        }
+    }
+
+    private void removeEntry(String name) {
+        Long size = mEntries.remove(name);
+        if (size != null) {
+            mSizeBytes -= size;
+        }
+        new File(mDir, name).delete();
+    }
+
+    private static ScaledBitmapInfo read(String uriString, File file) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            int inSampleSize = in.readInt();
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (bitmap == null) {
+                return null;
+            }
+            return new ScaledBitmapInfo(uriString, bitmap, inSampleSize);
+        } catch (IOException e) {
+            if (DEBUG) Log.w(TAG, "Failed to read " + file, e);
+            return null;
+        }
+    }
+
+    private static boolean write(ScaledBitmapInfo bitmapInfo, File file) {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(VERSION);
+            out.writeInt(bitmapInfo.inSampleSize);
+            // Keep the transparency of the logos.
+            Bitmap.CompressFormat format = bitmapInfo.bitmap.hasAlpha()
+                    ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+            return bitmapInfo.bitmap.compress(format, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + file, e);
+            return false;
+        }
+    }
+
+    private static String getFileName(String uriString, int reqWidth, int reqHeight) {
+        String key = uriString + "|" + reqWidth + "x" + reqHeight;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+}
@@ -25,6 +25,7 @@ import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.UiThread;
 import android.support.annotation.WorkerThread;
@@ -35,12 +36,14 @@ import com.android.tv.R;
 import com.android.tv.util.BitmapUtils.ScaledBitmapInfo;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.WeakHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -59,34 +62,36 @@ public final class ImageLoader {
     // preferring to have 1 less than the CPU count to avoid saturating
     // the CPU with background work
     private static final int CORE_POOL_SIZE = Math.max(2, Math.min(CPU_COUNT - 1, 4));
-    private static final int MAXIMUM_POOL_SIZE = CPU_COUNT * 2 + 1;
     private static final int KEEP_ALIVE_SECONDS = 30;
 
-    private static final ThreadFactory sThreadFactory = new NamedThreadFactory("ImageLoader");
+    // The requests for the images on the screen are loaded first.
+    private static final int PRIORITY_VISIBLE = 0;
+    private static final int PRIORITY_PREFETCH = 1;
 
-    private static final BlockingQueue<Runnable> sPoolWorkQueue = new LinkedBlockingQueue<Runnable>(
-            128);
+    private static final ThreadFactory sThreadFactory = new NamedThreadFactory("ImageLoader");
 
     /**
      * An private {@link Executor} that can be used to execute tasks in parallel.
      *
-     * <p>{@code IMAGE_THREAD_POOL_EXECUTOR} setting are copied from {@link AsyncTask}
-     * Since we do a lot of concurrent image loading we can exhaust a thread pool.
-     * ImageLoader catches the error, and just leaves the image blank.
-     * However other tasks will fail and crash the application.
+     * <p>Since we do a lot of concurrent image loading we can exhaust a thread pool.
+     * Using a separate thread pool prevents image loading from causing other tasks to fail.
      *
-     * <p>Using a separate thread pool prevents image loading from causing other tasks to fail.
+     * <p>The tasks are executed in the order of the priority, and the newest task first among
+     * the tasks of the same priority, because the older requests are likely for the views which
+     * are already scrolled out. The queue is not bounded, and the tasks which are no longer
+     * needed are canceled before they start.
      */
-    private static final Executor IMAGE_THREAD_POOL_EXECUTOR;
+    private static final ThreadPoolExecutor IMAGE_THREAD_POOL_EXECUTOR;
 
     static {
-        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(CORE_POOL_SIZE,
-                MAXIMUM_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, sPoolWorkQueue,
+        IMAGE_THREAD_POOL_EXECUTOR = new ThreadPoolExecutor(CORE_POOL_SIZE, CORE_POOL_SIZE,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
                 sThreadFactory);
-        threadPoolExecutor.allowCoreThreadTimeOut(true);
-        IMAGE_THREAD_POOL_EXECUTOR = threadPoolExecutor;
+        IMAGE_THREAD_POOL_EXECUTOR.allowCoreThreadTimeOut(true);
     }
 
+    private static long sSequence;
+
     private static Handler sMainHandler;
 
     /**
@@ -99,6 +104,7 @@ public final class ImageLoader {
     @UiThread
     public static abstract class ImageLoaderCallback<T> {
         private final WeakReference<T> mWeakReference;
+        private LoadBitmapTask mTask;
 
         /**
          * Creates an callback keeping a weak reference to {@code referent}.
@@ -127,21 +133,35 @@ public final class ImageLoader {
          * Called when bitmap is loaded if the weak reference is still valid.
          */
         public abstract void onBitmapLoaded(T referent, @Nullable Bitmap bitmap);
+
+        /**
+         * Returns {@code true} if this callback is not needed any more when {@code callback}
+         * for the same referent is requested. By default, the callback of the same class
+         * replaces this, which means that the referent is rebound to another image.
+         */
+        protected boolean isReplacedBy(ImageLoaderCallback<?> callback) {
+            return callback.getClass() == getClass();
+        }
     }
 
     private static final Map<String, LoadBitmapTask> sPendingListMap = new HashMap<>();
+    // The pending callbacks of the referents, which are used to cancel the callbacks when their
+    // referents are rebound or recycled.
+    private static final Map<Object, List<ImageLoaderCallback>> sPendingCallbacksMap =
+            new WeakHashMap<>();
 
     /**
      * Preload a bitmap image into the cache.
      *
-     * <p>Not to make heavy CPU load, AsyncTask.SERIAL_EXECUTOR is used for the image loading.
+     * <p>Not to make heavy CPU load, the image loading has lower priority than the images on the
+     * screen.
      * <p>This method is thread safe.
      */
     public static void prefetchBitmap(Context context, final String uriString, final int maxWidth,
             final int maxHeight) {
         if (DEBUG) Log.d(TAG, "prefetchBitmap() " + uriString);
         if (Looper.getMainLooper() == Looper.myLooper()) {
-            doLoadBitmap(context, uriString, maxWidth, maxHeight, null, AsyncTask.SERIAL_EXECUTOR);
+            doLoadBitmap(context, uriString, maxWidth, maxHeight, null, PRIORITY_PREFETCH);
         } else {
             final Context appContext = context.getApplicationContext();
             getMainHandler().post(new Runnable() {
@@ -151,7 +171,7 @@ public final class ImageLoader {
                     // Calling from the main thread prevents a ConcurrentModificationException
                     // in LoadBitmapTask.onPostExecute
                     doLoadBitmap(appContext, uriString, maxWidth, maxHeight, null,
-                            AsyncTask.SERIAL_EXECUTOR);
+                            PRIORITY_PREFETCH);
                 }
             });
         }
@@ -185,23 +205,23 @@ public final class ImageLoader {
         if (DEBUG) {
             Log.d(TAG, "loadBitmap() " + uriString);
         }
-        return doLoadBitmap(context, uriString, maxWidth, maxHeight, callback,
-                IMAGE_THREAD_POOL_EXECUTOR);
+        return doLoadBitmap(context, uriString, maxWidth, maxHeight, callback, PRIORITY_VISIBLE);
     }
 
     private static boolean doLoadBitmap(Context context, String uriString,
-            int maxWidth, int maxHeight, ImageLoaderCallback callback, Executor executor) {
+            int maxWidth, int maxHeight, ImageLoaderCallback callback, int priority) {
         // Check the cache before creating a Task.  The cache will be checked again in doLoadBitmap
         // but checking a cache is much cheaper than creating an new task.
         ImageCache imageCache = ImageCache.getInstance();
         ScaledBitmapInfo bitmapInfo = imageCache.get(uriString);
         if (bitmapInfo != null && !bitmapInfo.needToReload(maxWidth, maxHeight)) {
             if (callback != null) {
+                cancelReplacedCallbacks(callback);
                 callback.onBitmapLoaded(bitmapInfo.bitmap);
             }
             return true;
         }
-        return doLoadBitmap(callback, executor,
+        return doLoadBitmap(callback, priority,
                 new LoadBitmapFromUriTask(context, imageCache, uriString, maxWidth, maxHeight));
     }
 
@@ -217,15 +237,32 @@ public final class ImageLoader {
         if (DEBUG) {
             Log.d(TAG, "loadBitmap() " + loadBitmapTask);
         }
-        return doLoadBitmap(callback, IMAGE_THREAD_POOL_EXECUTOR, loadBitmapTask);
+        return doLoadBitmap(callback, PRIORITY_VISIBLE, loadBitmapTask);
+    }
+
+    /**
+     * Cancels the pending callbacks for {@code referent}. It should be called when the referent
+     * is recycled. The image loading is canceled too if no one else is waiting for it.
+     */
+    @UiThread
+    public static void cancelLoadBitmap(Object referent) {
+        List<ImageLoaderCallback> callbacks = sPendingCallbacksMap.remove(referent);
+        if (callbacks != null) {
+            for (ImageLoaderCallback callback : callbacks) {
+                callback.mTask.removeCallback(callback);
+            }
+        }
     }
 
     /**
      * @return {@code true} if the load is complete and the callback is executed.
      */
     @UiThread
-    private static boolean doLoadBitmap(ImageLoaderCallback callback, Executor executor,
+    private static boolean doLoadBitmap(ImageLoaderCallback callback, int priority,
             LoadBitmapTask loadBitmapTask) {
+        if (callback != null) {
+            cancelReplacedCallbacks(callback);
+        }
         ScaledBitmapInfo bitmapInfo = loadBitmapTask.getFromCache();
         boolean needToReload = loadBitmapTask.isReloadNeeded();
         if (bitmapInfo != null && !needToReload) {
@@ -238,15 +275,29 @@ public final class ImageLoader {
         if (existingTask != null && !loadBitmapTask.isReloadNeeded(existingTask)) {
             // The image loading is already scheduled and is large enough.
             if (callback != null) {
-                existingTask.mCallbacks.add(callback);
+                existingTask.addCallback(callback);
+            } else {
+                existingTask.mPrefetch = true;
             }
+            existingTask.promote(priority);
         } else {
             if (callback != null) {
-                loadBitmapTask.mCallbacks.add(callback);
+                loadBitmapTask.addCallback(callback);
+            } else {
+                loadBitmapTask.mPrefetch = true;
+            }
+            if (existingTask != null && existingTask.cancelIfNotStarted()) {
+                // The new task loads a larger bitmap, which can be used for the existing one.
+                for (ImageLoaderCallback existingCallback : existingTask.mCallbacks) {
+                    existingTask.unregisterCallback(existingCallback);
+                    loadBitmapTask.addCallback(existingCallback);
+                }
+                loadBitmapTask.mPrefetch |= existingTask.mPrefetch;
+                existingTask.mCallbacks.clear();
             }
             sPendingListMap.put(loadBitmapTask.getKey(), loadBitmapTask);
             try {
-                loadBitmapTask.executeOnExecutor(executor);
+                loadBitmapTask.executeOnExecutor(loadBitmapTask.getExecutor(priority));
             } catch (RejectedExecutionException e) {
                 Log.e(TAG, "Failed to create new image loader", e);
                 sPendingListMap.remove(loadBitmapTask.getKey());
@@ -255,6 +306,28 @@ public final class ImageLoader {
         return false;
     }
 
+    /**
+     * Cancels the pending callbacks of the same referent which are replaced by
+     * {@code callback}.
+     */
+    @UiThread
+    private static void cancelReplacedCallbacks(ImageLoaderCallback callback) {
+        Object referent = callback.mWeakReference.get();
+        if (referent == null) {
+            return;
+        }
+        List<ImageLoaderCallback> callbacks = sPendingCallbacksMap.get(referent);
+        if (callbacks == null) {
+            return;
+        }
+        for (ImageLoaderCallback pendingCallback : new ArrayList<>(callbacks)) {
+            if (pendingCallback != callback && pendingCallback.isReplacedBy(callback)) {
+                if (DEBUG) Log.d(TAG, "Canceled the callback for " + pendingCallback.mTask);
+                pendingCallback.mTask.removeCallback(pendingCallback);
+            }
+        }
+    }
+
     /**
      * Loads and caches a a possibly scaled down version of a bitmap.
      *
@@ -267,6 +340,10 @@ public final class ImageLoader {
         private final Set<ImageLoaderCallback> mCallbacks = new ArraySet<>();
         private final ImageCache mImageCache;
         private final String mKey;
+        // Whether the bitmap should be loaded into the cache even if there's no callback.
+        private boolean mPrefetch;
+        private PrioritizedRunnable mRunnable;
+        private volatile boolean mStarted;
 
         /**
          * Returns true if a reload is needed compared to current results in the cache or false if
@@ -301,6 +378,86 @@ public final class ImageLoader {
             return mImageCache.get(mKey);
         }
 
+        @UiThread
+        private void addCallback(ImageLoaderCallback callback) {
+            mCallbacks.add(callback);
+            callback.mTask = this;
+            Object referent = callback.mWeakReference.get();
+            if (referent != null) {
+                List<ImageLoaderCallback> callbacks = sPendingCallbacksMap.get(referent);
+                if (callbacks == null) {
+                    callbacks = new ArrayList<>();
+                    sPendingCallbacksMap.put(referent, callbacks);
+                }
+                callbacks.add(callback);
+            }
+        }
+
+        @UiThread
+        private void removeCallback(ImageLoaderCallback callback) {
+            mCallbacks.remove(callback);
+            unregisterCallback(callback);
+            if (mCallbacks.isEmpty() && !mPrefetch) {
+                cancelIfNotStarted();
+            }
+        }
+
+        @UiThread
+        private void unregisterCallback(ImageLoaderCallback callback) {
+            Object referent = callback.mWeakReference.get();
+            if (referent == null) {
+                return;
+            }
+            List<ImageLoaderCallback> callbacks = sPendingCallbacksMap.get(referent);
+            if (callbacks != null) {
+                callbacks.remove(callback);
+                if (callbacks.isEmpty()) {
+                    sPendingCallbacksMap.remove(referent);
+                }
+            }
+        }
+
+        /**
+         * Cancels the task if it's not started yet and returns {@code true} if it's canceled.
+         */
+        @UiThread
+        private boolean cancelIfNotStarted() {
+            if (mStarted || isCancelled()) {
+                return false;
+            }
+            if (DEBUG) Log.d(TAG, "Canceled " + this);
+            cancel(false);
+            if (mRunnable != null) {
+                IMAGE_THREAD_POOL_EXECUTOR.remove(mRunnable);
+            }
+            return true;
+        }
+
+        private Executor getExecutor(final int priority) {
+            return new Executor() {
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    mRunnable = new PrioritizedRunnable(command, priority, sSequence++);
+                    IMAGE_THREAD_POOL_EXECUTOR.execute(mRunnable);
+                }
+            };
+        }
+
+        /**
+         * Moves the task to the head of the tasks of the priority, if it's not started yet.
+         */
+        @UiThread
+        private void promote(int priority) {
+            if (mRunnable == null || mStarted) {
+                return;
+            }
+            priority = Math.min(priority, mRunnable.mPriority);
+            if (IMAGE_THREAD_POOL_EXECUTOR.remove(mRunnable)) {
+                mRunnable = new PrioritizedRunnable(mRunnable.mRunnable, priority, sSequence++);
+                IMAGE_THREAD_POOL_EXECUTOR.execute(mRunnable);
+            }
+        }
+
         public LoadBitmapTask(Context context, ImageCache imageCache, String key, int maxHeight,
                 int maxWidth) {
             if (maxWidth == 0 || maxHeight == 0) {
@@ -325,6 +482,10 @@ public final class ImageLoader {
         @Override
         @Nullable
         public final ScaledBitmapInfo doInBackground(Void... params) {
+            mStarted = true;
+            if (isCancelled()) {
+                return null;
+            }
             ScaledBitmapInfo bitmapInfo = getFromCache();
             if (bitmapInfo != null && !isReloadNeeded()) {
                 return bitmapInfo;
@@ -341,9 +502,23 @@ public final class ImageLoader {
             if (DEBUG) Log.d(ImageLoader.TAG, "Bitmap is loaded " + mKey);
 
             for (ImageLoader.ImageLoaderCallback callback : mCallbacks) {
+                unregisterCallback(callback);
                 callback.onBitmapLoaded(scaledBitmapInfo == null ? null : scaledBitmapInfo.bitmap);
             }
-            ImageLoader.sPendingListMap.remove(mKey);
+            removeFromPendingList();
+        }
+
+        @Override
+        protected final void onCancelled(ScaledBitmapInfo scaledBitmapInfo) {
+            if (DEBUG) Log.d(ImageLoader.TAG, "Bitmap loading is canceled " + mKey);
+            removeFromPendingList();
+        }
+
+        private void removeFromPendingList() {
+            // A larger bitmap can be being loaded by another task.
+            if (ImageLoader.sPendingListMap.get(mKey) == this) {
+                ImageLoader.sPendingListMap.remove(mKey);
+            }
         }
 
         public final String getKey() {
@@ -404,6 +579,33 @@ public final class ImageLoader {
         }
     }
 
+    private static final class PrioritizedRunnable implements Runnable,
+            Comparable<PrioritizedRunnable> {
+        private final Runnable mRunnable;
+        private final int mPriority;
+        private final long mSequence;
+
+        PrioritizedRunnable(Runnable runnable, int priority, long sequence) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+
+        @Override
+        public int compareTo(@NonNull PrioritizedRunnable other) {
+            if (mPriority != other.mPriority) {
+                return mPriority - other.mPriority;
+            }
+            // The newer one first.
+            return Long.compare(other.mSequence, mSequence);
+        }
+    }
+
     private static synchronized Handler getMainHandler() {
         if (sMainHandler == null) {
             sMainHandler = new Handler(Looper.getMainLooper());
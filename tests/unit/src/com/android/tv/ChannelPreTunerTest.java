@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv;
+
+import static org.mockito.Mockito.when;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.tv.data.Channel;
+import com.android.tv.testing.FakeClock;
+
+import junit.framework.TestCase;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ChannelPreTuner}.
+ */
+@SmallTest
+public class ChannelPreTunerTest extends TestCase {
+    private static final Channel CURRENT = new Channel.Builder().setId(2).build();
+    private static final Channel UP = new Channel.Builder().setId(3).build();
+    private static final Channel DOWN = new Channel.Builder().setId(1).build();
+
+    @Mock ChannelTuner mChannelTuner;
+    private FakeClock mFakeClock;
+    private ChannelPreTuner mChannelPreTuner;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        MockitoAnnotations.initMocks(this);
+        mFakeClock = FakeClock.createWithCurrentTime();
+        mChannelPreTuner = new ChannelPreTuner(mChannelTuner, null, mFakeClock);
+        when(mChannelTuner.getCurrentChannel()).thenReturn(CURRENT);
+        when(mChannelTuner.getAdjacentBrowsableChannel(true)).thenReturn(UP);
+        when(mChannelTuner.getAdjacentBrowsableChannel(false)).thenReturn(DOWN);
+    }
+
+    public void testGetPredictedChannel_noCurrentChannel() {
+        when(mChannelTuner.getCurrentChannel()).thenReturn(null);
+        assertNull(mChannelPreTuner.getPredictedChannel());
+    }
+
+    public void testGetPredictedChannel_onlyChannel() {
+        when(mChannelTuner.getAdjacentBrowsableChannel(true)).thenReturn(CURRENT);
+        when(mChannelTuner.getAdjacentBrowsableChannel(false)).thenReturn(CURRENT);
+        assertNull(mChannelPreTuner.getPredictedChannel());
+    }
+
+    public void testGetPredictedChannel_followsZappingDirection() {
+        assertEquals(UP, mChannelPreTuner.getPredictedChannel());
+        mChannelPreTuner.onZapped(false);
+        assertEquals(DOWN, mChannelPreTuner.getPredictedChannel());
+        mFakeClock.increment(TimeUnit.MILLISECONDS, ChannelPreTuner.ZAPPING_TIMEOUT_MS);
+        assertEquals("Zapping timed out", UP, mChannelPreTuner.getPredictedChannel());
+    }
+
+    public void testPredict_byWatchedDuration() {
+        assertEquals(UP, ChannelPreTuner.predict(UP, DOWN, 0, 0));
+        assertEquals(UP, ChannelPreTuner.predict(UP, DOWN, 10, 5));
+        assertEquals(DOWN, ChannelPreTuner.predict(UP, DOWN, 5, 10));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.tv.data.Program;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link ProgramTimeline}.
+ */
+@SmallTest
+public class ProgramTimelineTest extends TestCase {
+    private static final long MAX_DUMMY_DURATION = 100;
+    private static final long CHANNEL_ID = 1;
+
+    private ProgramTimeline mTimeline;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTimeline = new ProgramTimeline(MAX_DUMMY_DURATION);
+    }
+
+    public void testGet_empty() {
+        assertTrue(mTimeline.isEmpty());
+        assertEquals(TimeShiftManager.INVALID_TIME, mTimeline.getStartTimeMs());
+        assertNull(mTimeline.get(0));
+    }
+
+    public void testGet_dummyProgramsAreAligned() {
+        assertTrue(mTimeline.extend(50, 320));
+        assertFalse(mTimeline.extend(60, 300));
+        assertDummy(mTimeline.get(50), 50, 100);
+        assertDummy(mTimeline.get(99), 50, 100);
+        assertDummy(mTimeline.get(100), 100, 200);
+        assertDummy(mTimeline.get(310), 300, 320);
+        assertNull(mTimeline.get(49));
+        assertNull(mTimeline.get(320));
+    }
+
+    public void testAddAll_gapsBecomeDummyPrograms() {
+        Program p1 = createProgram(120, 180);
+        Program p2 = createProgram(250, 400);
+        mTimeline.extend(0, 300);
+        mTimeline.addAll(Arrays.asList(p1, p2));
+        assertEquals(0, mTimeline.getStartTimeMs());
+        assertEquals(400, mTimeline.getEndTimeMs());
+        assertDummy(mTimeline.get(110), 100, 120);
+        assertSame(p1, mTimeline.get(120));
+        assertDummy(mTimeline.get(180), 180, 200);
+        assertDummy(mTimeline.get(200), 200, 250);
+        assertSame(p2, mTimeline.get(399));
+        assertSame(p2, mTimeline.getLastValidProgram());
+    }
+
+    public void testAddAll_replacesOverlappedPrograms() {
+        Program p1 = createProgram(0, 100);
+        Program p2 = createProgram(100, 200);
+        Program p3 = createProgram(200, 300);
+        mTimeline.addAll(Arrays.asList(p1, p2, p3));
+        Program updated = createProgram(50, 150);
+        mTimeline.addAll(Arrays.asList(updated));
+        assertDummy(mTimeline.get(0), 0, 50);
+        assertSame(updated, mTimeline.get(50));
+        assertSame(updated, mTimeline.get(149));
+        assertDummy(mTimeline.get(150), 150, 200);
+        assertSame(p3, mTimeline.get(200));
+    }
+
+    public void testExtend_invalidatesDummyProgram() {
+        mTimeline.extend(150, 180);
+        assertDummy(mTimeline.get(160), 150, 180);
+        mTimeline.extend(120, 250);
+        assertDummy(mTimeline.get(160), 120, 200);
+    }
+
+    private static void assertDummy(Program program, long startTimeMs, long endTimeMs) {
+        assertNotNull(program);
+        assertFalse(program.isValid());
+        assertEquals(startTimeMs, program.getStartTimeUtcMillis());
+        assertEquals(endTimeMs, program.getEndTimeUtcMillis());
+    }
+
+    private static Program createProgram(long startTimeMs, long endTimeMs) {
+        return new Program.Builder()
+                .setChannelId(CHANNEL_ID)
+                .setStartTimeUtcMillis(startTimeMs)
+                .setEndTimeUtcMillis(endTimeMs)
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv;
+
+import android.test.MoreAsserts;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.tv.data.Channel;
+import com.android.tv.data.ChannelNumber;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Tests for {@link SortedChannelList}.
+ */
+@SmallTest
+public class SortedChannelListTest extends TestCase {
+    private static final Comparator<Channel> COMPARATOR = new Comparator<Channel>() {
+        @Override
+        public int compare(Channel lhs, Channel rhs) {
+            return ChannelNumber.compare(lhs.getDisplayNumber(), rhs.getDisplayNumber());
+        }
+    };
+
+    private final Channel mChannel1 = createChannel(1, "1");
+    private final Channel mChannel2 = createChannel(2, "2");
+    private final Channel mChannel3 = createChannel(3, "3");
+    private final Channel mDuplicateChannel2 = createChannel(4, "2");
+
+    private SortedChannelList mList;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mList = new SortedChannelList(COMPARATOR);
+    }
+
+    public void testAdd_keepsOrder() {
+        mList.add(mChannel3);
+        mList.add(mChannel1);
+        mList.add(mChannel2);
+        mList.add(mDuplicateChannel2);
+        mList.add(mChannel2);
+        MoreAsserts.assertContentsInOrder(mList.asList(),
+                mChannel1, mChannel2, mDuplicateChannel2, mChannel3);
+    }
+
+    public void testIndexOf() {
+        mList.setAll(Arrays.asList(mChannel1, mChannel2, mDuplicateChannel2));
+        assertEquals(0, mList.indexOf(mChannel1));
+        assertEquals(1, mList.indexOf(mChannel2));
+        assertEquals(2, mList.indexOf(mDuplicateChannel2));
+        assertEquals(-3 - 1, mList.indexOf(createChannel(5, "2")));
+        assertEquals(-3 - 1, mList.indexOf(mChannel3));
+    }
+
+    public void testRemoveAll_outOfOrderChannel() {
+        // Like a channel whose display number is updated in place.
+        mList.setAll(Arrays.asList(mChannel2, mChannel3, mChannel1));
+        assertTrue(mList.removeAll(Arrays.asList(mChannel1)));
+        assertFalse(mList.removeAll(Arrays.asList(mDuplicateChannel2)));
+        mList.add(mChannel1);
+        MoreAsserts.assertContentsInOrder(mList.asList(), mChannel1, mChannel2, mChannel3);
+    }
+
+    public void testIndexOf_outOfOrderChannel() {
+        mList.setAll(Arrays.asList(mChannel2, mChannel3, mChannel1));
+        assertEquals(2, mList.indexOf(mChannel1));
+        assertEquals(-2 - 1, mList.indexOf(createChannel(5, "3")));
+    }
+
+    public void testAdd_movesOutOfOrderChannel() {
+        mList.setAll(Arrays.asList(mChannel2, mChannel3, mChannel1));
+        mList.add(mChannel1);
+        MoreAsserts.assertContentsInOrder(mList.asList(), mChannel1, mChannel2, mChannel3);
+    }
+
+    private static Channel createChannel(long id, String displayNumber) {
+        return new Channel.Builder()
+                .setId(id)
+                .setDisplayNumber(displayNumber)
+                .build();
+    }
+}
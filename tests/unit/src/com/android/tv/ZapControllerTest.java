@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.tv.testing.FakeClock;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ZapController}.
+ */
+@SmallTest
+public class ZapControllerTest extends TestCase {
+    private FakeClock mFakeClock;
+    private ZapController mZapController;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mFakeClock = FakeClock.createWithCurrentTime();
+        mZapController = new ZapController(mFakeClock);
+    }
+
+    public void testGetTuneDelayMs_singleZap() {
+        mZapController.onZapped();
+        assertEquals(0, mZapController.getTuneDelayMs());
+        advance(ZapController.BURST_INTERVAL_MS);
+        mZapController.onZapped();
+        assertEquals(0, mZapController.getTuneDelayMs());
+    }
+
+    public void testGetTuneDelayMs_burst() {
+        mZapController.onZapped();
+        advance(300);
+        mZapController.onZapped();
+        assertEquals(300 + ZapController.TUNE_DELAY_MARGIN_MS, mZapController.getTuneDelayMs());
+        advance(100);
+        mZapController.onZapped();
+        assertEquals(200 + ZapController.TUNE_DELAY_MARGIN_MS, mZapController.getTuneDelayMs());
+    }
+
+    public void testGetTuneDelayMs_limited() {
+        mZapController.onZapped();
+        advance(ZapController.BURST_INTERVAL_MS - 1);
+        mZapController.onZapped();
+        assertEquals(ZapController.MAX_TUNE_DELAY_MS, mZapController.getTuneDelayMs());
+    }
+
+    public void testGetTuneDelayMs_burstEnds() {
+        mZapController.onZapped();
+        advance(200);
+        mZapController.onZapped();
+        advance(ZapController.BURST_INTERVAL_MS);
+        mZapController.onZapped();
+        assertEquals(0, mZapController.getTuneDelayMs());
+    }
+
+    private void advance(long ms) {
+        mFakeClock.increment(TimeUnit.MILLISECONDS, ms);
+    }
+}
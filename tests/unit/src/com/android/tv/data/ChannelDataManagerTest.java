@@ -17,9 +17,12 @@
 package com.android.tv.data;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.ContentObserver;
 import android.database.Cursor;
 import android.media.tv.TvContract;
@@ -90,6 +93,7 @@ public class ChannelDataManagerTest extends AndroidTestCase {
                 mChannelDataManager = new ChannelDataManager(getContext(), mockHelper,
                         mContentResolver);
                 mChannelDataManager.addListener(mListener);
+                mChannelDataManager.addChannelListChangeListener(mListener);
             }
         });
     }
@@ -300,6 +304,10 @@ public class ChannelDataManagerTest extends AndroidTestCase {
         assertTrue(
                 mListener.channelListUpdatedLatch.await(WAIT_TIME_OUT_MS, TimeUnit.MILLISECONDS));
         assertEquals(Constants.UNIT_TEST_CHANNEL_COUNT + 1, mChannelDataManager.getChannelCount());
+        assertEquals(1, mListener.addedChannels.size());
+        assertEquals(testChannelId, mListener.addedChannels.get(0).getId());
+        assertEquals(0, mListener.removedChannels.size());
+        assertEquals(0, mListener.updatedChannels.size());
 
         // Test channel update
         mListener.reset();
@@ -320,6 +328,9 @@ public class ChannelDataManagerTest extends AndroidTestCase {
         assertEquals(newName, updatedChannel.getDisplayName());
         assertEquals(Constants.UNIT_TEST_CHANNEL_COUNT + 1,
                 mChannelDataManager.getChannelCount());
+        MoreAsserts.assertContentsInAnyOrder(mListener.updatedChannels, updatedChannel);
+        assertSame("The instance should be kept", updatedChannel,
+                mChannelDataManager.getChannel(testChannelId));
 
         // Test channel remove.
         mListener.reset();
@@ -335,6 +346,7 @@ public class ChannelDataManagerTest extends AndroidTestCase {
         assertEquals(newName, removedChannel.getDisplayName());
         assertEquals(testChannelInfo.number, removedChannel.getDisplayNumber());
         assertEquals(Constants.UNIT_TEST_CHANNEL_COUNT, mChannelDataManager.getChannelCount());
+        MoreAsserts.assertContentsInAnyOrder(mListener.removedChannels, removedChannel);
     }
 
     private class ChannelInfoWrapper {
@@ -464,6 +476,20 @@ public class ChannelDataManagerTest extends AndroidTestCase {
             return updateCount;
         }
 
+        /**
+         * Implementation of {@link ContentProvider#applyBatch}, which is not supported by
+         * {@link MockContentProvider}.
+         */
+        @Override
+        public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+                throws OperationApplicationException {
+            ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+            for (int i = 0; i < operations.size(); i++) {
+                results[i] = operations.get(i).apply(this, results, i);
+            }
+            return results;
+        }
+
         /**
          * Simulates channel data insert.
          * This assigns original network ID (the same with channel number) to channel ID.
@@ -616,10 +642,14 @@ public class ChannelDataManagerTest extends AndroidTestCase {
         }
     }
 
-    private class TestChannelDataManagerListener implements ChannelDataManager.Listener {
+    private class TestChannelDataManagerListener implements ChannelDataManager.Listener,
+            ChannelDataManager.ChannelListChangeListener {
         public CountDownLatch loadFinishedLatch = new CountDownLatch(1);
         public CountDownLatch channelListUpdatedLatch = new CountDownLatch(1);
         public boolean channelBrowsableChangedCalled;
+        public final List<Channel> addedChannels = new ArrayList<>();
+        public final List<Channel> removedChannels = new ArrayList<>();
+        public final List<Channel> updatedChannels = new ArrayList<>();
 
         @Override
         public void onLoadFinished() {
@@ -636,10 +666,21 @@ public class ChannelDataManagerTest extends AndroidTestCase {
             channelBrowsableChangedCalled = true;
         }
 
+        @Override
+        public void onChannelListChanged(List<Channel> addedChannels,
+                List<Channel> removedChannels, List<Channel> updatedChannels) {
+            this.addedChannels.addAll(addedChannels);
+            this.removedChannels.addAll(removedChannels);
+            this.updatedChannels.addAll(updatedChannels);
+        }
+
         public void reset() {
             loadFinishedLatch = new CountDownLatch(1);
             channelListUpdatedLatch = new CountDownLatch(1);
             channelBrowsableChangedCalled = false;
+            addedChannels.clear();
+            removedChannels.clear();
+            updatedChannels.clear();
         }
     }
 
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.data;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link ChannelLogoIndex}.
+ */
+@SmallTest
+public class ChannelLogoIndexTest extends TestCase {
+    private static final String US_TABLE = "# STATION_NAME|SHORT_NAME|CALL_SIGN|LOGO_URI\n"
+            + "KQED|KQED|KQED|http://logo/kqed.png\n"
+            + "W05AAD (W05AA-D)|W05|W05AAD|http://logo/w05.png\n"
+            + "Duplicate|DUP|DUP|http://logo/us_dup.png\n";
+    private static final String KR_TABLE = "Duplicate|DUP|DUP|http://logo/kr_dup.png\n";
+
+    public void testGetLogoUri() throws IOException {
+        ChannelLogoIndex index = buildIndex();
+        assertEquals("http://logo/kqed.png", index.getLogoUri("KQED"));
+        assertEquals("http://logo/w05.png", index.getLogoUri("W05AA-D"));
+        assertEquals("Latter table", "http://logo/kr_dup.png", index.getLogoUri("DUP"));
+        assertNull(index.getLogoUri("kqed"));
+        assertNull(index.getLogoUri("CNN"));
+    }
+
+    public void testWriteAndRead() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buildIndex().write(out, 1);
+
+        assertNull("Outdated", ChannelLogoIndex.read(
+                new ByteArrayInputStream(out.toByteArray()), 2));
+        ChannelLogoIndex index = ChannelLogoIndex.read(
+                new ByteArrayInputStream(out.toByteArray()), 1);
+        assertNotNull(index);
+        assertEquals("http://logo/kqed.png", index.getLogoUri("KQED"));
+        assertEquals("http://logo/w05.png", index.getLogoUri("W05"));
+        assertNull(index.getLogoUri("CNN"));
+    }
+
+    private static ChannelLogoIndex buildIndex() throws IOException {
+        return ChannelLogoIndex.build(Arrays.<Reader>asList(new StringReader(US_TABLE),
+                new StringReader(KR_TABLE)));
+    }
+}
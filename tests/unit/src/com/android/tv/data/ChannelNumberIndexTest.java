@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.data;
+
+import android.test.MoreAsserts;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link ChannelNumberIndex}.
+ */
+@SmallTest
+public class ChannelNumberIndexTest extends TestCase {
+    private static final String[] DISPLAY_NUMBERS = {
+            "1-11", "7", "7-1", "7.2", "7 11", "11-1", "71", "111", "abc"};
+
+    private ChannelNumberIndex mIndex;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        List<Channel> channels = new ArrayList<>();
+        for (int i = 0; i < DISPLAY_NUMBERS.length; ++i) {
+            channels.add(new Channel.Builder()
+                    .setId(i)
+                    .setDisplayNumber(DISPLAY_NUMBERS[i])
+                    .build());
+        }
+        mIndex = new ChannelNumberIndex(channels);
+    }
+
+    public void testGetCandidates_empty() {
+        assertCandidates(new ChannelNumber(),
+                "1-11", "7", "7-1", "7.2", "7 11", "11-1", "71", "111");
+    }
+
+    public void testGetCandidates_majorNumber() {
+        assertCandidates(new ChannelNumber("7", false, ""), "7", "7-1", "7.2", "7 11", "71");
+        assertCandidates(new ChannelNumber("111", false, ""), "111", "1-11", "11-1");
+        assertCandidates(new ChannelNumber("8", false, ""));
+    }
+
+    public void testGetCandidates_withDelimiter() {
+        assertCandidates(new ChannelNumber("7", true, ""), "7-1", "7.2", "7 11");
+        assertCandidates(new ChannelNumber("7", true, "1"), "7-1", "7 11");
+        assertCandidates(new ChannelNumber("7", true, "11"), "7 11");
+        assertCandidates(new ChannelNumber("71", true, ""));
+    }
+
+    private void assertCandidates(ChannelNumber typed, String... expectedNumbers) {
+        List<String> numbers = new ArrayList<>();
+        for (Channel channel : mIndex.getCandidates(typed)) {
+            numbers.add(channel.getDisplayNumber());
+        }
+        MoreAsserts.assertContentsInOrder(numbers, (Object[]) expectedNumbers);
+    }
+}
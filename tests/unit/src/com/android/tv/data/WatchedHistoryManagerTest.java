@@ -82,12 +82,12 @@ public class WatchedHistoryManagerTest extends AndroidTestCase {
         mWatchedHistoryManager.logChannelViewStop(channel, time, duration);
 
         WatchedRecord record = mWatchedHistoryManager.getRecord(0);
-        WatchedRecord recordFromSharedPreferences =
-                mWatchedHistoryManager.getRecordFromSharedPreferences(0);
+        WatchedRecord recordFromLog =
+                mWatchedHistoryManager.getRecordFromLog(0);
         assertEquals(record.channelId, fakeId);
         assertEquals(record.watchedStartTime, time - duration);
         assertEquals(record.duration, duration);
-        assertEquals(record, recordFromSharedPreferences);
+        assertEquals(record, recordFromLog);
     }
 
     @UiThreadTest
@@ -104,15 +104,44 @@ public class WatchedHistoryManagerTest extends AndroidTestCase {
         }
         for (int i = 0; i < MAX_HISTORY_SIZE; ++i) {
             WatchedRecord record = mWatchedHistoryManager.getRecord(i);
-            WatchedRecord recordFromSharedPreferences =
-                    mWatchedHistoryManager.getRecordFromSharedPreferences(i);
-            assertEquals(record, recordFromSharedPreferences);
+            WatchedRecord recordFromLog =
+                    mWatchedHistoryManager.getRecordFromLog(i);
+            assertEquals(record, recordFromLog);
             assertEquals(record.channelId, startChannelId + size - 1 - i);
         }
-        // Since the WatchedHistory is a circular queue, the value for 0 and maxHistorySize
-        // are same.
-        assertEquals(mWatchedHistoryManager.getRecordFromSharedPreferences(0),
-                mWatchedHistoryManager.getRecordFromSharedPreferences(MAX_HISTORY_SIZE));
+    }
+
+    public void testLoadFromLog() throws Exception {
+        Utils.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mWatchedHistoryManager.start();
+            }
+        });
+        assertTrue(mListener.loadFinishedLatch.await(WAIT_TIME_OUT_MS, TimeUnit.MILLISECONDS));
+        final long fakeId = 100000000;
+        final long time = System.currentTimeMillis();
+        final long duration = TimeUnit.MINUTES.toMillis(10);
+        Utils.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Channel channel = new Channel.Builder().setId(fakeId).build();
+                mWatchedHistoryManager.logChannelViewStop(channel, time, duration);
+            }
+        });
+        final WatchedHistoryManager[] newManager = new WatchedHistoryManager[1];
+        final TestWatchedHistoryManagerListener newListener =
+                new TestWatchedHistoryManagerListener();
+        Utils.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                newManager[0] = new WatchedHistoryManager(getContext(), MAX_HISTORY_SIZE);
+                newManager[0].setListener(newListener);
+                newManager[0].start();
+            }
+        });
+        assertTrue(newListener.loadFinishedLatch.await(WAIT_TIME_OUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(mWatchedHistoryManager.getRecord(0), newManager[0].getRecord(0));
     }
 
     @UiThreadTest
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.data.epg;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.OperationApplicationException;
+import android.media.tv.TvContract;
+import android.test.MoreAsserts;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the batch operations of {@link EpgFetcher}.
+ */
+@SmallTest
+public class EpgFetcherTest extends TestCase {
+    private FakeContentProvider mProvider;
+    private MockContentResolver mResolver;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mProvider = new FakeContentProvider();
+        mResolver = new MockContentResolver();
+        mResolver.addProvider(TvContract.AUTHORITY, mProvider);
+    }
+
+    public void testApplyBatch_keepsRemainingOperations() {
+        ArrayList<ContentProviderOperation> ops = createOperations(250);
+        assertTrue(EpgFetcher.applyBatch(mResolver, ops, false));
+        MoreAsserts.assertContentsInOrder(mProvider.mBatchSizes, 100, 100);
+        assertEquals(50, ops.size());
+    }
+
+    public void testApplyBatch_flush() {
+        ArrayList<ContentProviderOperation> ops = createOperations(250);
+        assertTrue(EpgFetcher.applyBatch(mResolver, ops, true));
+        MoreAsserts.assertContentsInOrder(mProvider.mBatchSizes, 100, 100, 50);
+        assertTrue(ops.isEmpty());
+    }
+
+    public void testApplyBatch_failure() {
+        mProvider.mFail = true;
+        ArrayList<ContentProviderOperation> ops = createOperations(150);
+        assertFalse(EpgFetcher.applyBatch(mResolver, ops, true));
+        MoreAsserts.assertContentsInOrder(mProvider.mBatchSizes, 100);
+        assertTrue(ops.isEmpty());
+    }
+
+    private static ArrayList<ContentProviderOperation> createOperations(int count) {
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            ops.add(ContentProviderOperation.newDelete(TvContract.buildProgramUri(i)).build());
+        }
+        return ops;
+    }
+
+    private static class FakeContentProvider extends MockContentProvider {
+        private final List<Integer> mBatchSizes = new ArrayList<>();
+        private boolean mFail;
+
+        @Override
+        public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+                throws OperationApplicationException {
+            mBatchSizes.add(operations.size());
+            if (mFail) {
+                throw new OperationApplicationException("Failed for testing");
+            }
+            return new ContentProviderResult[operations.size()];
+        }
+    }
+}
@@ -63,7 +63,11 @@ public class DvrDataManagerImplTest extends TestCase {
     }
 
     private void assertNextStartTime(List<ScheduledRecording> scheduledRecordings, long startTime, long expected) {
+        ScheduledRecordingIndex index = new ScheduledRecordingIndex();
+        for (ScheduledRecording r : scheduledRecordings) {
+            index.put(r);
+        }
         assertEquals("getNextScheduledStartTimeAfter()", expected,
-                DvrDataManagerImpl.getNextStartTimeAfter(scheduledRecordings, startTime));
+                index.getNextStartTimeAfter(startTime));
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.dvr;
+
+import android.media.tv.TvContract.Programs.Genres;
+import android.test.MoreAsserts;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.tv.common.recording.RecordedProgram;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for {@link RecordedProgramLibrary}.
+ */
+@SmallTest
+public class RecordedProgramLibraryTest extends TestCase {
+    private static final long CHANNEL_ID = 273;
+    private static final long OTHER_CHANNEL_ID = 274;
+
+    public void testGetSummaries_indexes() {
+        RecordedProgramLibrary library = new RecordedProgramLibrary();
+        library.put(createProgram(3, CHANNEL_ID, 30L, Genres.NEWS));
+        library.put(createProgram(1, OTHER_CHANNEL_ID, 10L, Genres.SPORTS));
+        library.put(createProgram(2, CHANNEL_ID, 20L, Genres.encode(Genres.NEWS, Genres.MOVIES)));
+
+        assertIds(library.getSummaries(), 1, 2, 3);
+        assertIds(library.getSummariesForChannel(CHANNEL_ID), 2, 3);
+        assertIds(library.getSummariesForGenre(Genres.NEWS), 2, 3);
+        assertIds(library.getSummariesForGenre(Genres.MOVIES), 2);
+        MoreAsserts.assertEmpty(library.getSummariesForGenre(Genres.DRAMA));
+        assertIds(library.getSummariesStartingBetween(10L, 30L), 1, 2);
+        assertIds(library.getSummariesStartingBetween(11L, 31L), 2, 3);
+        MoreAsserts.assertEmpty(library.getSummariesStartingBetween(30L, 30L));
+
+        assertNotNull(library.remove(2));
+        assertIds(library.getSummariesForChannel(CHANNEL_ID), 3);
+        MoreAsserts.assertEmpty(library.getSummariesForGenre(Genres.MOVIES));
+        assertEquals(2, library.size());
+    }
+
+    public void testPut_summaryDropsCachedProgram() {
+        RecordedProgramLibrary library = new RecordedProgramLibrary();
+        RecordedProgram program = createProgram(1, CHANNEL_ID, 10L, null);
+        assertNull(library.put(program));
+        assertSame(program, library.getCachedProgram(1));
+
+        RecordedProgram updated = RecordedProgram.buildFrom(program).setStartTimeUtcMillis(20L)
+                .build();
+        assertNotNull(library.put(RecordedProgramSummary.fromRecordedProgram(updated)));
+        assertNull(library.getCachedProgram(1));
+        assertIds(library.getSummariesStartingBetween(20L, 21L), 1);
+    }
+
+    public void testCache_evictsLeastRecentlyUsed() {
+        RecordedProgramLibrary library = new RecordedProgramLibrary(2);
+        for (long id = 1; id <= 3; ++id) {
+            library.put(RecordedProgramSummary.fromRecordedProgram(
+                    createProgram(id, CHANNEL_ID, id * 10, null)));
+        }
+        RecordedProgram p1 = createProgram(1, CHANNEL_ID, 10L, null);
+        library.cache(p1);
+        library.cache(createProgram(2, CHANNEL_ID, 20L, null));
+        library.getCachedProgram(1);
+        library.cache(createProgram(3, CHANNEL_ID, 30L, null));
+        assertSame(p1, library.getCachedProgram(1));
+        assertNull(library.getCachedProgram(2));
+        assertNotNull(library.getCachedProgram(3));
+        assertEquals("Evicted programs keep their summaries", 3, library.size());
+
+        library.cache(createProgram(4, CHANNEL_ID, 40L, null));
+        assertNull("Programs without summaries are not cached", library.getCachedProgram(4));
+    }
+
+    private static void assertIds(List<RecordedProgramSummary> summaries, long... ids) {
+        assertEquals(summaries.toString(), ids.length, summaries.size());
+        for (int i = 0; i < ids.length; ++i) {
+            assertEquals(summaries.toString(), ids[i], summaries.get(i).getId());
+        }
+    }
+
+    private static RecordedProgram createProgram(long id, long channelId, long startTime,
+            String canonicalGenres) {
+        return RecordedProgram.builder()
+                .setId(id)
+                .setChannelId(channelId)
+                .setStartTimeUtcMillis(startTime)
+                .setEndTimeUtcMillis(startTime + 5)
+                .setCanonicalGenres(canonicalGenres)
+                .build();
+    }
+}
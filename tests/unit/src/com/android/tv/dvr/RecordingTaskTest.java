@@ -83,7 +83,7 @@ public class RecordingTaskTest extends AndroidTestCase {
         RecordingTask task = createRecordingTask(r, channel);
         String inputId = channel.getInputId();
         when(mMockSessionManager.canAcquireDvrSession(inputId, channel)).thenReturn(true);
-        when(mMockSessionManager.createTvRecordingClient("tag", task, null))
+        when(mMockSessionManager.createTvRecordingClient(inputId, "tag", task, null))
                 .thenReturn(mMockTvRecordingClient);
         when(mMockHandler.sendEmptyMessageDelayed(anyInt(), anyLong())).thenReturn(true);
 
@@ -93,7 +93,7 @@ public class RecordingTaskTest extends AndroidTestCase {
 
         assertEquals(State.CONNECTION_PENDING, task.getState());
         verify(mMockSessionManager).canAcquireDvrSession(inputId, channel);
-        verify(mMockSessionManager).createTvRecordingClient("tag", task, null);
+        verify(mMockSessionManager).createTvRecordingClient(inputId, "tag", task, null);
         verify(mMockTvRecordingClient).tune(eq(inputId), eq(channel.getUri()));
 
         verifySendMessageAt(RecordingTask.MESSAGE_START_RECORDING, uptime + delay);
@@ -105,11 +105,32 @@ public class RecordingTaskTest extends AndroidTestCase {
                 .build();
     }
 
+    public void testHandle_init_waitForSession() {
+        Channel channel = createTestChannel();
+        ScheduledRecording r = createRecording(channel);
+        r = mDataManager.addScheduledRecordingInternal(r);
+        RecordingTask task = createRecordingTask(r, channel);
+
+        when(mMockSessionManager.canAcquireDvrSession(channel.getInputId(), channel))
+                .thenReturn(false);
+        long uptime = SystemClock.uptimeMillis();
+
+        assertTrue(task.handleMessage(createMessage(RecordingTask.MESSAGE_INIT)));
+
+        assertEquals(State.NOT_STARTED, task.getState());
+        verifySendMessageAt(RecordingTask.MESSAGE_INIT,
+                uptime + RecordingTask.MS_TO_RETRY_SESSION);
+        assertEquals("status", ScheduledRecording.STATE_RECORDING_NOT_STARTED,
+                mDataManager.getScheduledRecording(r.getId()).getState());
+    }
+
     public void testHandle_init_cannotAcquireSession() {
         Channel channel = createTestChannel();
         ScheduledRecording r = createRecording(channel);
         r = mDataManager.addScheduledRecordingInternal(r);
         RecordingTask task = createRecordingTask(r, channel);
+        mFakeClock.increment(TimeUnit.MILLISECONDS,
+                START_OFFSET + RecordingTask.MS_TO_WAIT_FOR_SESSION);
 
         when(mMockSessionManager.canAcquireDvrSession(channel.getInputId(), channel))
                 .thenReturn(false);
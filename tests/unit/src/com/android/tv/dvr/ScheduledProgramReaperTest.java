@@ -99,6 +99,34 @@ public class ScheduledProgramReaperTest extends TestCase {
                 mDvrDataManager.getAllScheduledRecordings());
     }
 
+    public void testRun_multipleRecordingsExpired() {
+        addNewScheduledRecordingForTomorrow();
+        addNewScheduledRecordingForTomorrow();
+        final int[] notifiedCount = new int[1];
+        mDvrDataManager.addScheduledRecordingListener(
+                new DvrDataManager.ScheduledRecordingListener() {
+                    @Override
+                    public void onScheduledRecordingAdded(ScheduledRecording... recordings) { }
+
+                    @Override
+                    public void onScheduledRecordingRemoved(ScheduledRecording... recordings) {
+                        ++notifiedCount[0];
+                        assertEquals("removed recordings", 2, recordings.length);
+                    }
+
+                    @Override
+                    public void onScheduledRecordingStatusChanged(
+                            ScheduledRecording... recordings) { }
+                });
+        mFakeClock.increment(TimeUnit.DAYS, 1 + ScheduledProgramReaper.DAYS);
+        mFakeClock.increment(TimeUnit.MILLISECONDS, DURATION);
+        mFakeClock.increment(TimeUnit.SECONDS, 1);
+
+        mReaper.run();
+        MoreAsserts.assertContentsInAnyOrder(mDvrDataManager.getAllScheduledRecordings());
+        assertEquals("notified count", 1, notifiedCount[0]);
+    }
+
     private ScheduledRecording addNewScheduledRecordingForTomorrow() {
         long startTime = mFakeClock.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
         return RecordingTestUtils.addScheduledRecording(mDvrDataManager, CHANNEL_ID, startTime,
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.dvr;
+
+import android.test.MoreAsserts;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Range;
+
+import com.android.tv.testing.dvr.RecordingTestUtils;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link ScheduledRecordingIndex}.
+ */
+@SmallTest
+public class ScheduledRecordingIndexTest extends TestCase {
+    private static final long CHANNEL_ID = 273;
+    private static final long OTHER_CHANNEL_ID = 274;
+
+    public void testGetRecordingsThatOverlapWith() {
+        ScheduledRecordingIndex index = new ScheduledRecordingIndex();
+        ScheduledRecording r1 = index(index, createRecording(1, CHANNEL_ID, 0L, 100L));
+        ScheduledRecording r2 = index(index, createRecording(2, CHANNEL_ID, 10L, 20L));
+        ScheduledRecording r3 = index(index, createRecording(3, OTHER_CHANNEL_ID, 30L, 40L));
+        MoreAsserts.assertContentsInOrder(
+                index.getRecordingsThatOverlapWith(new Range<>(50L, 60L)), r1);
+        MoreAsserts.assertContentsInOrder(
+                index.getRecordingsThatOverlapWith(new Range<>(15L, 30L)), r1, r2, r3);
+        MoreAsserts.assertEmpty(index.getRecordingsThatOverlapWith(new Range<>(101L, 200L)));
+
+        index.remove(r1.getId());
+        MoreAsserts.assertEmpty(index.getRecordingsThatOverlapWith(new Range<>(50L, 60L)));
+        MoreAsserts.assertContentsInOrder(
+                index.getRecordingsThatOverlapWith(new Range<>(20L, 30L)), r2, r3);
+    }
+
+    public void testPut_update() {
+        ScheduledRecordingIndex index = new ScheduledRecordingIndex();
+        ScheduledRecording r1 = index(index, createRecording(1, CHANNEL_ID, 10L, 20L));
+        ScheduledRecording updated = ScheduledRecording.buildFrom(r1)
+                .setStartTime(30L).setEndTime(40L).setChannelId(OTHER_CHANNEL_ID)
+                .setState(ScheduledRecording.STATE_RECORDING_FINISHED)
+                .build();
+        assertSame(r1, index.put(updated));
+        assertEquals(1, index.size());
+        assertEquals(30L, index.getNextStartTimeAfter(0L));
+        MoreAsserts.assertEmpty(index.getRecordingsThatOverlapWith(new Range<>(10L, 20L)));
+        MoreAsserts.assertEmpty(
+                index.getRecordingsWithState(ScheduledRecording.STATE_RECORDING_NOT_STARTED));
+        MoreAsserts.assertContentsInOrder(
+                index.getRecordingsWithState(ScheduledRecording.STATE_RECORDING_FINISHED),
+                updated);
+    }
+
+    public void testGetConflictingRecordings_enoughTuners() {
+        ScheduledRecording r1 = createRecording(1, CHANNEL_ID, 0L, 100L);
+        ScheduledRecording r2 = createRecording(2, CHANNEL_ID, 50L, 150L);
+        MoreAsserts.assertEmpty(ScheduledRecordingIndex.getConflictingRecordings(
+                Arrays.asList(r1, r2), 40L, 120L, 3));
+        MoreAsserts.assertEmpty("Touching only", ScheduledRecordingIndex.getConflictingRecordings(
+                Collections.singletonList(r1), 100L, 120L, 1));
+    }
+
+    public void testGetConflictingRecordings_lowestPriorityFirst() {
+        ScheduledRecording r1 = createRecording(1, CHANNEL_ID, 0L, 100L);
+        ScheduledRecording r2 = createRecording(2, CHANNEL_ID, 50L, 150L);
+        ScheduledRecording r3 = createRecording(3, CHANNEL_ID, 110L, 130L);
+        // r1 and r2 run at the same time only before 100, and r2 and r3 only after 110.
+        MoreAsserts.assertContentsInOrder(ScheduledRecordingIndex.getConflictingRecordings(
+                Arrays.asList(r1, r2, r3), 0L, 150L, 2), r2, r3);
+        MoreAsserts.assertContentsInOrder(ScheduledRecordingIndex.getConflictingRecordings(
+                Arrays.asList(r1, r2, r3), 0L, 105L, 2), r2);
+        MoreAsserts.assertContentsInOrder(ScheduledRecordingIndex.getConflictingRecordings(
+                Arrays.asList(r1, r2, r3), 0L, 150L, 1), r1, r2, r3);
+    }
+
+    public void testGetConflictingRecordings_withMargins() {
+        ScheduledRecording r1 = createRecording(1, CHANNEL_ID, 0L, 100L);
+        ScheduledRecording r2 = createRecording(2, CHANNEL_ID, 130L, 150L);
+        // The new recording takes the tuner from 90 to 125.
+        MoreAsserts.assertContentsInOrder(ScheduledRecordingIndex.getConflictingRecordings(
+                Arrays.asList(r1, r2), 100L, 120L, 1, 10L, 5L), r1);
+        MoreAsserts.assertContentsInOrder(ScheduledRecordingIndex.getConflictingRecordings(
+                Arrays.asList(r1, r2), 100L, 125L, 1, 10L, 0L), r1, r2);
+    }
+
+    private static ScheduledRecording index(ScheduledRecordingIndex index, ScheduledRecording r) {
+        index.put(r);
+        return r;
+    }
+
+    private static ScheduledRecording createRecording(long id, long channelId, long startTime,
+            long endTime) {
+        return RecordingTestUtils.normalizePriority(RecordingTestUtils
+                .createTestRecordingWithIdAndPeriod(id, channelId, startTime, endTime));
+    }
+}
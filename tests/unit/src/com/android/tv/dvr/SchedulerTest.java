@@ -19,12 +19,16 @@ package com.android.tv.dvr;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
 import android.support.test.filters.SdkSuppress;
 import android.test.AndroidTestCase;
@@ -37,6 +41,7 @@ import com.android.tv.testing.dvr.RecordingTestUtils;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -45,6 +50,7 @@ import java.util.concurrent.TimeUnit;
 @SmallTest
 @SdkSuppress(minSdkVersion = Build.VERSION_CODES.N)
 public class SchedulerTest extends AndroidTestCase {
+    private static final String TAG = "SchedulerTest";
     private static final int CHANNEL_ID = 273;
 
     private FakeClock mFakeClock;
@@ -60,6 +66,9 @@ public class SchedulerTest extends AndroidTestCase {
     protected void setUp() throws Exception {
         super.setUp();
         MockitoAnnotations.initMocks(this);
+        if (Looper.myLooper() == null) {
+            Looper.prepare();
+        }
         mFakeClock = FakeClock.createWithCurrentTime();
         mDataManager = new DvrDataManagerInMemoryImpl(getContext(), mFakeClock);
         mScheduler = new Scheduler(Looper.myLooper(), mDvrManager, mSessionManager, mDataManager,
@@ -85,6 +94,67 @@ public class SchedulerTest extends AndroidTestCase {
                 any(PendingIntent.class));
     }
 
+    public void testUpdate_skipsPendingStartTime() throws Exception {
+        long now = mFakeClock.currentTimeMillis();
+        long soonStartTime = now + TimeUnit.MINUTES.toMillis(2);
+        long laterStartTime = now + TimeUnit.HOURS.toMillis(12);
+        mDataManager.addScheduledRecording(RecordingTestUtils.createTestRecordingWithPeriod(
+                CHANNEL_ID, soonStartTime, soonStartTime + TimeUnit.HOURS.toMillis(1)));
+        mDataManager.addScheduledRecording(RecordingTestUtils.createTestRecordingWithPeriod(
+                CHANNEL_ID, laterStartTime, laterStartTime + TimeUnit.HOURS.toMillis(1)));
+        mScheduler.update();
+        assertEquals(soonStartTime, mScheduler.getLastStartTimePending());
+        verify(mMockAlarmManager, never()).set(
+                eq(AlarmManager.RTC_WAKEUP),
+                eq(soonStartTime - Scheduler.MS_TO_WAKE_BEFORE_START),
+                any(PendingIntent.class));
+        verify(mMockAlarmManager, atLeastOnce()).set(
+                eq(AlarmManager.RTC_WAKEUP),
+                eq(laterStartTime - Scheduler.MS_TO_WAKE_BEFORE_START),
+                any(PendingIntent.class));
+    }
+
+    public void testOnScheduledRecordingStatusChanged_rescheduleKeepsNewTask()
+            throws Exception {
+        HandlerThread handlerThread = new HandlerThread(TAG);
+        handlerThread.start();
+        try {
+            final Scheduler scheduler = new Scheduler(handlerThread.getLooper(), mDvrManager,
+                    mSessionManager, mDataManager, mChannelDataManager, getContext(),
+                    mFakeClock, mMockAlarmManager);
+            Handler handler = new Handler(handlerThread.getLooper());
+            long now = mFakeClock.currentTimeMillis();
+            final long startTime = now + TimeUnit.MINUTES.toMillis(2);
+            final long newStartTime = now + TimeUnit.MINUTES.toMillis(3);
+            final ScheduledRecording r = RecordingTestUtils.addScheduledRecording(mDataManager,
+                    CHANNEL_ID, startTime, startTime + TimeUnit.HOURS.toMillis(1));
+            runAndWait(handler, new Runnable() {
+                @Override
+                public void run() {
+                    scheduler.update();
+                    assertEquals(startTime, scheduler.getLastStartTimePending());
+                    // Cancels the task and schedules a new one for the same recording. The old
+                    // task is removed by a message which is handled later.
+                    ScheduledRecording updated = ScheduledRecording.buildFrom(r)
+                            .setStartTime(newStartTime)
+                            .setEndTime(newStartTime + TimeUnit.HOURS.toMillis(1))
+                            .build();
+                    mDataManager.updateScheduledRecording(updated);
+                    scheduler.onScheduledRecordingStatusChanged(updated);
+                }
+            });
+            // Waits for the old task to be removed.
+            runAndWait(handler, new Runnable() {
+                @Override
+                public void run() {
+                    assertEquals(newStartTime, scheduler.getLastStartTimePending());
+                }
+            });
+        } finally {
+            handlerThread.quit();
+        }
+    }
+
     public void testStartsWithin() throws Exception {
         long now = mFakeClock.currentTimeMillis();
         long startTime = now + 3;
@@ -93,4 +163,30 @@ public class SchedulerTest extends AndroidTestCase {
         assertFalse(mScheduler.startsWithin(r, 2));
         assertTrue(mScheduler.startsWithin(r, 3));
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs {@code runnable} on the handler and waits for it, so that the messages sent to the
+     * handler before are handled. The failures in it are thrown in this thread.
+     */
+    private static void runAndWait(Handler handler, final Runnable runnable) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Throwable[] error = new Throwable[1];
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    error[0] = t;
+                }
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        if (error[0] instanceof Exception) {
+            throw (Exception) error[0];
+        } else if (error[0] != null) {
+            throw (Error) error[0];
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.guide;
+
+import android.media.tv.TvContract.Programs.Genres;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.tv.data.GenreItems;
+import com.android.tv.data.Program;
+import com.android.tv.guide.ProgramManager.TableEntry;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tests for {@link ProgramGenreIndex}.
+ */
+@SmallTest
+public class ProgramGenreIndexTest extends TestCase {
+    private static final long BUCKET = ProgramGenreIndex.BUCKET_MILLIS;
+    private static final long START_TIME = 10 * BUCKET;
+    private static final int SPORTS = GenreItems.getId(Genres.SPORTS);
+    private static final int MOVIES = GenreItems.getId(Genres.MOVIES);
+
+    private ProgramGenreIndex mIndex;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mIndex = new ProgramGenreIndex();
+        mIndex.reset(START_TIME);
+    }
+
+    public void testGetChannelIndices_byTimeRange() {
+        mIndex.update(0, Arrays.asList(
+                createEntry(0, Genres.SPORTS, START_TIME, START_TIME + BUCKET),
+                createEntry(0, Genres.MOVIES, START_TIME + BUCKET, START_TIME + 3 * BUCKET)));
+        mIndex.update(1, Arrays.asList(
+                createEntry(1, Genres.MOVIES, START_TIME, START_TIME + 3 * BUCKET)));
+
+        assertChannelIndices(mIndex.getChannelIndices(SPORTS, START_TIME, START_TIME + BUCKET),
+                0);
+        assertChannelIndices(mIndex.getChannelIndices(MOVIES, START_TIME, START_TIME + BUCKET),
+                1);
+        assertChannelIndices(mIndex.getChannelIndices(MOVIES, START_TIME,
+                START_TIME + 2 * BUCKET), 0, 1);
+        assertFalse(mIndex.hasChannels(SPORTS, START_TIME + BUCKET, START_TIME + 3 * BUCKET));
+        assertTrue(mIndex.hasChannels(MOVIES, START_TIME + BUCKET, START_TIME + 3 * BUCKET));
+    }
+
+    public void testUpdate_replacesGenresOfChannel() {
+        mIndex.update(0, Arrays.asList(
+                createEntry(0, Genres.SPORTS, START_TIME, START_TIME + 2 * BUCKET)));
+        mIndex.update(0, Arrays.asList(
+                createEntry(0, Genres.MOVIES, START_TIME, START_TIME + BUCKET)));
+
+        assertFalse(mIndex.hasChannels(SPORTS, START_TIME, START_TIME + 2 * BUCKET));
+        assertChannelIndices(mIndex.getChannelIndices(MOVIES, START_TIME, START_TIME + BUCKET),
+                0);
+        assertFalse(mIndex.hasChannels(MOVIES, START_TIME + BUCKET, START_TIME + 2 * BUCKET));
+    }
+
+    public void testUpdate_ignoresBlockedEntries() {
+        mIndex.update(0, Arrays.asList(new TableEntry(0,
+                createProgram(0, Genres.SPORTS, START_TIME, START_TIME + BUCKET),
+                START_TIME, START_TIME + BUCKET, true)));
+
+        assertFalse(mIndex.hasChannels(SPORTS, START_TIME, START_TIME + BUCKET));
+    }
+
+    public void testReset() {
+        mIndex.update(0, Arrays.asList(
+                createEntry(0, Genres.SPORTS, START_TIME, START_TIME + BUCKET)));
+        mIndex.reset(START_TIME);
+
+        assertFalse(mIndex.hasChannels(SPORTS, START_TIME, START_TIME + BUCKET));
+    }
+
+    private static void assertChannelIndices(BitSet actual, int... expected) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = actual.nextSetBit(0); i >= 0; i = actual.nextSetBit(i + 1)) {
+            indices.add(i);
+        }
+        List<Integer> expectedIndices = new ArrayList<>();
+        for (int i : expected) {
+            expectedIndices.add(i);
+        }
+        assertEquals(expectedIndices, indices);
+    }
+
+    private static TableEntry createEntry(long channelId, String genre, long startTimeMs,
+            long endTimeMs) {
+        return new TableEntry(channelId, createProgram(channelId, genre, startTimeMs, endTimeMs),
+                startTimeMs, endTimeMs, false);
+    }
+
+    private static Program createProgram(long channelId, String genre, long startTimeMs,
+            long endTimeMs) {
+        return new Program.Builder()
+                .setChannelId(channelId)
+                .setCanonicalGenres(Genres.encode(genre))
+                .setStartTimeUtcMillis(startTimeMs)
+                .setEndTimeUtcMillis(endTimeMs)
+                .build();
+    }
+}
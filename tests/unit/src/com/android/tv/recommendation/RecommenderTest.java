@@ -189,6 +189,34 @@ public class RecommenderTest extends AndroidTestCase {
                 mChannel_1, mChannel_2);
     }
 
+    public void testRecommendChannels_scoresAreCachedUntilChanged() {
+        createRecommender(true, START_DATAMANAGER_RUNNABLE_ADD_FOUR_CHANNELS);
+
+        mEvaluator.setChannelScore(mChannel_1.getId(), 1.0);
+        MoreAsserts.assertContentsInAnyOrder(mRecommender.recommendChannels(), mChannel_1);
+
+        // The cached scores are used until the evaluator notifies the change.
+        mEvaluator.setChannelScore(mChannel_2.getId(), 1.0);
+        MoreAsserts.assertContentsInAnyOrder(mRecommender.recommendChannels(), mChannel_1);
+
+        mEvaluator.notifyScoreChanged();
+        MoreAsserts.assertContentsInAnyOrder(mRecommender.recommendChannels(),
+                mChannel_1, mChannel_2);
+    }
+
+    public void testRecommendChannels_scoresAreEvaluatedAgainOnNewWatchLog() {
+        createRecommender(true, START_DATAMANAGER_RUNNABLE_ADD_FOUR_CHANNELS);
+
+        mEvaluator.setChannelScore(mChannel_1.getId(), 1.0);
+        MoreAsserts.assertContentsInAnyOrder(mRecommender.recommendChannels(), mChannel_1);
+
+        mEvaluator.setChannelScore(mChannel_2.getId(), 1.0);
+        mChannelRecordSortedMap.addWatchLog(mChannel_3.getId(), DEFAULT_WATCH_START_TIME_MS,
+                TimeUnit.MINUTES.toMillis(10));
+        MoreAsserts.assertContentsInAnyOrder(mRecommender.recommendChannels(),
+                mChannel_1, mChannel_2);
+    }
+
     public void testGetChannelSortKey_recommendAllChannels() {
         createRecommender(true, START_DATAMANAGER_RUNNABLE_ADD_FOUR_CHANNELS);
 
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.search;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.tv.data.Channel;
+import com.android.tv.data.Program;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for {@link SearchIndex}.
+ */
+@SmallTest
+public class SearchIndexTest extends TestCase {
+    private SearchIndex mSearchIndex;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mSearchIndex = new SearchIndex();
+        mSearchIndex.updateChannel(createChannel(1, "7-1", "Sports Channel"), 0);
+        mSearchIndex.updateChannel(createChannel(2, "11", "Eleven News"), 1);
+        mSearchIndex.updateChannel(createChannel(3, "27", "Kids"), 2);
+        mSearchIndex.updateProgram(3, createProgram(3, "Bedtime Newsround"));
+    }
+
+    public void testSearch_channelName() {
+        List<SearchIndex.Match> matches = mSearchIndex.search("sports", false, 10, null);
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).channel.getId());
+        assertNull(matches.get(0).program);
+        assertEquals(SearchIndex.RANK_CHANNEL_NAME, matches.get(0).rank);
+    }
+
+    public void testSearch_rankChannelBeforeProgram() {
+        List<SearchIndex.Match> matches = mSearchIndex.search("news", false, 10, null);
+        assertEquals(2, matches.size());
+        assertEquals(2, matches.get(0).channel.getId());
+        assertEquals(3, matches.get(1).channel.getId());
+        assertEquals(SearchIndex.RANK_PROGRAM_TITLE, matches.get(1).rank);
+    }
+
+    public void testSearch_substring() {
+        List<SearchIndex.Match> matches = mSearchIndex.search("wsro", false, 10, null);
+        assertEquals(1, matches.size());
+        assertEquals(3, matches.get(0).channel.getId());
+        assertFalse(matches.get(0).wordPrefix);
+    }
+
+    public void testSearch_shortQuery() {
+        assertEquals(3, mSearchIndex.search("s", false, 10, null).size());
+        assertEquals(2, mSearchIndex.search("s", false, 2, null).size());
+    }
+
+    public void testSearch_channelNumber() {
+        assertEquals(0, mSearchIndex.search("27", false, 10, null).size());
+        List<SearchIndex.Match> matches = mSearchIndex.search("27", true, 10, null);
+        assertEquals(1, matches.size());
+        assertEquals(SearchIndex.RANK_CHANNEL_NUMBER, matches.get(0).rank);
+    }
+
+    public void testSearch_programFilter() {
+        SearchIndex.ProgramFilter filter = new SearchIndex.ProgramFilter() {
+            @Override
+            public boolean isExcluded(Program program) {
+                return true;
+            }
+        };
+        assertEquals(0, mSearchIndex.search("bedtime", false, 10, filter).size());
+    }
+
+    public void testUpdateProgram() {
+        mSearchIndex.updateProgram(3, createProgram(3, "Cartoons"));
+        assertEquals(0, mSearchIndex.search("bedtime", false, 10, null).size());
+        assertEquals(1, mSearchIndex.search("cartoon", false, 10, null).size());
+    }
+
+    public void testRemoveChannel() {
+        mSearchIndex.removeChannel(2);
+        assertEquals(0, mSearchIndex.search("eleven", false, 10, null).size());
+        mSearchIndex.updateChannel(createChannel(4, "12", "Twelve"), 3);
+        assertEquals(1, mSearchIndex.search("twelve", false, 10, null).size());
+    }
+
+    private static Channel createChannel(long id, String number, String name) {
+        return new Channel.Builder().setId(id).setDisplayNumber(number).setDisplayName(name)
+                .build();
+    }
+
+    private static Program createProgram(long channelId, String title) {
+        return new Program.Builder().setChannelId(channelId).setTitle(title).build();
+    }
+}
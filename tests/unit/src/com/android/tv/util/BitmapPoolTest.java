@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.util;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link BitmapPool}.
+ */
+@SmallTest
+public class BitmapPoolTest extends TestCase {
+    private static final int BITMAP_SIZE_BYTES = 100 * 100 * 2;
+
+    public void testGet_sizeAndConfig() {
+        BitmapPool pool = new BitmapPool(Integer.MAX_VALUE);
+        Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+        pool.put(bitmap);
+        assertNull("Too large", pool.get(101, 100, Bitmap.Config.RGB_565));
+        assertNull("Different config", pool.get(50, 50, Bitmap.Config.ARGB_8888));
+        assertNull("Too small", pool.get(10, 10, Bitmap.Config.RGB_565));
+        assertSame(bitmap, pool.get(80, 80, Bitmap.Config.RGB_565));
+        assertNull("Already taken", pool.get(80, 80, Bitmap.Config.RGB_565));
+    }
+
+    public void testPut_immutable() {
+        BitmapPool pool = new BitmapPool(Integer.MAX_VALUE);
+        Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+        pool.put(bitmap.copy(Bitmap.Config.RGB_565, false));
+        assertEquals(0, pool.getSizeBytes());
+    }
+
+    public void testPut_dropsOldest() {
+        BitmapPool pool = new BitmapPool(BITMAP_SIZE_BYTES);
+        Bitmap oldBitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+        Bitmap newBitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+        pool.put(oldBitmap);
+        pool.put(newBitmap);
+        assertEquals(BITMAP_SIZE_BYTES, pool.getSizeBytes());
+        assertSame(newBitmap, pool.get(100, 100, Bitmap.Config.RGB_565));
+    }
+
+    public void testPerformTrimMemory() {
+        BitmapPool pool = new BitmapPool(Integer.MAX_VALUE);
+        pool.put(Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565));
+        pool.performTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(0, pool.getSizeBytes());
+        assertNull(pool.get(100, 100, Bitmap.Config.RGB_565));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.util;
+
+import android.test.MoreAsserts;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link DbExecutor}.
+ */
+@SmallTest
+public class DbExecutorTest extends TestCase {
+    private DbExecutor mExecutor;
+    private final List<Integer> mExecuted = Collections.synchronizedList(new ArrayList<Integer>());
+    private CountDownLatch mExecutedLatch;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mExecutor = new DbExecutor(1, new NamedThreadFactory("DbExecutorTest"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mExecutor.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testExecute_priorityOrder() throws InterruptedException {
+        mExecutedLatch = new CountDownLatch(4);
+        CountDownLatch blocker = block();
+        mExecutor.execute(record(1), DbExecutor.PRIORITY_LOW);
+        mExecutor.execute(record(2), DbExecutor.PRIORITY_NORMAL);
+        mExecutor.execute(record(3), DbExecutor.PRIORITY_HIGH);
+        mExecutor.execute(record(4), DbExecutor.PRIORITY_HIGH);
+        assertEquals(2, mExecutor.getQueuedTaskCount(DbExecutor.PRIORITY_HIGH));
+        blocker.countDown();
+        awaitExecuted();
+        MoreAsserts.assertContentsInOrder(mExecuted, 3, 4, 2, 1);
+        assertEquals(0, mExecutor.getQueuedTaskCount(DbExecutor.PRIORITY_HIGH));
+    }
+
+    public void testExecute_canceledTaskIsNotRun() throws InterruptedException {
+        mExecutedLatch = new CountDownLatch(1);
+        CountDownLatch blocker = block();
+        FutureTask<Void> canceledTask = new FutureTask<>(record(1), null);
+        mExecutor.execute(canceledTask, DbExecutor.PRIORITY_HIGH);
+        mExecutor.execute(record(2), DbExecutor.PRIORITY_LOW);
+        canceledTask.cancel(false);
+        blocker.countDown();
+        awaitExecuted();
+        MoreAsserts.assertContentsInOrder(mExecuted, 2);
+    }
+
+    private CountDownLatch block() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    // Ignore.
+                }
+            }
+        }, DbExecutor.PRIORITY_HIGH);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        return blocker;
+    }
+
+    private Runnable record(final int value) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mExecuted.add(value);
+                mExecutedLatch.countDown();
+            }
+        };
+    }
+
+    private void awaitExecuted() throws InterruptedException {
+        assertTrue(mExecutedLatch.await(1, TimeUnit.SECONDS));
+    }
+}
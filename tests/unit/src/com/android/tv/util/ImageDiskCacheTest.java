@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tv.util;
+
+import android.graphics.Bitmap;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+
+import com.android.tv.util.BitmapUtils.ScaledBitmapInfo;
+
+import java.io.File;
+
+/**
+ * Tests for {@link ImageDiskCache}.
+ */
+@MediumTest
+public class ImageDiskCacheTest extends AndroidTestCase {
+    private static final String URI_1 = "content://test/1";
+    private static final String URI_2 = "content://test/2";
+
+    private File mDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDir = new File(getContext().getCacheDir(), "ImageDiskCacheTest");
+        deleteDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteDir();
+        super.tearDown();
+    }
+
+    public void testPutAndGet() {
+        ImageDiskCache cache = new ImageDiskCache(mDir, Long.MAX_VALUE);
+        assertNull(cache.get(URI_1, 100, 100));
+        cache.put(createBitmapInfo(URI_1, 2), 100, 100);
+
+        ScaledBitmapInfo bitmapInfo = cache.get(URI_1, 100, 100);
+        assertNotNull(bitmapInfo);
+        assertEquals(URI_1, bitmapInfo.id);
+        assertEquals(2, bitmapInfo.inSampleSize);
+        assertEquals(50, bitmapInfo.bitmap.getWidth());
+        assertNull("Different size", cache.get(URI_1, 200, 200));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testReload() {
+        new ImageDiskCache(mDir, Long.MAX_VALUE).put(createBitmapInfo(URI_1, 1), 100, 100);
+        assertNotNull(new ImageDiskCache(mDir, Long.MAX_VALUE).get(URI_1, 100, 100));
+    }
+
+    public void testEviction() {
+        ImageDiskCache cache = new ImageDiskCache(mDir, Long.MAX_VALUE);
+        cache.put(createBitmapInfo(URI_1, 1), 100, 100);
+        long size = cache.getSizeBytes();
+
+        cache = new ImageDiskCache(mDir, size);
+        cache.put(createBitmapInfo(URI_2, 1), 100, 100);
+        assertNull(cache.get(URI_1, 100, 100));
+        assertNotNull(cache.get(URI_2, 100, 100));
+    }
+
+    private static ScaledBitmapInfo createBitmapInfo(String uri, int inSampleSize) {
+        return new ScaledBitmapInfo(uri, Bitmap.createBitmap(50, 50, Bitmap.Config.RGB_565),
+                inSampleSize);
+    }
+
+    private void deleteDir() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+}